@@ -25,6 +25,7 @@ import org.example.hazelcast.demo.serializing.SerializationDemoRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -110,6 +111,7 @@ public class HazelcastDemoRunner {
    */
   @Bean
   @Order(100)
+  @ConditionalOnProperty(prefix = "demo.menu", name = "enabled", matchIfMissing = true)
   public CommandLineRunner runDemos(
       HazelcastInstance hazelcastInstance,
       @Qualifier("jcacheDemoRunner") CommandLineRunner cacheDemoRunner) {
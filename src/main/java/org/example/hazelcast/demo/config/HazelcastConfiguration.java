@@ -1,29 +1,93 @@
 package org.example.hazelcast.demo.config;
 
 import com.hazelcast.config.*;
+import com.hazelcast.config.cp.CPSubsystemConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.MapStore;
+import org.example.hazelcast.demo.datastructure.ap.flakeid.FlakeIdAllocator;
+import org.example.hazelcast.demo.datastructure.ap.multimap.TagIndex;
+import org.example.hazelcast.demo.datastructure.ap.queue.PriorityItemSerializer;
+import org.example.hazelcast.demo.datastructure.ap.queue.PriorityWorkerPool;
+import org.example.hazelcast.demo.datastructure.ap.set.LongSetMap;
+import org.example.hazelcast.demo.datastructure.ap.set.SortedLongSetSerializer;
+import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.model.User;
+import org.example.hazelcast.demo.store.BoundedWriteBehindStore;
+import org.example.hazelcast.demo.store.JdbcQueueStore;
+import org.example.hazelcast.demo.store.LanedMapStore;
 import org.example.hazelcast.demo.store.ProductMapStore;
 import org.example.hazelcast.demo.store.UserMapStore;
+import org.example.hazelcast.demo.store.WriteAheadLog;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 @Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
 public class HazelcastConfiguration {
 
+    /**
+     * products的有界写后队列，数据库变慢时按配置的策略阻塞、拒绝或溢出到本地文件
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "demo.products.write-behind", name = "bounded", matchIfMissing = true)
+    public BoundedWriteBehindStore<Long, Product> productWriteBehindStore(ProductMapStore productMapStore,
+            ObjectProvider<LanedMapStore<Long, Product>> productStoreLanes,
+            WriteBehindProperties properties) {
+        MapStore<Long, Product> delegate = storeOf(productStoreLanes, productMapStore);
+        return new BoundedWriteBehindStore<>("products", delegate,
+                properties.getCapacity(),
+                properties.getOverflowPolicy(),
+                properties.getBlockTimeoutMillis(),
+                properties.getBatchSize(),
+                properties.getFlushIntervalMillis(),
+                Path.of(properties.getSpillFile()),
+                properties.isWalEnabled()
+                        ? new WriteAheadLog<>(Path.of(properties.getWalDirectory()), "products",
+                                properties.getWalSegmentBytes())
+                        : null);
+    }
+
     @Bean
-    public Config hazelcastConfig(UserMapStore userMapStore, ProductMapStore productMapStore) {
+    public Config hazelcastConfig(UserMapStore userMapStore, ProductMapStore productMapStore,
+            ObjectProvider<BoundedWriteBehindStore<Long, Product>> productWriteBehindStore,
+            ObjectProvider<LanedMapStore<Long, Product>> productStoreLanes,
+            ObjectProvider<LanedMapStore<String, User>> userStoreLanes,
+            DataSource dataSource,
+            @Value("${demo.queue-store.memory-limit:10000}") int queueMemoryLimit,
+            @Value("${demo.queue-store.bulk-load:500}") int queueBulkLoad,
+            @Value("${spring.hazelcast.config:classpath:hazelcast.yaml}") Resource hazelcastYaml) {
+        BoundedWriteBehindStore<Long, Product> boundedStore = productWriteBehindStore.getIfAvailable();
+        MapStoreConfig productMapStoreConfig = new MapStoreConfig()
+                .setEnabled(true)
+                .setInitialLoadMode(MapStoreConfig.InitialLoadMode.EAGER); // 启动时加载
+        if (boundedStore != null) {
+            // 写穿透到有界队列，由队列自己的后台线程批量写库
+            productMapStoreConfig.setImplementation(boundedStore)
+                    .setWriteDelaySeconds(0);
+        } else {
+            productMapStoreConfig.setImplementation(storeOf(productStoreLanes, productMapStore))
+                    .setWriteDelaySeconds(2) // 添加小的写入延迟，允许批量操作
+                    .setWriteBatchSize(50); // 批量写入大小
+        }
+
         // 产品Map配置
         MapConfig productMapConfig = new MapConfig("products")
                 .setBackupCount(1)
                 .setReadBackupData(true) // 允许从备份读取数据，提高性能
-                .setMapStoreConfig(new MapStoreConfig()
-                        .setImplementation(productMapStore)
-                        .setWriteDelaySeconds(2) // 添加小的写入延迟，允许批量操作
-                        .setWriteBatchSize(50) // 批量写入大小
-                    .setEnabled(true)
-                        .setInitialLoadMode(MapStoreConfig.InitialLoadMode.EAGER)); // 启动时加载
+                .setMapStoreConfig(productMapStoreConfig);
 
         // 添加产品Map的索引
         productMapConfig.addIndexConfig(new IndexConfig(IndexType.SORTED, "category"));
@@ -33,22 +97,74 @@ public class HazelcastConfiguration {
         MapConfig userMapConfig = new MapConfig("user-map")
                 .setBackupCount(1)
                 .setMapStoreConfig(new MapStoreConfig()
-                        .setImplementation(userMapStore)
+                        .setImplementation(storeOf(userStoreLanes, userMapStore))
                         .setWriteDelaySeconds(0) // 即时写入
                         .setInitialLoadMode(MapStoreConfig.InitialLoadMode.EAGER)); // 启动时加载
 //企业版Hazelcast才支持持久化配置
 //        PersistenceConfig PersistenceConfig = new PersistenceConfig()
 //            .setEnabled(true);
 
-        return new Config()
+        // 集群名、网络发现、CP、Flake ID、可靠Topic和Ringbuffer取自hazelcast.yaml，只解析一次
+        Config yamlConfig = yamlConfig(hazelcastYaml);
+        Config config = new Config()
                 .setInstanceName("hazelcast-instance")
+                .setClusterName(yamlConfig.getClusterName())
+                .setNetworkConfig(yamlConfig.getNetworkConfig())
                 .addMapConfig(userMapConfig)
                 .addMapConfig(productMapConfig)
-                ;
+                // priority-开头的队列按PriorityItem的优先级出队
+                .addQueueConfig(PriorityWorkerPool.queueConfig("priority-*"))
+                // durable-开头的队列持久化到queue_item表，重启后恢复
+                .addQueueConfig(new QueueConfig("durable-*")
+                        .setQueueStoreConfig(JdbcQueueStore.queueStoreConfig(dataSource, queueMemoryLimit, queueBulkLoad)))
+                // 商品标签索引，值集合为SET
+                .addMultiMapConfig(TagIndex.multiMapConfig("product-tags"))
+                // long-sets-开头的Map每个值是一个SortedLongSet
+                .addMapConfig(LongSetMap.mapConfig("long-sets-*"))
+                .setCPSubsystemConfig(yamlConfig.getCPSubsystemConfig())
+                .setFlakeIdGeneratorConfigs(yamlConfig.getFlakeIdGeneratorConfigs())
+                .setReliableTopicConfigs(yamlConfig.getReliableTopicConfigs())
+                .setRingbufferConfigs(yamlConfig.getRingbufferConfigs());
+        config.getSerializationConfig().getCompactSerializationConfig()
+                .addSerializer(new PriorityItemSerializer())
+                .addSerializer(new SortedLongSetSerializer());
+        return config;
+    }
+
+    /**
+     * 解析hazelcast.yaml；文件不存在时返回默认配置，CP保持禁用。
+     * flake-id-generator按生成器名调整预取批次和ID位布局，reliable-topic设置读取批次和overload策略，
+     * ringbuffer设置可靠Topic的容量和TTL
+     */
+    static Config yamlConfig(Resource hazelcastYaml) {
+        if (!hazelcastYaml.exists()) {
+            return new Config();
+        }
+        try (InputStream in = hazelcastYaml.getInputStream()) {
+            return new YamlConfigBuilder(in).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + hazelcastYaml, e);
+        }
+    }
+
+    /**
+     * 启用分道时使用分道MapStore，否则使用单个MapStore
+     */
+    private static <K, V> MapStore<K, V> storeOf(ObjectProvider<LanedMapStore<K, V>> lanes, MapStore<K, V> single) {
+        LanedMapStore<K, V> laned = lanes.getIfAvailable();
+        return laned != null ? laned : single;
     }
 
     @Bean
     public HazelcastInstance hazelcastInstance(Config config) {
         return Hazelcast.newHazelcastInstance(config);
     }
+
+    /**
+     * 订单ID分配，预取和位布局见hazelcast.yaml中的flake-id-generator.order-ids
+     */
+    @Bean
+    public FlakeIdAllocator orderIdAllocator(HazelcastInstance hazelcastInstance) {
+        return FlakeIdAllocator.create(hazelcastInstance, "order-ids");
+    }
 }
\ No newline at end of file
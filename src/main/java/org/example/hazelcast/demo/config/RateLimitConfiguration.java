@@ -0,0 +1,48 @@
+package org.example.hazelcast.demo.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.ratelimit.ClusterRateLimiter;
+import org.example.hazelcast.demo.ratelimit.RateLimitInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * REST接口限流配置，只作用于/product和/user下的接口
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(prefix = "demo.rate-limit", name = "enabled", matchIfMissing = true)
+public class RateLimitConfiguration implements WebMvcConfigurer {
+
+  @Autowired
+  private ObjectProvider<RateLimitInterceptor> rateLimitInterceptor;
+
+  @Bean(initMethod = "start", destroyMethod = "close")
+  public ClusterRateLimiter clusterRateLimiter(HazelcastInstance hazelcastInstance, RateLimitProperties properties) {
+    return new ClusterRateLimiter(hazelcastInstance.getMap(ClusterRateLimiter.DEMAND_MAP),
+        hazelcastInstance.getPartitionService(),
+        hazelcastInstance.getCluster().getLocalMember().getUuid().toString(),
+        () -> hazelcastInstance.getCluster().getMembers().size(),
+        properties.getSyncIntervalMillis(),
+        properties.getIdleEvictMillis(),
+        properties.getMaxTrackedKeys());
+  }
+
+  @Bean
+  public RateLimitInterceptor rateLimitInterceptor(ClusterRateLimiter clusterRateLimiter,
+      RateLimitProperties properties) {
+    return new RateLimitInterceptor(clusterRateLimiter, properties);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(rateLimitInterceptor.getObject())
+        .addPathPatterns("/product/**", "/user/**");
+  }
+}
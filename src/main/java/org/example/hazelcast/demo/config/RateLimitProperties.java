@@ -0,0 +1,148 @@
+package org.example.hazelcast.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * REST接口限流配置，对应application.yml中的demo.rate-limit
+ *
+ * 限额按“客户端 + 接口”计算，是整个集群的总速率，由各成员按各自的请求量分摊。
+ * 客户端为已认证的用户名，未认证时为远端地址。
+ */
+@ConfigurationProperties(prefix = "demo.rate-limit")
+public class RateLimitProperties {
+
+  private boolean enabled = true;
+
+
+  /**
+   * 默认的每秒请求数
+   */
+  private double requestsPerSecond = 100;
+
+  /**
+   * 默认的突发容量
+   */
+  private int burst = 200;
+
+  /**
+   * 各成员向集群汇报请求量、重新分摊限额的间隔
+   */
+  private long syncIntervalMillis = 200;
+
+  /**
+   * 本地令牌桶空闲多久后清除
+   */
+  private long idleEvictMillis = 60_000;
+
+  /**
+   * 每个成员最多保留的本地令牌桶数，超过后新的“客户端 + 接口”共用一个溢出桶
+   */
+  private int maxTrackedKeys = 100_000;
+
+  /**
+   * 按接口覆盖默认限额
+   */
+  private List<EndpointLimit> endpoints = new ArrayList<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public void setBurst(int burst) {
+    this.burst = burst;
+  }
+
+  public long getSyncIntervalMillis() {
+    return syncIntervalMillis;
+  }
+
+  public void setSyncIntervalMillis(long syncIntervalMillis) {
+    this.syncIntervalMillis = syncIntervalMillis;
+  }
+
+  public long getIdleEvictMillis() {
+    return idleEvictMillis;
+  }
+
+  public void setIdleEvictMillis(long idleEvictMillis) {
+    this.idleEvictMillis = idleEvictMillis;
+  }
+
+  public int getMaxTrackedKeys() {
+    return maxTrackedKeys;
+  }
+
+  public void setMaxTrackedKeys(int maxTrackedKeys) {
+    this.maxTrackedKeys = maxTrackedKeys;
+  }
+
+  public List<EndpointLimit> getEndpoints() {
+    return endpoints;
+  }
+
+  public void setEndpoints(List<EndpointLimit> endpoints) {
+    this.endpoints = endpoints;
+  }
+
+  /**
+   * 单个接口的限额，pattern为Spring MVC的映射路径，如/product/{id}；method为空时匹配所有方法
+   */
+  public static class EndpointLimit {
+
+    private String method;
+    private String pattern;
+    private double requestsPerSecond;
+    private int burst;
+
+    public String getMethod() {
+      return method;
+    }
+
+    public void setMethod(String method) {
+      this.method = method;
+    }
+
+    public String getPattern() {
+      return pattern;
+    }
+
+    public void setPattern(String pattern) {
+      this.pattern = pattern;
+    }
+
+    public double getRequestsPerSecond() {
+      return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(double requestsPerSecond) {
+      this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+
+    public void setBurst(int burst) {
+      this.burst = burst;
+    }
+  }
+}
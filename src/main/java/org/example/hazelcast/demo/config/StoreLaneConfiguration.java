@@ -0,0 +1,78 @@
+package org.example.hazelcast.demo.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.MapStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.model.User;
+import org.example.hazelcast.demo.store.LanedMapStore;
+import org.example.hazelcast.demo.store.ProductMapStore;
+import org.example.hazelcast.demo.store.UserMapStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * MapStore分道配置
+ *
+ * 每个Map按分区号把批量写入拆到demo.store.lanes个通道，每个通道一个单线程执行器和一个只有一个连接的Hikari连接池，
+ * 写库吞吐随通道数增长，而不是受限于单个顺序批处理循环。
+ * 各通道由Spring管理的MapStore派生：单键load在调用线程上执行，走默认数据源，
+ * products的各通道还共用它的未命中加载器和后台线程。
+ */
+@Configuration
+@EnableConfigurationProperties(StoreLaneProperties.class)
+@ConditionalOnExpression("${demo.store.lanes:4} > 1")
+public class StoreLaneConfiguration {
+
+  @Bean(destroyMethod = "shutdown")
+  public LanedMapStore<Long, Product> productStoreLanes(ProductMapStore productMapStore,
+      DataSourceProperties dataSourceProperties,
+      StoreLaneProperties properties,
+      ObjectProvider<HazelcastInstance> hazelcastInstance) {
+    return newLanedStore("products", dataSourceProperties, properties, hazelcastInstance,
+        productMapStore::withDataSource);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public LanedMapStore<String, User> userStoreLanes(UserMapStore userMapStore,
+      DataSourceProperties dataSourceProperties,
+      StoreLaneProperties properties,
+      ObjectProvider<HazelcastInstance> hazelcastInstance) {
+    return newLanedStore("user-map", dataSourceProperties, properties, hazelcastInstance,
+        userMapStore::withDataSource);
+  }
+
+  private <K, V> LanedMapStore<K, V> newLanedStore(String name,
+      DataSourceProperties dataSourceProperties,
+      StoreLaneProperties properties,
+      ObjectProvider<HazelcastInstance> hazelcastInstance,
+      Function<HikariDataSource, MapStore<K, V>> storeFactory) {
+    List<MapStore<K, V>> lanes = new ArrayList<>();
+    List<AutoCloseable> resources = new ArrayList<>();
+    for (int i = 0; i < properties.getLanes(); i++) {
+      HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+          .type(HikariDataSource.class)
+          .build();
+      dataSource.setPoolName(name + "-lane-" + i);
+      // 通道的写入和批量加载都在它唯一的线程上执行，多出的连接只会空闲
+      dataSource.setMaximumPoolSize(1);
+      dataSource.setMinimumIdle(0);
+
+      lanes.add(storeFactory.apply(dataSource));
+      resources.add(dataSource);
+    }
+    // 实例在第一次批量操作时才解析，此时Hazelcast已启动完成
+    ToIntFunction<K> partitioner = key -> hazelcastInstance.getObject()
+        .getPartitionService().getPartition(key).getPartitionId();
+    return new LanedMapStore<>(name, lanes, partitioner, resources);
+  }
+}
@@ -0,0 +1,23 @@
+package org.example.hazelcast.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * MapStore分道并行配置，对应application.yml中的demo.store
+ */
+@ConfigurationProperties(prefix = "demo.store")
+public class StoreLaneProperties {
+
+  /**
+   * 每个Map的写入通道数，按分区号取模分配；小于2时不分道，所有操作共用默认数据源
+   */
+  private int lanes = 4;
+
+  public int getLanes() {
+    return lanes;
+  }
+
+  public void setLanes(int lanes) {
+    this.lanes = lanes;
+  }
+}
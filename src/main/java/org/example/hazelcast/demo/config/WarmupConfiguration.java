@@ -0,0 +1,106 @@
+package org.example.hazelcast.demo.config;
+
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.icountdownlatch.WarmupGate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 启动预热配置：等待分区迁移完成、EAGER加载结束、近缓存预热后，再和其他成员一起报告就绪
+ */
+@Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(prefix = "demo.warmup", name = "enabled", matchIfMissing = true)
+public class WarmupConfiguration {
+
+  private static final Logger logger = LoggerFactory.getLogger(WarmupConfiguration.class);
+
+  private static final long PARTITION_POLL_MILLIS = 100;
+
+  @Bean
+  public WarmupGate warmupGate(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics,
+      WarmupProperties properties) {
+    Map<String, Runnable> phases = new LinkedHashMap<>();
+    phases.put("partitions", () -> awaitLocalMemberSafe(hazelcastInstance, properties.getAwaitTimeoutMillis()));
+    phases.put("map-load", () -> loadMaps(hazelcastInstance));
+    phases.put("near-cache", () -> primeNearCaches(hazelcastInstance, properties.getNearCachePrimeLimit()));
+    return WarmupGate.create(hazelcastInstance, metrics, "startup", phases,
+        Math.max(1, properties.getExpectedMembers()), properties.getAwaitTimeoutMillis());
+  }
+
+  /**
+   * Web服务器启动后、命令行菜单运行前开始预热，在后台线程执行，不阻塞启动
+   */
+  @EventListener(ApplicationStartedEvent.class)
+  public void startWarmup(ApplicationStartedEvent event) {
+    WarmupGate gate = event.getApplicationContext().getBean(WarmupGate.class);
+    Thread thread = new Thread(() -> {
+      try {
+        gate.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "warmup-gate");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * 等待本成员持有的分区都有同步完成的备份，即迁移结束
+   */
+  private static void awaitLocalMemberSafe(HazelcastInstance hazelcastInstance, long timeoutMillis) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (!hazelcastInstance.getPartitionService().isLocalMemberSafe()) {
+      if (System.currentTimeMillis() >= deadline) {
+        throw new IllegalStateException("Partitions not safe after " + timeoutMillis + " ms");
+      }
+      try {
+        Thread.sleep(PARTITION_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for partitions", e);
+      }
+    }
+  }
+
+  /**
+   * 配置了MapStore的Map在第一次访问时开始初始加载，EAGER模式下size()会等到加载完成
+   */
+  private static void loadMaps(HazelcastInstance hazelcastInstance) {
+    for (MapConfig mapConfig : hazelcastInstance.getConfig().getMapConfigs().values()) {
+      if (mapConfig.getMapStoreConfig().isEnabled()) {
+        int size = hazelcastInstance.getMap(mapConfig.getName()).size();
+        logger.info("Map {} loaded with {} entries", mapConfig.getName(), size);
+      }
+    }
+  }
+
+  /**
+   * 对配置了近缓存的Map预读一页数据，让首批请求直接命中本地副本
+   */
+  private static void primeNearCaches(HazelcastInstance hazelcastInstance, int limit) {
+    for (MapConfig mapConfig : hazelcastInstance.getConfig().getMapConfigs().values()) {
+      if (mapConfig.getNearCacheConfig() == null || limit <= 0) {
+        continue;
+      }
+      IMap<Object, Object> map = hazelcastInstance.getMap(mapConfig.getName());
+      Set<Object> keys = map.keySet(Predicates.pagingPredicate(limit));
+      map.getAll(keys);
+      logger.info("Near cache of {} primed with {} entries", mapConfig.getName(), keys.size());
+    }
+  }
+}
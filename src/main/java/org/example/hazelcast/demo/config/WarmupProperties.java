@@ -0,0 +1,59 @@
+package org.example.hazelcast.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 集群预热闸门配置，对应application.yml中的demo.warmup
+ */
+@ConfigurationProperties(prefix = "demo.warmup")
+public class WarmupProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * 集群首次启动时需要等待完成预热的成员数
+   */
+  private int expectedMembers = 1;
+
+  /**
+   * 等待其他成员的最长时间，超时后仍然报告就绪
+   */
+  private long awaitTimeoutMillis = 300_000;
+
+  /**
+   * 配置了近缓存的Map启动时最多预读的条目数
+   */
+  private int nearCachePrimeLimit = 1_000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getExpectedMembers() {
+    return expectedMembers;
+  }
+
+  public void setExpectedMembers(int expectedMembers) {
+    this.expectedMembers = expectedMembers;
+  }
+
+  public long getAwaitTimeoutMillis() {
+    return awaitTimeoutMillis;
+  }
+
+  public void setAwaitTimeoutMillis(long awaitTimeoutMillis) {
+    this.awaitTimeoutMillis = awaitTimeoutMillis;
+  }
+
+  public int getNearCachePrimeLimit() {
+    return nearCachePrimeLimit;
+  }
+
+  public void setNearCachePrimeLimit(int nearCachePrimeLimit) {
+    this.nearCachePrimeLimit = nearCachePrimeLimit;
+  }
+}
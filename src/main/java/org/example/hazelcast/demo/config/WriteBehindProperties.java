@@ -0,0 +1,142 @@
+package org.example.hazelcast.demo.config;
+
+import org.example.hazelcast.demo.store.WriteBehindOverflowPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * products Map有界写后配置，对应application.yml中的demo.products.write-behind
+ */
+@ConfigurationProperties(prefix = "demo.products.write-behind")
+public class WriteBehindProperties {
+
+  /**
+   * 是否启用有界写后；关闭时使用Hazelcast自带的无界写后队列
+   */
+  private boolean bounded = true;
+
+  /**
+   * 内存中最多缓存的待写条目数（按键合并后）
+   */
+  private int capacity = 10_000;
+
+  private WriteBehindOverflowPolicy overflowPolicy = WriteBehindOverflowPolicy.SPILL;
+
+  /**
+   * BLOCK策略下分区线程最长等待时间，超过BoundedWriteBehindStore.MAX_BLOCK_MILLIS时按其截断
+   */
+  private long blockTimeoutMillis = 20;
+
+  /**
+   * 接口写入前在请求线程上等待队列空位的最长时间
+   */
+  private long admissionTimeoutMillis = 5_000;
+
+  private int batchSize = 50;
+
+  private long flushIntervalMillis = 2_000;
+
+  /**
+   * SPILL策略使用的本地溢出文件
+   */
+  private String spillFile = "data/products-write-behind.spill";
+
+  /**
+   * 是否启用本地预写日志，成员重启后重放未写库的条目
+   */
+  private boolean walEnabled = false;
+
+  private String walDirectory = "data/wal";
+
+  /**
+   * 每个内存映射段文件的大小
+   */
+  private int walSegmentBytes = 16 * 1024 * 1024;
+
+  public boolean isBounded() {
+    return bounded;
+  }
+
+  public void setBounded(boolean bounded) {
+    this.bounded = bounded;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public WriteBehindOverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public void setOverflowPolicy(WriteBehindOverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public long getBlockTimeoutMillis() {
+    return blockTimeoutMillis;
+  }
+
+  public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+    this.blockTimeoutMillis = blockTimeoutMillis;
+  }
+
+  public long getAdmissionTimeoutMillis() {
+    return admissionTimeoutMillis;
+  }
+
+  public void setAdmissionTimeoutMillis(long admissionTimeoutMillis) {
+    this.admissionTimeoutMillis = admissionTimeoutMillis;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public long getFlushIntervalMillis() {
+    return flushIntervalMillis;
+  }
+
+  public void setFlushIntervalMillis(long flushIntervalMillis) {
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  public String getSpillFile() {
+    return spillFile;
+  }
+
+  public void setSpillFile(String spillFile) {
+    this.spillFile = spillFile;
+  }
+
+  public boolean isWalEnabled() {
+    return walEnabled;
+  }
+
+  public void setWalEnabled(boolean walEnabled) {
+    this.walEnabled = walEnabled;
+  }
+
+  public String getWalDirectory() {
+    return walDirectory;
+  }
+
+  public void setWalDirectory(String walDirectory) {
+    this.walDirectory = walDirectory;
+  }
+
+  public int getWalSegmentBytes() {
+    return walSegmentBytes;
+  }
+
+  public void setWalSegmentBytes(int walSegmentBytes) {
+    this.walSegmentBytes = walSegmentBytes;
+  }
+}
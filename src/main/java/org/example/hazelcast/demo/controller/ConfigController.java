@@ -0,0 +1,67 @@
+package org.example.hazelcast.demo.controller;
+
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.example.hazelcast.demo.datastructure.cp.cpmap.ConfigRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 配置注册表控制器 - 功能开关和价格规则的读取与版本化修改
+ */
+@RestController
+@RequestMapping("/config")
+public class ConfigController {
+
+  @Autowired
+  private ConfigRegistry configRegistry;
+
+  /**
+   * 读取配置项及其版本号，版本号为0表示不存在
+   */
+  @GetMapping("/{key}")
+  public ConfigRegistry.VersionedValue get(@PathVariable String key) {
+    return configRegistry.getVersioned(key);
+  }
+
+  /**
+   * 基于expectedVersion修改配置项，版本不一致时返回409
+   */
+  @PutMapping("/{key}")
+  public ResponseEntity<ConfigRegistry.VersionedValue> put(@PathVariable String key,
+      @RequestParam(defaultValue = "0") long expectedVersion, @RequestBody String value) {
+    if (configRegistry.compareAndSet(key, expectedVersion, value)) {
+      return ResponseEntity.ok(configRegistry.getVersioned(key));
+    }
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(configRegistry.getVersioned(key));
+  }
+
+  /**
+   * 读取延迟、失效广播延迟和陈旧重载次数
+   */
+  @GetMapping("/metrics")
+  public Map<String, Object> metrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("cachedReads", summary(configRegistry.getCachedReads()));
+    metrics.put("storeReads", summary(configRegistry.getStoreReads()));
+    metrics.put("propagationLag", summary(configRegistry.getPropagationLag()));
+    metrics.put("invalidations", configRegistry.getInvalidationCount());
+    metrics.put("staleReloads", configRegistry.getStaleReloadCount());
+    metrics.put("conflicts", configRegistry.getConflictCount());
+    return metrics;
+  }
+
+  private static Map<String, Object> summary(LatencyHistogram histogram) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", histogram.getCount());
+    summary.put("meanMicros", histogram.getMeanMicros());
+    summary.put("p50Micros", histogram.getPercentileMicros(50));
+    summary.put("p99Micros", histogram.getPercentileMicros(99));
+    summary.put("maxMicros", histogram.getMaxMicros());
+    return summary;
+  }
+}
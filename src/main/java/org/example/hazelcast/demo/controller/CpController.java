@@ -0,0 +1,54 @@
+package org.example.hazelcast.demo.controller;
+
+import com.hazelcast.config.cp.CPSubsystemConfig;
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CP子系统控制器 - 查看CP配置和各操作的延迟分布
+ */
+@RestController
+@RequestMapping("/cp")
+public class CpController {
+
+  @Autowired
+  private HazelcastInstance hazelcastInstance;
+
+  @Autowired
+  private CpOperationMetrics cpOperationMetrics;
+
+  /**
+   * CP子系统是否可用及其配置
+   */
+  @GetMapping("/status")
+  public Map<String, Object> status() {
+    CPSubsystemConfig config = hazelcastInstance.getConfig().getCPSubsystemConfig();
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("available", CpSupport.isAvailable(hazelcastInstance));
+    status.put("cpMemberCount", config.getCPMemberCount());
+    status.put("groupSize", config.getGroupSize());
+    status.put("sessionTtlSeconds", config.getSessionTimeToLiveSeconds());
+    status.put("sessionHeartbeatIntervalSeconds", config.getSessionHeartbeatIntervalSeconds());
+    return status;
+  }
+
+  /**
+   * 按操作类型的CP调用延迟直方图
+   */
+  @GetMapping("/metrics")
+  public Map<String, Map<String, Object>> metrics() {
+    return cpOperationMetrics.snapshot();
+  }
+
+  @DeleteMapping("/metrics")
+  public String resetMetrics() {
+    cpOperationMetrics.reset();
+    return "CP metrics reset";
+  }
+}
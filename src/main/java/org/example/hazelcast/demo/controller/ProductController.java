@@ -3,15 +3,28 @@ package org.example.hazelcast.demo.controller;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.map.IMap;
 import com.hazelcast.query.Predicates;
+import org.example.hazelcast.demo.config.WriteBehindProperties;
 import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.service.CatalogSnapshot;
+import org.example.hazelcast.demo.service.CatalogSnapshotService;
+import org.example.hazelcast.demo.service.ReservationStatus;
+import org.example.hazelcast.demo.service.ReserveStockProcessor;
+import org.example.hazelcast.demo.service.StockReservationService;
+import org.example.hazelcast.demo.store.BoundedWriteBehindStore;
+import org.example.hazelcast.demo.store.LanedMapStore;
 import org.example.hazelcast.demo.store.ProductMapStore;
+import org.example.hazelcast.demo.store.WriteAheadLog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 产品控制器 - 提供产品数据的访问接口
@@ -26,12 +39,29 @@ public class ProductController {
   @Autowired
   private ProductMapStore productMapStore;
 
+  @Autowired
+  private StockReservationService stockReservationService;
+
+  @Autowired
+  private CatalogSnapshotService catalogSnapshotService;
+
+  @Autowired(required = false)
+  private BoundedWriteBehindStore<Long, Product> productWriteBehindStore;
+
+  @Autowired(required = false)
+  private LanedMapStore<Long, Product> productStoreLanes;
+
+  @Autowired
+  private WriteBehindProperties writeBehindProperties;
+
   /**
    * 保存产品
    */
   @PostMapping
   public String save(@RequestBody Product product) {
+    admitWrite();
     hazelcastInstance.getMap("products").put(product.getId(), product);
+    awaitDurable();
     return "Saved to Hazelcast (and DB via MapStore)";
   }
 
@@ -48,7 +78,9 @@ public class ProductController {
    */
   @DeleteMapping("/{id}")
   public String delete(@PathVariable Long id) {
+    admitWrite();
     hazelcastInstance.getMap("products").delete(id);
+    awaitDurable();
     return "Deleted from Hazelcast (and DB via MapStore)";
   }
 
@@ -120,6 +152,7 @@ public class ProductController {
   @PostMapping("/sample-data")
   public String addSampleData() {
     IMap<Long, Product> map = hazelcastInstance.getMap("products");
+    admitWrite();
 
     // 添加示例产品
     map.put(1L, new Product(1L, "笔记本电脑", "电子产品", new BigDecimal("5999.00"), 100));
@@ -127,7 +160,115 @@ public class ProductController {
     map.put(3L, new Product(3L, "无线耳机", "配件", new BigDecimal("999.00"), 500));
     map.put(4L, new Product(4L, "平板电脑", "电子产品", new BigDecimal("2999.00"), 150));
     map.put(5L, new Product(5L, "智能手表", "电子产品", new BigDecimal("1599.00"), 80));
+    awaitDurable();
 
     return "Added 5 sample products";
   }
-}
\ No newline at end of file
+
+  /**
+   * 写后队列满时在请求线程上等待，而不是让MapStore在分区线程上阻塞
+   */
+  private void admitWrite() {
+    if (productWriteBehindStore != null
+        && !productWriteBehindStore.awaitCapacity(writeBehindProperties.getAdmissionTimeoutMillis())) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind queue is full");
+    }
+  }
+
+  /**
+   * 启用预写日志时，在请求线程上等待本次写入刷盘后再响应
+   */
+  private void awaitDurable() {
+    if (productWriteBehindStore != null) {
+      productWriteBehindStore.awaitDurable();
+    }
+  }
+
+  /**
+   * 有界写后队列的深度和计数
+   */
+  @GetMapping("/write-behind/stats")
+  public Map<String, Object> getWriteBehindStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    if (productStoreLanes != null) {
+      stats.put("laneEntries", productStoreLanes.getLaneEntryCounts());
+    }
+    if (productWriteBehindStore == null) {
+      stats.put("bounded", false);
+      return stats;
+    }
+    stats.put("bounded", true);
+    stats.put("policy", productWriteBehindStore.getPolicy());
+    stats.put("capacity", productWriteBehindStore.getCapacity());
+    stats.put("queueDepth", productWriteBehindStore.getQueueDepth());
+    stats.put("spilledDepth", productWriteBehindStore.getSpilledDepth());
+    stats.put("flushed", productWriteBehindStore.getFlushedCount());
+    stats.put("failedFlushes", productWriteBehindStore.getFailedFlushCount());
+    stats.put("blocked", productWriteBehindStore.getBlockedCount());
+    stats.put("rejected", productWriteBehindStore.getRejectedCount());
+    stats.put("spilled", productWriteBehindStore.getSpilledCount());
+    WriteAheadLog<Long, Product> wal = productWriteBehindStore.getWriteAheadLog();
+    if (wal != null) {
+      stats.put("walSegments", wal.getSegmentCount());
+      stats.put("walAppends", wal.getAppendCount());
+      stats.put("walForces", wal.getForceCount());
+    }
+    return stats;
+  }
+
+  /**
+   * 预留库存，指定expectedVersion时仅在版本一致时扣减
+   */
+  @PostMapping("/{id}/reserve")
+  public ReservationStatus reserve(@PathVariable Long id,
+      @RequestParam(defaultValue = "1") int quantity,
+      @RequestParam(defaultValue = "-1") long expectedVersion) {
+    if (expectedVersion == ReserveStockProcessor.ANY_VERSION) {
+      return stockReservationService.reserve(id, quantity);
+    }
+    return stockReservationService.reserve(id, quantity, expectedVersion);
+  }
+
+  /**
+   * 竞争最激烈的热点商品
+   */
+  @GetMapping("/contention")
+  public List<Map<String, Object>> getContention(@RequestParam(defaultValue = "10") int limit) {
+    return stockReservationService.getTopContendedKeys(limit).stream()
+        .map(stats -> {
+          Map<String, Object> row = new LinkedHashMap<>();
+          row.put("productId", stats.productId());
+          row.put("attempts", stats.attempts());
+          row.put("conflicts", stats.conflicts());
+          row.put("conflictRate", stats.conflictRate());
+          return row;
+        })
+        .toList();
+  }
+
+  /**
+   * 本成员持有的目录快照（类别树和价格区间），不访问集群
+   */
+  @GetMapping("/catalog")
+  public Map<String, Object> getCatalog() {
+    CatalogSnapshot snapshot = catalogSnapshotService.current();
+    Map<String, Object> catalog = new LinkedHashMap<>();
+    catalog.put("version", catalogSnapshotService.currentVersion());
+    if (snapshot != null) {
+      catalog.put("builtAtMillis", snapshot.getBuiltAtMillis());
+      catalog.put("productCount", snapshot.getProductCount());
+      catalog.put("categories", snapshot.getCategories());
+      catalog.put("priceBands", snapshot.getPriceBands());
+      catalog.put("blobBytes", catalogSnapshotService.getPublisher().getLastBlobBytes());
+    }
+    return catalog;
+  }
+
+  /**
+   * 重新生成并发布目录快照
+   */
+  @PostMapping("/catalog/rebuild")
+  public String rebuildCatalog() {
+    return "Published catalog snapshot version " + catalogSnapshotService.rebuild();
+  }
+}
@@ -0,0 +1,33 @@
+package org.example.hazelcast.demo.controller;
+
+import org.example.hazelcast.demo.ratelimit.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 限流控制器 - 查看各接口放行和拒绝的请求数
+ */
+@RestController
+@RequestMapping("/rate-limit")
+public class RateLimitController {
+
+  @Autowired(required = false)
+  private RateLimitInterceptor rateLimitInterceptor;
+
+  @GetMapping("/stats")
+  public Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", rateLimitInterceptor != null);
+    if (rateLimitInterceptor != null) {
+      stats.put("trackedKeys", rateLimitInterceptor.getTrackedKeyCount());
+      stats.put("overflowed", rateLimitInterceptor.getOverflowedCount());
+      stats.put("endpoints", rateLimitInterceptor.getCounters());
+    }
+    return stats;
+  }
+}
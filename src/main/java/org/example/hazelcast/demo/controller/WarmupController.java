@@ -0,0 +1,41 @@
+package org.example.hazelcast.demo.controller;
+
+import org.example.hazelcast.demo.datastructure.cp.icountdownlatch.WarmupGate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预热控制器 - 负载均衡器通过就绪接口判断是否可以转发流量
+ */
+@RestController
+@RequestMapping("/warmup")
+public class WarmupController {
+
+  @Autowired(required = false)
+  private WarmupGate warmupGate;
+
+  /**
+   * 所有成员预热完成前返回503，之后返回200；未启用预热时直接就绪
+   */
+  @GetMapping("/readiness")
+  public ResponseEntity<Map<String, Object>> readiness() {
+    Map<String, Object> body = new LinkedHashMap<>();
+    if (warmupGate == null) {
+      body.put("state", WarmupGate.State.READY);
+      return ResponseEntity.ok(body);
+    }
+    body.put("state", warmupGate.getState());
+    body.put("phaseMillis", warmupGate.getPhaseMillis());
+    body.put("failedPhases", warmupGate.getFailedPhases());
+    body.put("timedOut", warmupGate.isTimedOut());
+    body.put("totalMillis", warmupGate.getTotalMillis());
+    return ResponseEntity.status(warmupGate.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+  }
+}
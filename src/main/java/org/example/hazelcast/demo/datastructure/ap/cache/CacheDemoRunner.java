@@ -2,6 +2,7 @@ package org.example.hazelcast.demo.datastructure.ap.cache;
 
 import com.hazelcast.core.HazelcastInstance;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,6 +18,7 @@ public class CacheDemoRunner {
    * CommandLineRunner用于在Spring Boot启动后运行JCache示例
    */
   @Bean(name = "jcacheDemoRunner")
+  @ConditionalOnProperty(prefix = "demo.menu", name = "enabled", matchIfMissing = true)
   public CommandLineRunner runJCacheDemos(
       HazelcastInstance hazelcastInstance,
       CacheBasicOperationsDemo basicOperationsDemo,
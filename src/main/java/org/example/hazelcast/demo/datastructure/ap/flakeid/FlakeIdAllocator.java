@@ -0,0 +1,133 @@
+package org.example.hazelcast.demo.datastructure.ap.flakeid;
+
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.flakeidgen.FlakeIdGenerator;
+import com.hazelcast.flakeidgen.impl.FlakeIdGeneratorProxy;
+import com.hazelcast.flakeidgen.impl.IdBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量ID分配
+ *
+ * FlakeIdGenerator.newId()每次调用都要进入生成器内部的同步块取下一个预取ID，
+ * 多线程逐个取号时这个锁就是瓶颈。nextIds(n)一次为调用方分配n个ID并以long[]返回：
+ * 在成员上直接向本地生成器申请一整批（基数加步长，不经过网络，也不占用共享的预取批次），
+ * 调用方在自己的线程上展开，只进入一次同步块；在客户端上退化为循环调用newId()。
+ * 本成员的节点ID超出bits-node-id范围时，生成器内部会改向其他成员申请批次；
+ * 批量申请失败（如所有成员的节点ID都超出范围）时不再使用内部接口，之后都退化为newId()。
+ *
+ * 每个节点每毫秒最多生成2^bits-sequence个ID（默认64个），持续高吞吐时需要在hazelcast.yaml中
+ * 调大bits-sequence或allowed-future-millis，否则生成器会让调用方等待时间追上来。
+ */
+public class FlakeIdAllocator {
+
+  private static final Logger logger = LoggerFactory.getLogger(FlakeIdAllocator.class);
+
+  /**
+   * 单次向生成器申请的最大批次，与prefetch-count的上限一致
+   */
+  private static final int MAX_BATCH = 100_000;
+
+  private final FlakeIdGenerator generator;
+  private volatile FlakeIdGeneratorProxy localGenerator;
+  private final LongAdder allocated = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder waitMillis = new LongAdder();
+
+  public FlakeIdAllocator(FlakeIdGenerator generator) {
+    this.generator = generator;
+    this.localGenerator = generator instanceof FlakeIdGeneratorProxy proxy ? proxy : null;
+    if (localGenerator == null) {
+      logger.info("Flake ID generator {} is not member-local, nextIds falls back to newId()", generator.getName());
+    }
+  }
+
+  public static FlakeIdAllocator create(HazelcastInstance hazelcastInstance, String name) {
+    return new FlakeIdAllocator(hazelcastInstance.getFlakeIdGenerator(name));
+  }
+
+  public long nextId() {
+    allocated.increment();
+    return generator.newId();
+  }
+
+  /**
+   * 分配count个ID，同一次调用返回的ID互不相同且递增
+   */
+  public long[] nextIds(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+    long[] ids = new long[count];
+    FlakeIdGeneratorProxy local = localGenerator;
+    if (local != null) {
+      try {
+        int filled = 0;
+        while (filled < count) {
+          filled = fill(local, ids, filled);
+        }
+        allocated.add(count);
+        return ids;
+      } catch (HazelcastException e) {
+        // 已填入的ID作废，全部改用newId()，保证同一次调用返回的ID递增
+        logger.warn("Bulk flake id allocation from {} failed, falling back to newId()", generator.getName(), e);
+        localGenerator = null;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      ids[i] = generator.newId();
+    }
+    allocated.add(count);
+    return ids;
+  }
+
+  private int fill(FlakeIdGeneratorProxy local, long[] ids, int from) {
+    FlakeIdGeneratorProxy.IdBatchAndWaitTime result =
+        local.newIdBatch(Math.min(ids.length - from, MAX_BATCH));
+    if (result.waitTimeMillis > 0) {
+      // 批次借用了未来的时间戳，和newId()一样等待时钟追上，保证ID不会超前太多
+      waitMillis.add(result.waitTimeMillis);
+      try {
+        Thread.sleep(result.waitTimeMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for flake id batch", e);
+      }
+    }
+    IdBatch batch = result.idBatch;
+    batches.increment();
+    long id = batch.base();
+    int end = from + batch.batchSize();
+    for (int i = from; i < end; i++) {
+      ids[i] = id;
+      id += batch.increment();
+    }
+    return end;
+  }
+
+  public String getName() {
+    return generator.getName();
+  }
+
+  public long getAllocatedCount() {
+    return allocated.sum();
+  }
+
+  /**
+   * 向本地生成器申请批次的次数
+   */
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /**
+   * 因借用未来时间戳而等待的总时间
+   */
+  public long getWaitMillis() {
+    return waitMillis.sum();
+  }
+}
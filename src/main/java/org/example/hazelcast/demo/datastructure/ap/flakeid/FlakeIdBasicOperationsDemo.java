@@ -2,6 +2,7 @@ package org.example.hazelcast.demo.datastructure.ap.flakeid;
 
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.flakeidgen.FlakeIdGenerator;
+import org.example.hazelcast.demo.datastructure.ap.set.LongHashSet;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -13,7 +14,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Hazelcast Flake ID Generator 基本操作示例
@@ -71,6 +71,7 @@ public class FlakeIdBasicOperationsDemo {
     orderingExample();
     performanceExample();
     multithreadedGenerationExample();
+    bulkAllocationExample();
   }
 
   /**
@@ -263,9 +264,8 @@ public class FlakeIdBasicOperationsDemo {
 
     System.out.println("使用 " + numThreads + " 个线程，每个线程生成 " + idsPerThread + " 个ID...");
 
-    // 用于检测重复的集合 - 使用线程安全的方式访问
-    final Set<Long> allIds = new HashSet<>(numThreads * idsPerThread);
-    final AtomicLong duplicateCount = new AtomicLong(0);
+    // 每个线程把ID收集到自己的long[]中，结束后再合并校验，生成过程中线程之间没有共享的锁
+    final long[][] idsByThread = new long[numThreads][];
 
     // 创建并发任务
     List<CompletableFuture<Void>> futures = new ArrayList<>();
@@ -277,16 +277,11 @@ public class FlakeIdBasicOperationsDemo {
     for (int t = 0; t < numThreads; t++) {
       final int threadId = t;
       CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+        long[] ids = new long[idsPerThread];
         for (int i = 0; i < idsPerThread; i++) {
-          long id = idGenerator.newId();
-          // 同步块中检查并记录ID，避免并发修改异常
-          synchronized (allIds) {
-            if (!allIds.add(id)) {
-              duplicateCount.incrementAndGet();
-              System.out.println("线程 " + threadId + " 发现重复ID: " + id);
-            }
-          }
+          ids[i] = idGenerator.newId();
         }
+        idsByThread[threadId] = ids;
       });
       futures.add(future);
     }
@@ -306,11 +301,16 @@ public class FlakeIdBasicOperationsDemo {
     System.out.println("- 总耗时: " + duration + " 毫秒");
     System.out.println("- 平均每秒生成ID数: " + String.format("%.2f", idsPerSecond) + " 个/秒");
 
-    // 报告唯一性检查结果
-    if (duplicateCount.get() == 0) {
+    // 用原始long哈希集合校验唯一性，避免几百万个Long装箱
+    LongHashSet allIds = new LongHashSet(totalIds);
+    long duplicateCount = 0;
+    for (long[] ids : idsByThread) {
+      duplicateCount += allIds.addAll(ids);
+    }
+    if (duplicateCount == 0) {
       System.out.println("- 唯一性验证: 通过，没有发现重复ID");
     } else {
-      System.out.println("- 唯一性验证: 失败，发现 " + duplicateCount.get() + " 个重复ID");
+      System.out.println("- 唯一性验证: 失败，发现 " + duplicateCount + " 个重复ID");
     }
 
     // 比较单线程与多线程性能
@@ -319,4 +319,33 @@ public class FlakeIdBasicOperationsDemo {
     System.out.println("- 高并发：支持多线程并发生成，性能随线程数提升");
     System.out.println("- 竞争处理：多线程共享预取缓存，减少竞争");
   }
-}
\ No newline at end of file
+
+  /**
+   * 批量分配示例
+   *
+   * 使用FlakeIdAllocator.nextIds(n)一次取得一批ID（long[]），与逐个调用newId()对比吞吐量。
+   */
+  public void bulkAllocationExample() {
+    System.out.println("\n--- 批量分配示例 ---");
+
+    FlakeIdAllocator allocator = FlakeIdAllocator.create(hazelcastInstance, "bulk-id-generator");
+    int rounds = 1_000;
+    int batchSize = 1_000;
+
+    long startTime = System.currentTimeMillis();
+    LongHashSet allIds = new LongHashSet(rounds * batchSize);
+    long duplicateCount = 0;
+    for (int i = 0; i < rounds; i++) {
+      duplicateCount += allIds.addAll(allocator.nextIds(batchSize));
+    }
+    long duration = Math.max(1, System.currentTimeMillis() - startTime);
+
+    System.out.println("批量分配结果:");
+    System.out.println("- 共分配ID数: " + rounds * batchSize + "，每批 " + batchSize + " 个");
+    System.out.println("- 平均每秒分配ID数: " + String.format("%.2f", rounds * batchSize * 1000.0 / duration) + " 个/秒");
+    System.out.println("- 向本地生成器申请批次: " + allocator.getBatchCount() + " 次，等待时钟 "
+        + allocator.getWaitMillis() + " 毫秒");
+    System.out.println("- 重复ID数: " + duplicateCount);
+    System.out.println("注意: 每个节点每毫秒最多生成2^bits-sequence个ID，持续分配超过该速率时会等待时钟追上");
+  }
+}
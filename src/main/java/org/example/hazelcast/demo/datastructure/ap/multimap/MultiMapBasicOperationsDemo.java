@@ -4,10 +4,13 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.multimap.MultiMap;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 /**
  * Hazelcast MultiMap 基本操作示例
@@ -55,6 +58,7 @@ public class MultiMapBasicOperationsDemo {
     collectionTypeExample();
     lockingExample();
     listenersExample();
+    tagIndexExample();
     System.out.println("\nMultiMap示例完成！");
   }
 
@@ -273,4 +277,35 @@ public class MultiMapBasicOperationsDemo {
       multiMap.destroy();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * 商品标签索引示例：热门标签拆成多个子键，多标签交集和并集在成员上计算
+   */
+  public void tagIndexExample() {
+    System.out.println("\n=== 商品标签索引示例 ===");
+
+    // 每个子键最多1000个商品
+    TagIndex index = new TagIndex(hazelcastInstance, "product-tags", 1_000);
+    Map<String, long[]> productsByTag = new HashMap<>();
+    productsByTag.put("sale", LongStream.rangeClosed(1, 10_000).toArray());
+    productsByTag.put("electronics", LongStream.rangeClosed(1, 10_000).filter(id -> id % 3 == 0).toArray());
+    productsByTag.put("new-arrival", LongStream.rangeClosed(1, 10_000).filter(id -> id % 50 == 0).toArray());
+    index.bulkLoad(productsByTag);
+
+    for (String tag : productsByTag.keySet()) {
+      System.out.println("标签 " + tag + " 拆成 " + index.shapeOf(tag).splits() + " 个子键");
+    }
+
+    long[] both = index.productsWithAll("electronics", "new-arrival");
+    System.out.println("electronics 且 new-arrival: " + both.length + " 个商品，前5个: "
+        + Arrays.toString(Arrays.copyOf(both, Math.min(5, both.length))));
+    long[] all = index.productsWithAll("sale", "electronics", "new-arrival");
+    System.out.println("三个标签都有: " + all.length + " 个商品");
+    long[] any = index.productsWithAny("electronics", "new-arrival");
+    System.out.println("electronics 或 new-arrival: " + any.length + " 个商品");
+    System.out.println("查询延迟p50: " + index.getQueryLatency().getPercentileMicros(50) + " 微秒");
+
+    hazelcastInstance.getMultiMap("product-tags").destroy();
+    hazelcastInstance.getMap("product-tags-tags").destroy();
+  }
+}
@@ -0,0 +1,304 @@
+package org.example.hazelcast.demo.datastructure.ap.multimap;
+
+import com.hazelcast.config.MultiMapConfig;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.multimap.MultiMap;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于MultiMap&lt;String, Long&gt;的商品标签二级索引：标签 -&gt; 商品ID
+ *
+ * MultiMap一个键的全部值保存在一个分区的一个条目里，热门标签有上百万个商品时，这个条目的读取、
+ * 备份和迁移都要整块处理。这里把每个标签拆成splits个子键 标签#0 ... 标签#(splits-1)，splits取2的幂，
+ * 商品按ID的混合哈希落到其中一个子键，使每个子键不超过maxValuesPerKey个值。
+ * 各标签的splits记录在 名称-tags 的IMap中（见TagShape），批量加载时按标签大小确定，之后不再改变。
+ *
+ * 所有标签用同一个哈希划分子键，splits又都是2的幂，所以把商品ID空间按查询中最小的splits分段后，
+ * 每段在每个标签里对应固定的几个子键，每个子键只属于一段。多标签查询按段拆成TagQuery任务，
+ * 发到该段最小标签的子键所有者上执行交集或并集，只把结果ID传回调用方。
+ */
+public class TagIndex {
+
+  /**
+   * 执行TagQuery的执行器
+   */
+  public static final String QUERY_EXECUTOR = "tag-index-query";
+
+  private static final int LOAD_CHUNK_VALUES = 50_000;
+  private static final int LOAD_MAX_IN_FLIGHT = 4;
+
+  /**
+   * 标签的子键数和批量加载时的商品数，商品数用于查询时先处理小标签
+   */
+  public record TagShape(int splits, long size) implements Serializable {
+  }
+
+  private final HazelcastInstance hazelcastInstance;
+  private final String name;
+  private final int maxValuesPerKey;
+  private final MultiMap<String, Long> postings;
+  private final IMap<String, TagShape> shapes;
+
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder resultIds = new LongAdder();
+  private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+  public TagIndex(HazelcastInstance hazelcastInstance, String name, int maxValuesPerKey) {
+    this.hazelcastInstance = hazelcastInstance;
+    this.name = name;
+    this.maxValuesPerKey = Math.max(1, maxValuesPerKey);
+    this.postings = hazelcastInstance.getMultiMap(name);
+    this.shapes = hazelcastInstance.getMap(name + "-tags");
+  }
+
+  /**
+   * 索引MultiMap的配置：值集合为SET，同一商品重复加入同一标签只保留一个
+   */
+  public static MultiMapConfig multiMapConfig(String name) {
+    return new MultiMapConfig(name)
+        .setValueCollectionType(MultiMapConfig.ValueCollectionType.SET)
+        .setBinary(true)
+        .setStatisticsEnabled(true);
+  }
+
+  /**
+   * 批量加载标签，按标签大小确定新标签的子键数，已有标签沿用原来的子键数
+   *
+   * 子键数由RegisterShapeProcessor在各标签的分区上原子确定，并发的bulkLoad和add对同一个新标签
+   * 只会有一个形状生效，值按生效的形状分配子键
+   *
+   * 按子键分组后每次最多LOAD_CHUNK_VALUES个值调用一次putAllAsync，同时在途的调用不超过LOAD_MAX_IN_FLIGHT个，
+   * 全部写入后返回
+   */
+  public void bulkLoad(Map<String, long[]> productsByTag) {
+    HashMap<String, TagShape> proposed = new HashMap<>();
+    productsByTag.forEach((tag, productIds) ->
+        proposed.put(tag, new TagShape(splitsFor(productIds.length), productIds.length)));
+    Map<String, TagShape> updated = shapes.executeOnKeys(productsByTag.keySet(),
+        new RegisterShapeProcessor(proposed));
+
+    Semaphore inFlight = new Semaphore(LOAD_MAX_IN_FLIGHT);
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    Map<String, Collection<Long>> chunk = new HashMap<>();
+    int chunkValues = 0;
+    for (Map.Entry<String, long[]> entry : productsByTag.entrySet()) {
+      int splits = updated.get(entry.getKey()).splits();
+      for (long productId : entry.getValue()) {
+        chunk.computeIfAbsent(subKey(entry.getKey(), segmentOf(productId, splits)), k -> new ArrayList<>())
+            .add(productId);
+        if (++chunkValues == LOAD_CHUNK_VALUES) {
+          futures.add(putAll(chunk, inFlight));
+          chunk = new HashMap<>();
+          chunkValues = 0;
+        }
+      }
+    }
+    if (chunkValues > 0) {
+      futures.add(putAll(chunk, inFlight));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).join();
+  }
+
+  private CompletableFuture<Void> putAll(Map<String, Collection<Long>> chunk, Semaphore inFlight) {
+    inFlight.acquireUninterruptibly();
+    return postings.putAllAsync(new HashMap<String, Collection<? extends Long>>(chunk)).toCompletableFuture()
+        .whenComplete((ignored, e) -> inFlight.release());
+  }
+
+  /**
+   * 给商品加一个标签；新标签只有一个子键，需要拆分的大标签应通过bulkLoad加载
+   */
+  public boolean add(String tag, long productId) {
+    TagShape shape = shapes.get(tag);
+    if (shape == null) {
+      shape = new TagShape(1, 0);
+      TagShape previous = shapes.putIfAbsent(tag, shape);
+      shape = previous != null ? previous : shape;
+    }
+    return postings.put(subKey(tag, segmentOf(productId, shape.splits())), productId);
+  }
+
+  public boolean remove(String tag, long productId) {
+    TagShape shape = shapes.get(tag);
+    return shape != null && postings.remove(subKey(tag, segmentOf(productId, shape.splits())), productId);
+  }
+
+  /**
+   * 同时带有全部标签的商品ID，升序
+   */
+  public long[] productsWithAll(String... tags) {
+    return query(true, tags);
+  }
+
+  /**
+   * 带有任一标签的商品ID，升序
+   */
+  public long[] productsWithAny(String... tags) {
+    return query(false, tags);
+  }
+
+  private long[] query(boolean all, String... tags) {
+    long start = System.nanoTime();
+    Map<String, TagShape> found = shapes.getAll(new HashSet<>(Arrays.asList(tags)));
+    List<String> ordered = new ArrayList<>();
+    for (String tag : tags) {
+      if (found.containsKey(tag) && !ordered.contains(tag)) {
+        ordered.add(tag);
+      } else if (all && !found.containsKey(tag)) {
+        // 有一个标签不存在时交集为空
+        return record(start, new long[0]);
+      }
+    }
+    if (ordered.isEmpty()) {
+      return record(start, new long[0]);
+    }
+    ordered.sort(Comparator.comparingLong(tag -> found.get(tag).size()));
+    String[] orderedTags = ordered.toArray(new String[0]);
+    int[] splits = new int[orderedTags.length];
+    int segments = Integer.MAX_VALUE;
+    for (int i = 0; i < orderedTags.length; i++) {
+      splits[i] = found.get(orderedTags[i]).splits();
+      segments = Math.min(segments, splits[i]);
+    }
+
+    IExecutorService executor = hazelcastInstance.getExecutorService(QUERY_EXECUTOR);
+    List<CompletableFuture<long[]>> futures = new ArrayList<>(segments);
+    for (int segment = 0; segment < segments; segment++) {
+      TagQuery task = new TagQuery(name, orderedTags, splits, all, segment, segments);
+      CompletableFuture<long[]> future = new CompletableFuture<>();
+      executor.submitToKeyOwner(task, subKey(orderedTags[0], segment & (splits[0] - 1)), new ExecutionCallback<>() {
+        @Override
+        public void onResponse(long[] response) {
+          future.complete(response);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          future.completeExceptionally(t);
+        }
+      });
+      futures.add(future);
+    }
+
+    // 各段的商品互不重叠，直接拼接
+    List<long[]> parts = new ArrayList<>(segments);
+    int total = 0;
+    try {
+      for (CompletableFuture<long[]> future : futures) {
+        long[] part = future.get();
+        parts.add(part);
+        total += part.length;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while querying tag index " + name, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Tag query on " + name + " failed", e.getCause());
+    }
+    long[] result = new long[total];
+    int offset = 0;
+    for (long[] part : parts) {
+      System.arraycopy(part, 0, result, offset, part.length);
+      offset += part.length;
+    }
+    Arrays.sort(result);
+    return record(start, result);
+  }
+
+  private long[] record(long startNanos, long[] result) {
+    queryLatency.recordNanos(System.nanoTime() - startNanos);
+    queries.increment();
+    resultIds.add(result.length);
+    return result;
+  }
+
+  /**
+   * 标签的子键数：使每个子键不超过maxValuesPerKey个值的最小的2的幂
+   */
+  int splitsFor(int size) {
+    int needed = (size + maxValuesPerKey - 1) / maxValuesPerKey;
+    return needed <= 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+  }
+
+  public TagShape shapeOf(String tag) {
+    return shapes.get(tag);
+  }
+
+  /**
+   * 一个子键中的商品数
+   */
+  public int valueCount(String tag, int split) {
+    return postings.valueCount(subKey(tag, split));
+  }
+
+  static String subKey(String tag, int split) {
+    return tag + "#" + split;
+  }
+
+  /**
+   * 商品在splits个子键中所在的子键；splits是2的幂，所以在较少子键中的位置是在较多子键中位置的低位
+   */
+  static int segmentOf(long productId, int splits) {
+    long h = productId * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & (splits - 1);
+  }
+
+  public long getQueryCount() {
+    return queries.sum();
+  }
+
+  public long getResultIdCount() {
+    return resultIds.sum();
+  }
+
+  public LatencyHistogram getQueryLatency() {
+    return queryLatency;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 标签不存在时写入建议的形状，已存在时沿用原来的子键数并累加商品数，返回生效的形状
+   */
+  public static class RegisterShapeProcessor implements EntryProcessor<String, TagShape, TagShape> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final HashMap<String, TagShape> proposed;
+
+    public RegisterShapeProcessor(HashMap<String, TagShape> proposed) {
+      this.proposed = proposed;
+    }
+
+    @Override
+    public TagShape process(Map.Entry<String, TagShape> entry) {
+      TagShape shape = proposed.get(entry.getKey());
+      TagShape existing = entry.getValue();
+      TagShape updated = existing == null ? shape : new TagShape(existing.splits(), existing.size() + shape.size());
+      entry.setValue(updated);
+      return updated;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package org.example.hazelcast.demo.datastructure.ap.multimap;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.multimap.MultiMap;
+import org.example.hazelcast.demo.datastructure.ap.set.LongHashSet;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 在成员上计算一段商品ID空间内多个标签的交集或并集
+ *
+ * 由TagIndex发到该段最小标签的子键所有者上，这个子键在本地读取，其余标签的子键由成员之间传输，
+ * 调用方只收到结果ID。标签按商品数从小到大处理；求交集时候选不超过PROBE_THRESHOLD个后改用
+ * containsEntry逐个确认，不再读取大标签的整个子键，候选为空时直接结束。
+ */
+public class TagQuery implements Callable<long[]>, HazelcastInstanceAware, Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private static final int PROBE_THRESHOLD = 64;
+
+  private final String multiMapName;
+  private final String[] tags;
+  private final int[] splits;
+  private final boolean all;
+  private final int segment;
+  private final int segments;
+  private transient HazelcastInstance hazelcastInstance;
+
+  /**
+   * @param tags   按商品数升序排列的标签
+   * @param splits 各标签的子键数
+   * @param all    true为交集，false为并集
+   */
+  public TagQuery(String multiMapName, String[] tags, int[] splits, boolean all, int segment, int segments) {
+    this.multiMapName = multiMapName;
+    this.tags = tags;
+    this.splits = splits;
+    this.all = all;
+    this.segment = segment;
+    this.segments = segments;
+  }
+
+  @Override
+  public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  @Override
+  public long[] call() {
+    MultiMap<String, Long> postings = hazelcastInstance.getMultiMap(multiMapName);
+    LongHashSet result = null;
+    for (int i = 0; i < tags.length; i++) {
+      if (all && result != null && result.size() <= PROBE_THRESHOLD) {
+        // 候选已经很少，逐个确认比读取整个子键便宜
+        LongHashSet retained = new LongHashSet(result.size());
+        for (long productId : result.toArray()) {
+          if (postings.containsEntry(TagIndex.subKey(tags[i], TagIndex.segmentOf(productId, splits[i])), productId)) {
+            retained.add(productId);
+          }
+        }
+        result = retained;
+      } else if (all) {
+        LongHashSet retained = new LongHashSet(result == null ? 1024 : result.size());
+        for (Long productId : read(postings, i)) {
+          if (result == null || result.contains(productId)) {
+            retained.add(productId);
+          }
+        }
+        result = retained;
+      } else {
+        if (result == null) {
+          result = new LongHashSet(1024);
+        }
+        for (Long productId : read(postings, i)) {
+          result.add(productId);
+        }
+      }
+      if (all && result.isEmpty()) {
+        break;
+      }
+    }
+    return result == null ? new long[0] : result.toArray();
+  }
+
+  /**
+   * 第i个标签在本段中的商品
+   *
+   * 子键数不少于段数时，本段对应 segment, segment+segments, ... 这几个子键，其中的商品都属于本段；
+   * 子键数更少时一个子键覆盖多个段，读取后只保留属于本段的商品
+   */
+  private List<Long> read(MultiMap<String, Long> postings, int i) {
+    List<Long> values = new ArrayList<>();
+    if (splits[i] >= segments) {
+      for (int split = segment; split < splits[i]; split += segments) {
+        values.addAll(postings.get(TagIndex.subKey(tags[i], split)));
+      }
+      return values;
+    }
+    for (Long productId : postings.get(TagIndex.subKey(tags[i], segment & (splits[i] - 1)))) {
+      if (TagIndex.segmentOf(productId, segments) == segment) {
+        values.add(productId);
+      }
+    }
+    return values;
+  }
+}
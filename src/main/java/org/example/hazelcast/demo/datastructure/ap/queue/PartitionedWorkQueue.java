@@ -0,0 +1,144 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.config.QueueConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.partition.PartitionService;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 由N个IQueue组成的分片工作队列
+ *
+ * 单个IQueue的所有操作都落在一个分区上，由一个分区线程串行执行，吞吐量受这一个分区限制。
+ * 这里按键的哈希把工作项分到N个分片，分片名为 名称@分区键，分区键选成互不相同的分区，
+ * 分片因此分散到不同的分区线程和成员上；名称@分区键 的配置按名称查找，所有分片共享一个QueueConfig。
+ * 同一个键的工作项进入同一个分片，保持提交顺序。
+ *
+ * 生产者见WorkQueueProducer，按分片攒批后addAll；消费者见WorkQueueConsumer，按自适应的批大小drainTo。
+ * 处理失败的工作项进入死信队列 名称-dead-letter，所有分片共用一个。
+ *
+ * @param <E> 工作项内容类型
+ */
+public class PartitionedWorkQueue<E> {
+
+  /**
+   * 队列中的工作项，enqueuedAtMillis用于统计排队时间
+   */
+  public record WorkItem<E>(String key, E payload, long enqueuedAtMillis) implements Serializable {
+  }
+
+  /**
+   * 死信队列名的后缀
+   */
+  public static final String DEAD_LETTER_SUFFIX = "-dead-letter";
+
+  private final String name;
+  private final List<IQueue<WorkItem<E>>> shards;
+  private final IQueue<WorkItem<E>> deadLetters;
+
+  public PartitionedWorkQueue(HazelcastInstance hazelcastInstance, String name, int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+    }
+    this.name = name;
+    PartitionService partitionService = hazelcastInstance.getPartitionService();
+    int partitionCount = partitionService.getPartitions().size();
+    Set<Integer> usedPartitions = new HashSet<>();
+    List<IQueue<WorkItem<E>>> queues = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      String partitionKey = String.valueOf(i);
+      // 分片数不超过分区数时，为每个分片找一个还没用过的分区
+      for (int attempt = 1; shardCount <= partitionCount
+          && !usedPartitions.add(partitionService.getPartition(partitionKey).getPartitionId()); attempt++) {
+        partitionKey = i + "-" + attempt;
+      }
+      queues.add(hazelcastInstance.getQueue(name + "@" + partitionKey));
+    }
+    this.shards = List.copyOf(queues);
+    this.deadLetters = hazelcastInstance.getQueue(name + DEAD_LETTER_SUFFIX);
+  }
+
+  /**
+   * 有界分片队列的配置，capacity是每个分片的容量
+   */
+  public static QueueConfig queueConfig(String name, int capacity) {
+    return new QueueConfig(name).setMaxSize(capacity);
+  }
+
+  /**
+   * 创建一个生产者，生产者不是线程安全的，每个生产线程各用一个
+   *
+   * @param batchSize          每个分片攒够多少个工作项后addAll
+   * @param blockTimeoutMillis 分片满时最多等待多久，超时抛出ReachedMaxSizeException
+   * @param listener           分片满时的回调，可以为null
+   */
+  public WorkQueueProducer<E> newProducer(int batchSize, long blockTimeoutMillis,
+      WorkQueueProducer.BackpressureListener listener) {
+    return new WorkQueueProducer<>(shards, this::shardOf, batchSize, blockTimeoutMillis, listener);
+  }
+
+  /**
+   * 创建一个消费者，在一个线程中轮流从assignedShards指定的分片取出工作项
+   *
+   * @param minBatchSize 自适应批大小的下限
+   * @param maxBatchSize 自适应批大小的上限
+   */
+  public WorkQueueConsumer<E> newConsumer(int[] assignedShards, WorkQueueConsumer.BatchHandler<E> handler,
+      int minBatchSize, int maxBatchSize) {
+    List<IQueue<WorkItem<E>>> assigned = new ArrayList<>(assignedShards.length);
+    for (int shard : assignedShards) {
+      assigned.add(shards.get(shard));
+    }
+    return new WorkQueueConsumer<>(name, assigned, deadLetters, handler, minBatchSize, maxBatchSize);
+  }
+
+  /**
+   * 第memberIndex个消费者（共memberCount个）负责的分片，按取模均分
+   */
+  public int[] shardsFor(int memberIndex, int memberCount) {
+    List<Integer> assigned = new ArrayList<>();
+    for (int i = memberIndex; i < shards.size(); i += memberCount) {
+      assigned.add(i);
+    }
+    return assigned.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  public int shardOf(String key) {
+    return Math.floorMod(key.hashCode(), shards.size());
+  }
+
+  public IQueue<WorkItem<E>> getShard(int shard) {
+    return shards.get(shard);
+  }
+
+  /**
+   * 处理失败的工作项所在的队列
+   */
+  public IQueue<WorkItem<E>> getDeadLetterQueue() {
+    return deadLetters;
+  }
+
+  /**
+   * 所有分片中的工作项总数，每个分片一次调用
+   */
+  public int size() {
+    int size = 0;
+    for (IQueue<WorkItem<E>> shard : shards) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+/**
+ * 优先级队列中的工作项
+ *
+ * 数值越大优先级越高；同一优先级按sequence先进先出。以Compact格式序列化（见PriorityItemSerializer），
+ * 成员在比较时只需反序列化这几个字段。
+ */
+public final class PriorityItem {
+
+  private final long sequence;
+  private final String name;
+  private final int priority;
+  private final long enqueuedAtMillis;
+
+  public PriorityItem(long sequence, String name, int priority, long enqueuedAtMillis) {
+    this.sequence = sequence;
+    this.name = name;
+    this.priority = priority;
+    this.enqueuedAtMillis = enqueuedAtMillis;
+  }
+
+  public PriorityItem(long sequence, String name, int priority) {
+    this(sequence, name, priority, System.currentTimeMillis());
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public long getEnqueuedAtMillis() {
+    return enqueuedAtMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "PriorityItem{sequence=" + sequence + ", name='" + name + "', priority=" + priority + '}';
+  }
+}
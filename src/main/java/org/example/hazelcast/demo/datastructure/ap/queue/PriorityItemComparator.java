@@ -0,0 +1,17 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import java.util.Comparator;
+
+/**
+ * 优先级队列的比较器：优先级高的在前，同一优先级sequence小的在前
+ *
+ * 通过QueueConfig.setPriorityComparatorClassName在成员上按类名实例化，需要保留无参构造方法。
+ */
+public class PriorityItemComparator implements Comparator<PriorityItem> {
+
+  @Override
+  public int compare(PriorityItem first, PriorityItem second) {
+    int byPriority = Integer.compare(second.getPriority(), first.getPriority());
+    return byPriority != 0 ? byPriority : Long.compare(first.getSequence(), second.getSequence());
+  }
+}
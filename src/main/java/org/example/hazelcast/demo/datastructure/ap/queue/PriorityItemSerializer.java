@@ -0,0 +1,35 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+/**
+ * PriorityItem的Compact序列化器，需要注册到成员和客户端的SerializationConfig
+ */
+public class PriorityItemSerializer implements CompactSerializer<PriorityItem> {
+
+  @Override
+  public PriorityItem read(CompactReader reader) {
+    return new PriorityItem(reader.readInt64("sequence"), reader.readString("name"), reader.readInt32("priority"),
+        reader.readInt64("enqueuedAtMillis"));
+  }
+
+  @Override
+  public void write(CompactWriter writer, PriorityItem item) {
+    writer.writeInt64("sequence", item.getSequence());
+    writer.writeString("name", item.getName());
+    writer.writeInt32("priority", item.getPriority());
+    writer.writeInt64("enqueuedAtMillis", item.getEnqueuedAtMillis());
+  }
+
+  @Override
+  public String getTypeName() {
+    return "PriorityItem";
+  }
+
+  @Override
+  public Class<PriorityItem> getCompactClass() {
+    return PriorityItem.class;
+  }
+}
@@ -0,0 +1,229 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.config.QueueConfig;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按优先级批量取出工作项的工作线程池
+ *
+ * 队列需要配置PriorityItemComparator（见queueConfig()），成员按优先级保存元素。每个工作线程
+ * 先用poll等待第一个元素，再用drainTo一次取出最多batchSize-1个，一批只有一次网络往返。
+ * 成员端drainTo按内部堆的迭代顺序取元素，取出的既不是严格的前N个，也没有排序，所以在本地按
+ * 比较器重新排序；poll取出的第一个元素仍是当时优先级最高的。
+ *
+ * 优先级反转按工作线程统计：取出的工作项比本线程上一个工作项优先级高，且在上一个工作项被取出之前
+ * 就已入队，说明它在等待时有更低优先级的工作先被处理。批越大，同一批内较低优先级的工作
+ * 挡住后到的高优先级工作的时间越长。
+ *
+ * 工作项不会被静默丢弃：已经取出、还没交给处理器时取数失败，这些工作项放回原队列；
+ * 处理器抛出异常时，整批工作项转入死信队列，由运维排查后重新投递（同一批中已处理的工作项也会进入死信队列）。
+ */
+public class PriorityWorkerPool implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PriorityWorkerPool.class);
+
+  private static final long POLL_TIMEOUT_MILLIS = 100;
+
+  /**
+   * 死信队列名的后缀
+   */
+  public static final String DEAD_LETTER_SUFFIX = "-dead-letter";
+
+  private static final PriorityItemComparator COMPARATOR = new PriorityItemComparator();
+
+  /**
+   * 处理一批工作项，批内按优先级从高到低排列
+   */
+  @FunctionalInterface
+  public interface BatchHandler {
+    void handle(List<PriorityItem> batch);
+  }
+
+  private final IQueue<PriorityItem> queue;
+  private final IQueue<PriorityItem> deadLetters;
+  private final int workers;
+  private final int batchSize;
+  private final BatchHandler handler;
+  private final ExecutorService executor;
+  private volatile boolean running;
+
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder inversions = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder deadLettered = new LongAdder();
+  private final LongAdder requeued = new LongAdder();
+  private final LongAdder lost = new LongAdder();
+  private final LatencyHistogram queueTime = new LatencyHistogram();
+
+  /**
+   * @param deadLetters 接收处理失败工作项的队列，通常命名为队列名加{@link #DEAD_LETTER_SUFFIX}
+   */
+  public PriorityWorkerPool(IQueue<PriorityItem> queue, IQueue<PriorityItem> deadLetters, int workers, int batchSize,
+      BatchHandler handler) {
+    this.queue = queue;
+    this.deadLetters = deadLetters;
+    this.workers = Math.max(1, workers);
+    this.batchSize = Math.max(1, batchSize);
+    this.handler = handler;
+    this.executor = Executors.newFixedThreadPool(this.workers, r -> {
+      Thread t = new Thread(r, queue.getName() + "-priority-worker");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * 按优先级排序的队列配置，name可以是通配符
+   */
+  public static QueueConfig queueConfig(String name) {
+    return new QueueConfig(name).setPriorityComparatorClassName(PriorityItemComparator.class.getName());
+  }
+
+  public void start() {
+    running = true;
+    for (int i = 0; i < workers; i++) {
+      executor.execute(this::work);
+    }
+  }
+
+  private void work() {
+    List<PriorityItem> batch = new ArrayList<>(batchSize);
+    int lastPriority = Integer.MAX_VALUE;
+    long lastDequeuedAtMillis = 0;
+    while (running) {
+      try {
+        PriorityItem first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        if (batchSize > 1) {
+          queue.drainTo(batch, batchSize - 1);
+          batch.sort(COMPARATOR);
+        }
+        long now = System.currentTimeMillis();
+        for (PriorityItem item : batch) {
+          if (item.getPriority() > lastPriority && item.getEnqueuedAtMillis() < lastDequeuedAtMillis) {
+            inversions.increment();
+          }
+          lastPriority = item.getPriority();
+          lastDequeuedAtMillis = now;
+          queueTime.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - item.getEnqueuedAtMillis())));
+        }
+        handle(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        if (running) {
+          logger.warn("Worker on {} failed to take items, retrying", queue.getName(), e);
+        }
+        // poll或drainTo已经取出的工作项还没有处理，放回队列
+        moveTo(queue, batch, requeued);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void handle(List<PriorityItem> batch) {
+    try {
+      handler.handle(batch);
+    } catch (RuntimeException e) {
+      failures.add(batch.size());
+      logger.warn("Handler on {} failed on {} items, moving them to {}", queue.getName(), batch.size(),
+          deadLetters.getName(), e);
+      moveTo(deadLetters, batch, deadLettered);
+      return;
+    }
+    processed.add(batch.size());
+    batches.increment();
+  }
+
+  private void moveTo(IQueue<PriorityItem> target, List<PriorityItem> items, LongAdder counter) {
+    if (items.isEmpty()) {
+      return;
+    }
+    try {
+      target.addAll(items);
+      counter.add(items.size());
+    } catch (RuntimeException e) {
+      lost.add(items.size());
+      logger.error("Failed to move {} items to {}, they are lost: {}", items.size(), target.getName(), items, e);
+    }
+  }
+
+  public long getProcessedCount() {
+    return processed.sum();
+  }
+
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /**
+   * 处理失败的工作项数
+   */
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /**
+   * 处理失败后转入死信队列的工作项数
+   */
+  public long getDeadLetterCount() {
+    return deadLettered.sum();
+  }
+
+  /**
+   * 取数失败后放回原队列的工作项数
+   */
+  public long getRequeuedCount() {
+    return requeued.sum();
+  }
+
+  /**
+   * 放回原队列或转入死信队列也失败、已经丢失的工作项数
+   */
+  public long getLostCount() {
+    return lost.sum();
+  }
+
+  /**
+   * 优先级反转的工作项数，定义见类说明
+   */
+  public long getInversionCount() {
+    return inversions.sum();
+  }
+
+  /**
+   * 从入队到被取出的时间
+   */
+  public LatencyHistogram getQueueTime() {
+    return queueTime;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
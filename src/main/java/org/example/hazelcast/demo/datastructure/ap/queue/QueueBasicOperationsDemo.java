@@ -82,6 +82,7 @@ public class QueueBasicOperationsDemo {
     offerWithTimeoutExample();
     drainToExample();
     queueListenerExample();
+    durableQueueExample();
   }
 
   /**
@@ -233,6 +234,36 @@ public class QueueBasicOperationsDemo {
     System.out.println("队列是否为空: " + queue.isEmpty());
   }
 
+  /**
+   * 持久化队列示例 - durable-开头的队列写入queue_item表，集群重启后未处理的元素仍在
+   *
+   * addAll对应一次storeAll批量写库，drainTo对应一次deleteAll；超过memory-limit的元素只在数据库里保留内容
+   */
+  public void durableQueueExample() {
+    System.out.println("\n--- 持久化队列示例 ---");
+
+    IQueue<String> queue = hazelcastInstance.getQueue("durable-demo-queue");
+    if (!queue.isEmpty()) {
+      System.out.println("上次运行留下 " + queue.size() + " 个未处理的元素，先取走");
+      queue.drainTo(new ArrayList<>());
+    }
+
+    List<String> items = new ArrayList<>();
+    for (int i = 1; i <= 1_000; i++) {
+      items.add("Durable-Item-" + i);
+    }
+    long start = System.currentTimeMillis();
+    queue.addAll(items);
+    System.out.println("addAll写入 " + items.size() + " 个元素，耗时 " + (System.currentTimeMillis() - start) + "ms");
+
+    List<String> drained = new ArrayList<>();
+    start = System.currentTimeMillis();
+    queue.drainTo(drained, 600);
+    System.out.println("drainTo取出 " + drained.size() + " 个元素，耗时 " + (System.currentTimeMillis() - start)
+        + "ms，第一个: " + drained.get(0));
+    System.out.println("剩余 " + queue.size() + " 个元素保存在数据库中，重启后仍可取出");
+  }
+
   /**
    * 队列监听器示例
    */
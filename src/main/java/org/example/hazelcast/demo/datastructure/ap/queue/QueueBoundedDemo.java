@@ -7,11 +7,16 @@ import com.hazelcast.core.HazelcastInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Hazelcast 有界队列示例
@@ -22,6 +27,8 @@ public class QueueBoundedDemo {
   private final HazelcastInstance hazelcastInstance;
   private final String BOUNDED_QUEUE_NAME = "bounded-demo-queue";
   private final int MAX_QUEUE_SIZE = 5;
+  private final String PIPELINE_QUEUE_NAME = "work-pipeline-demo";
+  private final int PIPELINE_SHARD_CAPACITY = 1_000;
 
   @Autowired
   public QueueBoundedDemo(HazelcastInstance hazelcastInstance) {
@@ -32,6 +39,9 @@ public class QueueBoundedDemo {
     QueueConfig queueConfig = config.getQueueConfig(BOUNDED_QUEUE_NAME);
     queueConfig.setMaxSize(MAX_QUEUE_SIZE);
     System.out.println("已配置有界队列 " + BOUNDED_QUEUE_NAME + " 最大容量为: " + MAX_QUEUE_SIZE);
+
+    // 分片队列的所有分片共用一个配置
+    config.addQueueConfig(PartitionedWorkQueue.queueConfig(PIPELINE_QUEUE_NAME, PIPELINE_SHARD_CAPACITY));
   }
 
   /**
@@ -43,6 +53,7 @@ public class QueueBoundedDemo {
     boundedQueueBasicExample();
     producerConsumerExample();
     offerTimeoutExample();
+    partitionedPipelineExample();
   }
 
   /**
@@ -236,4 +247,66 @@ public class QueueBoundedDemo {
 
     System.out.println("最终队列状态 - 大小: " + boundedQueue.size());
   }
-}
\ No newline at end of file
+
+  /**
+   * 分片批量流水线示例：4个生产者按分片攒批addAll，2个消费者按自适应批大小drainTo
+   *
+   * 每个分片容量只有1000，生产速度超过消费速度时生产者收到背压信号并退避
+   */
+  public void partitionedPipelineExample() {
+    System.out.println("\n--- 分片批量流水线示例 ---");
+
+    PartitionedWorkQueue<Integer> workQueue = new PartitionedWorkQueue<>(hazelcastInstance, PIPELINE_QUEUE_NAME, 4);
+    int producers = 4;
+    int perProducer = 5_000;
+    LongAdder backpressureSignals = new LongAdder();
+    List<WorkQueueConsumer<Integer>> consumers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      WorkQueueConsumer<Integer> consumer = workQueue.newConsumer(workQueue.shardsFor(i, 2), batch -> {
+        // 模拟每个工作项的处理耗时
+        LockSupport.parkNanos(batch.size() * 20_000L);
+      }, 10, 500);
+      consumer.start();
+      consumers.add(consumer);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    long start = System.currentTimeMillis();
+    for (int p = 0; p < producers; p++) {
+      int producerId = p;
+      executor.submit(() -> {
+        try (WorkQueueProducer<Integer> producer = workQueue.newProducer(100, 30_000,
+            (shard, pending) -> backpressureSignals.increment())) {
+          for (int i = 0; i < perProducer; i++) {
+            producer.submit("order-" + producerId + "-" + i, i);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+
+    try {
+      long deadline = System.currentTimeMillis() + 60_000;
+      while (consumers.stream().mapToLong(WorkQueueConsumer::getProcessedCount).sum() < (long) producers * perProducer
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    long processed = consumers.stream().mapToLong(WorkQueueConsumer::getProcessedCount).sum();
+    long batches = consumers.stream().mapToLong(WorkQueueConsumer::getBatchCount).sum();
+    System.out.println("处理 " + processed + " 个工作项，共 " + batches + " 批，耗时 "
+        + (System.currentTimeMillis() - start) + "ms，背压信号 " + backpressureSignals.sum() + " 次");
+    for (int i = 0; i < consumers.size(); i++) {
+      System.out.println("消费者 " + i + " 当前批大小: " + Arrays.toString(consumers.get(i).getBatchSizes())
+          + "，排队时间p99: " + consumers.get(i).getQueueTime().getPercentileMicros(99) + " 微秒");
+    }
+    consumers.forEach(WorkQueueConsumer::close);
+    for (int shard = 0; shard < workQueue.getShardCount(); shard++) {
+      workQueue.getShard(shard).destroy();
+    }
+    workQueue.getDeadLetterQueue().destroy();
+  }
+}
@@ -0,0 +1,237 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.collection.IQueue;
+import org.example.hazelcast.demo.datastructure.ap.queue.PartitionedWorkQueue.WorkItem;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片工作队列的消费者，一个线程轮流从分配到的分片drainTo
+ *
+ * 每个分片有自己的批大小，在minBatchSize和maxBatchSize之间自适应：一次取满说明有积压，批大小翻倍；
+ * 取到的不足四分之一（包括取空）说明队列接近空，批大小减半。积压时一次往返取走更多工作项，空闲时小批让工作项
+ * 尽快被处理。所有分配到的分片都为空时，在下一个分片上poll等待，避免空转。
+ *
+ * 工作项不会被静默丢弃：已经取出、还没交给处理器时取数失败，这些工作项放回原分片；
+ * 处理器抛出异常时，整批工作项转入死信队列，由运维排查后重新投递（同一批中已处理的工作项也会进入死信队列）。
+ *
+ * @param <E> 工作项内容类型
+ */
+public class WorkQueueConsumer<E> implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(WorkQueueConsumer.class);
+
+  private static final long POLL_TIMEOUT_MILLIS = 50;
+
+  /**
+   * 处理从一个分片取出的一批工作项
+   */
+  @FunctionalInterface
+  public interface BatchHandler<E> {
+    void handle(List<WorkItem<E>> batch);
+  }
+
+  private final List<IQueue<WorkItem<E>>> shards;
+  private final IQueue<WorkItem<E>> deadLetters;
+  private final BatchHandler<E> handler;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final int[] batchSizes;
+  private final ExecutorService executor;
+  private volatile boolean running;
+
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder deadLettered = new LongAdder();
+  private final LongAdder requeued = new LongAdder();
+  private final LongAdder lost = new LongAdder();
+  private final LongAdder idlePolls = new LongAdder();
+  private final LatencyHistogram queueTime = new LatencyHistogram();
+
+  WorkQueueConsumer(String name, List<IQueue<WorkItem<E>>> shards, IQueue<WorkItem<E>> deadLetters,
+      BatchHandler<E> handler, int minBatchSize, int maxBatchSize) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("No shards assigned to consumer of " + name);
+    }
+    this.shards = shards;
+    this.deadLetters = deadLetters;
+    this.handler = handler;
+    this.minBatchSize = Math.max(1, minBatchSize);
+    this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+    this.batchSizes = new int[shards.size()];
+    Arrays.fill(batchSizes, this.minBatchSize);
+    this.executor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, name + "-work-consumer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public void start() {
+    running = true;
+    executor.execute(this::consume);
+  }
+
+  private void consume() {
+    List<WorkItem<E>> batch = new ArrayList<>(maxBatchSize);
+    int idleShard = 0;
+    // batch中工作项所在的分片，取数失败时放回
+    IQueue<WorkItem<E>> source = null;
+    while (running) {
+      try {
+        boolean drainedAny = false;
+        for (int i = 0; i < shards.size() && running; i++) {
+          source = shards.get(i);
+          int drained = source.drainTo(batch, batchSizes[i]);
+          adapt(i, drained);
+          if (drained > 0) {
+            drainedAny = true;
+            handle(batch);
+            batch.clear();
+          }
+        }
+        if (drainedAny) {
+          continue;
+        }
+        idleShard = (idleShard + 1) % shards.size();
+        source = shards.get(idleShard);
+        WorkItem<E> first = source.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        idlePolls.increment();
+        if (first != null) {
+          batch.add(first);
+          source.drainTo(batch, batchSizes[idleShard] - 1);
+          handle(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        if (running) {
+          logger.warn("Consumer failed to take work items, retrying", e);
+        }
+        // poll或drainTo已经取出的工作项还没有处理，放回原分片
+        if (source != null) {
+          moveTo(source, batch, requeued);
+        }
+        batch.clear();
+      }
+    }
+  }
+
+  private void adapt(int shard, int drained) {
+    int size = batchSizes[shard];
+    if (drained >= size) {
+      batchSizes[shard] = Math.min(maxBatchSize, size * 2);
+    } else if (drained < size / 4) {
+      batchSizes[shard] = Math.max(minBatchSize, size / 2);
+    }
+  }
+
+  private void handle(List<WorkItem<E>> batch) {
+    long now = System.currentTimeMillis();
+    for (WorkItem<E> item : batch) {
+      queueTime.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - item.enqueuedAtMillis())));
+    }
+    try {
+      handler.handle(batch);
+    } catch (RuntimeException e) {
+      failures.add(batch.size());
+      logger.warn("Handler failed on {} work items, moving them to {}", batch.size(), deadLetters.getName(), e);
+      moveTo(deadLetters, batch, deadLettered);
+      return;
+    }
+    processed.add(batch.size());
+    batches.increment();
+  }
+
+  private void moveTo(IQueue<WorkItem<E>> target, List<WorkItem<E>> items, LongAdder counter) {
+    if (items.isEmpty()) {
+      return;
+    }
+    try {
+      target.addAll(items);
+      counter.add(items.size());
+    } catch (RuntimeException e) {
+      lost.add(items.size());
+      logger.error("Failed to move {} work items to {}, they are lost: {}", items.size(), target.getName(), items, e);
+    }
+  }
+
+  public long getProcessedCount() {
+    return processed.sum();
+  }
+
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /**
+   * 处理失败后转入死信队列的工作项数
+   */
+  public long getDeadLetterCount() {
+    return deadLettered.sum();
+  }
+
+  /**
+   * 取数失败后放回原分片的工作项数
+   */
+  public long getRequeuedCount() {
+    return requeued.sum();
+  }
+
+  /**
+   * 放回原分片或转入死信队列也失败、已经丢失的工作项数
+   */
+  public long getLostCount() {
+    return lost.sum();
+  }
+
+  /**
+   * 所有分片都为空、进入poll等待的次数
+   */
+  public long getIdlePollCount() {
+    return idlePolls.sum();
+  }
+
+  /**
+   * 各分片当前的批大小，按分配顺序
+   */
+  public int[] getBatchSizes() {
+    return batchSizes.clone();
+  }
+
+  /**
+   * 从提交到被取出的时间
+   */
+  public LatencyHistogram getQueueTime() {
+    return queueTime;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
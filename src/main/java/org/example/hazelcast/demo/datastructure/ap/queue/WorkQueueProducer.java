@@ -0,0 +1,177 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.map.ReachedMaxSizeException;
+import org.example.hazelcast.demo.datastructure.ap.queue.PartitionedWorkQueue.WorkItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * 分片工作队列的批量生产者
+ *
+ * submit()只把工作项放进所在分片的本地缓冲，缓冲攒够batchSize个后用一次addAll写入，
+ * 一批只有一次网络往返。不是线程安全的，每个生产线程各用一个，用完调用flush()或close()。
+ *
+ * 有界分片放不下整批时addAll整体失败（抛出IllegalStateException），这时先写入剩余容量能放下的部分，其余部分以
+ * 1毫秒起、每次翻倍、最多50毫秒的间隔退避重试；每次退避都通知BackpressureListener，
+ * 调用方可以据此降低生产速率。等待超过blockTimeoutMillis时抛出ReachedMaxSizeException，
+ * 未写入的工作项留在缓冲中。
+ *
+ * @param <E> 工作项内容类型
+ */
+public class WorkQueueProducer<E> implements AutoCloseable {
+
+  private static final long MAX_BACKOFF_MILLIS = 50;
+
+  /**
+   * 分片已满、生产者开始退避时的回调
+   */
+  @FunctionalInterface
+  public interface BackpressureListener {
+    void onBackpressure(String shardName, int pendingItems);
+  }
+
+  private final List<IQueue<WorkItem<E>>> shards;
+  private final ToIntFunction<String> shardOf;
+  private final int batchSize;
+  private final long blockTimeoutMillis;
+  private final BackpressureListener listener;
+  private final List<List<WorkItem<E>>> buffers;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder backpressureEvents = new LongAdder();
+  private final LongAdder backoffMillis = new LongAdder();
+
+  WorkQueueProducer(List<IQueue<WorkItem<E>>> shards, ToIntFunction<String> shardOf, int batchSize,
+      long blockTimeoutMillis, BackpressureListener listener) {
+    this.shards = shards;
+    this.shardOf = shardOf;
+    this.batchSize = Math.max(1, batchSize);
+    this.blockTimeoutMillis = blockTimeoutMillis;
+    this.listener = listener;
+    this.buffers = new ArrayList<>(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      buffers.add(new ArrayList<>(this.batchSize));
+    }
+  }
+
+  /**
+   * 提交一个工作项，所在分片的缓冲满batchSize个时写入该分片
+   */
+  public void submit(String key, E payload) {
+    int shard = shardOf.applyAsInt(key);
+    List<WorkItem<E>> buffer = buffers.get(shard);
+    buffer.add(new WorkItem<>(key, payload, System.currentTimeMillis()));
+    submitted.increment();
+    if (buffer.size() >= batchSize) {
+      flushShard(shard);
+    }
+  }
+
+  /**
+   * 写入所有分片缓冲中的工作项
+   */
+  public void flush() {
+    for (int shard = 0; shard < buffers.size(); shard++) {
+      if (!buffers.get(shard).isEmpty()) {
+        flushShard(shard);
+      }
+    }
+  }
+
+  private void flushShard(int shard) {
+    IQueue<WorkItem<E>> queue = shards.get(shard);
+    List<WorkItem<E>> buffer = buffers.get(shard);
+    long deadline = System.currentTimeMillis() + blockTimeoutMillis;
+    long backoff = 1;
+    while (!buffer.isEmpty()) {
+      if (tryAddAll(queue, buffer)) {
+        enqueued.add(buffer.size());
+        batches.increment();
+        buffer.clear();
+        return;
+      }
+      // 整批放不下，先写入放得下的部分
+      int room = queue.remainingCapacity();
+      if (room > 0 && room < buffer.size()) {
+        List<WorkItem<E>> head = buffer.subList(0, room);
+        if (tryAddAll(queue, head)) {
+          enqueued.add(room);
+          batches.increment();
+          head.clear();
+          continue;
+        }
+      }
+      backpressureEvents.increment();
+      if (listener != null) {
+        listener.onBackpressure(queue.getName(), buffer.size());
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new ReachedMaxSizeException("Timed out waiting for capacity in " + queue.getName() + " after "
+            + blockTimeoutMillis + " ms, " + buffer.size() + " items pending");
+      }
+      long sleep = Math.min(backoff, remaining);
+      try {
+        TimeUnit.MILLISECONDS.sleep(sleep);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new HazelcastException("Interrupted while waiting for capacity in " + queue.getName(), e);
+      }
+      backoffMillis.add(sleep);
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+  }
+
+  /**
+   * 有界队列放不下整批时addAll抛出IllegalStateException，整批都不会写入
+   */
+  private static <T> boolean tryAddAll(IQueue<T> queue, List<T> items) {
+    try {
+      return queue.addAll(items);
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  public long getSubmittedCount() {
+    return submitted.sum();
+  }
+
+  public long getEnqueuedCount() {
+    return enqueued.sum();
+  }
+
+  /**
+   * addAll调用次数
+   */
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /**
+   * 分片已满、进入退避的次数
+   */
+  public long getBackpressureCount() {
+    return backpressureEvents.sum();
+  }
+
+  /**
+   * 退避累计等待的毫秒数
+   */
+  public long getBackoffMillis() {
+    return backoffMillis.sum();
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+}
@@ -0,0 +1,377 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.map.IMap;
+import com.hazelcast.ringbuffer.ReadResultSet;
+import com.hazelcast.ringbuffer.Ringbuffer;
+import com.hazelcast.ringbuffer.StaleSequenceException;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.example.hazelcast.demo.datastructure.ap.ringbuffer.PartitionedEventLog.LogEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分区事件日志的消费者组成员
+ *
+ * 每个分配到的Ringbuffer由一个读取线程负责：
+ * - 积压的事件足够时，同时发出pipelineDepth个连续区间的readManyAsync，按顺序处理结果，
+ *   不必等上一批返回再请求下一批；追上尾部后只保留一个minCount为1的长轮询读取
+ * - 处理后的下一个序列号定期写入IMap，重启或换成员接手时从提交的位置继续，语义为至少一次
+ * - 请求的序列号已被覆盖时（返回结果从更晚的序列号开始，或抛出StaleSequenceException），
+ *   丢弃在途请求，从Ringbuffer的头部继续，并记录丢失的事件数
+ * - 设置了过滤器时，不匹配的事件在Ringbuffer所在成员上被跳过，不会传输。此时一次读取扫描的区间
+ *   取决于匹配的事件数，无法预先划分连续区间，因此每个Ringbuffer只保留一个读取请求：
+ *   有积压时minCount为0，扫描到尾部即返回，使提交位置能越过不匹配的事件；追上后改为长轮询
+ * - 处理器抛出异常时，同一批事件按指数退避重试，成功前读取位置不前进，也不会提交越过这批事件的位置；
+ *   读取本身失败时同样退避后再重试
+ *
+ * @param <E> 事件内容类型
+ */
+public class EventLogConsumer<E> implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(EventLogConsumer.class);
+
+  private static final long POLL_TIMEOUT_MILLIS = 100;
+  private static final long RETRY_BACKOFF_MIN_MILLIS = 50;
+  private static final long RETRY_BACKOFF_MAX_MILLIS = 5_000;
+
+  /**
+   * 按批处理事件，同一批来自同一个Ringbuffer且保持顺序
+   */
+  @FunctionalInterface
+  public interface EventHandler<E> {
+    void onEvents(List<LogEvent<E>> events);
+  }
+
+  private final String group;
+  private final List<Ringbuffer<LogEvent<E>>> ringbuffers;
+  private final IMap<String, Long> offsets;
+  private final RingbufferFilter<LogEvent<E>> filter;
+  private final EventHandler<E> handler;
+  private final int batchSize;
+  private final int pipelineDepth;
+  private final long commitIntervalNanos;
+  private final ExecutorService readers;
+  private volatile boolean running;
+
+  private final List<PartitionReader> partitionReaders = new ArrayList<>();
+  private final LongAdder consumed = new LongAdder();
+  private final LongAdder scanned = new LongAdder();
+  private final LongAdder lost = new LongAdder();
+  private final LongAdder staleResets = new LongAdder();
+  private final LongAdder handlerFailures = new LongAdder();
+  private final LatencyHistogram endToEndLag = new LatencyHistogram();
+
+  EventLogConsumer(String group, List<Ringbuffer<LogEvent<E>>> ringbuffers, IMap<String, Long> offsets,
+      RingbufferFilter<LogEvent<E>> filter, EventHandler<E> handler, int batchSize, int pipelineDepth,
+      long commitIntervalMillis) {
+    this.group = group;
+    this.ringbuffers = List.copyOf(ringbuffers);
+    this.offsets = offsets;
+    this.filter = filter;
+    this.handler = handler;
+    this.batchSize = batchSize;
+    this.pipelineDepth = filter == null ? Math.max(1, pipelineDepth) : 1;
+    this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+    this.readers = Executors.newFixedThreadPool(Math.max(1, ringbuffers.size()), r -> {
+      Thread t = new Thread(r, group + "-event-reader");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public void start() {
+    running = true;
+    for (Ringbuffer<LogEvent<E>> ringbuffer : ringbuffers) {
+      PartitionReader reader = new PartitionReader(ringbuffer);
+      partitionReaders.add(reader);
+      readers.execute(reader);
+    }
+  }
+
+  /**
+   * 一个Ringbuffer上的读取循环，字段只在自己的线程上读写，committed除外
+   */
+  private final class PartitionReader implements Runnable {
+
+    private final Ringbuffer<LogEvent<E>> ringbuffer;
+    private final String offsetKey;
+    private final Deque<PendingRead<LogEvent<E>>> inFlight = new ArrayDeque<>();
+    private long sequence;
+    private long nextToIssue;
+    private long lastCommitNanos;
+    private volatile long committed;
+
+    PartitionReader(Ringbuffer<LogEvent<E>> ringbuffer) {
+      this.ringbuffer = ringbuffer;
+      this.offsetKey = group + ":" + ringbuffer.getName();
+    }
+
+    @Override
+    public void run() {
+      Long stored = offsets.get(offsetKey);
+      sequence = stored != null ? stored : ringbuffer.headSequence();
+      nextToIssue = sequence;
+      committed = sequence;
+      lastCommitNanos = System.nanoTime();
+      int readFailures = 0;
+      while (running) {
+        try {
+          pollOnce();
+          readFailures = 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (RuntimeException e) {
+          if (running) {
+            logger.warn("Reading {} for group {} failed, retrying", ringbuffer.getName(), group, e);
+            try {
+              pause(backoffMillis(readFailures++));
+            } catch (InterruptedException interrupted) {
+              Thread.currentThread().interrupt();
+              break;
+            }
+          }
+        }
+      }
+      cancelInFlight();
+      commit();
+    }
+
+    private void pollOnce() throws InterruptedException {
+      issueReads();
+      PendingRead<LogEvent<E>> head = inFlight.peekFirst();
+      ReadResultSet<LogEvent<E>> result;
+      try {
+        result = head.future().get(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        commitIfDue();
+        return;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof StaleSequenceException stale) {
+          resetToHead(stale.getHeadSeq());
+          return;
+        }
+        inFlight.removeFirst();
+        nextToIssue = sequence;
+        cancelInFlight();
+        throw new IllegalStateException(e.getCause());
+      }
+      inFlight.removeFirst();
+
+      // 有过滤器时第一个返回的事件不一定是读取的起点，用扫描数倒推实际起点
+      long readFrom = result.getNextSequenceToReadFrom() - result.readCount();
+      if (result.readCount() > 0 && readFrom > sequence) {
+        // 请求的位置已被覆盖，Ringbuffer从头部返回了数据，后面的在途请求区间都不再连续
+        long skipped = readFrom - sequence;
+        lost.add(skipped);
+        staleResets.increment();
+        logger.warn("Group {} lost {} events on {}, resuming from head", group, skipped, ringbuffer.getName());
+        sequence = readFrom;
+        cancelInFlight();
+      }
+      scanned.add(result.readCount());
+      if (!deliver(result)) {
+        // 停止时这批事件仍未处理，位置留在这批之前，重启后重新投递
+        return;
+      }
+      sequence = result.getNextSequenceToReadFrom();
+      if (head.openEnded() || inFlight.isEmpty()) {
+        nextToIssue = sequence;
+      }
+      commitIfDue();
+    }
+
+    /**
+     * 积压足够时发出多个连续区间的读取，否则只保留一个长轮询读取
+     */
+    private void issueReads() {
+      if (!inFlight.isEmpty() && inFlight.peekLast().openEnded()) {
+        return;
+      }
+      long tail = ringbuffer.tailSequence();
+      if (filter != null) {
+        inFlight.addLast(read(nextToIssue, nextToIssue <= tail ? 0 : 1, true));
+        return;
+      }
+      while (inFlight.size() < pipelineDepth && nextToIssue + batchSize - 1 <= tail) {
+        inFlight.addLast(read(nextToIssue, batchSize, false));
+        nextToIssue += batchSize;
+      }
+      if (inFlight.isEmpty()) {
+        inFlight.addLast(read(nextToIssue, 1, true));
+      }
+    }
+
+    private PendingRead<LogEvent<E>> read(long start, int minCount, boolean openEnded) {
+      return new PendingRead<>(ringbuffer.readManyAsync(start, minCount, batchSize, filter).toCompletableFuture(),
+          openEnded);
+    }
+
+    /**
+     * 把一批事件交给处理器，失败时退避后重试同一批，直到成功或消费者停止
+     *
+     * @return 是否已处理，停止时返回false
+     */
+    private boolean deliver(ReadResultSet<LogEvent<E>> result) throws InterruptedException {
+      if (result.size() == 0) {
+        return true;
+      }
+      List<LogEvent<E>> events = new ArrayList<>(result.size());
+      long now = System.currentTimeMillis();
+      for (LogEvent<E> event : result) {
+        events.add(event);
+        endToEndLag.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - event.publishedAtMillis())));
+      }
+      for (int attempt = 0; ; attempt++) {
+        try {
+          handler.onEvents(events);
+          consumed.add(events.size());
+          return true;
+        } catch (RuntimeException e) {
+          handlerFailures.increment();
+          logger.warn("Event handler of group {} failed on {} events from {}, retrying", group, events.size(),
+              ringbuffer.getName(), e);
+          if (!pause(backoffMillis(attempt))) {
+            return false;
+          }
+        }
+      }
+    }
+
+    private void resetToHead(long head) {
+      long skipped = Math.max(0, head - sequence);
+      lost.add(skipped);
+      staleResets.increment();
+      logger.warn("Group {} lost {} events on {}, resuming from head", group, skipped, ringbuffer.getName());
+      cancelInFlight();
+      sequence = head;
+      nextToIssue = head;
+    }
+
+    private void cancelInFlight() {
+      for (PendingRead<LogEvent<E>> pending : inFlight) {
+        pending.future().cancel(true);
+      }
+      inFlight.clear();
+      nextToIssue = sequence;
+    }
+
+    private void commitIfDue() {
+      if (System.nanoTime() - lastCommitNanos >= commitIntervalNanos) {
+        commit();
+      }
+    }
+
+    private void commit() {
+      lastCommitNanos = System.nanoTime();
+      if (sequence != committed) {
+        offsets.set(offsetKey, sequence);
+        committed = sequence;
+      }
+    }
+
+    /**
+     * 等待指定时间，消费者停止时提前返回
+     *
+     * @return 是否仍在运行
+     */
+    private boolean pause(long millis) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + millis;
+      long remaining;
+      while (running && (remaining = deadline - System.currentTimeMillis()) > 0) {
+        Thread.sleep(Math.min(remaining, POLL_TIMEOUT_MILLIS));
+      }
+      return running;
+    }
+
+    long backlog() {
+      return Math.max(0, ringbuffer.tailSequence() + 1 - committed);
+    }
+  }
+
+  private static long backoffMillis(int attempt) {
+    return Math.min(RETRY_BACKOFF_MAX_MILLIS, RETRY_BACKOFF_MIN_MILLIS << Math.min(attempt, 10));
+  }
+
+  private record PendingRead<T>(CompletableFuture<ReadResultSet<T>> future, boolean openEnded) {
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  public long getConsumedCount() {
+    return consumed.sum();
+  }
+
+  /**
+   * 读取时扫描过的事件数，包括被过滤掉的；与getConsumedCount()之比即过滤的选择率
+   */
+  public long getScannedCount() {
+    return scanned.sum();
+  }
+
+  /**
+   * 被覆盖、没有读到的事件数
+   */
+  public long getLostCount() {
+    return lost.sum();
+  }
+
+  public long getStaleResetCount() {
+    return staleResets.sum();
+  }
+
+  /**
+   * 处理器抛出异常的次数，同一批事件的每次重试都计入
+   */
+  public long getHandlerFailureCount() {
+    return handlerFailures.sum();
+  }
+
+  /**
+   * 从追加到交给处理器的时间
+   */
+  public LatencyHistogram getEndToEndLag() {
+    return endToEndLag;
+  }
+
+  /**
+   * 各Ringbuffer尾部与已提交位置之间的事件数之和
+   */
+  public long getBacklog() {
+    long backlog = 0;
+    for (PartitionReader reader : partitionReaders) {
+      backlog += reader.backlog();
+    }
+    return backlog;
+  }
+
+  /**
+   * 停止读取并提交当前位置
+   */
+  @Override
+  public void close() {
+    running = false;
+    readers.shutdown();
+    try {
+      if (!readers.awaitTermination(5, TimeUnit.SECONDS)) {
+        readers.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
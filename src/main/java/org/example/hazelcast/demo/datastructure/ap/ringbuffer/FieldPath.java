@@ -0,0 +1,90 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按点分路径读取对象字段，例如 payload.region
+ *
+ * 每一段依次尝试：Map的键、record组件、getX()/isX()、同名无参方法。
+ * 解析出的访问方法按类缓存，过滤器在成员上逐条执行时不重复反射查找。
+ * 路径上任何一段不存在或为null时返回null。
+ */
+final class FieldPath {
+
+  private static final Method MISSING;
+
+  static {
+    try {
+      MISSING = Object.class.getMethod("hashCode");
+    } catch (NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static final ClassValue<Map<String, Method>> ACCESSORS = new ClassValue<>() {
+    @Override
+    protected Map<String, Method> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  private FieldPath() {
+  }
+
+  static Object resolve(Object target, String path) {
+    Object current = target;
+    int start = 0;
+    while (current != null && start <= path.length()) {
+      int end = path.indexOf('.', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      current = field(current, path.substring(start, end));
+      start = end + 1;
+    }
+    return current;
+  }
+
+  private static Object field(Object target, String name) {
+    if (target instanceof Map<?, ?> map) {
+      return map.get(name);
+    }
+    Method accessor = ACCESSORS.get(target.getClass()).computeIfAbsent(name, n -> find(target.getClass(), n));
+    if (accessor == MISSING) {
+      return null;
+    }
+    try {
+      return accessor.invoke(target);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot read " + name + " of " + target.getClass().getName(), e);
+    }
+  }
+
+  private static Method find(Class<?> type, String name) {
+    if (type.isRecord()) {
+      for (RecordComponent component : type.getRecordComponents()) {
+        if (component.getName().equals(name)) {
+          return accessible(component.getAccessor());
+        }
+      }
+    }
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (String candidate : new String[]{"get" + capitalized, "is" + capitalized, name}) {
+      try {
+        return accessible(type.getMethod(candidate));
+      } catch (NoSuchMethodException ignored) {
+        // 尝试下一种命名
+      }
+    }
+    return MISSING;
+  }
+
+  private static Method accessible(Method method) {
+    // 嵌套在非public类中的record，访问方法需要放开访问检查
+    method.trySetAccessible();
+    return method;
+  }
+}
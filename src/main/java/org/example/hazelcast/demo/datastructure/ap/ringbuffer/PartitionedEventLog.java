@@ -0,0 +1,166 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IFunction;
+import com.hazelcast.ringbuffer.OverflowPolicy;
+import com.hazelcast.ringbuffer.Ringbuffer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 由N个Ringbuffer组成的分区事件日志
+ *
+ * 事件按键的哈希落到 名称-0 ... 名称-(N-1) 中的一个，同一个键的事件保持追加顺序。
+ * 单个Ringbuffer只存在于一个分区上，拆成多个后写入和读取可以分散到不同成员和分区线程。
+ * 消费者组通过newConsumer()创建，见EventLogConsumer；只关心部分事件时传入RingbufferFilter，
+ * 过滤在Ringbuffer所在成员上执行。只需要部分字段时用readProjected()在所在成员上过滤并投影。
+ *
+ * @param <E> 事件内容类型
+ */
+public class PartitionedEventLog<E> {
+
+  /**
+   * 消费者组提交的读取位置，键为 组名:Ringbuffer名
+   */
+  public static final String OFFSET_MAP = "ringbuffer-offsets";
+
+  /**
+   * 执行ProjectedRead的执行器
+   */
+  public static final String PROJECTION_EXECUTOR = "ringbuffer-projection";
+
+  /**
+   * 日志中的事件，publishedAtMillis用于计算端到端延迟
+   */
+  public record LogEvent<E>(String key, E payload, long publishedAtMillis) implements Serializable {
+  }
+
+  private final HazelcastInstance hazelcastInstance;
+  private final String name;
+  private final List<Ringbuffer<LogEvent<E>>> partitions;
+
+  public PartitionedEventLog(HazelcastInstance hazelcastInstance, String name, int partitionCount) {
+    if (partitionCount < 1) {
+      throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+    }
+    this.hazelcastInstance = hazelcastInstance;
+    this.name = name;
+    List<Ringbuffer<LogEvent<E>>> ringbuffers = new ArrayList<>(partitionCount);
+    for (int i = 0; i < partitionCount; i++) {
+      ringbuffers.add(hazelcastInstance.getRingbuffer(name + "-" + i));
+    }
+    this.partitions = List.copyOf(ringbuffers);
+  }
+
+  /**
+   * 追加一个事件，返回它在所在Ringbuffer中的序列号；容量满时覆盖最旧的事件
+   */
+  public CompletionStage<Long> append(String key, E payload) {
+    LogEvent<E> event = new LogEvent<>(key, payload, System.currentTimeMillis());
+    return partitions.get(partitionOf(key)).addAsync(event, OverflowPolicy.OVERWRITE);
+  }
+
+  /**
+   * 批量追加：按分区分组后每个Ringbuffer一次addAllAsync，全部完成后返回
+   */
+  public CompletableFuture<Void> appendAll(Map<String, ? extends Collection<E>> payloadsByKey) {
+    long now = System.currentTimeMillis();
+    List<List<LogEvent<E>>> byPartition = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      byPartition.add(new ArrayList<>());
+    }
+    payloadsByKey.forEach((key, payloads) -> {
+      List<LogEvent<E>> events = byPartition.get(partitionOf(key));
+      for (E payload : payloads) {
+        events.add(new LogEvent<>(key, payload, now));
+      }
+    });
+    List<CompletableFuture<Long>> futures = new ArrayList<>();
+    for (int i = 0; i < partitions.size(); i++) {
+      if (!byPartition.get(i).isEmpty()) {
+        futures.add(partitions.get(i).addAllAsync(byPartition.get(i), OverflowPolicy.OVERWRITE).toCompletableFuture());
+      }
+    }
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new));
+  }
+
+  /**
+   * 创建消费者组中的一个消费者，读取assignedPartitions指定的Ringbuffer
+   *
+   * @param batchSize     每次readManyAsync最多读取的事件数
+   * @param pipelineDepth 每个Ringbuffer同时在途的读取请求数
+   */
+  public EventLogConsumer<E> newConsumer(String group, int[] assignedPartitions,
+      EventLogConsumer.EventHandler<E> handler, int batchSize, int pipelineDepth, long commitIntervalMillis) {
+    return newConsumer(group, assignedPartitions, null, handler, batchSize, pipelineDepth, commitIntervalMillis);
+  }
+
+  /**
+   * 创建只接收匹配filter的事件的消费者，filter为null时接收全部事件
+   */
+  public EventLogConsumer<E> newConsumer(String group, int[] assignedPartitions, RingbufferFilter<LogEvent<E>> filter,
+      EventLogConsumer.EventHandler<E> handler, int batchSize, int pipelineDepth, long commitIntervalMillis) {
+    List<Ringbuffer<LogEvent<E>>> assigned = new ArrayList<>(assignedPartitions.length);
+    for (int partition : assignedPartitions) {
+      assigned.add(partitions.get(partition));
+    }
+    return new EventLogConsumer<>(group, assigned, hazelcastInstance.getMap(OFFSET_MAP), filter, handler, batchSize,
+        pipelineDepth, commitIntervalMillis);
+  }
+
+  /**
+   * 在partition所在成员上从startSequence开始读取最多maxCount个匹配的事件，只把投影结果传回
+   *
+   * @param filter 为null时不过滤
+   */
+  public <P> CompletableFuture<ProjectedRead.Batch<P>> readProjected(int partition, long startSequence, int maxCount,
+      IFunction<LogEvent<E>, Boolean> filter, IFunction<LogEvent<E>, P> projection) {
+    String ringbufferName = partitions.get(partition).getName();
+    ProjectedRead<LogEvent<E>, P> task = new ProjectedRead<>(ringbufferName, startSequence, maxCount, filter,
+        projection);
+    CompletableFuture<ProjectedRead.Batch<P>> future = new CompletableFuture<>();
+    hazelcastInstance.getExecutorService(PROJECTION_EXECUTOR).submitToKeyOwner(task, ringbufferName,
+        new ExecutionCallback<>() {
+          @Override
+          public void onResponse(ProjectedRead.Batch<P> response) {
+            future.complete(response);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            future.completeExceptionally(t);
+          }
+        });
+    return future;
+  }
+
+  /**
+   * 组内第memberIndex个消费者（共memberCount个）负责的分区，按取模均分
+   */
+  public int[] partitionsFor(int memberIndex, int memberCount) {
+    List<Integer> assigned = new ArrayList<>();
+    for (int i = memberIndex; i < partitions.size(); i += memberCount) {
+      assigned.add(i);
+    }
+    return assigned.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  public int partitionOf(String key) {
+    return Math.floorMod(key.hashCode(), partitions.size());
+  }
+
+  public int getPartitionCount() {
+    return partitions.size();
+  }
+
+  public String getName() {
+    return name;
+  }
+}
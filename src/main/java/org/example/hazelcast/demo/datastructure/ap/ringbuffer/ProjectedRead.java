@@ -0,0 +1,68 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.IFunction;
+import com.hazelcast.ringbuffer.ReadResultSet;
+import com.hazelcast.ringbuffer.Ringbuffer;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 在Ringbuffer所在成员上执行的过滤加投影读取
+ *
+ * readManyAsync只支持过滤，返回的仍是完整事件。需要的只是其中几个字段时，把本任务通过
+ * IExecutorService.submitToKeyOwner(task, Ringbuffer名)发到Ringbuffer的分区所有者，
+ * 在本地读取、过滤后只把投影结果传回调用方。读取不等待新数据（minCount为0），
+ * 调用方按返回的nextSequence继续。
+ *
+ * @param <T> Ringbuffer中的元素类型
+ * @param <P> 投影结果类型，需要可序列化
+ */
+public class ProjectedRead<T, P> implements Callable<ProjectedRead.Batch<P>>, HazelcastInstanceAware, Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 一次读取的结果，readCount为扫描过的事件数，包括未通过过滤的
+   */
+  public record Batch<P>(List<P> items, int readCount, long nextSequence) implements Serializable {
+  }
+
+  private final String ringbufferName;
+  private final long startSequence;
+  private final int maxCount;
+  private final IFunction<T, Boolean> filter;
+  private final IFunction<T, P> projection;
+  private transient HazelcastInstance hazelcastInstance;
+
+  public ProjectedRead(String ringbufferName, long startSequence, int maxCount, IFunction<T, Boolean> filter,
+      IFunction<T, P> projection) {
+    this.ringbufferName = ringbufferName;
+    this.startSequence = startSequence;
+    this.maxCount = maxCount;
+    this.filter = filter;
+    this.projection = projection;
+  }
+
+  @Override
+  public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  @Override
+  public Batch<P> call() throws Exception {
+    Ringbuffer<T> ringbuffer = hazelcastInstance.getRingbuffer(ringbufferName);
+    ReadResultSet<T> result = ringbuffer.readManyAsync(startSequence, 0, maxCount, filter).toCompletableFuture().get();
+    List<P> items = new ArrayList<>(result.size());
+    for (T item : result) {
+      items.add(projection.apply(item));
+    }
+    return new Batch<>(items, result.readCount(), result.getNextSequenceToReadFrom());
+  }
+}
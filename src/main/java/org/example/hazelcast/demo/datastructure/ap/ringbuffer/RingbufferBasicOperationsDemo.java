@@ -4,9 +4,9 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.ringbuffer.OverflowPolicy;
 import com.hazelcast.ringbuffer.Ringbuffer;
 import com.hazelcast.ringbuffer.ReadResultSet;
-import com.hazelcast.core.IFunction;
 import org.springframework.stereotype.Component;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -82,6 +82,8 @@ public class RingbufferBasicOperationsDemo {
     batchedReadExample();
     asyncMethodsExample();
     filteredReadExample();
+    eventFilterExample();
+    consumerGroupExample();
   }
 
   /**
@@ -302,17 +304,12 @@ public class RingbufferBasicOperationsDemo {
     try {
       long startSequence = ringbuffer.headSequence();
 
-      // 因为Hazelcast的过滤器接口不容易使用lambda，这里我们创建一个实现该接口的内部类
-      class AppleFilter implements IFunction<String, Boolean> {
-        @Override
-        public Boolean apply(String item) {
-          return item.startsWith("apple");
-        }
-      }
+      // RingbufferFilter继承了可序列化的IFunction，lambda可以直接作为过滤器发送到成员上执行
+      RingbufferFilter<String> appleFilter = item -> item.startsWith("apple");
 
       System.out.println("使用过滤器读取（只读取 'apple' 开头的项目）");
       CompletableFuture<ReadResultSet<String>> future = ringbuffer
-          .readManyAsync(startSequence, 1, 10, new AppleFilter()).toCompletableFuture();
+          .readManyAsync(startSequence, 1, 10, appleFilter).toCompletableFuture();
 
       ReadResultSet<String> resultSet = future.join();
       System.out.println("过滤读取完成，读取数量: " + resultSet.readCount() + ", 过滤后项目数: " + resultSet.size());
@@ -325,6 +322,77 @@ public class RingbufferBasicOperationsDemo {
     }
   }
 
+  /**
+   * 事件过滤与投影示例
+   *
+   * 组合RingbufferFilters中的过滤器，消费者只收到华东区的大额订单；
+   * 统计任务只需要键和金额，用readProjected在Ringbuffer所在成员上投影后再传回
+   */
+  public void eventFilterExample() {
+    System.out.println("\n--- 事件过滤与投影示例 ---");
+
+    PartitionedEventLog<OrderPayload> eventLog = new PartitionedEventLog<>(hazelcastInstance, "demo-order-log", 1);
+    long start = hazelcastInstance.<Object>getRingbuffer("demo-order-log-0").tailSequence() + 1;
+    for (int i = 0; i < 200; i++) {
+      eventLog.append("order-" + i, new OrderPayload(i % 4 == 0 ? "east" : "north", i * 100L));
+    }
+
+    RingbufferFilter<PartitionedEventLog.LogEvent<OrderPayload>> largeEastOrders =
+        RingbufferFilters.<PartitionedEventLog.LogEvent<OrderPayload>>fieldEquals("payload.region", "east")
+            .and(RingbufferFilters.fieldBetween("payload.amountCents", 10_000, Long.MAX_VALUE));
+    try {
+      ProjectedRead.Batch<Object[]> batch = eventLog.readProjected(0, start, 100, largeEastOrders,
+          RingbufferFilters.project("key", "payload.amountCents")).get(5, TimeUnit.SECONDS);
+      System.out.println("扫描 " + batch.readCount() + " 个事件，匹配 " + batch.items().size() + " 个");
+      batch.items().stream().limit(3)
+          .forEach(values -> System.out.println(" - " + values[0] + " 金额(分): " + values[1]));
+    } catch (Exception e) {
+      System.err.println("投影读取出错: " + e.getMessage());
+    }
+  }
+
+  /**
+   * 示例订单事件内容
+   */
+  public record OrderPayload(String region, long amountCents) implements Serializable {
+  }
+
+  /**
+   * 消费者组示例
+   *
+   * 事件按键写入4个Ringbuffer，组内两个消费者各负责两个，流水线批量读取并定期提交读取位置
+   */
+  public void consumerGroupExample() {
+    System.out.println("\n--- 消费者组示例 ---");
+
+    PartitionedEventLog<String> eventLog = new PartitionedEventLog<>(hazelcastInstance, "demo-event-log", 4);
+    List<EventLogConsumer<String>> consumers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      String consumerName = "消费者" + i;
+      EventLogConsumer<String> consumer = eventLog.newConsumer("demo-group", eventLog.partitionsFor(i, 2),
+          events -> System.out.println(consumerName + " 收到 " + events.size() + " 个事件，首个: "
+              + events.get(0).key() + "=" + events.get(0).payload()),
+          100, 4, 500);
+      consumer.start();
+      consumers.add(consumer);
+    }
+
+    try {
+      for (int i = 0; i < 1_000; i++) {
+        eventLog.append("order-" + (i % 10), "event-" + i);
+      }
+      TimeUnit.SECONDS.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (EventLogConsumer<String> consumer : consumers) {
+      consumer.close();
+      System.out.println("已消费: " + consumer.getConsumedCount() + "，丢失: " + consumer.getLostCount()
+          + "，端到端延迟p99: " + consumer.getEndToEndLag().getPercentileMicros(99) + " 微秒");
+    }
+  }
+
   /**
    * 辅助方法：重置Ringbuffer（由于没有clear方法）
    */
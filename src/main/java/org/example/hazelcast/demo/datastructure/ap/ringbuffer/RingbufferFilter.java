@@ -0,0 +1,34 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.core.IFunction;
+
+/**
+ * 可组合的Ringbuffer读取过滤器
+ *
+ * 作为readManyAsync的filter参数随请求序列化到Ringbuffer所在成员，在分区线程上逐条执行，
+ * 不匹配的事件不会返回给调用方。实现类应为无状态的小对象，具体实现见RingbufferFilters。
+ *
+ * @param <T> Ringbuffer中的元素类型
+ */
+@FunctionalInterface
+public interface RingbufferFilter<T> extends IFunction<T, Boolean> {
+
+  boolean test(T item);
+
+  @Override
+  default Boolean apply(T item) {
+    return test(item);
+  }
+
+  default RingbufferFilter<T> and(RingbufferFilter<T> other) {
+    return new RingbufferFilters.And<>(this, other);
+  }
+
+  default RingbufferFilter<T> or(RingbufferFilter<T> other) {
+    return new RingbufferFilters.Or<>(this, other);
+  }
+
+  default RingbufferFilter<T> negate() {
+    return new RingbufferFilters.Not<>(this);
+  }
+}
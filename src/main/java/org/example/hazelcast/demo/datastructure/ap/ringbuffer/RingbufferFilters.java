@@ -0,0 +1,251 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.core.IFunction;
+
+import java.io.Serial;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 常用的Ringbuffer过滤器与投影
+ *
+ * 字段用点分路径指定，例如 key、payload.region，解析规则见FieldPath；
+ * 过滤器之间用and/or/negate组合。所有实现都是具名的可序列化类，不依赖lambda的序列化形式，
+ * 成员与客户端只要使用同一版本的类即可。
+ */
+public final class RingbufferFilters {
+
+  /**
+   * 采样按万分之一的精度划分
+   */
+  private static final int SAMPLE_SCALE = 10_000;
+
+  private RingbufferFilters() {
+  }
+
+  public static <T> RingbufferFilter<T> fieldEquals(String path, Object value) {
+    return new FieldEquals<>(path, value);
+  }
+
+  public static <T> RingbufferFilter<T> fieldIn(String path, Set<?> values) {
+    return new FieldIn<>(path, Set.copyOf(values));
+  }
+
+  /**
+   * 数值字段落在[fromInclusive, toExclusive)之间
+   */
+  public static <T> RingbufferFilter<T> fieldBetween(String path, long fromInclusive, long toExclusive) {
+    return new FieldBetween<>(path, fromInclusive, toExclusive);
+  }
+
+  /**
+   * 事件键按字典序落在[fromInclusive, toExclusive)之间，边界为null表示不限
+   */
+  public static <T> RingbufferFilter<T> keyRange(String fromInclusive, String toExclusive) {
+    return new KeyRange<>("key", fromInclusive, toExclusive);
+  }
+
+  /**
+   * 按事件键的哈希采样，同一个键总是同时被选中或同时被跳过
+   *
+   * @param rate 采样比例，0到1之间
+   */
+  public static <T> RingbufferFilter<T> sample(double rate) {
+    return sample("key", rate);
+  }
+
+  public static <T> RingbufferFilter<T> sample(String path, double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException("rate must be between 0 and 1: " + rate);
+    }
+    return new Sample<>(path, (int) Math.round(rate * SAMPLE_SCALE));
+  }
+
+  /**
+   * 只取出指定字段，结果为与paths顺序一致的数组；配合ProjectedRead在成员上执行
+   */
+  public static <T> IFunction<T, Object[]> project(String... paths) {
+    return new FieldProjection<>(paths.clone());
+  }
+
+  public static class FieldEquals<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final Object value;
+
+    public FieldEquals(String path, Object value) {
+      this.path = path;
+      this.value = value;
+    }
+
+    @Override
+    public boolean test(T item) {
+      return Objects.equals(FieldPath.resolve(item, path), value);
+    }
+  }
+
+  public static class FieldIn<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final Set<?> values;
+
+    public FieldIn(String path, Set<?> values) {
+      this.path = path;
+      this.values = values;
+    }
+
+    @Override
+    public boolean test(T item) {
+      Object value = FieldPath.resolve(item, path);
+      return value != null && values.contains(value);
+    }
+  }
+
+  public static class FieldBetween<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final long fromInclusive;
+    private final long toExclusive;
+
+    public FieldBetween(String path, long fromInclusive, long toExclusive) {
+      this.path = path;
+      this.fromInclusive = fromInclusive;
+      this.toExclusive = toExclusive;
+    }
+
+    @Override
+    public boolean test(T item) {
+      if (!(FieldPath.resolve(item, path) instanceof Number number)) {
+        return false;
+      }
+      long value = number.longValue();
+      return value >= fromInclusive && value < toExclusive;
+    }
+  }
+
+  public static class KeyRange<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final String fromInclusive;
+    private final String toExclusive;
+
+    public KeyRange(String path, String fromInclusive, String toExclusive) {
+      this.path = path;
+      this.fromInclusive = fromInclusive;
+      this.toExclusive = toExclusive;
+    }
+
+    @Override
+    public boolean test(T item) {
+      if (!(FieldPath.resolve(item, path) instanceof String key)) {
+        return false;
+      }
+      return (fromInclusive == null || key.compareTo(fromInclusive) >= 0)
+          && (toExclusive == null || key.compareTo(toExclusive) < 0);
+    }
+  }
+
+  public static class Sample<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private final int threshold;
+
+    public Sample(String path, int threshold) {
+      this.path = path;
+      this.threshold = threshold;
+    }
+
+    @Override
+    public boolean test(T item) {
+      Object value = FieldPath.resolve(item, path);
+      if (value == null) {
+        return false;
+      }
+      // 打散hashCode，字符串键的低位相近时也能均匀分布
+      int h = value.hashCode() * 0x9E3779B9;
+      return Math.floorMod(h ^ (h >>> 16), SAMPLE_SCALE) < threshold;
+    }
+  }
+
+  public static class And<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final RingbufferFilter<T> left;
+    private final RingbufferFilter<T> right;
+
+    public And(RingbufferFilter<T> left, RingbufferFilter<T> right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(T item) {
+      return left.test(item) && right.test(item);
+    }
+  }
+
+  public static class Or<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final RingbufferFilter<T> left;
+    private final RingbufferFilter<T> right;
+
+    public Or(RingbufferFilter<T> left, RingbufferFilter<T> right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(T item) {
+      return left.test(item) || right.test(item);
+    }
+  }
+
+  public static class Not<T> implements RingbufferFilter<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final RingbufferFilter<T> delegate;
+
+    public Not(RingbufferFilter<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean test(T item) {
+      return !delegate.test(item);
+    }
+  }
+
+  public static class FieldProjection<T> implements IFunction<T, Object[]> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String[] paths;
+
+    public FieldProjection(String[] paths) {
+      this.paths = paths;
+    }
+
+    @Override
+    public Object[] apply(T item) {
+      Object[] values = new Object[paths.length];
+      for (int i = 0; i < paths.length; i++) {
+        values[i] = FieldPath.resolve(item, paths[i]);
+      }
+      return values;
+    }
+  }
+}
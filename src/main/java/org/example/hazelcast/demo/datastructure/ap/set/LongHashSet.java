@@ -0,0 +1,141 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import java.util.Arrays;
+
+/**
+ * 存放原始long的开放寻址哈希集合
+ *
+ * 用线性探测的long[]代替HashSet&lt;Long&gt;：每个元素占8字节而不是一个Long对象加一个HashMap节点
+ * （约48字节），插入时没有装箱和对象分配，适合对几百万个ID做唯一性校验。
+ * 负载因子超过0.5时扩容一倍。非线程安全，多线程使用时各自收集后再合并。
+ */
+public class LongHashSet {
+
+  /**
+   * 表示空槽位的值；集合本身也可以包含0，由containsZero单独记录
+   */
+  private static final long EMPTY = 0L;
+
+  private long[] slots;
+  private int mask;
+  private int size;
+  private boolean containsZero;
+
+  public LongHashSet() {
+    this(16);
+  }
+
+  /**
+   * @param expectedSize 预计元素数，据此预分配容量避免扩容
+   */
+  public LongHashSet(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+    slots = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * 加入元素，已存在时返回false
+   */
+  public boolean add(long value) {
+    if (value == EMPTY) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int index = indexOf(value);
+    while (slots[index] != EMPTY) {
+      if (slots[index] == value) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    slots[index] = value;
+    if (++size > (mask + 1) >> 1) {
+      resize();
+    }
+    return true;
+  }
+
+  /**
+   * 逐个加入，返回其中已经存在（重复）的个数
+   */
+  public int addAll(long[] values) {
+    int duplicates = 0;
+    for (long value : values) {
+      if (!add(value)) {
+        duplicates++;
+      }
+    }
+    return duplicates;
+  }
+
+  public boolean contains(long value) {
+    if (value == EMPTY) {
+      return containsZero;
+    }
+    int index = indexOf(value);
+    while (slots[index] != EMPTY) {
+      if (slots[index] == value) {
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * 以数组形式返回全部元素，顺序不确定
+   */
+  public long[] toArray() {
+    long[] result = new long[size];
+    int i = 0;
+    if (containsZero) {
+      result[i++] = EMPTY;
+    }
+    for (long slot : slots) {
+      if (slot != EMPTY) {
+        result[i++] = slot;
+      }
+    }
+    return result;
+  }
+
+  public void clear() {
+    Arrays.fill(slots, EMPTY);
+    containsZero = false;
+    size = 0;
+  }
+
+  private int indexOf(long value) {
+    // 混合高位，Flake ID的低位是序列号和节点号，直接取低位分布很差
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private void resize() {
+    long[] old = slots;
+    slots = new long[old.length << 1];
+    mask = slots.length - 1;
+    for (long value : old) {
+      if (value != EMPTY) {
+        int index = indexOf(value);
+        while (slots[index] != EMPTY) {
+          index = (index + 1) & mask;
+        }
+        slots[index] = value;
+      }
+    }
+  }
+}
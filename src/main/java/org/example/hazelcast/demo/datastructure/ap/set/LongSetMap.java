@@ -0,0 +1,228 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.ReadOnly;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 用IMap&lt;String, SortedLongSet&gt;代替ISet&lt;Long&gt;保存大量ID集合，每个键一个集合
+ *
+ * ISet的每个元素都是一个单独的集合项（序列化数据、项ID和容器中的哈希表节点），几百万个ID时
+ * 元素本身的8字节反而是零头。这里一个集合只是IMap中的一个条目，值是一个有序long[]。
+ * 所有读写都通过EntryProcessor在条目所在的分区线程上执行：
+ * - add/remove/unionInto/intersectInto在成员上合并后setValue，同一个键的修改串行执行，不需要加锁
+ * - contains/size是只读处理器，只返回结果，不把集合传回调用方
+ * - unionInto/intersectInto把MergeTask发到source的分区所有者上，在那里本地读取source，
+ *   再对target执行更新处理器，source只在成员之间传一次，不经过调用方
+ *
+ * 内存格式为OBJECT，处理器直接拿到保存的SortedLongSet，contains只是一次二分查找，
+ * 不必每次先反序列化整个集合；迁移和get时按SortedLongSetSerializer的差值编码传输。
+ * 每次修改都会复制整个数组，逐个加入大量元素时应攒成一批再调用add。
+ */
+public class LongSetMap {
+
+  private final HazelcastInstance hazelcastInstance;
+  private final IMap<String, SortedLongSet> sets;
+
+  public LongSetMap(HazelcastInstance hazelcastInstance, String name) {
+    this.hazelcastInstance = hazelcastInstance;
+    this.sets = hazelcastInstance.getMap(name);
+  }
+
+  /**
+   * 保存ID集合的Map配置，需要同时注册SortedLongSetSerializer
+   */
+  public static MapConfig mapConfig(String name) {
+    return new MapConfig(name)
+        .setInMemoryFormat(InMemoryFormat.OBJECT)
+        .setBackupCount(1)
+        .setStatisticsEnabled(true);
+  }
+
+  /**
+   * 加入一批ID，返回新加入（原来不存在）的个数
+   */
+  public int add(String key, long... ids) {
+    return sets.executeOnKey(key, new UpdateProcessor(Operation.ADD, SortedLongSet.of(ids).values()));
+  }
+
+  /**
+   * 移除一批ID，返回实际移除的个数；集合变空时删除条目
+   */
+  public int remove(String key, long... ids) {
+    return sets.executeOnKey(key, new UpdateProcessor(Operation.REMOVE, SortedLongSet.of(ids).values()));
+  }
+
+  public boolean contains(String key, long id) {
+    return sets.executeOnKey(key, new ContainsProcessor(id));
+  }
+
+  public int size(String key) {
+    return sets.executeOnKey(key, new SizeProcessor());
+  }
+
+  /**
+   * 整个集合，升序；键不存在时返回空数组
+   */
+  public long[] get(String key) {
+    SortedLongSet set = sets.get(key);
+    return set == null ? new long[0] : set.toArray();
+  }
+
+  /**
+   * 把source集合并入target，返回target新增的个数
+   */
+  public int unionInto(String target, String source) {
+    return merge(Operation.ADD, target, source);
+  }
+
+  /**
+   * target只保留同时在source中的元素，返回target移除的个数；source不存在时target被清空
+   */
+  public int intersectInto(String target, String source) {
+    return merge(Operation.RETAIN, target, source);
+  }
+
+  private int merge(Operation operation, String target, String source) {
+    MergeTask task = new MergeTask(sets.getName(), operation, target, source);
+    try {
+      return hazelcastInstance.getExecutorService(SetAlgebra.EXECUTOR).submitToKeyOwner(task, source).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while merging " + source + " into " + target, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Merging " + source + " into " + target + " failed", e.getCause());
+    }
+  }
+
+  public void delete(String key) {
+    sets.delete(key);
+  }
+
+  public IMap<String, SortedLongSet> getMap() {
+    return sets;
+  }
+
+  enum Operation {
+    ADD, REMOVE, RETAIN
+  }
+
+  /**
+   * 在集合所在分区上与一组有序ID做并集、差集或交集，返回集合大小的变化量（绝对值）
+   */
+  static class UpdateProcessor implements EntryProcessor<String, SortedLongSet, Integer> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Operation operation;
+    // 升序且无重复
+    private final long[] operand;
+
+    UpdateProcessor(Operation operation, long[] operand) {
+      this.operation = operation;
+      this.operand = operand;
+    }
+
+    @Override
+    public Integer process(Map.Entry<String, SortedLongSet> entry) {
+      SortedLongSet current = entry.getValue() == null ? SortedLongSet.EMPTY : entry.getValue();
+      SortedLongSet other = new SortedLongSet(operand);
+      SortedLongSet updated = switch (operation) {
+        case ADD -> current.union(other);
+        case REMOVE -> current.difference(other);
+        case RETAIN -> current.intersect(other);
+      };
+      if (updated != current) {
+        entry.setValue(updated.isEmpty() ? null : updated);
+      }
+      return Math.abs(updated.size() - current.size());
+    }
+  }
+
+  /**
+   * 在source的分区所有者上读取source，对target执行并集或交集；source不存在时按空集合处理
+   */
+  static class MergeTask implements Callable<Integer>, HazelcastInstanceAware, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String mapName;
+    private final Operation operation;
+    private final String target;
+    private final String source;
+    private transient HazelcastInstance hazelcastInstance;
+
+    MergeTask(String mapName, Operation operation, String target, String source) {
+      this.mapName = mapName;
+      this.operation = operation;
+      this.target = target;
+      this.source = source;
+    }
+
+    @Override
+    public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+      this.hazelcastInstance = hazelcastInstance;
+    }
+
+    @Override
+    public Integer call() {
+      IMap<String, SortedLongSet> sets = hazelcastInstance.getMap(mapName);
+      // 本成员拥有source所在分区，这次读取不经过网络
+      SortedLongSet set = sets.get(source);
+      if (set == null && operation == Operation.ADD) {
+        return 0;
+      }
+      return sets.executeOnKey(target, new UpdateProcessor(operation, set == null ? new long[0] : set.values()));
+    }
+  }
+
+  static class ContainsProcessor implements EntryProcessor<String, SortedLongSet, Boolean>, ReadOnly {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+
+    ContainsProcessor(long id) {
+      this.id = id;
+    }
+
+    @Override
+    public Boolean process(Map.Entry<String, SortedLongSet> entry) {
+      return entry.getValue() != null && entry.getValue().contains(id);
+    }
+
+    @Override
+    public EntryProcessor<String, SortedLongSet, Boolean> getBackupProcessor() {
+      return null;
+    }
+  }
+
+  static class SizeProcessor implements EntryProcessor<String, SortedLongSet, Integer>, ReadOnly {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Integer process(Map.Entry<String, SortedLongSet> entry) {
+      return entry.getValue() == null ? 0 : entry.getValue().size();
+    }
+
+    @Override
+    public EntryProcessor<String, SortedLongSet, Integer> getBackupProcessor() {
+      return null;
+    }
+  }
+}
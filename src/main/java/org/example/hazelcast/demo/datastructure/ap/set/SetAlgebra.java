@@ -0,0 +1,141 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.collection.IList;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 在集合所在成员上计算多个ISet的并集、交集、差集，不把元素传回调用方
+ *
+ * ISet的全部元素都在一个分区里。对几百万个元素的集合调用retainAll/addAll之前，调用方要先把
+ * 其中一个集合整个取回来；这里把SetAlgebraTask发到第一个集合的分区所有者上执行，
+ * 结果只以三种形式离开成员：
+ * - cardinality：只返回结果的元素个数
+ * - materialize：写入目标ISet，调用方只拿到元素个数
+ * - stream：写入与第一个集合同分区的临时IList，调用方按chunkSize用subList分批读取后删除
+ *
+ * 参与运算的集合用 名称@分区键 命名在同一个分区上时（如 segment-a@segments、segment-b@segments），
+ * 读取全部在本地完成；否则其余集合由成员之间传输，仍然不经过调用方。
+ */
+public class SetAlgebra {
+
+  /**
+   * 执行SetAlgebraTask的执行器
+   */
+  public static final String EXECUTOR = "set-algebra";
+
+  private static final String RESULT_PREFIX = "set-algebra-result-";
+
+  public enum Operation {
+    /** 任一集合中的元素 */
+    UNION,
+    /** 所有集合中都有的元素 */
+    INTERSECT,
+    /** 在第一个集合中、不在其余任何集合中的元素 */
+    DIFFERENCE
+  }
+
+  private final HazelcastInstance hazelcastInstance;
+
+  private final LongAdder operations = new LongAdder();
+  private final LongAdder resultElements = new LongAdder();
+  private final LongAdder streamedChunks = new LongAdder();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  public SetAlgebra(HazelcastInstance hazelcastInstance) {
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  /**
+   * 运算结果的元素个数
+   */
+  public int cardinality(Operation operation, String... sets) {
+    return execute(new SetAlgebraTask(operation, sets, null, false));
+  }
+
+  /**
+   * 把运算结果写入target（先清空），返回结果的元素个数；target也可以是参与运算的集合之一
+   */
+  public int materialize(Operation operation, String target, String... sets) {
+    return execute(new SetAlgebraTask(operation, sets, target, false));
+  }
+
+  /**
+   * 分批读取运算结果，每批最多chunkSize个元素，返回结果的元素个数
+   */
+  public <E> int stream(Operation operation, int chunkSize, Consumer<List<E>> consumer, String... sets) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    String partitionKey = hazelcastInstance.getSet(sets[0]).getPartitionKey();
+    String resultName = RESULT_PREFIX + UUID.randomUUID() + "@" + partitionKey;
+    IList<E> result = hazelcastInstance.getList(resultName);
+    try {
+      int size = execute(new SetAlgebraTask(operation, sets, resultName, true));
+      for (int from = 0; from < size; from += chunkSize) {
+        consumer.accept(result.subList(from, Math.min(size, from + chunkSize)));
+        streamedChunks.increment();
+      }
+      return size;
+    } finally {
+      result.destroy();
+    }
+  }
+
+  private int execute(SetAlgebraTask task) {
+    long start = System.nanoTime();
+    String partitionKey = hazelcastInstance.getSet(task.getSets()[0]).getPartitionKey();
+    IExecutorService executor = hazelcastInstance.getExecutorService(EXECUTOR);
+    CompletableFuture<Integer> future = new CompletableFuture<>();
+    executor.submitToKeyOwner(task, partitionKey, new ExecutionCallback<>() {
+      @Override
+      public void onResponse(Integer response) {
+        future.complete(response);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    int size;
+    try {
+      size = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while computing set algebra", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Set algebra on " + String.join(", ", task.getSets()) + " failed",
+          e.getCause());
+    }
+    latency.recordNanos(System.nanoTime() - start);
+    operations.increment();
+    resultElements.add(size);
+    return size;
+  }
+
+  public long getOperationCount() {
+    return operations.sum();
+  }
+
+  public long getResultElementCount() {
+    return resultElements.sum();
+  }
+
+  public long getStreamedChunkCount() {
+    return streamedChunks.sum();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+}
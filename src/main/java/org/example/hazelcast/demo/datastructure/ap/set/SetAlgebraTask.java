@@ -0,0 +1,122 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.collection.ISet;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * 在第一个集合的分区所有者上计算集合运算，返回结果的元素个数
+ *
+ * 求交集时从最小的集合开始，之后每个集合只保留已有的候选，结果为空时不再读取剩下的集合；
+ * 求差集时第一个集合被减空后同样提前结束。结果按WRITE_CHUNK个一批写入目标集合或临时列表。
+ */
+public class SetAlgebraTask implements Callable<Integer>, HazelcastInstanceAware, Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private static final int WRITE_CHUNK = 10_000;
+
+  private final SetAlgebra.Operation operation;
+  private final String[] sets;
+  private final String target;
+  private final boolean targetIsList;
+  private transient HazelcastInstance hazelcastInstance;
+
+  /**
+   * @param target       写入结果的集合名，为null时只计数
+   * @param targetIsList target是IList（分批读取用的临时列表）而不是ISet
+   */
+  public SetAlgebraTask(SetAlgebra.Operation operation, String[] sets, String target, boolean targetIsList) {
+    this.operation = operation;
+    this.sets = sets;
+    this.target = target;
+    this.targetIsList = targetIsList;
+  }
+
+  @Override
+  public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  @Override
+  public Integer call() {
+    List<ISet<Object>> sources = new ArrayList<>(sets.length);
+    for (String name : sets) {
+      sources.add(hazelcastInstance.getSet(name));
+    }
+    Set<Object> result = switch (operation) {
+      case UNION -> union(sources);
+      case INTERSECT -> intersect(sources);
+      case DIFFERENCE -> difference(sources);
+    };
+    if (target != null) {
+      write(result);
+    }
+    return result.size();
+  }
+
+  private static Set<Object> union(List<ISet<Object>> sources) {
+    Set<Object> result = new HashSet<>();
+    for (ISet<Object> set : sources) {
+      result.addAll(set);
+    }
+    return result;
+  }
+
+  private static Set<Object> intersect(List<ISet<Object>> sources) {
+    List<ISet<Object>> bySize = new ArrayList<>(sources);
+    bySize.sort(Comparator.comparingInt(ISet::size));
+    Set<Object> result = new HashSet<>(bySize.get(0));
+    for (int i = 1; i < bySize.size() && !result.isEmpty(); i++) {
+      Set<Object> retained = new HashSet<>();
+      for (Object item : bySize.get(i)) {
+        if (result.contains(item)) {
+          retained.add(item);
+        }
+      }
+      result = retained;
+    }
+    return result;
+  }
+
+  private static Set<Object> difference(List<ISet<Object>> sources) {
+    Set<Object> result = new HashSet<>(sources.get(0));
+    for (int i = 1; i < sources.size() && !result.isEmpty(); i++) {
+      for (Object item : sources.get(i)) {
+        result.remove(item);
+      }
+    }
+    return result;
+  }
+
+  private void write(Set<Object> result) {
+    Collection<Object> out = targetIsList ? hazelcastInstance.getList(target) : hazelcastInstance.getSet(target);
+    out.clear();
+    List<Object> chunk = new ArrayList<>(Math.min(WRITE_CHUNK, result.size()));
+    for (Object item : result) {
+      chunk.add(item);
+      if (chunk.size() == WRITE_CHUNK) {
+        out.addAll(chunk);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      out.addAll(chunk);
+    }
+  }
+
+  String[] getSets() {
+    return sets;
+  }
+}
@@ -12,6 +12,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 /**
  * Hazelcast Set 基本操作示例
@@ -67,6 +69,8 @@ public class SetBasicOperationsDemo {
     itemListenerExample();
     configurationExample();
     setOperationsExample();
+    longSetExample();
+    serverSideAlgebraExample();
     System.out.println("\nSet示例完成！");
   }
 
@@ -253,6 +257,87 @@ public class SetBasicOperationsDemo {
     }
   }
 
+  /**
+   * 演示用一个IMap条目保存大量ID的LongSetMap
+   *
+   * ISet&lt;Long&gt;的每个元素都是单独的集合项，百万级ID时每个约占120字节；
+   * LongSetMap把整个集合存成一个有序long[]，每个元素约8字节，读写都在条目所在成员上执行。
+   */
+  public void longSetExample() {
+    System.out.println("\n=== 原始long集合示例 ===");
+
+    LongSetMap sets = new LongSetMap(hazelcastInstance, "long-sets-demo");
+    try {
+      // 两个用户群：下单用户和活跃用户
+      int added = sets.add("ordered", LongStream.rangeClosed(1, 100_000).filter(id -> id % 3 == 0).toArray());
+      sets.add("active", LongStream.rangeClosed(50_001, 150_000).toArray());
+      System.out.println("下单用户加入: " + added + ", 活跃用户: " + sets.size("active"));
+
+      // 重复加入不计数
+      System.out.println("再次加入已有ID: " + sets.add("ordered", 3, 6, 9) + " 个新元素");
+      System.out.println("用户99999是否下单: " + sets.contains("ordered", 99_999));
+      System.out.println("用户100000是否下单: " + sets.contains("ordered", 100_000));
+
+      // 在成员上求并集和交集，结果写回目标集合
+      sets.add("reach", sets.get("ordered"));
+      System.out.println("\n并入活跃用户新增: " + sets.unionInto("reach", "active") + ", 覆盖用户: " + sets.size("reach"));
+      System.out.println("下单用户中不活跃的被移除: " + sets.intersectInto("ordered", "active")
+          + ", 活跃的下单用户: " + sets.size("ordered"));
+
+      System.out.println("\n移除 " + sets.remove("ordered", 50_001, 50_004, 1) + " 个ID后: " + sets.size("ordered"));
+      long[] firstIds = Arrays.copyOf(sets.get("ordered"), 5);
+      System.out.println("前5个ID: " + Arrays.toString(firstIds));
+    } finally {
+      sets.delete("ordered");
+      sets.delete("active");
+      sets.delete("reach");
+    }
+  }
+
+  /**
+   * 演示在集合所在成员上计算并集、交集、差集
+   *
+   * 上面的retainAll需要先在调用方准备好另一个集合的全部元素；SetAlgebra把运算发到集合所在成员上，
+   * 调用方只拿到元素个数，或者按批读取结果。
+   */
+  public void serverSideAlgebraExample() {
+    System.out.println("\n=== 服务端集合运算示例 ===");
+
+    // 同一个分区键的集合在同一个分区上，运算时全部本地读取
+    ISet<Integer> buyers = hazelcastInstance.getSet("buyers@segments");
+    ISet<Integer> visitors = hazelcastInstance.getSet("visitors@segments");
+    SetAlgebra algebra = new SetAlgebra(hazelcastInstance);
+
+    try {
+      buyers.addAll(IntStream.range(0, 10_000).filter(id -> id % 4 == 0).boxed().toList());
+      visitors.addAll(IntStream.range(5_000, 20_000).boxed().toList());
+      System.out.println("购买用户: " + buyers.size() + ", 访问用户: " + visitors.size());
+
+      System.out.println("\n并集大小: " + algebra.cardinality(SetAlgebra.Operation.UNION,
+          "buyers@segments", "visitors@segments"));
+      System.out.println("交集大小: " + algebra.cardinality(SetAlgebra.Operation.INTERSECT,
+          "buyers@segments", "visitors@segments"));
+      System.out.println("只购买未访问: " + algebra.cardinality(SetAlgebra.Operation.DIFFERENCE,
+          "buyers@segments", "visitors@segments"));
+
+      // 结果写入目标集合，数据不经过调用方
+      int converted = algebra.materialize(SetAlgebra.Operation.INTERSECT, "converted@segments",
+          "buyers@segments", "visitors@segments");
+      System.out.println("\n写入converted@segments: " + converted + " 个元素");
+
+      // 分批读取结果
+      int total = algebra.<Integer>stream(SetAlgebra.Operation.DIFFERENCE, 500,
+          chunk -> System.out.println("收到一批: " + chunk.size() + " 个元素"),
+          "buyers@segments", "visitors@segments");
+      System.out.println("分批读取共 " + total + " 个元素，运算延迟p50: "
+          + algebra.getLatency().getPercentileMicros(50) + " 微秒");
+    } finally {
+      buyers.destroy();
+      visitors.destroy();
+      hazelcastInstance.getSet("converted@segments").destroy();
+    }
+  }
+
   /**
    * 演示用的ItemListener实现
    */
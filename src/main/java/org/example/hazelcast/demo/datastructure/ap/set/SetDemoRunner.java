@@ -32,7 +32,7 @@ public class SetDemoRunner {
     while (!exit) {
       showSetMenu();
       try {
-        System.out.print("请输入选择 [0-5]: ");
+        System.out.print("请输入选择 [0-7]: ");
         String line = reader.readLine();
         int choice = Integer.parseInt(line);
 
@@ -62,6 +62,16 @@ public class SetDemoRunner {
             System.out.println("\nSet集合操作示例完成！按任意键继续...");
             waitForKeyPress();
             break;
+          case 6:
+            setBasicOperationsDemo.longSetExample();
+            System.out.println("\n原始long集合示例完成！按任意键继续...");
+            waitForKeyPress();
+            break;
+          case 7:
+            setBasicOperationsDemo.serverSideAlgebraExample();
+            System.out.println("\n服务端集合运算示例完成！按任意键继续...");
+            waitForKeyPress();
+            break;
           case 0:
             exit = true;
             break;
@@ -89,6 +99,8 @@ public class SetDemoRunner {
     System.out.println("3. 项目监听器示例");
     System.out.println("4. 配置选项示例");
     System.out.println("5. Set集合操作示例");
+    System.out.println("6. 原始long集合示例");
+    System.out.println("7. 服务端集合运算示例");
     System.out.println("0. 返回主菜单");
   }
 
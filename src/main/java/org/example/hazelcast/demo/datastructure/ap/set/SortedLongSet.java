@@ -0,0 +1,190 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的有序long集合，作为IMap的一个值保存整组ID
+ *
+ * 元素升序存放在一个long[]中，contains用二分查找，并集、交集、差集按归并计算；两边大小相差悬殊时
+ * 交集和差集改为在大集合中逐个二分查找小集合的元素。修改操作返回新的集合，原集合不变，
+ * 所以EntryProcessor可以放心地读取后再setValue。
+ * 序列化时按差值变长编码（见SortedLongSetSerializer），ID越密集每个元素占的字节越少。
+ */
+public final class SortedLongSet {
+
+  public static final SortedLongSet EMPTY = new SortedLongSet(new long[0]);
+
+  private final long[] values;
+
+  /**
+   * 直接包装已经升序且无重复的数组，不复制
+   */
+  SortedLongSet(long[] values) {
+    this.values = values;
+  }
+
+  /**
+   * 由任意顺序、可能重复的ID构造
+   */
+  public static SortedLongSet of(long... values) {
+    return values.length == 0 ? EMPTY : new SortedLongSet(sortedDistinct(values.clone()));
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  public boolean contains(long value) {
+    return Arrays.binarySearch(values, value) >= 0;
+  }
+
+  /**
+   * 升序的全部元素，返回副本
+   */
+  public long[] toArray() {
+    return values.clone();
+  }
+
+  public SortedLongSet union(SortedLongSet other) {
+    if (other.isEmpty()) {
+      return this;
+    }
+    if (isEmpty()) {
+      return other;
+    }
+    long[] a = values;
+    long[] b = other.values;
+    long[] result = new long[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        result[n++] = a[i++];
+      } else if (a[i] > b[j]) {
+        result[n++] = b[j++];
+      } else {
+        result[n++] = a[i++];
+        j++;
+      }
+    }
+    while (i < a.length) {
+      result[n++] = a[i++];
+    }
+    while (j < b.length) {
+      result[n++] = b[j++];
+    }
+    return n == a.length ? this : new SortedLongSet(trim(result, n));
+  }
+
+  public SortedLongSet intersect(SortedLongSet other) {
+    if (isEmpty() || other.isEmpty()) {
+      return EMPTY;
+    }
+    SortedLongSet small = size() <= other.size() ? this : other;
+    SortedLongSet large = small == this ? other : this;
+    long[] result = new long[small.size()];
+    int n = 0;
+    if (probeCheaper(small.size(), large.size())) {
+      for (long value : small.values) {
+        if (large.contains(value)) {
+          result[n++] = value;
+        }
+      }
+    } else {
+      long[] a = small.values;
+      long[] b = large.values;
+      int i = 0;
+      int j = 0;
+      while (i < a.length && j < b.length) {
+        if (a[i] < b[j]) {
+          i++;
+        } else if (a[i] > b[j]) {
+          j++;
+        } else {
+          result[n++] = a[i++];
+          j++;
+        }
+      }
+    }
+    return n == size() ? this : n == 0 ? EMPTY : new SortedLongSet(trim(result, n));
+  }
+
+  /**
+   * 本集合中不属于other的元素
+   */
+  public SortedLongSet difference(SortedLongSet other) {
+    if (isEmpty() || other.isEmpty()) {
+      return this;
+    }
+    long[] result = new long[values.length];
+    int n = 0;
+    if (probeCheaper(size(), other.size())) {
+      for (long value : values) {
+        if (!other.contains(value)) {
+          result[n++] = value;
+        }
+      }
+    } else {
+      long[] b = other.values;
+      int j = 0;
+      for (long value : values) {
+        while (j < b.length && b[j] < value) {
+          j++;
+        }
+        if (j == b.length || b[j] != value) {
+          result[n++] = value;
+        }
+      }
+    }
+    return n == size() ? this : n == 0 ? EMPTY : new SortedLongSet(trim(result, n));
+  }
+
+  /**
+   * 逐个二分查找 small*log2(large) 比归并 small+large 更便宜时返回true
+   */
+  private static boolean probeCheaper(int small, int large) {
+    return (long) small * (64 - Long.numberOfLeadingZeros(large)) < (long) small + large;
+  }
+
+  static long[] sortedDistinct(long[] values) {
+    Arrays.sort(values);
+    int n = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (i == 0 || values[i] != values[n - 1]) {
+        values[n++] = values[i];
+      }
+    }
+    return trim(values, n);
+  }
+
+  private static long[] trim(long[] values, int length) {
+    return length == values.length ? values : Arrays.copyOf(values, length);
+  }
+
+  /**
+   * 供序列化器直接读取，不复制
+   */
+  long[] values() {
+    return values;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof SortedLongSet other && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return values.length <= 16 ? Arrays.toString(values) : "SortedLongSet[size=" + values.length + "]";
+  }
+}
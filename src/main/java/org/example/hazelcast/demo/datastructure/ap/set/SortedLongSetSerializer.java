@@ -0,0 +1,72 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import java.util.Arrays;
+
+/**
+ * SortedLongSet的Compact序列化器，需要注册到成员和客户端的SerializationConfig
+ *
+ * 第一个元素单独写入，其余元素写成与前一个元素的差值减1，按无符号变长编码（每字节7位）放进一个字节数组：
+ * 相邻ID相差不到128时每个元素1字节，相差不到16384时2字节，完全随机的64位ID约9字节。
+ */
+public class SortedLongSetSerializer implements CompactSerializer<SortedLongSet> {
+
+  @Override
+  public SortedLongSet read(CompactReader reader) {
+    int size = reader.readInt32("size");
+    if (size == 0) {
+      return SortedLongSet.EMPTY;
+    }
+    long[] values = new long[size];
+    values[0] = reader.readInt64("first");
+    byte[] gaps = reader.readArrayOfInt8("gaps");
+    int position = 0;
+    for (int i = 1; i < size; i++) {
+      long gap = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = gaps[position++];
+        gap |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      values[i] = values[i - 1] + gap + 1;
+    }
+    return new SortedLongSet(values);
+  }
+
+  @Override
+  public void write(CompactWriter writer, SortedLongSet set) {
+    long[] values = set.values();
+    writer.writeInt32("size", values.length);
+    writer.writeInt64("first", values.length == 0 ? 0 : values[0]);
+    byte[] buffer = new byte[Math.max(0, values.length - 1) * 2];
+    int position = 0;
+    for (int i = 1; i < values.length; i++) {
+      if (buffer.length - position < 10) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + 10));
+      }
+      // 元素互不相同，差值至少为1；减1后按无符号数编码，跨越整个long范围也不会出错
+      long gap = values[i] - values[i - 1] - 1;
+      while ((gap & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((gap & 0x7F) | 0x80);
+        gap >>>= 7;
+      }
+      buffer[position++] = (byte) gap;
+    }
+    writer.writeArrayOfInt8("gaps", position == buffer.length ? buffer : Arrays.copyOf(buffer, position));
+  }
+
+  @Override
+  public String getTypeName() {
+    return "SortedLongSet";
+  }
+
+  @Override
+  public Class<SortedLongSet> getCompactClass() {
+    return SortedLongSet.class;
+  }
+}
@@ -0,0 +1,186 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按商品合并价格变更后批量发布
+ *
+ * offer()只把变更记入本地Map，同一商品在一个窗口内的多次变更只保留最新价格和第一次变更的时间。
+ * 后台线程每windowMillis把Map中的变更取出，按maxBatchSize切成PriceChangeBatch发布到Topic，
+ * 订阅者收到的消息数从每次变更一条降到每窗口几条，同一商品的中间价格不会再被逐个处理。
+ * 代价是最多windowMillis的额外延迟；同一商品的最新价格总会在下一个窗口发出。
+ * 发布失败的批次放回Map，期间有更新价格的商品保留更新的价格，下一个窗口重新发布。
+ */
+public class CoalescingPricePublisher implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(CoalescingPricePublisher.class);
+
+  public static final String TOPIC_NAME = "price-changes";
+
+  private record Pending(long priceCents, long firstChangedAtMillis) {
+  }
+
+  private final ITopic<PriceChangeBatch> topic;
+  private final int maxBatchSize;
+  private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+
+  private final LongAdder offered = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder publishedChanges = new LongAdder();
+  private final LongAdder publishedBatches = new LongAdder();
+  private final LongAdder failedBatches = new LongAdder();
+
+  public CoalescingPricePublisher(ITopic<PriceChangeBatch> topic, long windowMillis, int maxBatchSize) {
+    this.topic = topic;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, topic.getName() + "-coalescing-publisher");
+      t.setDaemon(true);
+      return t;
+    });
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public static CoalescingPricePublisher create(HazelcastInstance hazelcastInstance, long windowMillis,
+      int maxBatchSize) {
+    return new CoalescingPricePublisher(hazelcastInstance.getTopic(TOPIC_NAME), windowMillis, maxBatchSize);
+  }
+
+  /**
+   * 记录一次价格变更，在下一个窗口发布
+   */
+  public void offer(long productId, long priceCents) {
+    offered.increment();
+    long now = System.currentTimeMillis();
+    pending.merge(productId, new Pending(priceCents, now), (previous, update) -> {
+      coalesced.increment();
+      return new Pending(update.priceCents(), previous.firstChangedAtMillis());
+    });
+  }
+
+  /**
+   * 立即发布当前积累的变更，返回发布的变更数；发布失败时未发出的变更留在Map中，异常抛给调用方
+   */
+  public synchronized int flush() {
+    if (pending.isEmpty()) {
+      return 0;
+    }
+    int total = 0;
+    long[] ids = new long[Math.min(maxBatchSize, pending.size())];
+    long[] prices = new long[ids.length];
+    long[] changedAt = new long[ids.length];
+    int count = 0;
+    // 逐个remove取出，并发的offer要么合并进被取出的值之前，要么形成新的条目留到下一个窗口
+    Iterator<Long> keys = pending.keySet().iterator();
+    while (keys.hasNext()) {
+      Long productId = keys.next();
+      Pending change = pending.remove(productId);
+      if (change == null) {
+        continue;
+      }
+      ids[count] = productId;
+      prices[count] = change.priceCents();
+      changedAt[count] = change.firstChangedAtMillis();
+      if (++count == ids.length) {
+        publish(ids, prices, changedAt, count);
+        total += count;
+        count = 0;
+      }
+    }
+    if (count > 0) {
+      publish(ids, prices, changedAt, count);
+      total += count;
+    }
+    return total;
+  }
+
+  private void publish(long[] ids, long[] prices, long[] changedAt, int count) {
+    PriceChangeBatch batch = new PriceChangeBatch(Arrays.copyOf(ids, count),
+        Arrays.copyOf(prices, count), Arrays.copyOf(changedAt, count),
+        System.currentTimeMillis());
+    try {
+      topic.publish(batch);
+    } catch (RuntimeException e) {
+      failedBatches.increment();
+      for (int i = 0; i < count; i++) {
+        // 取出之后又有offer时保留新价格，首次变更时间取较早的一个
+        pending.merge(ids[i], new Pending(prices[i], changedAt[i]), (newer, failed) ->
+            new Pending(newer.priceCents(), Math.min(newer.firstChangedAtMillis(), failed.firstChangedAtMillis())));
+      }
+      throw e;
+    }
+    publishedBatches.increment();
+    publishedChanges.add(count);
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to publish coalesced price changes to {}", topic.getName(), e);
+    }
+  }
+
+  /**
+   * 调用offer()的次数
+   */
+  public long getOfferedCount() {
+    return offered.sum();
+  }
+
+  /**
+   * 被同一窗口内更新的变更覆盖、不再单独发布的次数
+   */
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  public long getPublishedChangeCount() {
+    return publishedChanges.sum();
+  }
+
+  public long getPublishedBatchCount() {
+    return publishedBatches.sum();
+  }
+
+  /**
+   * 发布失败、变更已放回等待下一个窗口的批次数
+   */
+  public long getFailedBatchCount() {
+    return failedBatches.sum();
+  }
+
+  /**
+   * 等待下一个窗口发布的商品数
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * 停止后台发布并发出剩余的变更
+   */
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+}
@@ -0,0 +1,233 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.ReliableMessageListener;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 位置可持久化的可靠Topic监听器基类
+ *
+ * Hazelcast在每条消息的onMessage之前调用storeSequence告知其序列号；本类在handle()成功返回后
+ * 才把该序列号记为已处理，并按批写入SequenceStore：累计flushEvery条或距上次写入超过flushIntervalMillis
+ * 时写一次，监听器被取消（移除、终止、实例关闭）时再写一次。重新注册时从已保存位置的下一条继续，
+ * 没有保存过位置时从注册之后发布的消息开始。
+ *
+ * 语义为至少一次：进程异常退出时，最后一次写入之后处理的消息（最多flushEvery条）会再次投递，
+ * getRedeliveryExposure()给出当前这个窗口的大小。同一个监听器对象重新注册后收到已处理过的
+ * 序列号时计入getRedeliveredCount()，仍然交给handle()，由业务决定是否去重。
+ *
+ * handle()失败的消息不会因为后面的消息处理成功而被越过：保存的位置最多到第一条失败消息的前一条，
+ * 直到监听器重新注册，从那条消息开始重新投递。
+ *
+ * @param <E> 消息类型
+ */
+public abstract class DurableReliableListener<E> implements ReliableMessageListener<E> {
+
+  private static final Logger logger = LoggerFactory.getLogger(DurableReliableListener.class);
+
+  private static final long NO_FAILURE = Long.MAX_VALUE;
+
+  private final String listenerId;
+  private final SequenceStore store;
+  private final int flushEvery;
+  private final long flushIntervalNanos;
+
+  // 以下字段只在Topic的投递线程上修改，flush()可能在取消时从其他线程调用
+  private long deliveringSequence = -1;
+  private long lastSequence = -1;
+  private volatile long highestProcessed = -1;
+  private volatile long storedSequence = -1;
+  private volatile long firstFailedSequence = NO_FAILURE;
+  private long lastFlushNanos = System.nanoTime();
+
+  private final LongAdder received = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder redelivered = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder storeWrites = new LongAdder();
+  private final LatencyHistogram deliveryLag = new LatencyHistogram();
+
+  /**
+   * @param listenerId         监听器的持久标识，重启后用同一个标识才能接上之前的位置
+   * @param flushEvery         每处理多少条消息写一次位置，1表示每条都写
+   * @param flushIntervalMillis 消息稀疏时，距上次写入超过这个时间也会写一次
+   */
+  protected DurableReliableListener(String listenerId, SequenceStore store, int flushEvery, long flushIntervalMillis) {
+    this.listenerId = listenerId;
+    this.store = store;
+    this.flushEvery = Math.max(1, flushEvery);
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+  }
+
+  /**
+   * 处理一条消息；抛出异常时由isTerminal决定是否终止监听器
+   */
+  protected abstract void handle(Message<E> message);
+
+  @Override
+  public long retrieveInitialSequence() {
+    long stored = store.load(listenerId);
+    storedSequence = stored;
+    lastSequence = stored;
+    // 从保存的位置之后重新投递，之前失败的消息都会再收到一次
+    firstFailedSequence = NO_FAILURE;
+    if (stored < 0) {
+      return -1;
+    }
+    logger.info("Listener {} resumes after sequence {}", listenerId, stored);
+    return stored + 1;
+  }
+
+  @Override
+  public void storeSequence(long sequence) {
+    deliveringSequence = sequence;
+  }
+
+  @Override
+  public void onMessage(Message<E> message) {
+    long sequence = deliveringSequence;
+    received.increment();
+    if (sequence <= highestProcessed) {
+      redelivered.increment();
+    } else if (lastSequence >= 0 && sequence > lastSequence + 1) {
+      // 监听器落后太多，未读的消息已被覆盖，isLossTolerant为true时从最早的可读消息继续
+      skipped.add(sequence - lastSequence - 1);
+    }
+    lastSequence = sequence;
+    deliveryLag.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis()
+        - message.getPublishTime())));
+    try {
+      handle(message);
+    } catch (RuntimeException e) {
+      failures.increment();
+      if (sequence < firstFailedSequence) {
+        firstFailedSequence = sequence;
+      }
+      throw e;
+    }
+    processed.increment();
+    if (sequence > highestProcessed) {
+      highestProcessed = sequence;
+    }
+    if (storableSequence() - storedSequence >= flushEvery
+        || System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+      flush();
+    }
+  }
+
+  /**
+   * 可以保存的位置：已处理的最大序列号，有失败的消息时不越过第一条失败消息
+   */
+  private long storableSequence() {
+    return Math.min(highestProcessed, firstFailedSequence - 1);
+  }
+
+  /**
+   * 把已处理的位置写入SequenceStore
+   */
+  public synchronized void flush() {
+    lastFlushNanos = System.nanoTime();
+    long sequence = storableSequence();
+    if (sequence > storedSequence) {
+      store.store(listenerId, sequence);
+      storedSequence = sequence;
+      storeWrites.increment();
+    }
+  }
+
+  @Override
+  public void onCancel() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to store sequence of listener {} on cancel", listenerId, e);
+    }
+  }
+
+  /**
+   * 默认容忍消息丢失：落后太多时跳到最早的可读消息继续，跳过的条数计入getSkippedCount()
+   */
+  @Override
+  public boolean isLossTolerant() {
+    return true;
+  }
+
+  /**
+   * 默认单条消息处理失败不终止监听器，失败计入getFailureCount()；此后保存的位置停在这条消息之前，
+   * 重新注册后从它开始重新投递。需要立即停下的业务覆盖此方法返回true
+   */
+  @Override
+  public boolean isTerminal(Throwable failure) {
+    logger.warn("Listener {} failed to handle sequence {}", listenerId, deliveringSequence, failure);
+    return false;
+  }
+
+  public String getListenerId() {
+    return listenerId;
+  }
+
+  public long getReceivedCount() {
+    return received.sum();
+  }
+
+  public long getProcessedCount() {
+    return processed.sum();
+  }
+
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /**
+   * 收到的不超过已处理最大序列号的消息数，包括之前处理失败、重新注册后再次投递的消息
+   */
+  public long getRedeliveredCount() {
+    return redelivered.sum();
+  }
+
+  /**
+   * 因被覆盖而没有收到的消息数
+   */
+  public long getSkippedCount() {
+    return skipped.sum();
+  }
+
+  /**
+   * 写入SequenceStore的次数
+   */
+  public long getStoreWriteCount() {
+    return storeWrites.sum();
+  }
+
+  /**
+   * 已处理但位置还没有写入的消息数，进程此时退出的话这些消息会再次投递
+   */
+  public long getRedeliveryExposure() {
+    return Math.max(0, highestProcessed - storedSequence);
+  }
+
+  public long getStoredSequence() {
+    return storedSequence;
+  }
+
+  /**
+   * 本次注册以来第一条处理失败的序列号，没有失败时为-1
+   */
+  public long getFirstFailedSequence() {
+    long sequence = firstFailedSequence;
+    return sequence == NO_FAILURE ? -1 : sequence;
+  }
+
+  /**
+   * 从发布到开始处理的时间
+   */
+  public LatencyHistogram getDeliveryLag() {
+    return deliveryLag;
+  }
+}
@@ -0,0 +1,56 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 把监听器位置保存在本地文件中，每个监听器一个文件
+ *
+ * 不依赖集群，集群整体重启后本地位置仍在；但监听器换到其他机器时位置不会跟过去。
+ * 先写临时文件再原子改名，进程在写入中途退出时保留的是上一次完整的位置。
+ */
+public class FileSequenceStore implements SequenceStore {
+
+  private final Path directory;
+
+  public FileSequenceStore(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create " + directory, e);
+    }
+  }
+
+  @Override
+  public long load(String listenerId) {
+    try {
+      return Long.parseLong(Files.readString(fileOf(listenerId), StandardCharsets.US_ASCII).trim());
+    } catch (NoSuchFileException e) {
+      return -1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read sequence of " + listenerId, e);
+    }
+  }
+
+  @Override
+  public void store(String listenerId, long sequence) {
+    Path target = fileOf(listenerId);
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try {
+      Files.writeString(temp, Long.toString(sequence), StandardCharsets.US_ASCII);
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to store sequence of " + listenerId, e);
+    }
+  }
+
+  private Path fileOf(String listenerId) {
+    return directory.resolve(listenerId.replaceAll("[^A-Za-z0-9._-]", "_") + ".seq");
+  }
+}
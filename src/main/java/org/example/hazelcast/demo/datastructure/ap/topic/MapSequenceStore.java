@@ -0,0 +1,33 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+/**
+ * 把监听器位置保存在IMap中，成员重启或监听器换到其他成员后都能继续
+ */
+public class MapSequenceStore implements SequenceStore {
+
+  public static final String MAP_NAME = "reliable-topic-sequences";
+
+  private final IMap<String, Long> sequences;
+
+  public MapSequenceStore(HazelcastInstance hazelcastInstance) {
+    this(hazelcastInstance.getMap(MAP_NAME));
+  }
+
+  public MapSequenceStore(IMap<String, Long> sequences) {
+    this.sequences = sequences;
+  }
+
+  @Override
+  public long load(String listenerId) {
+    Long sequence = sequences.get(listenerId);
+    return sequence == null ? -1 : sequence;
+  }
+
+  @Override
+  public void store(String listenerId, long sequence) {
+    sequences.set(listenerId, sequence);
+  }
+}
@@ -0,0 +1,70 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+
+/**
+ * 一个时间窗口内合并后的价格变更
+ *
+ * 用三个平行的long数组保存商品ID、最新价格（分）和该商品在窗口内第一次变更的时间，
+ * 以DataSerializable写出，每条变更24字节，没有逐条的对象头和类描述。
+ */
+public class PriceChangeBatch implements DataSerializable {
+
+  private long[] productIds;
+  private long[] priceCents;
+  private long[] firstChangedAtMillis;
+  private long publishedAtMillis;
+
+  public PriceChangeBatch() {
+  }
+
+  public PriceChangeBatch(long[] productIds, long[] priceCents, long[] firstChangedAtMillis, long publishedAtMillis) {
+    if (productIds.length != priceCents.length || productIds.length != firstChangedAtMillis.length) {
+      throw new IllegalArgumentException("Array lengths differ");
+    }
+    this.productIds = productIds;
+    this.priceCents = priceCents;
+    this.firstChangedAtMillis = firstChangedAtMillis;
+    this.publishedAtMillis = publishedAtMillis;
+  }
+
+  public int size() {
+    return productIds.length;
+  }
+
+  public long productId(int index) {
+    return productIds[index];
+  }
+
+  public long priceCents(int index) {
+    return priceCents[index];
+  }
+
+  public long firstChangedAtMillis(int index) {
+    return firstChangedAtMillis[index];
+  }
+
+  public long getPublishedAtMillis() {
+    return publishedAtMillis;
+  }
+
+  @Override
+  public void writeData(ObjectDataOutput out) throws IOException {
+    out.writeLong(publishedAtMillis);
+    out.writeLongArray(productIds);
+    out.writeLongArray(priceCents);
+    out.writeLongArray(firstChangedAtMillis);
+  }
+
+  @Override
+  public void readData(ObjectDataInput in) throws IOException {
+    publishedAtMillis = in.readLong();
+    productIds = in.readLongArray();
+    priceCents = in.readLongArray();
+    firstChangedAtMillis = in.readLongArray();
+  }
+}
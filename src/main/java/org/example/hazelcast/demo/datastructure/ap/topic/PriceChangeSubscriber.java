@@ -0,0 +1,263 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.MessageListener;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 价格变更批次的订阅者
+ *
+ * Topic的事件线程是成员共享的，监听器在onMessage里处理慢会拖住同一条事件线程上的其他监听器。
+ * 这里onMessage只把批次交给本订阅者自己的单线程执行器，批次按到达顺序依次应用，
+ * 同一订阅者内不需要加锁；不同订阅者互不影响。
+ *
+ * 等待应用的批次数有上限：订阅者跟不上时，后到的批次不再排队，而是按商品合并到一个溢出批次里，
+ * 同一商品只保留最新价格，内存随商品数而不是消息数增长；排队的批次应用完后再应用溢出批次，保持先后顺序。
+ * close()之后收到的批次直接丢弃并计数，不在Topic的事件线程上抛出异常。
+ */
+public class PriceChangeSubscriber implements MessageListener<PriceChangeBatch>, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PriceChangeSubscriber.class);
+
+  public static final int DEFAULT_MAX_QUEUED_BATCHES = 1_000;
+
+  /**
+   * 在订阅者自己的线程上应用一批价格变更
+   */
+  @FunctionalInterface
+  public interface BatchHandler {
+    void apply(PriceChangeBatch batch);
+  }
+
+  private final String name;
+  private final BatchHandler handler;
+  private final ThreadPoolExecutor executor;
+  private final long startNanos = System.nanoTime();
+
+  // 队列已满时按商品合并的变更：商品ID -> {最新价格, 第一次变更时间}，由overflowLock保护
+  private final Object overflowLock = new Object();
+  private Map<Long, long[]> overflow = new LinkedHashMap<>();
+  private long overflowPublishedAtMillis;
+
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder changes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder overflowBatches = new LongAdder();
+  private final LongAdder coalescedChanges = new LongAdder();
+  private final LongAdder droppedBatches = new LongAdder();
+  private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+  private final LatencyHistogram changeLatency = new LatencyHistogram();
+
+  public PriceChangeSubscriber(String name, BatchHandler handler) {
+    this(name, handler, DEFAULT_MAX_QUEUED_BATCHES);
+  }
+
+  /**
+   * @param maxQueuedBatches 等待应用的批次数上限，超出后按商品合并
+   */
+  public PriceChangeSubscriber(String name, BatchHandler handler, int maxQueuedBatches) {
+    this.name = name;
+    this.handler = handler;
+    this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueuedBatches), r -> {
+      Thread t = new Thread(r, name + "-price-subscriber");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Override
+  public void onMessage(Message<PriceChangeBatch> message) {
+    PriceChangeBatch batch = message.getMessageObject();
+    if (executor.isShutdown()) {
+      droppedBatches.increment();
+      return;
+    }
+    synchronized (overflowLock) {
+      // 已经在合并时，后到的批次继续合并，不能越过溢出批次排队
+      if (!overflow.isEmpty()) {
+        mergeIntoOverflow(batch);
+        return;
+      }
+    }
+    try {
+      executor.execute(() -> {
+        apply(batch);
+        applyOverflowIfIdle();
+      });
+    } catch (RejectedExecutionException e) {
+      if (executor.isShutdown()) {
+        droppedBatches.increment();
+        return;
+      }
+      boolean first;
+      synchronized (overflowLock) {
+        first = overflow.isEmpty();
+        mergeIntoOverflow(batch);
+      }
+      if (first) {
+        // 排队的批次可能在合并前已经全部应用完，补一个任务把溢出批次取走；队列仍满时由排队的批次取走
+        try {
+          executor.execute(this::applyOverflowIfIdle);
+        } catch (RejectedExecutionException ignored) {
+          // 队列中的批次应用完后会检查溢出批次
+        }
+      }
+    }
+  }
+
+  private void mergeIntoOverflow(PriceChangeBatch batch) {
+    if (overflow.isEmpty()) {
+      overflowPublishedAtMillis = batch.getPublishedAtMillis();
+    }
+    overflowBatches.increment();
+    for (int i = 0; i < batch.size(); i++) {
+      long[] existing = overflow.get(batch.productId(i));
+      if (existing == null) {
+        overflow.put(batch.productId(i), new long[] { batch.priceCents(i), batch.firstChangedAtMillis(i) });
+      } else {
+        existing[0] = batch.priceCents(i);
+        coalescedChanges.increment();
+      }
+    }
+  }
+
+  /**
+   * 排队的批次都应用完之后，把溢出的变更作为一个批次应用；只在订阅者线程上调用
+   */
+  private void applyOverflowIfIdle() {
+    if (!executor.getQueue().isEmpty()) {
+      return;
+    }
+    Map<Long, long[]> merged;
+    long publishedAtMillis;
+    synchronized (overflowLock) {
+      if (overflow.isEmpty()) {
+        return;
+      }
+      merged = overflow;
+      publishedAtMillis = overflowPublishedAtMillis;
+      overflow = new LinkedHashMap<>();
+    }
+    int size = merged.size();
+    long[] productIds = new long[size];
+    long[] priceCents = new long[size];
+    long[] firstChangedAtMillis = new long[size];
+    int i = 0;
+    for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+      productIds[i] = entry.getKey();
+      priceCents[i] = entry.getValue()[0];
+      firstChangedAtMillis[i] = entry.getValue()[1];
+      i++;
+    }
+    apply(new PriceChangeBatch(productIds, priceCents, firstChangedAtMillis, publishedAtMillis));
+  }
+
+  private void apply(PriceChangeBatch batch) {
+    long now = System.currentTimeMillis();
+    deliveryLatency.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - batch.getPublishedAtMillis())));
+    try {
+      handler.apply(batch);
+    } catch (RuntimeException e) {
+      failures.increment();
+      logger.warn("Subscriber {} failed to apply {} price changes", name, batch.size(), e);
+      return;
+    }
+    long applied = System.currentTimeMillis();
+    for (int i = 0; i < batch.size(); i++) {
+      changeLatency.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, applied - batch.firstChangedAtMillis(i))));
+    }
+    batches.increment();
+    changes.add(batch.size());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getAppliedBatchCount() {
+    return batches.sum();
+  }
+
+  public long getAppliedChangeCount() {
+    return changes.sum();
+  }
+
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  /**
+   * 自创建以来平均每秒应用的价格变更数
+   */
+  public double getChangesPerSecond() {
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    return seconds == 0 ? 0 : changes.sum() / seconds;
+  }
+
+  /**
+   * 已收到还没有应用的批次数，不含合并进溢出批次的
+   */
+  public int getQueuedBatchCount() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * 因队列已满合并进溢出批次的批次数
+   */
+  public long getOverflowBatchCount() {
+    return overflowBatches.sum();
+  }
+
+  /**
+   * 溢出批次中被同一商品更新的价格覆盖掉的变更数
+   */
+  public long getCoalescedChangeCount() {
+    return coalescedChanges.sum();
+  }
+
+  /**
+   * close()之后收到而丢弃的批次数
+   */
+  public long getDroppedBatchCount() {
+    return droppedBatches.sum();
+  }
+
+  /**
+   * 从批次发布到开始应用的时间
+   */
+  public LatencyHistogram getDeliveryLatency() {
+    return deliveryLatency;
+  }
+
+  /**
+   * 从价格第一次变更到应用完成的时间，包括合并窗口的等待
+   */
+  public LatencyHistogram getChangeLatency() {
+    return changeLatency;
+  }
+
+  /**
+   * 应用完已收到的批次（包括溢出批次）后停止；调用前应先从Topic移除本监听器，之后收到的批次被丢弃
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可靠Topic的批量发布
+ *
+ * ITopic.publish()每条消息一次往返；publishAll()把消息按maxBatchSize切块后用publishAllAsync发出，
+ * 每块在底层Ringbuffer上是一次addAll，各块并发发出。块内的消息保持顺序；块之间都发往同一个分区，
+ * 正常情况下按发出顺序写入，但调用失败重试时不保证。
+ * Ringbuffer写满时的行为由hazelcast.yaml中reliable-topic的topic-overload-policy决定，
+ * 策略为ERROR时返回的future以TopicOverloadException失败。
+ *
+ * @param <E> 消息类型
+ */
+public class ReliableTopicPublisher<E> {
+
+  private final ITopic<E> topic;
+  private final int maxBatchSize;
+  private final LongAdder published = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+  public ReliableTopicPublisher(ITopic<E> topic, int maxBatchSize) {
+    this.topic = topic;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+  }
+
+  public static <E> ReliableTopicPublisher<E> create(HazelcastInstance hazelcastInstance, String topicName,
+      int maxBatchSize) {
+    return new ReliableTopicPublisher<>(hazelcastInstance.getReliableTopic(topicName), maxBatchSize);
+  }
+
+  public CompletableFuture<Void> publish(E message) {
+    return publishAll(List.of(message));
+  }
+
+  /**
+   * 批量发布，全部写入后完成
+   */
+  public CompletableFuture<Void> publishAll(Collection<? extends E> messages) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    List<E> chunk = new ArrayList<>(Math.min(messages.size(), maxBatchSize));
+    for (E message : messages) {
+      chunk.add(message);
+      if (chunk.size() == maxBatchSize) {
+        futures.add(send(chunk));
+        chunk = new ArrayList<>(maxBatchSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      futures.add(send(chunk));
+    }
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new));
+  }
+
+  private CompletableFuture<Void> send(List<E> chunk) {
+    long start = System.nanoTime();
+    return topic.publishAllAsync(chunk).toCompletableFuture().whenComplete((ignored, failure) -> {
+      if (failure != null) {
+        failures.add(chunk.size());
+        return;
+      }
+      batchLatency.recordNanos(System.nanoTime() - start);
+      published.add(chunk.size());
+      batches.increment();
+    });
+  }
+
+  public String getTopicName() {
+    return topic.getName();
+  }
+
+  public long getPublishedCount() {
+    return published.sum();
+  }
+
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /**
+   * 发布失败的消息数，例如ERROR策略下Ringbuffer已满
+   */
+  public long getFailedCount() {
+    return failures.sum();
+  }
+
+  /**
+   * 每块publishAllAsync的完成时间
+   */
+  public LatencyHistogram getBatchLatency() {
+    return batchLatency;
+  }
+
+  /**
+   * 平均每块的消息数
+   */
+  public double getAverageBatchSize() {
+    long count = batches.sum();
+    return count == 0 ? 0 : (double) published.sum() / count;
+  }
+}
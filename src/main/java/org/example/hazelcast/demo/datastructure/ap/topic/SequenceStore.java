@@ -0,0 +1,17 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+/**
+ * 可靠Topic监听器已处理位置的持久化存储，见DurableReliableListener
+ */
+public interface SequenceStore {
+
+  /**
+   * 读取监听器最后处理的序列号，没有记录时返回-1
+   */
+  long load(String listenerId);
+
+  /**
+   * 保存监听器最后处理的序列号
+   */
+  void store(String listenerId, long sequence);
+}
@@ -10,7 +10,12 @@ import org.springframework.stereotype.Component;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -81,6 +86,7 @@ public class TopicBasicOperationsDemo {
     multipleSubscribersExample();
     messageOrderingExample();
     topicStatisticsExample();
+    priceChangeFanOutExample();
   }
 
   /**
@@ -265,6 +271,54 @@ public class TopicBasicOperationsDemo {
     System.out.println("已移除消息监听器");
   }
 
+  /**
+   * 价格变更合并发布示例
+   *
+   * 多订阅者示例中每条消息逐个投递给每个监听器；1000个商品各改价20次时那样需要2万条消息。
+   * 这里按商品在100毫秒窗口内合并，每个窗口发出少量批次消息，两个订阅者各自在自己的线程上应用
+   */
+  public void priceChangeFanOutExample() {
+    System.out.println("\n--- 价格变更合并发布示例 ---");
+
+    ITopic<PriceChangeBatch> topic = hazelcastInstance.getTopic(CoalescingPricePublisher.TOPIC_NAME);
+    Map<Long, Long> prices = new HashMap<>();
+    PriceChangeSubscriber priceView = new PriceChangeSubscriber("price-view", batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        prices.put(batch.productId(i), batch.priceCents(i));
+      }
+    });
+    PriceChangeSubscriber searchIndex = new PriceChangeSubscriber("search-index", batch -> {
+    });
+    UUID viewId = topic.addMessageListener(priceView);
+    UUID indexId = topic.addMessageListener(searchIndex);
+
+    try (CoalescingPricePublisher publisher = new CoalescingPricePublisher(topic, 100, 500)) {
+      for (int round = 0; round < 20; round++) {
+        for (long productId = 1; productId <= 1000; productId++) {
+          publisher.offer(productId, 10_000 + round);
+        }
+      }
+      publisher.flush();
+      System.out.println("价格变更 " + publisher.getOfferedCount() + " 次，合并 " + publisher.getCoalescedCount()
+          + " 次，发布 " + publisher.getPublishedBatchCount() + " 条批次消息");
+    }
+
+    try {
+      Thread.sleep(500);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    topic.removeMessageListener(viewId);
+    topic.removeMessageListener(indexId);
+    priceView.close();
+    searchIndex.close();
+    for (PriceChangeSubscriber subscriber : List.of(priceView, searchIndex)) {
+      System.out.println(subscriber.getName() + " 应用 " + subscriber.getAppliedChangeCount() + " 条变更，投递延迟p99 "
+          + subscriber.getDeliveryLatency().getPercentileMicros(99) + " 微秒");
+    }
+    System.out.println("商品1的最终价格(分): " + prices.get(1L));
+  }
+
   /**
    * 有序消息跟踪器
    */
@@ -272,7 +326,7 @@ public class TopicBasicOperationsDemo {
     private static final long serialVersionUID = 1L;
 
     private final CountDownLatch latch;
-    private final StringBuilder receivedMessages = new StringBuilder();
+    private final Queue<String> receivedMessages = new ConcurrentLinkedQueue<>();
 
     public OrderedMessageTracker(int expectedMessageCount) {
       this.latch = new CountDownLatch(expectedMessageCount);
@@ -280,7 +334,7 @@ public class TopicBasicOperationsDemo {
 
     @Override
     public void onMessage(Message<String> message) {
-      receivedMessages.append(message.getMessageObject()).append("\n");
+      receivedMessages.add(message.getMessageObject());
       latch.countDown();
     }
 
@@ -289,7 +343,7 @@ public class TopicBasicOperationsDemo {
     }
 
     public String getReceivedMessages() {
-      return receivedMessages.toString();
+      return String.join("\n", receivedMessages);
     }
   }
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import com.hazelcast.topic.ReliableMessageListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -21,6 +23,7 @@ public class TopicReliableMessagingDemo {
 
   private final HazelcastInstance hazelcastInstance;
   private final String RELIABLE_TOPIC_NAME = "reliable-demo-topic";
+  private final String NOTIFICATION_TOPIC_NAME = "notifications";
 
   @Autowired
   public TopicReliableMessagingDemo(HazelcastInstance hazelcastInstance) {
@@ -36,6 +39,7 @@ public class TopicReliableMessagingDemo {
     reliableMessageListenerExample();
     messageSequenceExample();
     messageReplayExample();
+    durableListenerExample();
   }
 
   /**
@@ -253,4 +257,68 @@ public class TopicReliableMessagingDemo {
     reliableTopic.removeMessageListener(listenerId);
     System.out.println("已移除重放监听器");
   }
-}
\ No newline at end of file
+
+  /**
+   * 持久位置监听器示例
+   *
+   * 上面的监听器把序列号保存在字段里，retrieveInitialSequence总是返回-1，重新注册后只能收到之后发布的消息。
+   * DurableReliableListener把已处理的位置按批写入IMap，监听器离线期间发布的消息在重新注册后继续收到；
+   * 批量通知通过publishAllAsync发布，读取批次和overload策略见hazelcast.yaml中的reliable-topic.notifications
+   */
+  public void durableListenerExample() {
+    System.out.println("\n--- 持久位置监听器示例 ---");
+
+    ITopic<String> topic = hazelcastInstance.getReliableTopic(NOTIFICATION_TOPIC_NAME);
+    ReliableTopicPublisher<String> publisher = new ReliableTopicPublisher<>(topic, 100);
+    SequenceStore sequenceStore = new MapSequenceStore(hazelcastInstance);
+    AtomicLong handled = new AtomicLong();
+
+    UUID listenerId = topic.addMessageListener(newNotificationListener(sequenceStore, handled));
+    publisher.publishAll(notifications(0, 300)).join();
+    waitFor(handled, 300);
+    topic.removeMessageListener(listenerId);
+    System.out.println("第一次注册处理了 " + handled.get() + " 条通知，位置已保存");
+
+    // 监听器离线期间继续发布
+    publisher.publishAll(notifications(300, 200)).join();
+
+    handled.set(0);
+    long resumeFrom = sequenceStore.load("demo-notification-listener") + 1;
+    DurableReliableListener<String> listener = newNotificationListener(sequenceStore, handled);
+    listenerId = topic.addMessageListener(listener);
+    waitFor(handled, 200);
+    topic.removeMessageListener(listenerId);
+    System.out.println("重新注册后从序列号 " + resumeFrom + " 继续，补收 " + handled.get() + " 条，写入位置 " + listener.getStoreWriteCount() + " 次");
+    System.out.println("批量发布: " + publisher.getPublishedCount() + " 条，" + publisher.getBatchCount()
+        + " 次publishAllAsync，每批p99 " + publisher.getBatchLatency().getPercentileMicros(99) + " 微秒");
+  }
+
+  private DurableReliableListener<String> newNotificationListener(SequenceStore sequenceStore, AtomicLong handled) {
+    return new DurableReliableListener<>("demo-notification-listener", sequenceStore, 50, 1000) {
+      @Override
+      protected void handle(Message<String> message) {
+        handled.incrementAndGet();
+      }
+    };
+  }
+
+  private List<String> notifications(int from, int count) {
+    List<String> notifications = new ArrayList<>(count);
+    for (int i = from; i < from + count; i++) {
+      notifications.add("通知 #" + i);
+    }
+    return notifications;
+  }
+
+  private void waitFor(AtomicLong counter, long expected) {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+}
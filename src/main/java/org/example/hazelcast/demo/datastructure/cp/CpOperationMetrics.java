@@ -0,0 +1,69 @@
+package org.example.hazelcast.demo.datastructure.cp;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按操作类型统计CP调用延迟
+ *
+ * 每次CP调用（如atomicLong.incrementAndGet、lock.lock）都是一轮Raft提交，
+ * 延迟直接取决于CP组大小和成员之间的网络。按操作类型分别记录直方图，用来评估CP组规模。
+ * 操作名建议使用"数据结构.方法"格式，例如"atomicLong.addAndGet"。
+ *
+ * ConfigRegistry、WarmupGate、SnapshotPublisher、LeasedPermitPool、FencedLeaderJob按"组件.方法"记录
+ * 各自的集群调用；CP子系统不可用时它们退化为IMap实现，仍记录在同一个操作名下，可与CP实现对比。
+ */
+@Component
+public class CpOperationMetrics {
+
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  public <T> T record(String operation, Supplier<T> call) {
+    long start = System.nanoTime();
+    try {
+      return call.get();
+    } finally {
+      histogram(operation).recordNanos(System.nanoTime() - start);
+    }
+  }
+
+  public void record(String operation, Runnable call) {
+    long start = System.nanoTime();
+    try {
+      call.run();
+    } finally {
+      histogram(operation).recordNanos(System.nanoTime() - start);
+    }
+  }
+
+  public LatencyHistogram histogram(String operation) {
+    return histograms.computeIfAbsent(operation, k -> new LatencyHistogram());
+  }
+
+  /**
+   * 各操作的调用次数和延迟分位数（微秒），按操作名排序
+   */
+  public Map<String, Map<String, Object>> snapshot() {
+    Map<String, Map<String, Object>> result = new TreeMap<>();
+    histograms.forEach((operation, histogram) -> {
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("count", histogram.getCount());
+      stats.put("meanMicros", Math.round(histogram.getMeanMicros()));
+      stats.put("p50Micros", histogram.getPercentileMicros(50));
+      stats.put("p90Micros", histogram.getPercentileMicros(90));
+      stats.put("p99Micros", histogram.getPercentileMicros(99));
+      stats.put("maxMicros", histogram.getMaxMicros());
+      result.put(operation, stats);
+    });
+    return result;
+  }
+
+  public void reset() {
+    histograms.clear();
+  }
+}
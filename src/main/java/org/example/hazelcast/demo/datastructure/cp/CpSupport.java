@@ -0,0 +1,24 @@
+package org.example.hazelcast.demo.datastructure.cp;
+
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * CP子系统可用性检查
+ *
+ * 社区版5.5的CP子系统是一个占位实现，获取任何CP数据结构都会抛出UnsupportedOperationException。
+ * 依赖CP的功能先用这里判断，不可用时退化为基于IMap的AP实现。
+ */
+public final class CpSupport {
+
+  private CpSupport() {
+  }
+
+  public static boolean isAvailable(HazelcastInstance hazelcastInstance) {
+    try {
+      hazelcastInstance.getCPSubsystem().getCPSubsystemManagementService();
+      return true;
+    } catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package org.example.hazelcast.demo.datastructure.cp.cpmap;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.CPMap;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import jakarta.annotation.PreDestroy;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 强一致的配置注册表（功能开关、价格规则等），读取走本地缓存
+ *
+ * 配置项带版本号存放在CPMap中，每次修改都必须通过compareAndSet基于当前版本提交。
+ * 各成员把读到的配置项连同版本号缓存在本地，请求路径上不访问Raft；修改成功后在ITopic上
+ * 广播(键, 新版本)，收到广播的成员丢弃更旧的缓存，下次读取时重新加载。
+ * ITopic不保证送达，缓存项超过maxStalenessMillis也会重新加载，作为陈旧度的上限。
+ *
+ * CP子系统不可用时（社区版5.5）配置项存放在IMap中，单键操作仍在分区所有者上原子执行。
+ */
+@Component
+public class ConfigRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConfigRegistry.class);
+
+  public static final String MAP_NAME = "config-registry";
+  public static final String TOPIC_NAME = "config-registry-invalidation";
+
+  private final Store store;
+  private final ITopic<Invalidation> topic;
+  private final UUID listenerId;
+  private final long maxStalenessNanos;
+  private final Map<String, CachedEntry> cache = new ConcurrentHashMap<>();
+
+  private final LatencyHistogram cachedReads = new LatencyHistogram();
+  private final LatencyHistogram storeReads = new LatencyHistogram();
+  private final LatencyHistogram propagationLag = new LatencyHistogram();
+  private final LongAdder invalidations = new LongAdder();
+  private final LongAdder staleReloads = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+
+  /**
+   * 带版本号的配置值，version为0表示不存在
+   */
+  public record VersionedValue(String value, long version, long updatedAtMillis) implements Serializable {
+
+    static final VersionedValue ABSENT = new VersionedValue(null, 0, 0);
+  }
+
+  /**
+   * 配置项修改后的广播
+   */
+  public record Invalidation(String key, long version, long publishedAtMillis) implements Serializable {
+  }
+
+  /**
+   * minVersion来自广播：本地知道存在不低于该版本的值，低于它的加载结果不能放进缓存
+   */
+  private record CachedEntry(VersionedValue value, long loadedAtNanos, long minVersion) {
+  }
+
+  interface Store {
+    VersionedValue get(String key);
+
+    boolean compareAndSet(String key, VersionedValue expected, VersionedValue update);
+  }
+
+  public ConfigRegistry(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics,
+      @Value("${demo.config-registry.max-staleness-millis:30000}") long maxStalenessMillis) {
+    this.store = instrumented(storeFor(hazelcastInstance), metrics);
+    this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+    this.topic = hazelcastInstance.getTopic(TOPIC_NAME);
+    this.listenerId = topic.addMessageListener(this::onInvalidation);
+  }
+
+  private static Store storeFor(HazelcastInstance hazelcastInstance) {
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      CPMap<String, VersionedValue> cpMap = hazelcastInstance.getCPSubsystem().getMap(MAP_NAME);
+      return new Store() {
+        @Override
+        public VersionedValue get(String key) {
+          return cpMap.get(key);
+        }
+
+        @Override
+        public boolean compareAndSet(String key, VersionedValue expected, VersionedValue update) {
+          if (expected == null) {
+            return cpMap.putIfAbsent(key, update) == null;
+          }
+          return cpMap.compareAndSet(key, expected, update);
+        }
+      };
+    }
+    logger.info("CP subsystem not available, config registry falls back to IMap {}", MAP_NAME);
+    IMap<String, VersionedValue> map = hazelcastInstance.getMap(MAP_NAME);
+    return new Store() {
+      @Override
+      public VersionedValue get(String key) {
+        return map.get(key);
+      }
+
+      @Override
+      public boolean compareAndSet(String key, VersionedValue expected, VersionedValue update) {
+        if (expected == null) {
+          return map.putIfAbsent(key, update) == null;
+        }
+        return map.replace(key, expected, update);
+      }
+    };
+  }
+
+  static Store instrumented(Store store, CpOperationMetrics metrics) {
+    return new Store() {
+      @Override
+      public VersionedValue get(String key) {
+        return metrics.record("configRegistry.get", () -> store.get(key));
+      }
+
+      @Override
+      public boolean compareAndSet(String key, VersionedValue expected, VersionedValue update) {
+        return metrics.record("configRegistry.compareAndSet", () -> store.compareAndSet(key, expected, update));
+      }
+    };
+  }
+
+  /**
+   * 读取配置值，不存在时返回null
+   */
+  public String get(String key) {
+    return getVersioned(key).value();
+  }
+
+  /**
+   * 读取配置值和版本号，不存在时版本号为0
+   */
+  public VersionedValue getVersioned(String key) {
+    long start = System.nanoTime();
+    CachedEntry cached = cache.get(key);
+    if (cached != null && cached.value() != null) {
+      if (start - cached.loadedAtNanos() < maxStalenessNanos) {
+        cachedReads.recordNanos(System.nanoTime() - start);
+        return cached.value();
+      }
+      staleReloads.increment();
+    }
+    VersionedValue loaded = load(key);
+    // 加载期间可能收到了更新的广播或其他线程放入了更新的值，只在加载结果不旧于已知版本时写入
+    cache.compute(key, (k, existing) -> {
+      if (existing != null && (existing.value() != null
+          ? existing.value().version() > loaded.version()
+          : existing.minVersion() > loaded.version())) {
+        return existing;
+      }
+      return new CachedEntry(loaded, System.nanoTime(), existing == null ? 0 : existing.minVersion());
+    });
+    return loaded;
+  }
+
+  private VersionedValue load(String key) {
+    long start = System.nanoTime();
+    VersionedValue value = store.get(key);
+    storeReads.recordNanos(System.nanoTime() - start);
+    return value == null ? VersionedValue.ABSENT : value;
+  }
+
+  /**
+   * 当前版本等于expectedVersion时写入新值（新建时expectedVersion为0），成功后广播失效
+   */
+  public boolean compareAndSet(String key, long expectedVersion, String value) {
+    VersionedValue current = load(key);
+    if (current.version() != expectedVersion) {
+      conflicts.increment();
+      return false;
+    }
+    VersionedValue update = new VersionedValue(value, expectedVersion + 1, System.currentTimeMillis());
+    if (!store.compareAndSet(key, expectedVersion == 0 ? null : current, update)) {
+      conflicts.increment();
+      return false;
+    }
+    cache.put(key, new CachedEntry(update, System.nanoTime(), update.version()));
+    topic.publish(new Invalidation(key, update.version(), update.updatedAtMillis()));
+    return true;
+  }
+
+  private void onInvalidation(Message<Invalidation> message) {
+    Invalidation invalidation = message.getMessageObject();
+    invalidations.increment();
+    propagationLag.recordNanos(
+        TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - invalidation.publishedAtMillis())));
+    cache.compute(invalidation.key(), (key, cached) -> {
+      if (cached != null && cached.value() != null && cached.value().version() >= invalidation.version()) {
+        return cached;
+      }
+      long minVersion = Math.max(invalidation.version(), cached == null ? 0 : cached.minVersion());
+      return new CachedEntry(null, 0, minVersion);
+    });
+  }
+
+  /**
+   * 本地缓存读取延迟
+   */
+  public LatencyHistogram getCachedReads() {
+    return cachedReads;
+  }
+
+  /**
+   * 缓存未命中时读取CPMap（或IMap）的延迟
+   */
+  public LatencyHistogram getStoreReads() {
+    return storeReads;
+  }
+
+  /**
+   * 从修改成功到本成员收到失效广播的时间，即缓存最多落后多久
+   */
+  public LatencyHistogram getPropagationLag() {
+    return propagationLag;
+  }
+
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  public long getStaleReloadCount() {
+    return staleReloads.sum();
+  }
+
+  public long getConflictCount() {
+    return conflicts.sum();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    topic.removeMessageListener(listenerId);
+  }
+}
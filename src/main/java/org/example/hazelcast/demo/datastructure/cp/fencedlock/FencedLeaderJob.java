@@ -0,0 +1,410 @@
+package org.example.hazelcast.demo.datastructure.cp.fencedlock;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.IAtomicLong;
+import com.hazelcast.cp.lock.FencedLock;
+import com.hazelcast.cp.lock.exception.LockOwnershipLostException;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.example.hazelcast.demo.store.StaleFenceTokenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 只在持有领导权的成员上运行的定时批量任务，每批携带栅栏令牌
+ *
+ * 每个周期先确认领导权再执行任务：
+ * - 没有领导权时尝试获取，成功后得到一个单调递增的栅栏令牌
+ * - 已持有时，只有距离上次确认超过renewIntervalMillis才访问集群续约，而不是每批都加锁
+ * - 任务把令牌随数据一起写库（如ProductMapStore.storeAll(map, resource, token)），
+ *   数据库拒绝比已记录值更小的令牌。成员经历长GC停顿、租约已被别人接管时，
+ *   停顿前拿到的旧令牌写入会被拒绝，任务抛出StaleFenceTokenException后本成员释放锁并放弃领导权
+ *
+ * IMap租约的令牌和未开启持久化的CP栅栏在整个集群重启后都从1开始，而数据库里记录的令牌还是重启前的最大值。
+ * 所以获取领导权时先读取数据库中已持久化的令牌（persistedFence），发出的令牌总是大于它：
+ * IMap租约取 max(上一个令牌, 已持久化令牌) + 1；FencedLock在栅栏上加一个保存在CP IAtomicLong中的基数，
+ * 栅栏加基数不超过已持久化令牌时把基数抬高到该值。
+ *
+ * 所有锁操作都在任务自己的单线程上执行（FencedLock与线程绑定）。
+ * CP子系统可用时使用FencedLock，会话过期即释放；否则退化为IMap中带过期时间的租约条目。
+ */
+public class FencedLeaderJob implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(FencedLeaderJob.class);
+
+  /**
+   * CP不可用时存放租约的Map
+   */
+  public static final String LEASE_MAP = "leader-leases";
+
+  /**
+   * 持有领导权时执行的任务
+   */
+  @FunctionalInterface
+  public interface FencedTask {
+    void run(long fenceToken);
+  }
+
+  /**
+   * 领导权锁，令牌为0表示没有获取到
+   */
+  interface LeaderLock {
+    /**
+     * @param floor 已持久化的最大令牌，获取成功时返回的令牌大于它
+     */
+    long tryAcquire(long waitMillis, long floor) throws InterruptedException;
+
+    boolean renew(long token);
+
+    void release(long token);
+  }
+
+  private final String name;
+  private final LeaderLock lock;
+  private final FencedTask task;
+  private final LongSupplier persistedFence;
+  private final long periodMillis;
+  private final long renewIntervalNanos;
+  private final long acquireWaitMillis;
+  private final ScheduledExecutorService scheduler;
+
+  // 以下字段只在任务线程上读写
+  private long token;
+  private long renewDueNanos;
+
+  private volatile long currentToken;
+  private final LatencyHistogram lockWait = new LatencyHistogram();
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder renewals = new LongAdder();
+  private final LongAdder lostLeases = new LongAdder();
+  private final LongAdder staleRejections = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+
+  FencedLeaderJob(String name, LeaderLock lock, FencedTask task, LongSupplier persistedFence, long periodMillis,
+      long renewIntervalMillis, long acquireWaitMillis) {
+    this.name = name;
+    this.lock = lock;
+    this.task = task;
+    this.persistedFence = persistedFence;
+    this.periodMillis = periodMillis;
+    this.renewIntervalNanos = TimeUnit.MILLISECONDS.toNanos(renewIntervalMillis);
+    this.acquireWaitMillis = acquireWaitMillis;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, name + "-leader-job");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * 创建任务：CP子系统可用时使用FencedLock，否则使用IMap租约
+   *
+   * @param persistedFence 读取数据库中已记录的令牌（如ProductMapStore.currentFence(resource)），没有记录时返回0
+   * @param periodMillis   任务执行间隔
+   * @param leaseMillis    IMap租约的有效期，每三分之一有效期续约一次；FencedLock由CP会话保持，也按此间隔确认
+   */
+  public static FencedLeaderJob create(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics, String name,
+      FencedTask task, LongSupplier persistedFence, long periodMillis, long leaseMillis) {
+    LeaderLock lock;
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      lock = fencedLock(hazelcastInstance.getCPSubsystem().getLock(name),
+          hazelcastInstance.getCPSubsystem().getAtomicLong(name + "-fence-base"));
+    } else {
+      logger.info("CP subsystem not available, leader job {} falls back to IMap {}", name, LEASE_MAP);
+      lock = mapLease(hazelcastInstance.getMap(LEASE_MAP), name, leaseMillis);
+    }
+    return new FencedLeaderJob(name, instrumented(lock, metrics), task, persistedFence, periodMillis, leaseMillis / 3,
+        periodMillis);
+  }
+
+  static LeaderLock instrumented(LeaderLock lock, CpOperationMetrics metrics) {
+    return new LeaderLock() {
+      @Override
+      public long tryAcquire(long waitMillis, long floor) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+          return lock.tryAcquire(waitMillis, floor);
+        } finally {
+          metrics.histogram("leaderLock.tryAcquire").recordNanos(System.nanoTime() - start);
+        }
+      }
+
+      @Override
+      public boolean renew(long token) {
+        return metrics.record("leaderLock.renew", () -> lock.renew(token));
+      }
+
+      @Override
+      public void release(long token) {
+        metrics.record("leaderLock.release", () -> lock.release(token));
+      }
+    };
+  }
+
+  /**
+   * @param fenceBase 加在栅栏上的基数，CP重启后归零，由下一次获取重新抬高到已持久化的令牌
+   */
+  static LeaderLock fencedLock(FencedLock fencedLock, IAtomicLong fenceBase) {
+    return new LeaderLock() {
+      // 本次持有时使用的基数，只在任务线程上读写
+      private long base;
+
+      @Override
+      public long tryAcquire(long waitMillis, long floor) {
+        long fence = fencedLock.tryLockAndGetFence(waitMillis, TimeUnit.MILLISECONDS);
+        if (fence == FencedLock.INVALID_FENCE) {
+          return 0;
+        }
+        base = fenceBase.get();
+        if (fence + base <= floor) {
+          // 比当前持有者更早发出的令牌都不大于fence + base，抬高基数不会让它们重新有效
+          base = fenceBase.alterAndGet(current -> Math.max(current, floor));
+        }
+        return fence + base;
+      }
+
+      @Override
+      public boolean renew(long token) {
+        try {
+          return fencedLock.isLockedByCurrentThread() && fencedLock.getFence() + base == token;
+        } catch (LockOwnershipLostException e) {
+          return false;
+        }
+      }
+
+      @Override
+      public void release(long token) {
+        try {
+          fencedLock.unlock();
+        } catch (IllegalMonitorStateException e) {
+          // 会话已过期，锁已被释放
+        }
+      }
+    };
+  }
+
+  static LeaderLock mapLease(IMap<String, LeaderLease> leases, String key, long leaseMillis) {
+    String owner = UUID.randomUUID().toString();
+    return new LeaderLock() {
+      @Override
+      public long tryAcquire(long waitMillis, long floor) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+          long token = leases.executeOnKey(key, new AcquireLeaseProcessor(owner, leaseMillis, floor));
+          if (token != 0 || System.currentTimeMillis() >= deadline) {
+            return token;
+          }
+          Thread.sleep(Math.min(50, Math.max(1, deadline - System.currentTimeMillis())));
+        }
+      }
+
+      @Override
+      public boolean renew(long token) {
+        return leases.executeOnKey(key, new RenewLeaseProcessor(owner, token, leaseMillis));
+      }
+
+      @Override
+      public void release(long token) {
+        leases.executeOnKey(key, new RenewLeaseProcessor(owner, token, 0));
+      }
+    };
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::runQuietly, 0, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void runQuietly() {
+    try {
+      runOnce();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      logger.warn("Leader job {} failed", name, e);
+    }
+  }
+
+  /**
+   * 执行一个周期；没有领导权时返回false
+   */
+  boolean runOnce() throws InterruptedException {
+    if (token == 0) {
+      long start = System.nanoTime();
+      long acquired = lock.tryAcquire(acquireWaitMillis, persistedFence.getAsLong());
+      lockWait.recordNanos(System.nanoTime() - start);
+      if (acquired == 0) {
+        return false;
+      }
+      token = acquired;
+      currentToken = acquired;
+      renewDueNanos = System.nanoTime() + renewIntervalNanos;
+      acquisitions.increment();
+      logger.info("Leader job {} acquired leadership with fence token {}", name, token);
+    } else if (System.nanoTime() - renewDueNanos >= 0) {
+      if (!lock.renew(token)) {
+        loseLeadership();
+        return false;
+      }
+      renewDueNanos = System.nanoTime() + renewIntervalNanos;
+      renewals.increment();
+    }
+
+    try {
+      task.run(token);
+      batches.increment();
+      return true;
+    } catch (StaleFenceTokenException e) {
+      staleRejections.increment();
+      // 主动释放，否则租约未过期时下次获取仍会拿回同一个旧令牌
+      lock.release(token);
+      loseLeadership();
+      return false;
+    }
+  }
+
+  private void loseLeadership() {
+    logger.warn("Leader job {} lost leadership with fence token {}", name, token);
+    lostLeases.increment();
+    token = 0;
+    currentToken = 0;
+  }
+
+  /**
+   * 当前持有的栅栏令牌，没有领导权时为0
+   */
+  public long getCurrentToken() {
+    return currentToken;
+  }
+
+  /**
+   * 获取领导权时的等待时间分布
+   */
+  public LatencyHistogram getLockWait() {
+    return lockWait;
+  }
+
+  public long getAcquisitionCount() {
+    return acquisitions.sum();
+  }
+
+  public long getRenewalCount() {
+    return renewals.sum();
+  }
+
+  public long getLostLeaseCount() {
+    return lostLeases.sum();
+  }
+
+  public long getStaleRejectionCount() {
+    return staleRejections.sum();
+  }
+
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  @Override
+  public void close() {
+    // 在任务线程上释放，FencedLock只能由持有线程解锁
+    scheduler.execute(() -> {
+      if (token != 0) {
+        lock.release(token);
+        token = 0;
+        currentToken = 0;
+      }
+    });
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * IMap中的租约：令牌只增不减，释放时只把过期时间清零
+   */
+  public record LeaderLease(String owner, long token, long expiresAtMillis) implements Serializable {
+  }
+
+  /**
+   * 租约空闲或已过期时由owner接管，令牌取 max(上一个令牌, floor) + 1；
+   * owner本来就持有且令牌大于floor时直接续期
+   */
+  public static class AcquireLeaseProcessor implements EntryProcessor<String, LeaderLease, Long> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String owner;
+    private final long leaseMillis;
+    private final long floor;
+
+    public AcquireLeaseProcessor(String owner, long leaseMillis, long floor) {
+      this.owner = owner;
+      this.leaseMillis = leaseMillis;
+      this.floor = floor;
+    }
+
+    @Override
+    public Long process(Map.Entry<String, LeaderLease> entry) {
+      long now = System.currentTimeMillis();
+      LeaderLease lease = entry.getValue();
+      if (lease != null && lease.expiresAtMillis() > now) {
+        if (!lease.owner().equals(owner)) {
+          return 0L;
+        }
+        if (lease.token() > floor) {
+          entry.setValue(new LeaderLease(owner, lease.token(), now + leaseMillis));
+          return lease.token();
+        }
+      }
+      long token = Math.max(lease == null ? 0 : lease.token(), floor) + 1;
+      entry.setValue(new LeaderLease(owner, token, now + leaseMillis));
+      return token;
+    }
+  }
+
+  /**
+   * owner仍持有该令牌且未过期时把租约延长leaseMillis；leaseMillis为0即释放
+   */
+  public static class RenewLeaseProcessor implements EntryProcessor<String, LeaderLease, Boolean> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String owner;
+    private final long token;
+    private final long leaseMillis;
+
+    public RenewLeaseProcessor(String owner, long token, long leaseMillis) {
+      this.owner = owner;
+      this.token = token;
+      this.leaseMillis = leaseMillis;
+    }
+
+    @Override
+    public Boolean process(Map.Entry<String, LeaderLease> entry) {
+      long now = System.currentTimeMillis();
+      LeaderLease lease = entry.getValue();
+      if (lease == null || !lease.owner().equals(owner) || lease.token() != token || lease.expiresAtMillis() <= now) {
+        return false;
+      }
+      entry.setValue(new LeaderLease(owner, token, now + leaseMillis));
+      return true;
+    }
+  }
+}
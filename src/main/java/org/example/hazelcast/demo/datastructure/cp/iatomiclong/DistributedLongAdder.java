@@ -0,0 +1,314 @@
+package org.example.hazelcast.demo.datastructure.cp.iatomiclong;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.IAtomicLong;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地分段累加、定期汇总到集群的计数器
+ *
+ * 高频事件（如请求计数）先累加到本地LongAdder的分段单元中，不产生任何网络调用；
+ * 后台线程每隔flushIntervalMillis，或本地未汇总增量达到flushThreshold时，
+ * 用一次addAndGet把增量写入集群计数器。
+ *
+ * 陈旧度保证：只要汇总成功，集群值落后于本成员真实值的时间不超过一个汇总周期
+ * （加一次调用耗时），落后的数量不超过flushThreshold加上汇总期间新到达的增量。
+ * 汇总失败时（包括超时，此时服务端可能已经累加）保留这次的增量和序号，下次汇总先用同一个序号重试，
+ * 再汇总之后的新增量；close时做最后一次同步汇总。
+ *
+ * 集群计数器优先使用CP子系统的IAtomicLong；社区版5.5中CP是企业版功能，
+ * 此时退化为IMap中的单个条目，通过EntryProcessor在分区线程上原子累加。
+ * IMap条目记录每个计数器实例最后生效的汇总序号，重试已生效的汇总不会重复累加；
+ * IAtomicLong没有这样的去重，超时后重试可能多计一次汇总的增量。
+ */
+public class DistributedLongAdder implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DistributedLongAdder.class);
+
+  /**
+   * CP不可用时存放计数器的Map
+   */
+  public static final String COUNTER_MAP = "distributed-counters";
+
+  private final String name;
+  private final Target target;
+  private final long flushThreshold;
+  private final LongAdder pending = new LongAdder();
+  // 本实例的标识和汇总序号，集群端据此丢弃重复的汇总
+  private final UUID id = UUID.randomUUID();
+  private long sequence;
+  // 上一次失败、可能已生效的汇总增量，下次用同一个序号重试
+  private volatile long inDoubtDelta;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService scheduler;
+
+  private volatile long lastFlushMillis = System.currentTimeMillis();
+  private final LongAdder flushCount = new LongAdder();
+  private final LongAdder failedFlushCount = new LongAdder();
+
+  /**
+   * 集群端计数器
+   */
+  interface Target {
+    /**
+     * 累加一次汇总的增量并返回新值；支持去重的实现对同一adderId和sequence只累加一次
+     */
+    long add(UUID adderId, long sequence, long delta);
+
+    long get();
+
+    /**
+     * 计数器实例关闭后清除它的去重记录
+     */
+    default void forget(UUID adderId) {
+    }
+  }
+
+  DistributedLongAdder(String name, Target target, long flushIntervalMillis, long flushThreshold) {
+    this.name = name;
+    this.target = target;
+    this.flushThreshold = flushThreshold;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, name + "-adder-flush");
+      t.setDaemon(true);
+      return t;
+    });
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 创建计数器：CP子系统可用时汇总到IAtomicLong，否则汇总到IMap条目
+   */
+  public static DistributedLongAdder create(HazelcastInstance hazelcastInstance, String name,
+      long flushIntervalMillis, long flushThreshold) {
+    Target target;
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      IAtomicLong atomicLong = hazelcastInstance.getCPSubsystem().getAtomicLong(name);
+      target = new Target() {
+        @Override
+        public long add(UUID adderId, long sequence, long delta) {
+          return atomicLong.addAndGet(delta);
+        }
+
+        @Override
+        public long get() {
+          return atomicLong.get();
+        }
+      };
+    } else {
+      logger.info("CP subsystem not available, counter {} falls back to IMap {}", name, COUNTER_MAP);
+      target = mapTarget(hazelcastInstance.getMap(COUNTER_MAP), name);
+    }
+    return new DistributedLongAdder(name, target, flushIntervalMillis, flushThreshold);
+  }
+
+  static Target mapTarget(IMap<String, Counter> counters, String key) {
+    return new Target() {
+      @Override
+      public long add(UUID adderId, long sequence, long delta) {
+        return counters.executeOnKey(key, new AddOnceProcessor(adderId, sequence, delta));
+      }
+
+      @Override
+      public long get() {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.getValue();
+      }
+
+      @Override
+      public void forget(UUID adderId) {
+        counters.executeOnKey(key, new ForgetProcessor(adderId));
+      }
+    };
+  }
+
+  public void increment() {
+    add(1);
+  }
+
+  public void add(long delta) {
+    pending.add(delta);
+    if (flushThreshold > 0 && pending.sum() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+      scheduler.execute(() -> {
+        flushScheduled.set(false);
+        flushQuietly();
+      });
+    }
+  }
+
+  /**
+   * 集群值加上本成员尚未汇总的增量；重试中的汇总如果其实已经生效，会被多算一次
+   */
+  public long get() {
+    return target.get() + getPendingDelta();
+  }
+
+  /**
+   * 集群中已汇总的值，可能落后于各成员的本地增量
+   */
+  public long getGlobal() {
+    return target.get();
+  }
+
+  /**
+   * 立即把本地增量汇总到集群
+   */
+  public synchronized void flush() {
+    if (inDoubtDelta != 0) {
+      send(inDoubtDelta);
+    }
+    long delta = pending.sumThenReset();
+    if (delta == 0) {
+      lastFlushMillis = System.currentTimeMillis();
+      return;
+    }
+    sequence++;
+    inDoubtDelta = delta;
+    send(delta);
+  }
+
+  private void send(long delta) {
+    try {
+      target.add(id, sequence, delta);
+    } catch (RuntimeException e) {
+      failedFlushCount.increment();
+      throw e;
+    }
+    inDoubtDelta = 0;
+    flushCount.increment();
+    lastFlushMillis = System.currentTimeMillis();
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to flush counter {}, will retry", name, e);
+    }
+  }
+
+  /**
+   * 尚未汇总的增量，包括等待重试的汇总
+   */
+  public long getPendingDelta() {
+    return pending.sum() + inDoubtDelta;
+  }
+
+  /**
+   * 距离上一次成功汇总的毫秒数
+   */
+  public long getStalenessMillis() {
+    return System.currentTimeMillis() - lastFlushMillis;
+  }
+
+  public long getFlushCount() {
+    return flushCount.sum();
+  }
+
+  public long getFailedFlushCount() {
+    return failedFlushCount.sum();
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    try {
+      target.forget(id);
+    } catch (RuntimeException e) {
+      logger.warn("Failed to clear flush sequence of counter {}", name, e);
+    }
+  }
+
+  /**
+   * IMap中的计数器值，以及各计数器实例最后生效的汇总序号；
+   * 没有正常close的实例留下一条序号记录
+   */
+  public static class Counter implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private long value;
+    private final Map<UUID, Long> appliedSequences = new HashMap<>();
+
+    public long getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * 在计数器所在分区上累加并返回新值；同一实例的序号不大于已生效的序号时视为重试，不再累加
+   */
+  public static class AddOnceProcessor implements EntryProcessor<String, Counter, Long> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final UUID adderId;
+    private final long sequence;
+    private final long delta;
+
+    public AddOnceProcessor(UUID adderId, long sequence, long delta) {
+      this.adderId = adderId;
+      this.sequence = sequence;
+      this.delta = delta;
+    }
+
+    @Override
+    public Long process(Map.Entry<String, Counter> entry) {
+      Counter counter = entry.getValue() == null ? new Counter() : entry.getValue();
+      Long applied = counter.appliedSequences.get(adderId);
+      if (applied == null || applied < sequence) {
+        counter.value += delta;
+        counter.appliedSequences.put(adderId, sequence);
+        entry.setValue(counter);
+      }
+      return counter.value;
+    }
+  }
+
+  /**
+   * 清除已关闭实例的汇总序号
+   */
+  public static class ForgetProcessor implements EntryProcessor<String, Counter, Void> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final UUID adderId;
+
+    public ForgetProcessor(UUID adderId) {
+      this.adderId = adderId;
+    }
+
+    @Override
+    public Void process(Map.Entry<String, Counter> entry) {
+      Counter counter = entry.getValue();
+      if (counter != null && counter.appliedSequences.remove(adderId) != null) {
+        entry.setValue(counter);
+      }
+      return null;
+    }
+  }
+}
@@ -79,6 +79,7 @@ public class IAtomicLongBasicOperationsDemo {
     incrementCounterExample();
     applyFunctionsExample();
     concurrentIncrementExample();
+    stripedCounterExample();
     System.out.println("==== IAtomicLong示例结束 ====\n");
   }
 
@@ -287,4 +288,42 @@ public class IAtomicLongBasicOperationsDemo {
     System.out.println("实际最终值: " + mockAtomicLong.get());
     System.out.println("两者是否相等: " + (mockAtomicLong.get() == threadCount * incrementsPerThread));
   }
-}
\ No newline at end of file
+
+  /**
+   * 演示高频计数：本地分段累加，定期汇总到集群
+   *
+   * <p>
+   * 上面的并发示例每次递增都是一次集群调用（CP模式下是一轮Raft提交），
+   * 请求计数这类高频指标承受不起。DistributedLongAdder在本地累加，
+   * 每100毫秒或累计1000次后才汇总一次。
+   * </p>
+   */
+  public void stripedCounterExample() {
+    System.out.println("\n-- 分段累加计数器 --");
+
+    int threadCount = 5;
+    int incrementsPerThread = 100_000;
+    try (DistributedLongAdder requests = DistributedLongAdder.create(hazelcastInstance, "demo-requests", 100, 1_000)) {
+      long before = requests.getGlobal();
+      Thread[] threads = new Thread[threadCount];
+      for (int i = 0; i < threadCount; i++) {
+        threads[i] = new Thread(() -> {
+          for (int j = 0; j < incrementsPerThread; j++) {
+            requests.increment();
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      System.out.println("本地未汇总增量: " + requests.getPendingDelta());
+      requests.flush();
+      System.out.println("汇总次数: " + requests.getFlushCount());
+      System.out.println("集群计数增加: " + (requests.getGlobal() - before) + "，预期: " + threadCount * incrementsPerThread);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("线程等待被中断: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package org.example.hazelcast.demo.datastructure.cp.iatomicreference;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.IAtomicReference;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 带版本号的不可变快照发布器
+ *
+ * 批处理任务把快照编码成字节数组，先以(名称, 版本号)为键写入IMap，再用compareAndSet把
+ * 版本指针从旧版本移到新版本；指针移动之前读者看不到新快照，因此不会读到写了一半的数据。
+ * 每个成员在后台按固定间隔读取指针，版本变化时取回并解码一次，放在本地volatile字段中，
+ * 读者调用current()不经过网络。
+ *
+ * 指针保存在IAtomicReference中；CP子系统不可用时退化为IMap中的一个条目。
+ * 只保留最近retainedVersions个版本的数据，刚被替换的旧版本留给还在加载它的成员。
+ * 发布者在移动指针前崩溃时，残留的数据占住了下一个版本号，后来的发布者跳过它使用更大的版本号，
+ * 因此已发布的版本号不一定连续。
+ *
+ * @param <T> 快照类型，应为不可变对象
+ */
+public class SnapshotPublisher<T> implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SnapshotPublisher.class);
+
+  /**
+   * 快照数据，键为 名称:版本号
+   */
+  public static final String BLOB_MAP = "snapshot-blobs";
+
+  /**
+   * CP不可用时存放版本指针的Map
+   */
+  public static final String POINTER_MAP = "snapshot-pointers";
+
+  private static final long UNPUBLISHED_TTL_SECONDS = 60;
+
+  /**
+   * 一次发布最多尝试的版本号个数
+   */
+  private static final int MAX_VERSION_PROBES = 8;
+
+  /**
+   * 版本指针，0表示还没有发布过
+   */
+  interface VersionPointer {
+    long get();
+
+    boolean compareAndSet(long expected, long update);
+  }
+
+  private record Loaded<T>(long version, T snapshot) {
+  }
+
+  private final String name;
+  private final VersionPointer pointer;
+  private final IMap<String, byte[]> blobs;
+  private final Function<T, byte[]> encoder;
+  private final Function<byte[], T> decoder;
+  private final long refreshIntervalMillis;
+  private final int retainedVersions;
+  private final ScheduledExecutorService scheduler;
+
+  private volatile Loaded<T> current = new Loaded<>(0, null);
+  private volatile int lastBlobBytes;
+  private final LongAdder publishes = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+
+  SnapshotPublisher(String name, VersionPointer pointer, IMap<String, byte[]> blobs, Function<T, byte[]> encoder,
+      Function<byte[], T> decoder, long refreshIntervalMillis, int retainedVersions) {
+    this.name = name;
+    this.pointer = pointer;
+    this.blobs = blobs;
+    this.encoder = encoder;
+    this.decoder = decoder;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.retainedVersions = Math.max(2, retainedVersions);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, name + "-snapshot-refresh");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * 创建发布器：CP子系统可用时版本指针使用IAtomicReference，否则使用IMap
+   *
+   * @param refreshIntervalMillis 检查版本指针的间隔，即其他成员看到新快照的最大延迟
+   * @param retainedVersions      IMap中保留的版本数，至少为2
+   */
+  public static <T> SnapshotPublisher<T> create(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics,
+      String name, Function<T, byte[]> encoder, Function<byte[], T> decoder, long refreshIntervalMillis,
+      int retainedVersions) {
+    return new SnapshotPublisher<>(name, instrumented(pointerFor(hazelcastInstance, name), metrics),
+        hazelcastInstance.getMap(BLOB_MAP), encoder, decoder, refreshIntervalMillis, retainedVersions);
+  }
+
+  static VersionPointer pointerFor(HazelcastInstance hazelcastInstance, String name) {
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      return atomicReferencePointer(hazelcastInstance.getCPSubsystem().getAtomicReference(name));
+    }
+    logger.info("CP subsystem not available, snapshot pointer {} falls back to IMap {}", name, POINTER_MAP);
+    return mapPointer(hazelcastInstance.getMap(POINTER_MAP), name);
+  }
+
+  static VersionPointer atomicReferencePointer(IAtomicReference<Long> reference) {
+    return new VersionPointer() {
+      @Override
+      public long get() {
+        Long version = reference.get();
+        return version == null ? 0 : version;
+      }
+
+      @Override
+      public boolean compareAndSet(long expected, long update) {
+        return reference.compareAndSet(expected == 0 ? null : expected, update);
+      }
+    };
+  }
+
+  static VersionPointer mapPointer(IMap<String, Long> pointers, String key) {
+    return new VersionPointer() {
+      @Override
+      public long get() {
+        Long version = pointers.get(key);
+        return version == null ? 0 : version;
+      }
+
+      @Override
+      public boolean compareAndSet(long expected, long update) {
+        if (expected == 0) {
+          return pointers.putIfAbsent(key, update) == null;
+        }
+        return pointers.replace(key, expected, update);
+      }
+    };
+  }
+
+  static VersionPointer instrumented(VersionPointer pointer, CpOperationMetrics metrics) {
+    return new VersionPointer() {
+      @Override
+      public long get() {
+        return metrics.record("snapshotPointer.get", pointer::get);
+      }
+
+      @Override
+      public boolean compareAndSet(long expected, long update) {
+        return metrics.record("snapshotPointer.compareAndSet", () -> pointer.compareAndSet(expected, update));
+      }
+    };
+  }
+
+  public void start() {
+    refresh();
+    scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMillis, refreshIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 发布新快照，返回新版本号；有其他发布者抢先移动了指针时返回0，调用方可以基于最新数据重建后重试
+   */
+  public long publish(T snapshot) {
+    long previous = pointer.get();
+    long version = previous + 1;
+    byte[] blob = encoder.apply(snapshot);
+    // 同一版本号只有一个发布者能写入数据。版本号被占用而指针没动时，占用者可能是并发的发布者，
+    // 也可能是崩溃的发布者残留的数据（到期后自动删除），都换下一个版本号：指针只能从previous
+    // 移动一次，并发的发布者中最终只有一个成功，残留数据也不会挡住发布
+    while (blobs.putIfAbsent(blobKey(version), blob, UNPUBLISHED_TTL_SECONDS, TimeUnit.SECONDS) != null) {
+      if (version - previous >= MAX_VERSION_PROBES || pointer.get() != previous) {
+        conflicts.increment();
+        return 0;
+      }
+      version++;
+    }
+    if (!pointer.compareAndSet(previous, version)) {
+      conflicts.increment();
+      blobs.delete(blobKey(version));
+      return 0;
+    }
+    blobs.setTtl(blobKey(version), 0, TimeUnit.SECONDS);
+    publishes.increment();
+    lastBlobBytes = blob.length;
+    install(version, snapshot);
+    // 版本号可能不连续，删除上次发布时保留范围之外的全部版本号
+    for (long old = Math.max(1, previous - retainedVersions + 1); old <= version - retainedVersions; old++) {
+      blobs.delete(blobKey(old));
+    }
+    logger.info("Published snapshot {} version {} ({} bytes)", name, version, blob.length);
+    return version;
+  }
+
+  /**
+   * 本成员当前持有的快照，还没有发布过时为null
+   */
+  public T current() {
+    return current.snapshot();
+  }
+
+  public long currentVersion() {
+    return current.version();
+  }
+
+  /**
+   * 检查版本指针，有新版本时取回并替换本地快照；正常情况下由后台线程调用
+   */
+  public void refresh() {
+    long version = pointer.get();
+    if (version <= current.version()) {
+      return;
+    }
+    byte[] blob = blobs.get(blobKey(version));
+    if (blob == null) {
+      // 指针已经移过去但数据被清理，说明又有更新的版本，下一轮再取
+      logger.debug("Snapshot {} version {} no longer available", name, version);
+      return;
+    }
+    loads.increment();
+    lastBlobBytes = blob.length;
+    install(version, decoder.apply(blob));
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to refresh snapshot {}", name, e);
+    }
+  }
+
+  private synchronized void install(long version, T snapshot) {
+    if (version > current.version()) {
+      current = new Loaded<>(version, snapshot);
+    }
+  }
+
+  private String blobKey(long version) {
+    return name + ":" + version;
+  }
+
+  public long getPublishCount() {
+    return publishes.sum();
+  }
+
+  public long getConflictCount() {
+    return conflicts.sum();
+  }
+
+  /**
+   * 从IMap取回并解码快照的次数
+   */
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  public int getLastBlobBytes() {
+    return lastBlobBytes;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
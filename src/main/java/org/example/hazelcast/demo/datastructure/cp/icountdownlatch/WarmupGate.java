@@ -0,0 +1,300 @@
+package org.example.hazelcast.demo.datastructure.cp.icountdownlatch;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.ICountDownLatch;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群预热闸门：所有成员都完成本地预热后才对外报告就绪
+ *
+ * 每个成员依次执行本地预热阶段（等待分区迁移、EAGER加载、近缓存预热等）并记录每个阶段的耗时，
+ * 完成后在集群共享的倒计数器上countDown，再等待计数归零。计数器由最先启动的成员用trySetCount
+ * 设为期望成员数；归零后写入一个已开启标记，之后加入或重启的成员只做本地预热，不再重新设置计数。
+ *
+ * 等待超过awaitTimeoutMillis时仍然放行并记录超时，避免某个成员起不来导致整个集群不可用。
+ * CP子系统可用时使用ICountDownLatch，否则退化为IMap中的计数条目，由EntryProcessor原子增减。
+ */
+public class WarmupGate {
+
+  private static final Logger logger = LoggerFactory.getLogger(WarmupGate.class);
+
+  /**
+   * 存放已开启标记（以及CP不可用时的计数）的Map
+   */
+  public static final String GATE_MAP = "warmup-gates";
+
+  private static final String OPENED_SUFFIX = ":opened";
+  private static final long POLL_MILLIS = 50;
+
+  public enum State {
+    WARMING_UP, WAITING_FOR_MEMBERS, READY
+  }
+
+  /**
+   * 集群倒计数器
+   */
+  interface GateLatch {
+    boolean trySetCount(int count);
+
+    void countDown();
+
+    long getCount();
+
+    boolean await(long timeoutMillis) throws InterruptedException;
+  }
+
+  private final String name;
+  private final GateLatch latch;
+  private final IMap<String, Long> gates;
+  private final Map<String, Runnable> phases;
+  private final int expectedMembers;
+  private final long awaitTimeoutMillis;
+
+  private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+  private final List<String> failedPhases = Collections.synchronizedList(new ArrayList<>());
+  private volatile State state = State.WARMING_UP;
+  private volatile boolean timedOut;
+  private volatile long totalMillis;
+
+  /**
+   * @param phases          本地预热阶段，按顺序执行
+   * @param expectedMembers 集群首次启动时需要等待的成员数
+   */
+  WarmupGate(String name, GateLatch latch, IMap<String, Long> gates, Map<String, Runnable> phases,
+      int expectedMembers, long awaitTimeoutMillis) {
+    this.name = name;
+    this.latch = latch;
+    this.gates = gates;
+    this.phases = new LinkedHashMap<>(phases);
+    this.expectedMembers = expectedMembers;
+    this.awaitTimeoutMillis = awaitTimeoutMillis;
+  }
+
+  public static WarmupGate create(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics, String name,
+      Map<String, Runnable> phases, int expectedMembers, long awaitTimeoutMillis) {
+    IMap<String, Long> gates = hazelcastInstance.getMap(GATE_MAP);
+    return new WarmupGate(name, instrumented(latchFor(hazelcastInstance, gates, name), metrics), gates, phases,
+        expectedMembers, awaitTimeoutMillis);
+  }
+
+  static GateLatch latchFor(HazelcastInstance hazelcastInstance, IMap<String, Long> gates, String name) {
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      return countDownLatch(hazelcastInstance.getCPSubsystem().getCountDownLatch(name));
+    }
+    logger.info("CP subsystem not available, warmup gate {} falls back to IMap {}", name, GATE_MAP);
+    return mapLatch(gates, name);
+  }
+
+  static GateLatch countDownLatch(ICountDownLatch latch) {
+    return new GateLatch() {
+      @Override
+      public boolean trySetCount(int count) {
+        return latch.trySetCount(count);
+      }
+
+      @Override
+      public void countDown() {
+        latch.countDown();
+      }
+
+      @Override
+      public long getCount() {
+        return latch.getCount();
+      }
+
+      @Override
+      public boolean await(long timeoutMillis) throws InterruptedException {
+        return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+    };
+  }
+
+  static GateLatch mapLatch(IMap<String, Long> counts, String key) {
+    return new GateLatch() {
+      @Override
+      public boolean trySetCount(int count) {
+        return counts.executeOnKey(key, new TrySetCountProcessor(count));
+      }
+
+      @Override
+      public void countDown() {
+        counts.executeOnKey(key, new CountDownProcessor());
+      }
+
+      @Override
+      public long getCount() {
+        Long count = counts.get(key);
+        return count == null ? 0 : count;
+      }
+
+      @Override
+      public boolean await(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (getCount() > 0) {
+          if (System.currentTimeMillis() >= deadline) {
+            return false;
+          }
+          Thread.sleep(POLL_MILLIS);
+        }
+        return true;
+      }
+    };
+  }
+
+  static GateLatch instrumented(GateLatch latch, CpOperationMetrics metrics) {
+    return new GateLatch() {
+      @Override
+      public boolean trySetCount(int count) {
+        return metrics.record("warmupGate.trySetCount", () -> latch.trySetCount(count));
+      }
+
+      @Override
+      public void countDown() {
+        metrics.record("warmupGate.countDown", latch::countDown);
+      }
+
+      @Override
+      public long getCount() {
+        return metrics.record("warmupGate.getCount", latch::getCount);
+      }
+
+      @Override
+      public boolean await(long timeoutMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+          return latch.await(timeoutMillis);
+        } finally {
+          metrics.histogram("warmupGate.await").recordNanos(System.nanoTime() - start);
+        }
+      }
+    };
+  }
+
+  /**
+   * 执行本地预热并等待其他成员，阻塞到就绪或超时
+   */
+  public void run() throws InterruptedException {
+    long start = System.nanoTime();
+    for (Map.Entry<String, Runnable> phase : phases.entrySet()) {
+      long phaseStart = System.nanoTime();
+      try {
+        phase.getValue().run();
+      } catch (RuntimeException e) {
+        // 单个阶段失败不阻止就绪，只是少了预热效果
+        failedPhases.add(phase.getKey());
+        logger.warn("Warmup phase {} failed", phase.getKey(), e);
+      }
+      phaseMillis.put(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStart));
+    }
+
+    state = State.WAITING_FOR_MEMBERS;
+    long waitStart = System.nanoTime();
+    if (gates.containsKey(name + OPENED_SUFFIX)) {
+      logger.info("Warmup gate {} already opened, not waiting for other members", name);
+    } else {
+      if (latch.trySetCount(expectedMembers)) {
+        logger.info("Warmup gate {} waiting for {} members", name, expectedMembers);
+      }
+      latch.countDown();
+      timedOut = !latch.await(awaitTimeoutMillis);
+      if (timedOut) {
+        logger.warn("Warmup gate {} timed out after {} ms with {} members outstanding", name, awaitTimeoutMillis,
+            latch.getCount());
+      } else {
+        gates.putIfAbsent(name + OPENED_SUFFIX, System.currentTimeMillis());
+      }
+    }
+    phaseMillis.put("await-members", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+
+    totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    state = State.READY;
+    logger.info("Warmup gate {} ready after {} ms, phases {}", name, totalMillis, getPhaseMillis());
+  }
+
+  public boolean isReady() {
+    return state == State.READY;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * 已完成阶段的耗时（毫秒），await-members为等待其他成员的时间
+   */
+  public Map<String, Long> getPhaseMillis() {
+    synchronized (phaseMillis) {
+      return new LinkedHashMap<>(phaseMillis);
+    }
+  }
+
+  public List<String> getFailedPhases() {
+    return List.copyOf(failedPhases);
+  }
+
+  /**
+   * 是否因等待超时而放行
+   */
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  public long getTotalMillis() {
+    return totalMillis;
+  }
+
+  /**
+   * 计数为0时设置为count，返回是否设置成功
+   */
+  public static class TrySetCountProcessor implements EntryProcessor<String, Long, Boolean> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int count;
+
+    public TrySetCountProcessor(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public Boolean process(Map.Entry<String, Long> entry) {
+      if (entry.getValue() != null && entry.getValue() > 0) {
+        return false;
+      }
+      entry.setValue((long) count);
+      return true;
+    }
+  }
+
+  /**
+   * 计数大于0时减一
+   */
+  public static class CountDownProcessor implements EntryProcessor<String, Long, Long> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Long process(Map.Entry<String, Long> entry) {
+      long count = entry.getValue() == null ? 0 : entry.getValue();
+      if (count > 0) {
+        entry.setValue(--count);
+      }
+      return count;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.example.hazelcast.demo.datastructure.cp.isemaphore;
 
 import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
 // 注意: 以下导入在社区版中不可用，仅在企业版中可用
 // import com.hazelcast.cp.ISemaphore;
 // import com.hazelcast.cp.CPSubsystem;
@@ -62,9 +63,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ISemaphoreBasicOperationsDemo {
 
   private final HazelcastInstance hazelcastInstance;
+  private final CpOperationMetrics cpOperationMetrics;
 
-  public ISemaphoreBasicOperationsDemo(HazelcastInstance hazelcastInstance) {
+  public ISemaphoreBasicOperationsDemo(HazelcastInstance hazelcastInstance, CpOperationMetrics cpOperationMetrics) {
     this.hazelcastInstance = hazelcastInstance;
+    this.cpOperationMetrics = cpOperationMetrics;
   }
 
   /**
@@ -82,6 +85,7 @@ public class ISemaphoreBasicOperationsDemo {
     multiPermitsExample();
     timeoutExample();
     fairnessExample();
+    leasedPermitsExample();
     System.out.println("==== ISemaphore示例结束 ====\n");
   }
 
@@ -425,4 +429,41 @@ public class ISemaphoreBasicOperationsDemo {
     System.out.println("- 考虑使用其他机制（如队列）来确保请求的有序处理");
     System.out.println("- 设计系统时考虑到可能的非公平性，确保系统不会因此而出现问题");
   }
-}
\ No newline at end of file
+
+  /**
+   * 演示按块租借许可
+   *
+   * <p>
+   * 用集群许可限制各成员到数据库的并发连接数时，逐个acquire/release每次都要访问集群。
+   * LeasedPermitPool一次租借一块许可在本地分发，空闲或租约到期时归还。
+   * </p>
+   */
+  public void leasedPermitsExample() {
+    System.out.println("\n-- 按块租借许可 --");
+
+    int threadCount = 4;
+    int operationsPerThread = 10_000;
+    try (LeasedPermitPool dbConnections = LeasedPermitPool.create(hazelcastInstance, cpOperationMetrics,
+        "db-connections", 10, 5, 200, 1_000)) {
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      for (int i = 0; i < threadCount; i++) {
+        executor.submit(() -> {
+          for (int j = 0; j < operationsPerThread; j++) {
+            if (dbConnections.tryAcquire(1, TimeUnit.SECONDS)) {
+              dbConnections.release();
+            }
+          }
+          return null;
+        });
+      }
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+      System.out.println("获取许可次数: " + dbConnections.getAcquiredCount());
+      System.out.println("访问集群租借次数: " + dbConnections.getLeaseCallCount());
+      System.out.println("本地持有许可: " + dbConnections.getHeldPermits());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("等待被中断: " + e.getMessage());
+    }
+  }
+}
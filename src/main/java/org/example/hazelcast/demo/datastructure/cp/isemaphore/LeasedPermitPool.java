@@ -0,0 +1,371 @@
+package org.example.hazelcast.demo.datastructure.cp.isemaphore;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.ISemaphore;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.CpSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按块租借集群许可证的本地许可池
+ *
+ * 直接使用ISemaphore时每次acquire/release都是一轮Raft提交。这里每个成员一次从集群
+ * 租借leaseSize个许可，放在本地无锁计数器里分发，本地用完才再去集群租借：
+ * - 本地许可过多（超过两个租借块）时，多出的部分立即归还集群
+ * - 超过idleReturnMillis没有新的获取需求时，归还全部未使用的许可，让其他成员拿到
+ * - 租约超过maxLeaseMillis后不再复用本地许可，排空（全部归还）之后才重新租借，
+ *   避免持续繁忙的成员一直占着许可，让等待中的成员有机会拿到
+ * - close时归还本地剩余许可，之后的release直接归还集群
+ *
+ * 集群端优先使用CP子系统的ISemaphore（成员宕机时会话过期自动归还许可）；
+ * CP不可用时退化为IMap中的一个计数条目，由EntryProcessor原子增减，成员宕机时其租借的许可不会自动归还。
+ */
+public class LeasedPermitPool implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(LeasedPermitPool.class);
+
+  /**
+   * CP不可用时存放剩余许可数的Map
+   */
+  public static final String PERMIT_MAP = "leased-permits";
+
+  private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private final String name;
+  private final PermitSource source;
+  private final int leaseSize;
+  private final long idleReturnNanos;
+  private final long maxLeaseNanos;
+  private final ScheduledExecutorService scheduler;
+
+  // 本地可分发的许可
+  private final AtomicInteger localPermits = new AtomicInteger();
+  // 从集群租借且尚未归还的许可（本地空闲 + 正在使用）
+  private final AtomicInteger heldPermits = new AtomicInteger();
+  private final Object leaseLock = new Object();
+  private volatile long lastDemandNanos = System.nanoTime();
+  // 本轮租约到期时间，heldPermits从0开始租借时设置
+  private volatile long leaseDeadlineNanos;
+  private volatile boolean closed;
+
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder leaseCalls = new LongAdder();
+  private final LongAdder leasedPermits = new LongAdder();
+  private final LongAdder returnedPermits = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+
+  /**
+   * 集群端许可来源
+   */
+  interface PermitSource {
+    /**
+     * 获取最多max个许可，返回实际获得的数量，可能为0
+     */
+    int tryAcquireUpTo(int max);
+
+    void release(int permits);
+
+    int availablePermits();
+  }
+
+  LeasedPermitPool(String name, PermitSource source, int leaseSize, long idleReturnMillis, long maxLeaseMillis) {
+    this.name = name;
+    this.source = source;
+    this.leaseSize = leaseSize;
+    this.idleReturnNanos = TimeUnit.MILLISECONDS.toNanos(idleReturnMillis);
+    this.maxLeaseNanos = TimeUnit.MILLISECONDS.toNanos(maxLeaseMillis);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, name + "-permit-return");
+      t.setDaemon(true);
+      return t;
+    });
+    long period = Math.max(1, idleReturnMillis / 2);
+    scheduler.scheduleWithFixedDelay(this::returnIfIdle, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 创建许可池：CP子系统可用时租借ISemaphore的许可，否则使用IMap计数
+   *
+   * @param totalPermits     集群范围内的许可总数，只在第一次初始化时生效
+   * @param leaseSize        每次向集群租借的许可数
+   * @param idleReturnMillis 无获取需求多久后归还本地许可
+   * @param maxLeaseMillis   一轮租约最长复用时间
+   */
+  public static LeasedPermitPool create(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics, String name,
+      int totalPermits, int leaseSize, long idleReturnMillis, long maxLeaseMillis) {
+    return new LeasedPermitPool(name, instrumented(sourceFor(hazelcastInstance, name, totalPermits), metrics),
+        leaseSize, idleReturnMillis, maxLeaseMillis);
+  }
+
+  static PermitSource sourceFor(HazelcastInstance hazelcastInstance, String name, int totalPermits) {
+    if (CpSupport.isAvailable(hazelcastInstance)) {
+      ISemaphore semaphore = hazelcastInstance.getCPSubsystem().getSemaphore(name);
+      semaphore.init(totalPermits);
+      return semaphoreSource(semaphore);
+    }
+    logger.info("CP subsystem not available, permits {} fall back to IMap {}", name, PERMIT_MAP);
+    return mapSource(hazelcastInstance.getMap(PERMIT_MAP), name, totalPermits);
+  }
+
+  static PermitSource semaphoreSource(ISemaphore semaphore) {
+    return new PermitSource() {
+      @Override
+      public int tryAcquireUpTo(int max) {
+        if (semaphore.tryAcquire(max)) {
+          return max;
+        }
+        // 不够一整块时拿走剩余的部分
+        int available = Math.min(max, semaphore.availablePermits());
+        return available > 0 && semaphore.tryAcquire(available) ? available : 0;
+      }
+
+      @Override
+      public void release(int permits) {
+        semaphore.release(permits);
+      }
+
+      @Override
+      public int availablePermits() {
+        return semaphore.availablePermits();
+      }
+    };
+  }
+
+  static PermitSource mapSource(IMap<String, Integer> permits, String key, int totalPermits) {
+    permits.putIfAbsent(key, totalPermits);
+    return new PermitSource() {
+      @Override
+      public int tryAcquireUpTo(int max) {
+        return permits.executeOnKey(key, new AdjustPermitsProcessor(-max));
+      }
+
+      @Override
+      public void release(int count) {
+        permits.executeOnKey(key, new AdjustPermitsProcessor(count));
+      }
+
+      @Override
+      public int availablePermits() {
+        Integer value = permits.get(key);
+        return value == null ? 0 : value;
+      }
+    };
+  }
+
+  static PermitSource instrumented(PermitSource source, CpOperationMetrics metrics) {
+    return new PermitSource() {
+      @Override
+      public int tryAcquireUpTo(int max) {
+        return metrics.record("permitPool.tryAcquireUpTo", () -> source.tryAcquireUpTo(max));
+      }
+
+      @Override
+      public void release(int permits) {
+        metrics.record("permitPool.release", () -> source.release(permits));
+      }
+
+      @Override
+      public int availablePermits() {
+        return metrics.record("permitPool.availablePermits", source::availablePermits);
+      }
+    };
+  }
+
+  /**
+   * 获取一个许可，本地没有时向集群租借，直到超时
+   */
+  public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long waitNanos = TimeUnit.MICROSECONDS.toNanos(100);
+    while (true) {
+      lastDemandNanos = System.nanoTime();
+      if (leaseExpired()) {
+        returnToCluster(Integer.MAX_VALUE);
+      } else if (takeLocal()) {
+        acquired.increment();
+        return true;
+      }
+      if (lease()) {
+        continue;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        timeouts.increment();
+        return false;
+      }
+      LockSupport.parkNanos(Math.min(remaining, waitNanos));
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
+    }
+  }
+
+  public void release() {
+    if (closed || leaseExpired()) {
+      heldPermits.decrementAndGet();
+      returnedPermits.increment();
+      source.release(1);
+      return;
+    }
+    int local = localPermits.incrementAndGet();
+    if (closed) {
+      // 与close并发时，close可能已经归还过本地许可
+      returnToCluster(Integer.MAX_VALUE);
+    } else if (local > 2 * leaseSize) {
+      returnToCluster(local - leaseSize);
+    }
+  }
+
+  private boolean takeLocal() {
+    int current;
+    do {
+      current = localPermits.get();
+      if (current == 0) {
+        return false;
+      }
+    } while (!localPermits.compareAndSet(current, current - 1));
+    return true;
+  }
+
+  /**
+   * 向集群租借一块许可；同一时刻只有一个线程租借，其他线程等它的结果
+   */
+  private boolean lease() {
+    synchronized (leaseLock) {
+      if (localPermits.get() > 0) {
+        return true;
+      }
+      if (leaseExpired()) {
+        // 等本轮租借的许可全部归还后再租
+        return false;
+      }
+      leaseCalls.increment();
+      int granted = source.tryAcquireUpTo(leaseSize);
+      if (granted == 0) {
+        return false;
+      }
+      if (heldPermits.getAndAdd(granted) == 0) {
+        leaseDeadlineNanos = System.nanoTime() + maxLeaseNanos;
+      }
+      leasedPermits.add(granted);
+      localPermits.addAndGet(granted);
+      return true;
+    }
+  }
+
+  private void returnToCluster(int max) {
+    int taken;
+    int current;
+    do {
+      current = localPermits.get();
+      taken = Math.min(max, current);
+      if (taken <= 0) {
+        return;
+      }
+    } while (!localPermits.compareAndSet(current, current - taken));
+    // 先扣减持有数再归还，其他成员拿到这些许可时本地已不再计入
+    heldPermits.addAndGet(-taken);
+    try {
+      source.release(taken);
+      returnedPermits.add(taken);
+    } catch (RuntimeException e) {
+      heldPermits.addAndGet(taken);
+      localPermits.addAndGet(taken);
+      logger.warn("Failed to return {} permits of {}", taken, name, e);
+    }
+  }
+
+  private boolean leaseExpired() {
+    return heldPermits.get() > 0 && System.nanoTime() - leaseDeadlineNanos > 0;
+  }
+
+  private void returnIfIdle() {
+    if (System.nanoTime() - lastDemandNanos >= idleReturnNanos || leaseExpired()) {
+      returnToCluster(Integer.MAX_VALUE);
+    }
+  }
+
+  public int getLocalPermits() {
+    return localPermits.get();
+  }
+
+  public int getHeldPermits() {
+    return heldPermits.get();
+  }
+
+  public long getAcquiredCount() {
+    return acquired.sum();
+  }
+
+  /**
+   * 访问集群的租借次数（包括没有拿到许可的）
+   */
+  public long getLeaseCallCount() {
+    return leaseCalls.sum();
+  }
+
+  public long getLeasedPermitCount() {
+    return leasedPermits.sum();
+  }
+
+  public long getReturnedPermitCount() {
+    return returnedPermits.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  public int getClusterAvailablePermits() {
+    return source.availablePermits();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    scheduler.shutdownNow();
+    returnToCluster(Integer.MAX_VALUE);
+  }
+
+  /**
+   * 调整剩余许可数：permits为负时最多扣减-permits个并返回实际扣减数，为正时归还
+   */
+  public static class AdjustPermitsProcessor implements EntryProcessor<String, Integer, Integer> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int permits;
+
+    public AdjustPermitsProcessor(int permits) {
+      this.permits = permits;
+    }
+
+    @Override
+    public Integer process(Map.Entry<String, Integer> entry) {
+      int remaining = entry.getValue() == null ? 0 : entry.getValue();
+      if (permits >= 0) {
+        entry.setValue(remaining + permits);
+        return permits;
+      }
+      int granted = Math.min(remaining, -permits);
+      if (granted > 0) {
+        entry.setValue(remaining - granted);
+      }
+      return granted;
+    }
+  }
+}
@@ -14,6 +14,8 @@ public class Product implements Serializable {
   private String category;
   private BigDecimal price;
   private Integer stock;
+  // 乐观并发控制用的版本号，每次库存变更加1；随产品一起写入数据库的version列
+  private long version;
 
   public Product() {
   }
@@ -67,6 +69,14 @@ public class Product implements Serializable {
     this.stock = stock;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   @Override
   public String toString() {
     return "Product{" +
@@ -75,6 +85,7 @@ public class Product implements Serializable {
         ", category='" + category + '\'' +
         ", price=" + price +
         ", stock=" + stock +
+        ", version=" + version +
         '}';
   }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package org.example.hazelcast.demo.ratelimit;
+
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ExtendedMapEntry;
+import com.hazelcast.map.IMap;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+import com.hazelcast.partition.PartitionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * 集群范围的令牌桶限流
+ *
+ * 请求路径上只访问本地令牌桶（一次加锁的计算，不涉及网络）。每个限流键的集群总速率
+ * 按各成员的请求量分摊：后台线程每隔syncIntervalMillis把本成员各键的请求数通过一次
+ * 按分区并行的submitToKeys汇报到IMap，EntryProcessor在分区上合并各成员的请求量并返回本成员的份额，
+ * 本地桶的速率和容量随之调整为 总限额 × 份额。
+ *
+ * 份额按(本成员请求数 + 1) / (总请求数 + 成员数)计算，各成员份额之和为1，
+ * 没有请求的成员也保留一小部分，突然来的请求不会被完全拒绝。从未同步过的键按集群成员数平分。
+ *
+ * 本地令牌桶的数量不超过maxTrackedKeys：达到上限后新出现的键共用一个溢出桶，
+ * 直到空闲的键被清除，避免大量不同的客户端耗尽内存，也不能靠不断换键绕过限流。
+ */
+public class ClusterRateLimiter implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ClusterRateLimiter.class);
+
+  /**
+   * 存放各成员请求量的Map
+   */
+  public static final String DEMAND_MAP = "rate-limit-demand";
+
+  /**
+   * 令牌桶数量达到上限后新键共用的限流键
+   */
+  public static final String OVERFLOW_KEY = "overflow";
+
+  private final IMap<String, MemberDemands> demands;
+  private final PartitionService partitionService;
+  private final String memberId;
+  private final IntSupplier clusterSize;
+  private final long syncIntervalMillis;
+  private final long idleEvictNanos;
+  private final int maxTrackedKeys;
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+  private final LongAdder overflowed = new LongAdder();
+  private final ScheduledExecutorService scheduler;
+
+  public ClusterRateLimiter(IMap<String, MemberDemands> demands, PartitionService partitionService, String memberId,
+      IntSupplier clusterSize, long syncIntervalMillis, long idleEvictMillis, int maxTrackedKeys) {
+    this.demands = demands;
+    this.partitionService = partitionService;
+    this.memberId = memberId;
+    this.clusterSize = clusterSize;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.idleEvictNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictMillis);
+    this.maxTrackedKeys = Math.max(1, maxTrackedKeys);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "rate-limit-sync");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        sync();
+      } catch (RuntimeException e) {
+        logger.warn("Rate limit sync failed, keeping current shares", e);
+      }
+    }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 为key获取一个令牌
+   *
+   * @param ratePerSecond 集群总速率
+   * @param burst         集群总突发容量
+   */
+  public boolean tryAcquire(String key, double ratePerSecond, int burst) {
+    long now = System.nanoTime();
+    TokenBucket bucket = buckets.get(key);
+    if (bucket == null && buckets.size() >= maxTrackedKeys) {
+      // 并发创建时可能略超上限，溢出桶本身不计入
+      overflowed.increment();
+      key = OVERFLOW_KEY;
+      bucket = buckets.get(key);
+    }
+    if (bucket == null) {
+      double share = 1.0 / Math.max(1, clusterSize.getAsInt());
+      bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(ratePerSecond, burst, share, now));
+    }
+    return bucket.tryAcquire(ratePerSecond, burst, now);
+  }
+
+  /**
+   * 汇报各键自上次同步以来的请求数，并按返回的份额调整本地令牌桶
+   */
+  void sync() {
+    long now = System.nanoTime();
+    Map<String, Long> counts = new HashMap<>();
+    buckets.forEach((key, bucket) -> {
+      if (now - bucket.getLastUsedNanos() > idleEvictNanos) {
+        buckets.remove(key, bucket);
+      } else {
+        // 本周期没有请求的键不汇报，保留上次的份额，超过陈旧期后集群端会把本成员剔除
+        long demand = bucket.takeDemand();
+        if (demand > 0) {
+          counts.put(key, demand);
+        }
+      }
+    });
+    if (counts.isEmpty()) {
+      return;
+    }
+    // 连续几个周期没有汇报的成员视为已离开
+    long staleAfterMillis = syncIntervalMillis * 5;
+    // 按分区拆分，每个处理器只携带本分区键的请求数，各分区并行执行
+    Map<Integer, Map<String, Long>> byPartition = new HashMap<>();
+    counts.forEach((key, count) -> byPartition
+        .computeIfAbsent(partitionService.getPartition(key).getPartitionId(), p -> new HashMap<>())
+        .put(key, count));
+    List<CompletableFuture<Map<String, Double>>> futures = new ArrayList<>(byPartition.size());
+    for (Map<String, Long> partitionCounts : byPartition.values()) {
+      futures.add(demands.submitToKeys(partitionCounts.keySet(),
+          new ReportDemandProcessor(memberId, partitionCounts, staleAfterMillis)).toCompletableFuture());
+    }
+    for (CompletableFuture<Map<String, Double>> future : futures) {
+      future.join().forEach((key, share) -> {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null && share != null) {
+          bucket.setShare(share);
+        }
+      });
+    }
+  }
+
+  public int getTrackedKeyCount() {
+    return buckets.size();
+  }
+
+  /**
+   * 因令牌桶数量达到上限而计入溢出桶的请求数
+   */
+  public long getOverflowedCount() {
+    return overflowed.sum();
+  }
+
+  double getShare(String key) {
+    TokenBucket bucket = buckets.get(key);
+    return bucket == null ? 0 : bucket.getShare();
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * 某个限流键上各成员最近一次汇报的请求数
+   *
+   * 每次同步都会读写所有活跃键的条目，用DataSerializable代替Java序列化，序列化开销约小一个数量级。
+   */
+  public static class MemberDemands implements DataSerializable {
+
+    // 成员ID -> {请求数, 汇报时间}
+    final Map<String, long[]> byMember = new HashMap<>();
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+      out.writeInt(byMember.size());
+      for (Map.Entry<String, long[]> entry : byMember.entrySet()) {
+        out.writeString(entry.getKey());
+        out.writeLong(entry.getValue()[0]);
+        out.writeLong(entry.getValue()[1]);
+      }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        byMember.put(in.readString(), new long[] { in.readLong(), in.readLong() });
+      }
+    }
+  }
+
+  /**
+   * 合并本成员的请求数，剔除长时间没有汇报的成员，返回本成员的份额
+   */
+  public static class ReportDemandProcessor implements EntryProcessor<String, MemberDemands, Double> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String memberId;
+    private final Map<String, Long> counts;
+    private final long staleAfterMillis;
+
+    public ReportDemandProcessor(String memberId, Map<String, Long> counts, long staleAfterMillis) {
+      this.memberId = memberId;
+      this.counts = counts;
+      this.staleAfterMillis = staleAfterMillis;
+    }
+
+    @Override
+    public Double process(Map.Entry<String, MemberDemands> entry) {
+      long now = System.currentTimeMillis();
+      MemberDemands value = entry.getValue() == null ? new MemberDemands() : entry.getValue();
+      value.byMember.put(memberId, new long[] { counts.getOrDefault(entry.getKey(), 0L), now });
+      value.byMember.values().removeIf(d -> now - d[1] > staleAfterMillis);
+
+      long total = 0;
+      for (long[] d : value.byMember.values()) {
+        total += d[0];
+      }
+      double share = (value.byMember.get(memberId)[0] + 1.0) / (total + value.byMember.size());
+
+      // 所有成员都不再汇报后条目自动过期
+      if (entry instanceof ExtendedMapEntry<String, MemberDemands> extended) {
+        extended.setValue(value, staleAfterMillis, TimeUnit.MILLISECONDS);
+      } else {
+        entry.setValue(value);
+      }
+      return share;
+    }
+  }
+}
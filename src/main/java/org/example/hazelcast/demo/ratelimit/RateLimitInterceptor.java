@@ -0,0 +1,99 @@
+package org.example.hazelcast.demo.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.hazelcast.demo.config.RateLimitProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按“客户端 + 接口”限流的拦截器，超过限额返回429
+ *
+ * 客户端取已认证的用户名，未认证时取连接的远端地址；不信任客户端自己填写的请求头，
+ * 否则每个请求换一个值就能绕过限流。部署在反向代理之后时，应由server.forward-headers-strategy
+ * 让远端地址反映真实客户端。
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private final ClusterRateLimiter limiter;
+  private final RateLimitProperties properties;
+  private final Map<String, EndpointCounters> counters = new ConcurrentHashMap<>();
+
+  public RateLimitInterceptor(ClusterRateLimiter limiter, RateLimitProperties properties) {
+    this.limiter = limiter;
+    this.properties = properties;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String path = pattern != null ? pattern.toString() : request.getRequestURI();
+    String endpoint = request.getMethod() + " " + path;
+    String client = clientOf(request);
+
+    double rate = properties.getRequestsPerSecond();
+    int burst = properties.getBurst();
+    for (RateLimitProperties.EndpointLimit limit : properties.getEndpoints()) {
+      if (path.equals(limit.getPattern())
+          && (limit.getMethod() == null || limit.getMethod().equalsIgnoreCase(request.getMethod()))) {
+        rate = limit.getRequestsPerSecond();
+        burst = limit.getBurst();
+        break;
+      }
+    }
+
+    EndpointCounters endpointCounters = counters.computeIfAbsent(endpoint, k -> new EndpointCounters());
+    if (limiter.tryAcquire(client + "|" + endpoint, rate, burst)) {
+      endpointCounters.allowed.increment();
+      return true;
+    }
+    endpointCounters.rejected.increment();
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader("Retry-After", "1");
+    response.getWriter().write("Rate limit exceeded");
+    return false;
+  }
+
+  private static String clientOf(HttpServletRequest request) {
+    Principal principal = request.getUserPrincipal();
+    if (principal != null && principal.getName() != null && !principal.getName().isEmpty()) {
+      return "user:" + principal.getName();
+    }
+    return "ip:" + request.getRemoteAddr();
+  }
+
+  /**
+   * 各接口放行和拒绝的请求数
+   */
+  public Map<String, Map<String, Long>> getCounters() {
+    Map<String, Map<String, Long>> result = new TreeMap<>();
+    counters.forEach((endpoint, c) -> {
+      Map<String, Long> stats = new LinkedHashMap<>();
+      stats.put("allowed", c.allowed.sum());
+      stats.put("rejected", c.rejected.sum());
+      result.put(endpoint, stats);
+    });
+    return result;
+  }
+
+  public int getTrackedKeyCount() {
+    return limiter.getTrackedKeyCount();
+  }
+
+  public long getOverflowedCount() {
+    return limiter.getOverflowedCount();
+  }
+
+  private static class EndpointCounters {
+    final LongAdder allowed = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+  }
+}
@@ -0,0 +1,214 @@
+package org.example.hazelcast.demo.service;
+
+import org.example.hazelcast.demo.model.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 不可变的商品目录摘要：类别树和价格区间分布
+ *
+ * 类别名用"/"分隔层级（如"电子产品/手机"），每个节点的统计包含其所有子类别。
+ * 价格以分为单位保存成long。快照由批处理任务生成，通过toBytes()编码成紧凑的二进制格式发布，
+ * 比Java序列化小得多，各成员解码一次后直接共享同一个对象。
+ */
+public final class CatalogSnapshot {
+
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * 默认的价格区间下界（元）
+   */
+  public static final BigDecimal[] DEFAULT_PRICE_BANDS = {
+      BigDecimal.ZERO, new BigDecimal("100"), new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("5000")
+  };
+
+  /**
+   * 类别节点，productCount和价格范围包含所有子类别
+   */
+  public record CategoryNode(String name, int productCount, long minPriceCents, long maxPriceCents,
+      List<CategoryNode> children) {
+  }
+
+  /**
+   * 价格区间[lowerCents, upperCents)内的商品数，最后一个区间upperCents为Long.MAX_VALUE
+   */
+  public record PriceBand(long lowerCents, long upperCents, int productCount) {
+  }
+
+  private final long builtAtMillis;
+  private final int productCount;
+  private final List<CategoryNode> categories;
+  private final List<PriceBand> priceBands;
+
+  private CatalogSnapshot(long builtAtMillis, int productCount, List<CategoryNode> categories,
+      List<PriceBand> priceBands) {
+    this.builtAtMillis = builtAtMillis;
+    this.productCount = productCount;
+    this.categories = List.copyOf(categories);
+    this.priceBands = List.copyOf(priceBands);
+  }
+
+  /**
+   * 从商品集合生成快照
+   *
+   * @param bandLowerBounds 价格区间下界，升序排列
+   */
+  public static CatalogSnapshot build(Collection<Product> products, BigDecimal[] bandLowerBounds) {
+    long[] bounds = Arrays.stream(bandLowerBounds).mapToLong(CatalogSnapshot::toCents).toArray();
+    int[] bandCounts = new int[bounds.length];
+    MutableNode root = new MutableNode("");
+    int count = 0;
+    for (Product product : products) {
+      if (product.getPrice() == null) {
+        continue;
+      }
+      count++;
+      long cents = toCents(product.getPrice());
+      int band = Arrays.binarySearch(bounds, cents);
+      band = band >= 0 ? band : -band - 2;
+      if (band >= 0) {
+        bandCounts[band]++;
+      }
+      MutableNode node = root;
+      String category = product.getCategory() == null ? "" : product.getCategory();
+      for (String part : category.split("/")) {
+        node = node.children.computeIfAbsent(part.isEmpty() ? "未分类" : part, MutableNode::new);
+        node.add(cents);
+      }
+    }
+
+    List<PriceBand> priceBands = new ArrayList<>(bounds.length);
+    for (int i = 0; i < bounds.length; i++) {
+      long upper = i + 1 < bounds.length ? bounds[i + 1] : Long.MAX_VALUE;
+      priceBands.add(new PriceBand(bounds[i], upper, bandCounts[i]));
+    }
+    return new CatalogSnapshot(System.currentTimeMillis(), count, root.freezeChildren(), priceBands);
+  }
+
+  private static long toCents(BigDecimal price) {
+    return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  public long getBuiltAtMillis() {
+    return builtAtMillis;
+  }
+
+  public int getProductCount() {
+    return productCount;
+  }
+
+  public List<CategoryNode> getCategories() {
+    return categories;
+  }
+
+  public List<PriceBand> getPriceBands() {
+    return priceBands;
+  }
+
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(FORMAT_VERSION);
+      out.writeLong(builtAtMillis);
+      out.writeInt(productCount);
+      writeNodes(out, categories);
+      out.writeShort(priceBands.size());
+      for (PriceBand band : priceBands) {
+        out.writeLong(band.lowerCents());
+        out.writeLong(band.upperCents());
+        out.writeInt(band.productCount());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static CatalogSnapshot fromBytes(byte[] data) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      int format = in.readByte();
+      if (format != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unsupported catalog snapshot format " + format);
+      }
+      long builtAtMillis = in.readLong();
+      int productCount = in.readInt();
+      List<CategoryNode> categories = readNodes(in);
+      int bandCount = in.readShort();
+      List<PriceBand> priceBands = new ArrayList<>(bandCount);
+      for (int i = 0; i < bandCount; i++) {
+        priceBands.add(new PriceBand(in.readLong(), in.readLong(), in.readInt()));
+      }
+      return new CatalogSnapshot(builtAtMillis, productCount, categories, priceBands);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeNodes(DataOutputStream out, List<CategoryNode> nodes) throws IOException {
+    out.writeShort(nodes.size());
+    for (CategoryNode node : nodes) {
+      out.writeUTF(node.name());
+      out.writeInt(node.productCount());
+      out.writeLong(node.minPriceCents());
+      out.writeLong(node.maxPriceCents());
+      writeNodes(out, node.children());
+    }
+  }
+
+  private static List<CategoryNode> readNodes(DataInputStream in) throws IOException {
+    int size = in.readShort();
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    List<CategoryNode> nodes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String name = in.readUTF();
+      int count = in.readInt();
+      long min = in.readLong();
+      long max = in.readLong();
+      nodes.add(new CategoryNode(name, count, min, max, readNodes(in)));
+    }
+    return List.copyOf(nodes);
+  }
+
+  private static final class MutableNode {
+
+    private final String name;
+    private final Map<String, MutableNode> children = new TreeMap<>();
+    private int count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    MutableNode(String name) {
+      this.name = name;
+    }
+
+    void add(long cents) {
+      count++;
+      min = Math.min(min, cents);
+      max = Math.max(max, cents);
+    }
+
+    List<CategoryNode> freezeChildren() {
+      List<CategoryNode> frozen = new ArrayList<>(children.size());
+      for (MutableNode child : children.values()) {
+        frozen.add(new CategoryNode(child.name, child.count, child.min, child.max, child.freezeChildren()));
+      }
+      return List.copyOf(frozen);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package org.example.hazelcast.demo.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.iatomicreference.SnapshotPublisher;
+import org.example.hazelcast.demo.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 商品目录快照：批处理生成并发布，各成员从本地读取
+ *
+ * 读者只访问本地volatile中的快照，数据最多落后一次发布加一个刷新间隔。
+ */
+@Service
+public class CatalogSnapshotService {
+
+  private static final String MAP_NAME = "products";
+  private static final String SNAPSHOT_NAME = "catalog-summary";
+  private static final int MAX_PUBLISH_ATTEMPTS = 3;
+
+  private final HazelcastInstance hazelcastInstance;
+  private final SnapshotPublisher<CatalogSnapshot> publisher;
+
+  public CatalogSnapshotService(HazelcastInstance hazelcastInstance, CpOperationMetrics metrics,
+      @Value("${demo.catalog.refresh-interval-millis:1000}") long refreshIntervalMillis) {
+    this.hazelcastInstance = hazelcastInstance;
+    this.publisher = SnapshotPublisher.create(hazelcastInstance, metrics, SNAPSHOT_NAME, CatalogSnapshot::toBytes,
+        CatalogSnapshot::fromBytes, refreshIntervalMillis, 2);
+  }
+
+  @PostConstruct
+  public void start() {
+    publisher.start();
+  }
+
+  /**
+   * 扫描products生成新快照并发布，返回新版本号；与其他成员的发布冲突时基于最新数据重建
+   */
+  public long rebuild() {
+    IMap<Long, Product> products = hazelcastInstance.getMap(MAP_NAME);
+    for (int attempt = 0; attempt < MAX_PUBLISH_ATTEMPTS; attempt++) {
+      long version = publisher.publish(CatalogSnapshot.build(products.values(), CatalogSnapshot.DEFAULT_PRICE_BANDS));
+      if (version > 0) {
+        return version;
+      }
+      publisher.refresh();
+    }
+    throw new IllegalStateException("Catalog snapshot publish kept conflicting");
+  }
+
+  /**
+   * 本成员持有的快照，还没有发布过时为null
+   */
+  public CatalogSnapshot current() {
+    return publisher.current();
+  }
+
+  public long currentVersion() {
+    return publisher.currentVersion();
+  }
+
+  public SnapshotPublisher<CatalogSnapshot> getPublisher() {
+    return publisher;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    publisher.close();
+  }
+}
@@ -0,0 +1,23 @@
+package org.example.hazelcast.demo.service;
+
+/**
+ * 库存预留结果
+ */
+public enum ReservationStatus {
+
+  RESERVED,
+
+  INSUFFICIENT_STOCK,
+
+  NOT_FOUND,
+
+  /**
+   * 调用方期望的版本号与当前版本不一致
+   */
+  VERSION_CONFLICT,
+
+  /**
+   * 重试次数用完仍未成功：CAS替换失败、锁获取超时，或EntryProcessor遇到分区迁移等暂时性故障
+   */
+  CONTENDED
+}
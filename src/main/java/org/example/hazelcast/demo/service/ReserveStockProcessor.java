@@ -0,0 +1,47 @@
+package org.example.hazelcast.demo.service;
+
+import com.hazelcast.map.EntryProcessor;
+import org.example.hazelcast.demo.model.Product;
+
+import java.io.Serial;
+import java.util.Map;
+
+/**
+ * 在条目所在的分区线程上扣减库存，同一键的处理器串行执行，无需加锁或重试
+ *
+ * expectedVersion大于等于0时先做版本检查，用于“按页面上看到的版本下单”之类的场景。
+ * 版本号由ProductMapStore写入product.version列，条目被驱逐后重新加载仍是原来的值，旧版本号不会再次匹配。
+ */
+public class ReserveStockProcessor implements EntryProcessor<Long, Product, ReservationStatus> {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  public static final long ANY_VERSION = -1;
+
+  private final int quantity;
+  private final long expectedVersion;
+
+  public ReserveStockProcessor(int quantity, long expectedVersion) {
+    this.quantity = quantity;
+    this.expectedVersion = expectedVersion;
+  }
+
+  @Override
+  public ReservationStatus process(Map.Entry<Long, Product> entry) {
+    Product product = entry.getValue();
+    if (product == null) {
+      return ReservationStatus.NOT_FOUND;
+    }
+    if (expectedVersion != ANY_VERSION && product.getVersion() != expectedVersion) {
+      return ReservationStatus.VERSION_CONFLICT;
+    }
+    if (product.getStock() == null || product.getStock() < quantity) {
+      return ReservationStatus.INSUFFICIENT_STOCK;
+    }
+    product.setStock(product.getStock() - quantity);
+    product.setVersion(product.getVersion() + 1);
+    entry.setValue(product);
+    return ReservationStatus.RESERVED;
+  }
+}
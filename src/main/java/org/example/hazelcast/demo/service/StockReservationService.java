@@ -0,0 +1,223 @@
+package org.example.hazelcast.demo.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.spi.exception.RetryableHazelcastException;
+import org.example.hazelcast.demo.model.Product;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 热点商品库存预留
+ *
+ * 默认通过ReserveStockProcessor在分区线程上原地扣减：同一键的请求在服务端排队执行，
+ * 客户端既不持锁也不需要读-改-写重试，因此热点键上不会出现冲突风暴。
+ * 只有真正需要重试的情况（CAS失败、分区迁移中的可重试异常、拿不到锁）才进入
+ * 带全抖动的指数退避。每个键的尝试次数和冲突次数都会记录下来，便于找出热点。
+ *
+ * REPLACE_CAS和LOCK两种策略保留用于对比测试。
+ */
+@Service
+public class StockReservationService {
+
+  /**
+   * 扣减库存的实现方式
+   */
+  public enum Strategy {
+    ENTRY_PROCESSOR,
+    REPLACE_CAS,
+    LOCK
+  }
+
+  private static final String MAP_NAME = "products";
+  private static final int MAX_ATTEMPTS = 10;
+  private static final long BACKOFF_BASE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long BACKOFF_CAP_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final long LOCK_WAIT_MILLIS = 5;
+
+  /**
+   * 最多跟踪的键数，防止大量冷键撑大统计表
+   */
+  private static final int MAX_TRACKED_KEYS = 10_000;
+
+  private final HazelcastInstance hazelcastInstance;
+  private final Map<Long, KeyContention> contention = new ConcurrentHashMap<>();
+
+  public StockReservationService(HazelcastInstance hazelcastInstance) {
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  public ReservationStatus reserve(Long productId, int quantity) {
+    return reserve(productId, quantity, Strategy.ENTRY_PROCESSOR);
+  }
+
+  /**
+   * 仅当商品当前版本等于expectedVersion时扣减，版本不符直接返回VERSION_CONFLICT，不重试
+   */
+  public ReservationStatus reserve(Long productId, int quantity, long expectedVersion) {
+    checkQuantity(quantity);
+    return executeOnKey(productId, new ReserveStockProcessor(quantity, expectedVersion));
+  }
+
+  public ReservationStatus reserve(Long productId, int quantity, Strategy strategy) {
+    checkQuantity(quantity);
+    return switch (strategy) {
+      case ENTRY_PROCESSOR -> executeOnKey(productId, new ReserveStockProcessor(quantity, ReserveStockProcessor.ANY_VERSION));
+      case REPLACE_CAS -> reserveWithReplace(productId, quantity);
+      case LOCK -> reserveWithLock(productId, quantity);
+    };
+  }
+
+  private ReservationStatus executeOnKey(Long productId, ReserveStockProcessor processor) {
+    IMap<Long, Product> products = products();
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      recordAttempt(productId, attempt > 0);
+      try {
+        return products.executeOnKey(productId, processor);
+      } catch (RetryableHazelcastException e) {
+        // 分区迁移等暂时性故障
+        backoff(attempt);
+      }
+    }
+    return ReservationStatus.CONTENDED;
+  }
+
+  /**
+   * 读-改-写后用replace(key, old, new)提交，并发修改导致比较失败时退避重试
+   */
+  private ReservationStatus reserveWithReplace(Long productId, int quantity) {
+    IMap<Long, Product> products = products();
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      recordAttempt(productId, attempt > 0);
+      Product current = products.get(productId);
+      if (current == null) {
+        return ReservationStatus.NOT_FOUND;
+      }
+      if (current.getStock() == null || current.getStock() < quantity) {
+        return ReservationStatus.INSUFFICIENT_STOCK;
+      }
+      Product updated = copyOf(current);
+      updated.setStock(current.getStock() - quantity);
+      updated.setVersion(current.getVersion() + 1);
+      if (products.replace(productId, current, updated)) {
+        return ReservationStatus.RESERVED;
+      }
+      backoff(attempt);
+    }
+    return ReservationStatus.CONTENDED;
+  }
+
+  /**
+   * 持有键锁期间读-改-写；先尝试立即加锁，失败说明有竞争，再限时等待并退避
+   */
+  private ReservationStatus reserveWithLock(Long productId, int quantity) {
+    IMap<Long, Product> products = products();
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      recordAttempt(productId, attempt > 0);
+      boolean locked;
+      try {
+        locked = products.tryLock(productId) || products.tryLock(productId, LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return ReservationStatus.CONTENDED;
+      }
+      if (!locked) {
+        backoff(attempt);
+        continue;
+      }
+      try {
+        Product current = products.get(productId);
+        if (current == null) {
+          return ReservationStatus.NOT_FOUND;
+        }
+        if (current.getStock() == null || current.getStock() < quantity) {
+          return ReservationStatus.INSUFFICIENT_STOCK;
+        }
+        current.setStock(current.getStock() - quantity);
+        current.setVersion(current.getVersion() + 1);
+        products.set(productId, current);
+        return ReservationStatus.RESERVED;
+      } finally {
+        products.unlock(productId);
+      }
+    }
+    return ReservationStatus.CONTENDED;
+  }
+
+  /**
+   * 全抖动指数退避：在[0, min(上限, 基数*2^attempt))之间随机等待
+   */
+  private static void backoff(int attempt) {
+    long ceiling = Math.min(BACKOFF_CAP_NANOS, BACKOFF_BASE_NANOS << Math.min(attempt, 16));
+    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling));
+  }
+
+  private void recordAttempt(Long productId, boolean conflict) {
+    KeyContention stats = contention.get(productId);
+    if (stats == null) {
+      if (contention.size() >= MAX_TRACKED_KEYS) {
+        return;
+      }
+      stats = contention.computeIfAbsent(productId, k -> new KeyContention());
+    }
+    stats.attempts.increment();
+    if (conflict) {
+      stats.conflicts.increment();
+    }
+  }
+
+  /**
+   * 冲突次数最多的前limit个键
+   */
+  public List<KeyContentionStats> getTopContendedKeys(int limit) {
+    return contention.entrySet().stream()
+        .map(e -> new KeyContentionStats(e.getKey(), e.getValue().attempts.sum(), e.getValue().conflicts.sum()))
+        .sorted(Comparator.comparingLong(KeyContentionStats::conflicts).reversed())
+        .limit(limit)
+        .toList();
+  }
+
+  public void resetContentionStats() {
+    contention.clear();
+  }
+
+  private static void checkQuantity(int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("quantity must be positive: " + quantity);
+    }
+  }
+
+  private IMap<Long, Product> products() {
+    return hazelcastInstance.getMap(MAP_NAME);
+  }
+
+  private static Product copyOf(Product product) {
+    Product copy = new Product(product.getId(), product.getName(), product.getCategory(),
+        product.getPrice(), product.getStock());
+    copy.setVersion(product.getVersion());
+    return copy;
+  }
+
+  private static class KeyContention {
+    final LongAdder attempts = new LongAdder();
+    final LongAdder conflicts = new LongAdder();
+  }
+
+  /**
+   * 单个键的竞争统计，conflictRate为重试次数占总尝试次数的比例
+   */
+  public record KeyContentionStats(Long productId, long attempts, long conflicts) {
+
+    public double conflictRate() {
+      return attempts == 0 ? 0 : (double) conflicts / attempts;
+    }
+  }
+}
@@ -0,0 +1,537 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.map.MapStore;
+import com.hazelcast.map.ReachedMaxSizeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界写后MapStore
+ *
+ * Hazelcast自带的写后队列没有容量上限，数据库变慢或下线时队列会一直增长直到成员OOM。
+ * 本类以写穿透方式挂在Map上，自己维护一个有界、按键合并的写后队列，
+ * 由后台线程按批次调用被包装的MapStore。队列满时按{@link WriteBehindOverflowPolicy}处理：
+ * 阻塞写入方、拒绝写入，或溢出到本地追加文件。
+ *
+ * 写穿透时store()在Hazelcast的分区线程上执行，阻塞它会拖住该线程负责的所有分区，
+ * 因此BLOCK策略的等待不超过{@link #MAX_BLOCK_MILLIS}。需要更长时间的背压应放在调用方：
+ * 在map.put之前调用{@link #awaitCapacity(long)}等待队列有空位。
+ *
+ * 读穿透时依次查找溢出文件中还没有读回的记录、内存队列和数据库，溢出期间的写入比队列中的更新。
+ *
+ * 可选的{@link WriteAheadLog}在写入进入队列前把每个条目追加到映射内存，
+ * 成员重启后把日志中尚未确认的条目重新放回队列写库。store()不在分区线程上等待刷盘：
+ * 返回时记录已在操作系统的页缓存中，进程崩溃不会丢失；要在断电后也不丢失，
+ * 调用方在map.put返回后调用{@link #awaitDurable()}，多个调用方共享同一次组提交。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class BoundedWriteBehindStore<K, V> implements MapStore<K, V> {
+
+  private static final Logger logger = LoggerFactory.getLogger(BoundedWriteBehindStore.class);
+
+  /**
+   * BLOCK策略在分区线程上最长的等待时间
+   */
+  public static final long MAX_BLOCK_MILLIS = 50;
+
+  /**
+   * 待写入的值，value为null表示删除。不重写equals，用引用判断条目是否在刷新期间被覆盖。
+   * firstSequence是该键进入队列时的预写日志序号，被覆盖时保持不变，用于计算日志低水位
+   */
+  private static final class Pending<V> {
+    final V value;
+    final long firstSequence;
+
+    Pending(V value, long firstSequence) {
+      this.value = value;
+      this.firstSequence = firstSequence;
+    }
+  }
+
+  private final MapStore<K, V> delegate;
+  private final int capacity;
+  private final WriteBehindOverflowPolicy policy;
+  private final long blockTimeoutMillis;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final SpillLog<K, V> spillLog;
+  private final WriteAheadLog<K, V> writeAheadLog;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final Condition flushNeeded = lock.newCondition();
+  // 按键合并的待写队列，包括正在刷新中的条目
+  private final LinkedHashMap<K, Pending<V>> pending = new LinkedHashMap<>();
+  // 一旦开始溢出，后续写入都进入溢出文件，直到文件全部读回，以保证同一键的写入顺序
+  private boolean spilling;
+
+  private final Thread flusher;
+  private volatile boolean running = true;
+
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder blocked = new LongAdder();
+  private final LongAdder spilled = new LongAdder();
+  private final LongAdder flushed = new LongAdder();
+  private final LongAdder failedFlushes = new LongAdder();
+
+  public BoundedWriteBehindStore(String name,
+      MapStore<K, V> delegate,
+      int capacity,
+      WriteBehindOverflowPolicy policy,
+      long blockTimeoutMillis,
+      int batchSize,
+      long flushIntervalMillis,
+      Path spillFile) {
+    this(name, delegate, capacity, policy, blockTimeoutMillis, batchSize, flushIntervalMillis, spillFile, null);
+  }
+
+  /**
+   * @param writeAheadLog 预写日志，为null时不记录
+   */
+  public BoundedWriteBehindStore(String name,
+      MapStore<K, V> delegate,
+      int capacity,
+      WriteBehindOverflowPolicy policy,
+      long blockTimeoutMillis,
+      int batchSize,
+      long flushIntervalMillis,
+      Path spillFile,
+      WriteAheadLog<K, V> writeAheadLog) {
+    this.delegate = delegate;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.blockTimeoutMillis = Math.min(blockTimeoutMillis, MAX_BLOCK_MILLIS);
+    if (policy == WriteBehindOverflowPolicy.BLOCK && blockTimeoutMillis > MAX_BLOCK_MILLIS) {
+      logger.warn("Block timeout {} ms for {} capped at {} ms, the wait runs on a partition thread",
+          blockTimeoutMillis, name, MAX_BLOCK_MILLIS);
+    }
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.spillLog = policy == WriteBehindOverflowPolicy.SPILL ? new SpillLog<>(spillFile) : null;
+    // 上次运行残留的溢出记录需要先于新写入读回
+    this.spilling = spillLog != null && spillLog.unread() > 0;
+    this.writeAheadLog = writeAheadLog;
+    if (writeAheadLog != null) {
+      List<WriteAheadLog.Record<K, V>> recovered = writeAheadLog.takeRecovered();
+      for (WriteAheadLog.Record<K, V> record : recovered) {
+        // 重放时不受容量限制，按序号顺序合并到队列
+        putPending(record.key(), record.value(), record.sequence());
+      }
+      if (!recovered.isEmpty()) {
+        logger.info("Replaying {} write-ahead entries ({} keys) for {}", recovered.size(), pending.size(), name);
+      }
+    }
+
+    this.flusher = new Thread(this::flushLoop, name + "-write-behind");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+    logger.info("Bounded write-behind for {} started: capacity={}, policy={}, batchSize={}",
+        name, capacity, policy, batchSize);
+  }
+
+  @Override
+  public void store(K key, V value) {
+    enqueue(key, value);
+  }
+
+  @Override
+  public void storeAll(Map<K, V> map) {
+    for (Map.Entry<K, V> entry : map.entrySet()) {
+      enqueue(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public void delete(K key) {
+    enqueue(key, null);
+  }
+
+  @Override
+  public void deleteAll(Collection<K> keys) {
+    for (K key : keys) {
+      enqueue(key, null);
+    }
+  }
+
+  @Override
+  public V load(K key) {
+    lock.lock();
+    try {
+      Pending<V> p = unflushed(key);
+      if (p != null) {
+        return p.value;
+      }
+    } finally {
+      lock.unlock();
+    }
+    return delegate.load(key);
+  }
+
+  @Override
+  public Map<K, V> loadAll(Collection<K> keys) {
+    Map<K, V> result = new HashMap<>(delegate.loadAll(keys));
+    lock.lock();
+    try {
+      for (K key : keys) {
+        Pending<V> p = unflushed(key);
+        if (p == null) {
+          continue;
+        }
+        if (p.value == null) {
+          result.remove(key);
+        } else {
+          result.put(key, p.value);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return result;
+  }
+
+  /**
+   * 键最新的未写库值，溢出文件中的记录比队列中的新；都没有时返回null。调用方持有锁
+   */
+  private Pending<V> unflushed(K key) {
+    if (spilling) {
+      SpillLog.Record<K, V> record = spillLog.find(key);
+      if (record != null) {
+        return new Pending<>(record.value(), record.sequence());
+      }
+    }
+    return pending.get(key);
+  }
+
+  @Override
+  public Iterable<K> loadAllKeys() {
+    return delegate.loadAllKeys();
+  }
+
+  /**
+   * 停止后台线程，并尽力把内存中剩余的条目写入数据库；溢出文件中的记录留到下次启动
+   */
+  public void shutdown() {
+    running = false;
+    flusher.interrupt();
+    try {
+      flusher.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      while (flushBatch()) {
+        // 继续直到队列为空
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Dropping {} write-behind entries on shutdown: {}", getQueueDepth(), e.getMessage());
+    }
+    if (writeAheadLog != null) {
+      compactWriteAheadLog();
+      writeAheadLog.close();
+    }
+    if (spillLog != null) {
+      try {
+        spillLog.close();
+      } catch (IOException e) {
+        logger.warn("Failed to close spill log", e);
+      }
+    }
+  }
+
+  /**
+   * 在调用方线程上等待队列有空位且没有在溢出，用于map.put之前的背压，不能在分区线程上调用
+   *
+   * @return 是否有空位，超时返回false
+   */
+  public boolean awaitCapacity(long timeoutMillis) {
+    long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    lock.lock();
+    try {
+      while (pending.size() >= capacity || spilling) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return pending.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getSpilledDepth() {
+    if (spillLog == null) {
+      return 0;
+    }
+    lock.lock();
+    try {
+      return spillLog.unread();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public WriteBehindOverflowPolicy getPolicy() {
+    return policy;
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  public long getBlockedCount() {
+    return blocked.sum();
+  }
+
+  public long getSpilledCount() {
+    return spilled.sum();
+  }
+
+  public long getFlushedCount() {
+    return flushed.sum();
+  }
+
+  public long getFailedFlushCount() {
+    return failedFlushes.sum();
+  }
+
+  /**
+   * @return 预写日志，未启用时为null
+   */
+  public WriteAheadLog<K, V> getWriteAheadLog() {
+    return writeAheadLog;
+  }
+
+  private void enqueue(K key, V value) {
+    lock.lock();
+    try {
+      // 同一键的新值直接覆盖，不占用额外容量
+      boolean coalesce = !spilling && pending.containsKey(key);
+      if (!coalesce && (spilling || pending.size() >= capacity)) {
+        switch (policy) {
+          case REJECT -> {
+            rejected.increment();
+            throw new ReachedMaxSizeException("Write-behind queue is full, capacity: " + capacity);
+          }
+          case SPILL -> {
+            spillLog.append(log(key, value), key, value);
+            spilled.increment();
+            spilling = true;
+          }
+          case BLOCK -> awaitCapacity();
+        }
+      }
+      if (!spilling) {
+        putPending(key, value, log(key, value));
+        if (pending.size() >= batchSize) {
+          flushNeeded.signal();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 等待到目前为止追加到预写日志的记录全部刷盘；未启用预写日志时直接返回。
+   * 在调用方线程上调用，不要在MapStore回调（分区线程）中调用
+   */
+  public void awaitDurable() {
+    if (writeAheadLog != null) {
+      writeAheadLog.awaitDurable(writeAheadLog.nextSequence() - 1);
+    }
+  }
+
+  private long log(K key, V value) {
+    return writeAheadLog != null ? writeAheadLog.append(key, value) : 0;
+  }
+
+  private void putPending(K key, V value, long sequence) {
+    Pending<V> previous = pending.get(key);
+    pending.put(key, new Pending<>(value, previous != null ? previous.firstSequence : sequence));
+  }
+
+  private void awaitCapacity() {
+    blocked.increment();
+    long nanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+    try {
+      while (pending.size() >= capacity) {
+        if (nanos <= 0) {
+          rejected.increment();
+          throw new ReachedMaxSizeException("Timed out waiting for write-behind capacity after "
+              + blockTimeoutMillis + " ms");
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HazelcastException("Interrupted while waiting for write-behind capacity", e);
+    }
+  }
+
+  private void flushLoop() {
+    while (running) {
+      try {
+        lock.lock();
+        try {
+          if (pending.size() < batchSize && !spilling) {
+            flushNeeded.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+          }
+        } finally {
+          lock.unlock();
+        }
+        while (running && flushBatch()) {
+          // 队列积压时连续刷新
+        }
+        refillFromSpill();
+      } catch (InterruptedException e) {
+        if (!running) {
+          return;
+        }
+      } catch (RuntimeException e) {
+        failedFlushes.increment();
+        logger.warn("Write-behind flush failed, will retry: {}", e.getMessage());
+        try {
+          Thread.sleep(flushIntervalMillis);
+        } catch (InterruptedException ie) {
+          if (!running) {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * 把队首最多batchSize个条目写入数据库，写入成功后才从队列移除
+   *
+   * @return 是否还有剩余条目
+   */
+  private boolean flushBatch() {
+    List<Map.Entry<K, Pending<V>>> batch = new ArrayList<>(batchSize);
+    lock.lock();
+    try {
+      Iterator<Map.Entry<K, Pending<V>>> it = pending.entrySet().iterator();
+      while (it.hasNext() && batch.size() < batchSize) {
+        Map.Entry<K, Pending<V>> e = it.next();
+        batch.add(Map.entry(e.getKey(), e.getValue()));
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (batch.isEmpty()) {
+      return false;
+    }
+
+    Map<K, V> stores = new LinkedHashMap<>();
+    List<K> deletes = new ArrayList<>();
+    for (Map.Entry<K, Pending<V>> e : batch) {
+      if (e.getValue().value == null) {
+        deletes.add(e.getKey());
+      } else {
+        stores.put(e.getKey(), e.getValue().value);
+      }
+    }
+    if (!stores.isEmpty()) {
+      delegate.storeAll(stores);
+    }
+    if (!deletes.isEmpty()) {
+      delegate.deleteAll(deletes);
+    }
+
+    lock.lock();
+    try {
+      for (Map.Entry<K, Pending<V>> e : batch) {
+        // 刷新期间被覆盖的条目保留，等待下一批
+        pending.remove(e.getKey(), e.getValue());
+      }
+      flushed.add(batch.size());
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    compactWriteAheadLog();
+    return getQueueDepth() > 0;
+  }
+
+  /**
+   * 低水位是仍未写库的最小序号：队首条目进入队列时的序号，其次是溢出文件中第一条记录的序号。
+   * 低水位之前的记录要么已写库，要么已被队列中更新的值覆盖，所在的段可以删除
+   */
+  private void compactWriteAheadLog() {
+    if (writeAheadLog == null) {
+      return;
+    }
+    long lowWaterMark;
+    lock.lock();
+    try {
+      if (!pending.isEmpty()) {
+        lowWaterMark = pending.values().iterator().next().firstSequence;
+      } else if (spillLog != null && spillLog.unread() > 0) {
+        lowWaterMark = spillLog.peekSequence();
+      } else {
+        lowWaterMark = writeAheadLog.nextSequence();
+      }
+    } finally {
+      lock.unlock();
+    }
+    writeAheadLog.compact(lowWaterMark);
+  }
+
+  private void refillFromSpill() {
+    if (spillLog == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (!spilling) {
+        return;
+      }
+      int room = capacity - pending.size();
+      if (room > 0) {
+        for (SpillLog.Record<K, V> record : spillLog.read(room)) {
+          putPending(record.key(), record.value(), record.sequence());
+        }
+      }
+      if (spillLog.truncateIfDrained()) {
+        spilling = false;
+        logger.info("Write-behind spill log drained");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
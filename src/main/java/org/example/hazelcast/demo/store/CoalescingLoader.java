@@ -0,0 +1,264 @@
+package org.example.hazelcast.demo.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 读穿透加载器
+ *
+ * 为MapStore的单键load提供三层保护，避免不存在的ID反复打到数据库：
+ * 1. 负缓存：未命中的键在短TTL内直接返回null
+ * 2. 单飞合并：同一个键的并发加载只发起一次查询，其余调用方等待同一结果
+ * 3. 批量合并：在一个很短的时间窗口内到达的不同键，合并为一次IN查询
+ *
+ * load()在分区线程上调用，所以只在已有批量查询正在执行时才等待合并窗口；
+ * 没有其他加载时，单独到达的键立即查询，不为凑批增加延迟。
+ *
+ * 批量查询期间键被写入并invalidate时，查询结果可能是写入之前读到的"不存在"，这种结果不放进负缓存。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class CoalescingLoader<K, V> {
+
+  private static final Logger logger = LoggerFactory.getLogger(CoalescingLoader.class);
+
+  private final Function<Collection<K>, Map<K, V>> batchLoader;
+  private final long negativeTtlMillis;
+  private final long batchWindowMillis;
+  private final int maxBatchSize;
+  private final int maxNegativeEntries;
+
+  // 负缓存：键 -> 过期时间戳
+  private final ConcurrentHashMap<K, Long> negativeCache = new ConcurrentHashMap<>();
+  // 正在加载中的键
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  // 加载期间被invalidate的键，与inFlight中对应键的增删在同一个compute里完成
+  private final Set<K> invalidatedWhileLoading = ConcurrentHashMap.newKeySet();
+
+  // 等待下一次批量查询的键，由lock保护
+  private final Object lock = new Object();
+  private List<K> pending = new ArrayList<>();
+  // 是否有批量查询正在执行，由lock保护
+  private boolean loading;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder coalescedLoads = new LongAdder();
+  private final LongAdder batchQueries = new LongAdder();
+  private final LongAdder loadedKeys = new LongAdder();
+
+  public CoalescingLoader(String name,
+      Function<Collection<K>, Map<K, V>> batchLoader,
+      long negativeTtlMillis,
+      long batchWindowMillis,
+      int maxBatchSize,
+      int maxNegativeEntries) {
+    this.batchLoader = batchLoader;
+    this.negativeTtlMillis = negativeTtlMillis;
+    this.batchWindowMillis = batchWindowMillis;
+    this.maxBatchSize = maxBatchSize;
+    this.maxNegativeEntries = maxNegativeEntries;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, name + "-miss-loader");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * 加载单个键，不存在时返回null
+   */
+  public V load(K key) {
+    Long expiresAt = negativeCache.get(key);
+    if (expiresAt != null) {
+      if (expiresAt > System.currentTimeMillis()) {
+        negativeHits.increment();
+        return null;
+      }
+      negativeCache.remove(key, expiresAt);
+    }
+
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      coalescedLoads.increment();
+      return await(existing);
+    }
+
+    enqueue(key);
+    return await(future);
+  }
+
+  /**
+   * 键被写入后清除其负缓存
+   */
+  public void invalidate(K key) {
+    // 先标记正在加载的键，再清除负缓存：批量查询的结果要么看到标记不写负缓存，要么写入后被这里清除
+    inFlight.computeIfPresent(key, (k, future) -> {
+      invalidatedWhileLoading.add(k);
+      return future;
+    });
+    negativeCache.remove(key);
+  }
+
+  public void invalidateAll(Collection<K> keys) {
+    for (K key : keys) {
+      invalidate(key);
+    }
+  }
+
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  public long getNegativeHits() {
+    return negativeHits.sum();
+  }
+
+  public long getCoalescedLoads() {
+    return coalescedLoads.sum();
+  }
+
+  public long getBatchQueries() {
+    return batchQueries.sum();
+  }
+
+  public long getLoadedKeys() {
+    return loadedKeys.sum();
+  }
+
+  public int getNegativeCacheSize() {
+    return negativeCache.size();
+  }
+
+  public int getPendingKeys() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  private void enqueue(K key) {
+    boolean scheduleFlush;
+    boolean flushNow;
+    synchronized (lock) {
+      boolean first = pending.isEmpty();
+      pending.add(key);
+      // 没有查询在执行时不等待窗口；查询执行期间到达的键在窗口内合并
+      flushNow = pending.size() >= maxBatchSize || (first && !loading);
+      scheduleFlush = first && !flushNow;
+    }
+    if (flushNow) {
+      scheduler.execute(this::flush);
+    } else if (scheduleFlush) {
+      scheduler.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void flush() {
+    List<K> batch;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = pending;
+      pending = new ArrayList<>();
+      loading = true;
+    }
+    try {
+      load(batch);
+    } finally {
+      synchronized (lock) {
+        loading = false;
+      }
+    }
+  }
+
+  private void load(List<K> batch) {
+    batchQueries.increment();
+    loadedKeys.add(batch.size());
+    logger.debug("Loading {} coalesced keys in one batch", batch.size());
+
+    Map<K, V> result;
+    try {
+      result = batchLoader.apply(batch);
+      if (result == null) {
+        result = Collections.emptyMap();
+      }
+    } catch (RuntimeException e) {
+      // 数据库异常不进入负缓存，直接传播给所有等待者
+      for (K key : batch) {
+        CompletableFuture<V> future = complete(key, false, 0);
+        if (future != null) {
+          future.completeExceptionally(e);
+        }
+      }
+      return;
+    }
+
+    long expiresAt = System.currentTimeMillis() + negativeTtlMillis;
+    for (K key : batch) {
+      V value = result.get(key);
+      CompletableFuture<V> future = complete(key, value == null, expiresAt);
+      if (future != null) {
+        future.complete(value);
+      }
+    }
+  }
+
+  /**
+   * 把键移出inFlight；未命中且加载期间没有被invalidate时写入负缓存
+   */
+  private CompletableFuture<V> complete(K key, boolean miss, long expiresAt) {
+    List<CompletableFuture<V>> removed = new ArrayList<>(1);
+    inFlight.computeIfPresent(key, (k, future) -> {
+      boolean invalidated = invalidatedWhileLoading.remove(k);
+      if (miss && !invalidated) {
+        putNegative(k, expiresAt);
+      }
+      removed.add(future);
+      return null;
+    });
+    return removed.isEmpty() ? null : removed.get(0);
+  }
+
+  private void putNegative(K key, long expiresAt) {
+    if (negativeCache.size() >= maxNegativeEntries) {
+      long now = System.currentTimeMillis();
+      negativeCache.entrySet().removeIf(e -> e.getValue() <= now);
+      // 清理过期项后仍然超限，说明正在被大量随机ID扫描，整体丢弃避免内存膨胀
+      if (negativeCache.size() >= maxNegativeEntries) {
+        negativeCache.clear();
+      }
+    }
+    negativeCache.put(key, expiresAt);
+  }
+
+  private V await(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+}
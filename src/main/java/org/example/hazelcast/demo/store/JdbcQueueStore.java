@@ -0,0 +1,185 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.collection.QueueStore;
+import com.hazelcast.config.QueueStoreConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把队列元素持久化到queue_item表的QueueStore，每个队列一个实例
+ *
+ * 以binary模式工作：Hazelcast直接传入元素序列化后的字节，原样写入payload列，读取时原样返回，
+ * 存取都不需要反序列化，也不要求成员上有元素的类。
+ *
+ * 队列长度超过memory-limit后，新元素只在内存中保留ID，内容只在数据库里；取到这些元素时
+ * 按bulk-load一次加载一批。重启后第一次访问队列时由loadAllKeys()按item_id顺序恢复全部ID，
+ * 元素内容同样按需加载，所以恢复时间主要取决于ID的数量。
+ *
+ * poll/drainTo取走的通常是连续的一段ID，deleteAll和loadAll在ID连续时用一条范围语句代替IN列表。
+ */
+public class JdbcQueueStore implements QueueStore<byte[]> {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcQueueStore.class);
+
+  private static final int BATCH_SIZE = 1_000;
+  private static final int FETCH_SIZE = 10_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String queueName;
+
+  public JdbcQueueStore(DataSource dataSource, String queueName) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    this.queueName = queueName;
+  }
+
+  /**
+   * 由JdbcQueueStore持久化的队列存储配置，每个队列通过工厂得到自己的实例
+   *
+   * @param memoryLimit 内存中保留内容的元素数，超出部分只保留ID
+   * @param bulkLoad    从数据库加载元素内容时一次加载的个数
+   */
+  public static QueueStoreConfig queueStoreConfig(DataSource dataSource, int memoryLimit, int bulkLoad) {
+    return new QueueStoreConfig()
+        .setEnabled(true)
+        .setFactoryImplementation((name, properties) -> new JdbcQueueStore(dataSource, name))
+        .setProperty("binary", "true")
+        .setProperty("memory-limit", String.valueOf(memoryLimit))
+        .setProperty("bulk-load", String.valueOf(bulkLoad));
+  }
+
+  @Override
+  public void store(Long key, byte[] value) {
+    jdbcTemplate.update("REPLACE INTO queue_item (queue_name, item_id, payload) VALUES (?, ?, ?)",
+        queueName, key, value);
+  }
+
+  @Override
+  public void storeAll(Map<Long, byte[]> map) {
+    if (map.isEmpty())
+      return;
+
+    logger.debug("Batch storing {} items of queue {}", map.size(), queueName);
+    jdbcTemplate.batchUpdate("REPLACE INTO queue_item (queue_name, item_id, payload) VALUES (?, ?, ?)",
+        new ArrayList<>(map.entrySet()), BATCH_SIZE, (ps, entry) -> {
+          ps.setString(1, queueName);
+          ps.setLong(2, entry.getKey());
+          ps.setBytes(3, entry.getValue());
+        });
+  }
+
+  @Override
+  public void delete(Long key) {
+    jdbcTemplate.update("DELETE FROM queue_item WHERE queue_name = ? AND item_id = ?", queueName, key);
+  }
+
+  @Override
+  public void deleteAll(Collection<Long> keys) {
+    if (keys.isEmpty())
+      return;
+
+    logger.debug("Batch deleting {} items of queue {}", keys.size(), queueName);
+    long[] range = contiguousRange(keys);
+    if (range != null) {
+      jdbcTemplate.update("DELETE FROM queue_item WHERE queue_name = ? AND item_id BETWEEN ? AND ?",
+          queueName, range[0], range[1]);
+      return;
+    }
+    List<Long> keysList = new ArrayList<>(keys);
+    for (int i = 0; i < keysList.size(); i += BATCH_SIZE) {
+      List<Long> batchKeys = keysList.subList(i, Math.min(i + BATCH_SIZE, keysList.size()));
+      jdbcTemplate.update("DELETE FROM queue_item WHERE queue_name = ? AND item_id IN (" + placeholders(batchKeys.size())
+          + ")", withQueueName(batchKeys));
+    }
+  }
+
+  @Override
+  public byte[] load(Long key) {
+    List<byte[]> payloads = jdbcTemplate.query(
+        "SELECT payload FROM queue_item WHERE queue_name = ? AND item_id = ?",
+        (rs, rowNum) -> rs.getBytes(1), queueName, key);
+    return payloads.isEmpty() ? null : payloads.get(0);
+  }
+
+  @Override
+  public Map<Long, byte[]> loadAll(Collection<Long> keys) {
+    if (keys.isEmpty())
+      return Collections.emptyMap();
+
+    logger.debug("Loading {} items of queue {}", keys.size(), queueName);
+    Map<Long, byte[]> result = new HashMap<>(keys.size() * 2);
+    long[] range = contiguousRange(keys);
+    if (range != null) {
+      jdbcTemplate.query("SELECT item_id, payload FROM queue_item WHERE queue_name = ? AND item_id BETWEEN ? AND ?",
+          rs -> {
+            result.put(rs.getLong(1), rs.getBytes(2));
+          }, queueName, range[0], range[1]);
+      return result;
+    }
+    List<Long> keysList = new ArrayList<>(keys);
+    for (int i = 0; i < keysList.size(); i += BATCH_SIZE) {
+      List<Long> batchKeys = keysList.subList(i, Math.min(i + BATCH_SIZE, keysList.size()));
+      jdbcTemplate.query("SELECT item_id, payload FROM queue_item WHERE queue_name = ? AND item_id IN ("
+          + placeholders(batchKeys.size()) + ")", rs -> {
+            result.put(rs.getLong(1), rs.getBytes(2));
+          }, withQueueName(batchKeys));
+    }
+    return result;
+  }
+
+  /**
+   * 按item_id升序返回，队列按返回顺序重建，保持原来的FIFO顺序
+   */
+  @Override
+  public Set<Long> loadAllKeys() {
+    Set<Long> keys = new LinkedHashSet<>();
+    jdbcTemplate.query("SELECT item_id FROM queue_item WHERE queue_name = ? ORDER BY item_id",
+        rs -> {
+          keys.add(rs.getLong(1));
+        }, queueName);
+    logger.info("Recovered {} item ids of queue {}", keys.size(), queueName);
+    return keys;
+  }
+
+  /**
+   * keys恰好是一段连续的ID时返回[最小, 最大]，否则返回null
+   */
+  private static long[] contiguousRange(Collection<Long> keys) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (long key : keys) {
+      min = Math.min(min, key);
+      max = Math.max(max, key);
+    }
+    // 队列元素的ID不会重复，数量等于跨度即连续
+    return max - min + 1 == keys.size() ? new long[] { min, max } : null;
+  }
+
+  private static String placeholders(int count) {
+    StringBuilder placeholders = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      placeholders.append(i == 0 ? "?" : ", ?");
+    }
+    return placeholders.toString();
+  }
+
+  private Object[] withQueueName(List<Long> keys) {
+    Object[] args = new Object[keys.size() + 1];
+    args[0] = queueName;
+    for (int i = 0; i < keys.size(); i++) {
+      args[i + 1] = keys.get(i);
+    }
+    return args;
+  }
+}
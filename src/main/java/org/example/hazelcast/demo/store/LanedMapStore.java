@@ -0,0 +1,225 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.map.MapStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * 分道并行的MapStore
+ *
+ * 按键所在的分区把操作拆到固定数量的写入通道上，每个通道有自己的MapStore实例
+ * （通常绑定独立的连接池）和单线程执行器。写入（store/storeAll/delete/deleteAll）总是在键所在通道的线程上执行，
+ * 同一个键的单键写和批量写按提交顺序落库，而不同分区组的批量操作可以并行写库。
+ * 批量读取同样按通道并行；单键load不改变数据，直接在调用线程上执行。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LanedMapStore<K, V> implements MapStore<K, V> {
+
+  private static final Logger logger = LoggerFactory.getLogger(LanedMapStore.class);
+
+  private final List<MapStore<K, V>> lanes;
+  private final List<ExecutorService> executors = new ArrayList<>();
+  private final ToIntFunction<K> partitioner;
+  private final List<AutoCloseable> resources;
+  private final LongAdder[] laneEntries;
+
+  /**
+   * @param lanes       每个通道使用的MapStore
+   * @param partitioner 计算键的分区号，通道号为分区号对通道数取模
+   * @param resources   关闭时需要释放的资源，如各通道的连接池
+   */
+  public LanedMapStore(String name, List<MapStore<K, V>> lanes, ToIntFunction<K> partitioner,
+      List<AutoCloseable> resources) {
+    this.lanes = List.copyOf(lanes);
+    this.partitioner = partitioner;
+    this.resources = List.copyOf(resources);
+    this.laneEntries = new LongAdder[lanes.size()];
+    for (int i = 0; i < lanes.size(); i++) {
+      String threadName = name + "-lane-" + i;
+      executors.add(Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, threadName);
+        t.setDaemon(true);
+        return t;
+      }));
+      laneEntries[i] = new LongAdder();
+    }
+    logger.info("{} store split into {} lanes", name, lanes.size());
+  }
+
+  @Override
+  public void store(K key, V value) {
+    int lane = laneOf(key);
+    laneEntries[lane].increment();
+    runOnLane(lane, () -> lanes.get(lane).store(key, value));
+  }
+
+  @Override
+  public void storeAll(Map<K, V> map) {
+    Map<Integer, Map<K, V>> byLane = new HashMap<>();
+    for (Map.Entry<K, V> entry : map.entrySet()) {
+      byLane.computeIfAbsent(laneOf(entry.getKey()), l -> new LinkedHashMap<>())
+          .put(entry.getKey(), entry.getValue());
+    }
+    byLane.forEach((lane, part) -> laneEntries[lane].add(part.size()));
+    runOnLanes(byLane, (lane, part) -> {
+      lanes.get(lane).storeAll(part);
+      return null;
+    });
+  }
+
+  @Override
+  public void delete(K key) {
+    int lane = laneOf(key);
+    laneEntries[lane].increment();
+    runOnLane(lane, () -> lanes.get(lane).delete(key));
+  }
+
+  @Override
+  public void deleteAll(Collection<K> keys) {
+    Map<Integer, List<K>> byLane = groupKeys(keys);
+    runOnLanes(byLane, (lane, part) -> {
+      lanes.get(lane).deleteAll(part);
+      return null;
+    });
+  }
+
+  @Override
+  public V load(K key) {
+    return lanes.get(laneOf(key)).load(key);
+  }
+
+  @Override
+  public Map<K, V> loadAll(Collection<K> keys) {
+    Map<Integer, List<K>> byLane = groupKeys(keys);
+    List<Map<K, V>> parts = runOnLanes(byLane, (lane, part) -> lanes.get(lane).loadAll(part));
+    Map<K, V> result = new HashMap<>();
+    for (Map<K, V> part : parts) {
+      result.putAll(part);
+    }
+    return result;
+  }
+
+  @Override
+  public Iterable<K> loadAllKeys() {
+    return lanes.get(0).loadAllKeys();
+  }
+
+  public int getLaneCount() {
+    return lanes.size();
+  }
+
+  /**
+   * 每个通道累计处理的条目数，用于观察分区组之间是否均衡
+   */
+  public long[] getLaneEntryCounts() {
+    long[] counts = new long[laneEntries.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = laneEntries[i].sum();
+    }
+    return counts;
+  }
+
+  public void shutdown() {
+    for (ExecutorService executor : executors) {
+      executor.shutdown();
+    }
+    for (ExecutorService executor : executors) {
+      try {
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (AutoCloseable resource : resources) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        logger.warn("Failed to close lane resource", e);
+      }
+    }
+  }
+
+  private int laneOf(K key) {
+    return Math.floorMod(partitioner.applyAsInt(key), lanes.size());
+  }
+
+  private Map<Integer, List<K>> groupKeys(Collection<K> keys) {
+    Map<Integer, List<K>> byLane = new HashMap<>();
+    for (K key : keys) {
+      byLane.computeIfAbsent(laneOf(key), l -> new ArrayList<>()).add(key);
+    }
+    byLane.forEach((lane, part) -> laneEntries[lane].add(part.size()));
+    return byLane;
+  }
+
+  /**
+   * 在通道线程上执行单键写入并等待完成
+   */
+  private void runOnLane(int lane, Runnable task) {
+    try {
+      executors.get(lane).submit(task).get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for store lane " + lane, e);
+    }
+  }
+
+  private interface LaneTask<P, R> {
+    R run(int lane, P part);
+  }
+
+  /**
+   * 在各自的通道线程上执行并等待全部完成；批量写入总是经过通道线程，保证同一键的顺序
+   */
+  private <P, R> List<R> runOnLanes(Map<Integer, P> byLane, LaneTask<P, R> task) {
+    List<R> results = new ArrayList<>(byLane.size());
+    if (byLane.isEmpty()) {
+      return results;
+    }
+    List<Future<R>> futures = new ArrayList<>(byLane.size());
+    for (Map.Entry<Integer, P> entry : byLane.entrySet()) {
+      int lane = entry.getKey();
+      P part = entry.getValue();
+      futures.add(executors.get(lane).submit(() -> task.run(lane, part)));
+    }
+
+    RuntimeException failure = null;
+    for (Future<R> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        RuntimeException cause = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        if (failure == null) {
+          failure = cause;
+        } else {
+          failure.addSuppressed(cause);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for store lanes", e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+}
@@ -12,6 +12,10 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.annotation.PreDestroy;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
@@ -28,26 +32,63 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
 
   private static final Logger logger = LoggerFactory.getLogger(ProductMapStore.class);
   private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
   private static final int BATCH_SIZE = 50;
 
+  // 未命中的产品ID在此时间内不再查询数据库
+  private static final long NEGATIVE_CACHE_TTL_MILLIS = 30_000;
+  // 单键加载的合并窗口，窗口内的并发未命中合并为一次IN查询
+  private static final long MISS_BATCH_WINDOW_MILLIS = 5;
+  private static final int MAX_NEGATIVE_ENTRIES = 100_000;
+
+  private final CoalescingLoader<Long, Product> missLoader;
+  // 共用其他实例的加载器时由那个实例负责关闭
+  private final boolean ownsMissLoader;
+
+  @Autowired
   public ProductMapStore(DataSource dataSource) {
     this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    this.missLoader = new CoalescingLoader<>("products", this::loadAll,
+        NEGATIVE_CACHE_TTL_MILLIS, MISS_BATCH_WINDOW_MILLIS, BATCH_SIZE, MAX_NEGATIVE_ENTRIES);
+    this.ownsMissLoader = true;
     logger.info("ProductMapStore initialized with batch size: {}", BATCH_SIZE);
   }
 
-  private final RowMapper<Product> productRowMapper = (rs, rowNum) -> new Product(
-      rs.getLong("id"),
-      rs.getString("name"),
-      rs.getString("category"),
-      rs.getBigDecimal("price"),
-      rs.getInt("stock"));
+  private ProductMapStore(DataSource dataSource, CoalescingLoader<Long, Product> missLoader) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    this.missLoader = missLoader;
+    this.ownsMissLoader = false;
+  }
+
+  /**
+   * 读写走另一个数据源（如分道的独立连接池）、与本实例共用未命中加载器的MapStore：
+   * 各通道的单键未命中仍合并到同一个负缓存和批量查询中，写入也清除同一个负缓存
+   */
+  public ProductMapStore withDataSource(DataSource dataSource) {
+    return new ProductMapStore(dataSource, missLoader);
+  }
+
+  private final RowMapper<Product> productRowMapper = (rs, rowNum) -> {
+    Product product = new Product(
+        rs.getLong("id"),
+        rs.getString("name"),
+        rs.getString("category"),
+        rs.getBigDecimal("price"),
+        rs.getInt("stock"));
+    product.setVersion(rs.getLong("version"));
+    return product;
+  };
 
   @Override
   public void store(Long key, Product product) {
     logger.debug("Storing product with ID: {}", key);
     jdbcTemplate.update(
-        "REPLACE INTO product (id, name, category, price, stock) VALUES (?, ?, ?, ?, ?)",
-        product.getId(), product.getName(), product.getCategory(), product.getPrice(), product.getStock());
+        "REPLACE INTO product (id, name, category, price, stock, version) VALUES (?, ?, ?, ?, ?, ?)",
+        product.getId(), product.getName(), product.getCategory(), product.getPrice(), product.getStock(),
+        product.getVersion());
+    missLoader.invalidate(key);
   }
 
   @Override
@@ -59,7 +100,7 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
     final List<Product> products = new ArrayList<>(map.values());
 
     jdbcTemplate.batchUpdate(
-        "REPLACE INTO product (id, name, category, price, stock) VALUES (?, ?, ?, ?, ?)",
+        "REPLACE INTO product (id, name, category, price, stock, version) VALUES (?, ?, ?, ?, ?, ?)",
         new BatchPreparedStatementSetter() {
           @Override
           public void setValues(PreparedStatement ps, int i) throws SQLException {
@@ -69,6 +110,7 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
             ps.setString(3, product.getCategory());
             ps.setBigDecimal(4, product.getPrice());
             ps.setInt(5, product.getStock());
+            ps.setLong(6, product.getVersion());
           }
 
           @Override
@@ -76,6 +118,50 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
             return products.size();
           }
         });
+    missLoader.invalidateAll(map.keySet());
+  }
+
+  /**
+   * 带栅栏令牌的批量写入
+   *
+   * 在同一事务中先把write_fence中resource的令牌推进到fenceToken，再写入产品。
+   * 令牌小于已记录的值时抛出StaleFenceTokenException并回滚，整批都不会写入；
+   * UPDATE持有的行锁同时让并发的持有者在此串行。
+   */
+  public void storeAll(Map<Long, Product> map, String resource, long fenceToken) {
+    transactionTemplate.executeWithoutResult(status -> {
+      advanceFence(resource, fenceToken);
+      storeAll(map);
+    });
+  }
+
+  /**
+   * write_fence中resource已记录的令牌，没有记录时返回0；领导任务据此保证新令牌大于重启前的最大值
+   */
+  public long currentFence(String resource) {
+    List<Long> tokens = jdbcTemplate.queryForList("SELECT token FROM write_fence WHERE resource = ?", Long.class,
+        resource);
+    return tokens.isEmpty() ? 0 : tokens.get(0);
+  }
+
+  private void advanceFence(String resource, long fenceToken) {
+    String sql = "UPDATE write_fence SET token = ? WHERE resource = ? AND token <= ?";
+    if (jdbcTemplate.update(sql, fenceToken, resource, fenceToken) > 0) {
+      return;
+    }
+    Integer rows = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM write_fence WHERE resource = ?", Integer.class, resource);
+    if (rows != null && rows > 0) {
+      throw new StaleFenceTokenException(resource, fenceToken);
+    }
+    try {
+      jdbcTemplate.update("INSERT INTO write_fence (resource, token) VALUES (?, ?)", resource, fenceToken);
+    } catch (DuplicateKeyException e) {
+      // 另一个持有者同时插入了首行，按正常路径再比较一次
+      if (jdbcTemplate.update(sql, fenceToken, resource, fenceToken) == 0) {
+        throw new StaleFenceTokenException(resource, fenceToken);
+      }
+    }
   }
 
   @Override
@@ -101,18 +187,13 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
     jdbcTemplate.update(sql, keys.toArray());
   }
 
+  /**
+   * 单键加载经过负缓存、单飞合并和批量合并，数据库异常会直接抛出而不是当作未找到
+   */
   @Override
   public Product load(Long key) {
     logger.debug("Loading product with ID: {}", key);
-    try {
-      return jdbcTemplate.queryForObject(
-          "SELECT * FROM product WHERE id = ?",
-          productRowMapper,
-          key);
-    } catch (Exception e) {
-      logger.debug("Product not found with ID: {}", key);
-      return null;
-    }
+    return missLoader.load(key);
   }
 
   @Override
@@ -174,6 +255,20 @@ public class ProductMapStore implements MapStore<Long, Product> , ApplicationRun
         new Object[] { category },
         (rs, rowNum) -> rs.getLong("id"));
   }
+  /**
+   * 读穿透加载的统计信息
+   */
+  public CoalescingLoader<Long, Product> getMissLoader() {
+    return missLoader;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (ownsMissLoader) {
+      missLoader.shutdown();
+    }
+  }
+
   @Autowired
   @Lazy
   private HazelcastInstance hazelcastInstance;
@@ -0,0 +1,192 @@
+package org.example.hazelcast.demo.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地追加式溢出文件
+ *
+ * 每条记录格式为 [长度int][序号long][Java序列化的键和值]，值为null表示删除。
+ * 序号来自预写日志，未启用预写日志时为0。
+ * 读取按写入顺序进行，全部读完后文件被截断重用。
+ * 内存中为未读记录的每个键保存最新一条的位置，读穿透时可以按键找到还没有读回的值。
+ * 调用方负责并发控制。
+ */
+class SpillLog<K, V> implements Closeable {
+
+  record Record<K, V>(long sequence, K key, V value) {
+  }
+
+  private static final int HEADER_BYTES = 12;
+
+  private final FileChannel channel;
+  // 未读记录中每个键最新一条的文件位置
+  private final Map<K, Long> latest = new HashMap<>();
+  private long readPosition;
+  private long unread;
+
+  SpillLog(Path path) {
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      this.channel = FileChannel.open(path,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      this.unread = countRecords();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open spill log " + path, e);
+    }
+  }
+
+  void append(long sequence, K key, V value) {
+    try {
+      byte[] payload = StoreEntryCodec.encode(key, value);
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+      buffer.putInt(payload.length).putLong(sequence).put(payload).flip();
+      long start = channel.size();
+      long position = start;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      latest.put(key, start);
+      unread++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to spill log", e);
+    }
+  }
+
+  /**
+   * 按写入顺序读取最多max条未读记录
+   */
+  List<Record<K, V>> read(int max) {
+    List<Record<K, V>> records = new ArrayList<>(Math.min(max, (int) Math.min(unread, Integer.MAX_VALUE)));
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      while (records.size() < max && readPosition < channel.size()) {
+        Record<K, V> record = readAt(readPosition, header);
+        records.add(record);
+        latest.remove(record.key(), readPosition);
+        readPosition += HEADER_BYTES + header.getInt(0);
+        unread--;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read spill log", e);
+    }
+    return records;
+  }
+
+  /**
+   * 键在未读记录中的最新一条，没有时返回null
+   */
+  Record<K, V> find(K key) {
+    Long position = latest.get(key);
+    if (position == null) {
+      return null;
+    }
+    try {
+      return readAt(position, ByteBuffer.allocate(HEADER_BYTES));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read spill log", e);
+    }
+  }
+
+  /**
+   * 下一条未读记录的序号，没有未读记录时返回-1
+   */
+  long peekSequence() {
+    if (unread == 0) {
+      return -1;
+    }
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      readFully(header, readPosition);
+      return header.flip().getLong(4);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read spill log", e);
+    }
+  }
+
+  /**
+   * 所有记录都已读回时截断文件
+   */
+  boolean truncateIfDrained() {
+    if (unread > 0) {
+      return false;
+    }
+    try {
+      channel.truncate(0);
+      readPosition = 0;
+      latest.clear();
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to truncate spill log", e);
+    }
+  }
+
+  long unread() {
+    return unread;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long countRecords() throws IOException {
+    long count = 0;
+    long position = 0;
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    while (position + HEADER_BYTES <= size) {
+      header.clear();
+      readFully(header, position);
+      int length = header.flip().getInt();
+      if (position + HEADER_BYTES + length > size) {
+        break;
+      }
+      latest.put(readAt(position, header).key(), position);
+      position += HEADER_BYTES + length;
+      count++;
+    }
+    if (position < size) {
+      // 上次写入未完成的尾部记录，丢弃
+      channel.truncate(position);
+    }
+    return count;
+  }
+
+  /**
+   * 读取position处的一条记录，header中留下该记录的头部
+   */
+  @SuppressWarnings("unchecked")
+  private Record<K, V> readAt(long position, ByteBuffer header) throws IOException {
+    header.clear();
+    readFully(header, position);
+    header.flip();
+    int length = header.getInt(0);
+    ByteBuffer body = ByteBuffer.allocate(length);
+    readFully(body, position + HEADER_BYTES);
+    Object[] entry = StoreEntryCodec.decode(body.array());
+    return new Record<>(header.getLong(4), (K) entry[0], (V) entry[1]);
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new IOException("Unexpected end of spill log at " + position);
+      }
+      position += n;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package org.example.hazelcast.demo.store;
+
+/**
+ * 写库时携带的栅栏令牌小于数据库中记录的令牌，说明已有更新的持有者写入过
+ */
+public class StaleFenceTokenException extends RuntimeException {
+
+  private final String resource;
+  private final long token;
+
+  public StaleFenceTokenException(String resource, long token) {
+    super("Stale fence token " + token + " for " + resource);
+    this.resource = resource;
+    this.token = token;
+  }
+
+  public String getResource() {
+    return resource;
+  }
+
+  public long getToken() {
+    return token;
+  }
+}
@@ -0,0 +1,41 @@
+package org.example.hazelcast.demo.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 溢出文件和预写日志共用的键值编码，使用Java序列化
+ */
+final class StoreEntryCodec {
+
+  private StoreEntryCodec() {
+  }
+
+  static byte[] encode(Object key, Object value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+      out.writeObject(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to encode store entry", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return 长度为2的数组：键和值
+   */
+  static Object[] decode(byte[] payload) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+      return new Object[] { in.readObject(), in.readObject() };
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to decode store entry", e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Unknown class in store entry", e);
+    }
+  }
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
@@ -20,8 +21,28 @@ public class UserMapStore implements MapStore<String, User> {
     private static final Logger logger = LoggerFactory.getLogger(UserMapStore.class);
     private static final int BATCH_SIZE = 50;
 
+    private final JdbcTemplate jdbcTemplate;
+    // 单键load使用的JdbcTemplate，在调用线程上执行
+    private final JdbcTemplate loadTemplate;
+
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    public UserMapStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.loadTemplate = jdbcTemplate;
+    }
+
+    private UserMapStore(DataSource dataSource, JdbcTemplate loadTemplate) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.loadTemplate = loadTemplate;
+    }
+
+    /**
+     * 写入和批量加载走另一个数据源（如分道的单连接池）的MapStore；
+     * 单键load在分区线程上执行，仍走本实例的数据源，不与通道线程争用通道连接
+     */
+    public UserMapStore withDataSource(DataSource dataSource) {
+        return new UserMapStore(dataSource, loadTemplate);
+    }
 
     @Override
     public void store(String key, User user) {
@@ -56,7 +77,7 @@ public class UserMapStore implements MapStore<String, User> {
     public User load(String key) {
         logger.debug("Loading user with ID: {}", key);
         try {
-            return jdbcTemplate.queryForObject(
+            return loadTemplate.queryForObject(
                     "SELECT * FROM users WHERE id = ?",
                     new Object[] { key },
                     (rs, rowNum) -> new User(
@@ -0,0 +1,297 @@
+package org.example.hazelcast.demo.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 写后队列的本地预写日志
+ *
+ * 日志由若干个固定大小的内存映射段文件组成，文件名中带有段内第一条记录的序号。
+ * 每条记录格式为 [长度int][CRC32 int][序号long][Java序列化的键和值]，长度为0表示段尾。
+ *
+ * 追加只写入映射内存，持久化通过组提交完成：多个写入方等待同一次force，
+ * 第一个拿到锁的线程把当前已追加的全部记录刷盘，其余线程发现自己的序号已被覆盖后直接返回。
+ * 写库确认后低水位写入检查点文件，低水位之前的段被删除；
+ * 重启时读出剩余段中序号不小于检查点的记录交给写后队列重放。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class WriteAheadLog<K, V> implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private static final int HEADER_BYTES = 16;
+  private static final String SUFFIX = ".wal";
+  private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+  public record Record<K, V>(long sequence, K key, V value) {
+  }
+
+  private static final class Segment {
+    final Path path;
+    final long firstSequence;
+    final MappedByteBuffer buffer;
+    // 仅在forceLock下访问
+    int forced;
+
+    Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+      this.path = path;
+      this.firstSequence = firstSequence;
+      this.buffer = buffer;
+    }
+  }
+
+  private final Path directory;
+  private final String name;
+  private final int segmentBytes;
+
+  // 按序号排列的段，最后一个为当前追加段
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  private long nextSequence = 1;
+  private List<Record<K, V>> recovered;
+  private final FileChannel checkpointChannel;
+  private long checkpoint;
+
+  private final Object forceLock = new Object();
+  private final AtomicLong durableSequence = new AtomicLong();
+
+  private final LongAdder appends = new LongAdder();
+  private final LongAdder forces = new LongAdder();
+
+  public WriteAheadLog(Path directory, String name, int segmentBytes) {
+    this.directory = directory;
+    this.name = name;
+    this.segmentBytes = segmentBytes;
+    try {
+      Files.createDirectories(directory);
+      this.checkpointChannel = FileChannel.open(directory.resolve(name + CHECKPOINT_SUFFIX),
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      ByteBuffer buffer = ByteBuffer.allocate(8);
+      if (checkpointChannel.read(buffer, 0) == 8) {
+        this.checkpoint = buffer.flip().getLong();
+      }
+      this.recovered = recoverSegments();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open write-ahead log in " + directory, e);
+    }
+    durableSequence.set(nextSequence - 1);
+    segments.addLast(newSegment(nextSequence));
+    logger.info("Write-ahead log {} opened in {}: {} records to replay", name, directory, recovered.size());
+  }
+
+  /**
+   * 返回启动时从已有段中读出的记录（按序号排列），只能取一次
+   */
+  public synchronized List<Record<K, V>> takeRecovered() {
+    List<Record<K, V>> records = recovered;
+    recovered = List.of();
+    return records;
+  }
+
+  /**
+   * 追加一条记录到映射内存，返回其序号；需要持久化时再调用{@link #awaitDurable(long)}
+   */
+  public synchronized long append(K key, V value) {
+    byte[] payload = StoreEntryCodec.encode(key, value);
+    int size = HEADER_BYTES + payload.length;
+    if (size > segmentBytes) {
+      throw new IllegalArgumentException("Entry of " + size + " bytes exceeds segment size " + segmentBytes);
+    }
+    Segment segment = segments.peekLast();
+    // 段尾至少留出一个长度字段作为结束标记
+    if (segment.buffer.position() + size + 4 > segmentBytes) {
+      roll(segment);
+      segment = segments.peekLast();
+    }
+
+    long sequence = nextSequence++;
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    int position = segment.buffer.position();
+    segment.buffer.putInt(position + 4, (int) crc.getValue());
+    segment.buffer.putLong(position + 8, sequence);
+    segment.buffer.put(position + HEADER_BYTES, payload);
+    // 长度最后写入，读取方看到非0长度时记录已完整
+    segment.buffer.putInt(position, payload.length);
+    segment.buffer.position(position + size);
+    appends.increment();
+    return sequence;
+  }
+
+  /**
+   * 等待序号之前的所有记录刷盘（组提交）
+   */
+  public void awaitDurable(long sequence) {
+    if (durableSequence.get() >= sequence) {
+      return;
+    }
+    synchronized (forceLock) {
+      if (durableSequence.get() >= sequence) {
+        return;
+      }
+      Segment segment;
+      int upTo;
+      long lastSequence;
+      synchronized (this) {
+        segment = segments.peekLast();
+        upTo = segment.buffer.position();
+        lastSequence = nextSequence - 1;
+      }
+      if (upTo > segment.forced) {
+        segment.buffer.force(segment.forced, upTo - segment.forced);
+        segment.forced = upTo;
+      }
+      durableSequence.accumulateAndGet(lastSequence, Math::max);
+      forces.increment();
+    }
+  }
+
+  /**
+   * 删除所有记录序号都小于低水位的段
+   *
+   * @param lowWaterMark 写后队列中仍未确认写库的最小序号
+   */
+  public synchronized void compact(long lowWaterMark) {
+    if (lowWaterMark > checkpoint) {
+      // 检查点不需要强制刷盘：丢失时只会多重放一些已写库的记录
+      try {
+        checkpointChannel.write(ByteBuffer.allocate(8).putLong(0, lowWaterMark), 0);
+        checkpoint = lowWaterMark;
+      } catch (IOException e) {
+        logger.warn("Failed to write write-ahead checkpoint", e);
+      }
+    }
+    while (segments.size() > 1) {
+      Segment oldest = segments.peekFirst();
+      Segment next = segments.stream().skip(1).findFirst().orElseThrow();
+      if (next.firstSequence > lowWaterMark) {
+        return;
+      }
+      segments.removeFirst();
+      try {
+        Files.deleteIfExists(oldest.path);
+        logger.debug("Compacted write-ahead segment {}", oldest.path.getFileName());
+      } catch (IOException e) {
+        logger.warn("Failed to delete write-ahead segment {}", oldest.path, e);
+      }
+    }
+  }
+
+  public synchronized long nextSequence() {
+    return nextSequence;
+  }
+
+  public synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  public long getAppendCount() {
+    return appends.sum();
+  }
+
+  public long getForceCount() {
+    return forces.sum();
+  }
+
+  @Override
+  public synchronized void close() {
+    Segment active = segments.peekLast();
+    if (active != null) {
+      active.buffer.force();
+    }
+    try {
+      checkpointChannel.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close write-ahead checkpoint", e);
+    }
+  }
+
+  private void roll(Segment current) {
+    current.buffer.force();
+    durableSequence.accumulateAndGet(nextSequence - 1, Math::max);
+    segments.addLast(newSegment(nextSequence));
+  }
+
+  private Segment newSegment(long firstSequence) {
+    Path path = directory.resolve(String.format("%s-%020d%s", name, firstSequence, SUFFIX));
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return new Segment(path, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create write-ahead segment " + path, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Record<K, V>> recoverSegments() throws IOException {
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(directory)) {
+      files = stream
+          .filter(p -> p.getFileName().toString().startsWith(name + "-")
+              && p.getFileName().toString().endsWith(SUFFIX))
+          .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+          .toList();
+    }
+
+    List<Record<K, V>> records = new ArrayList<>();
+    for (Path file : files) {
+      String fileName = file.getFileName().toString();
+      long firstSequence = Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length()));
+      MappedByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      }
+
+      int position = 0;
+      while (position + HEADER_BYTES <= buffer.capacity()) {
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+          logger.warn("Corrupt record in {} at offset {}, ignoring the rest of the segment", fileName, position);
+          break;
+        }
+        long sequence = buffer.getLong(position + 8);
+        if (sequence >= checkpoint) {
+          Object[] entry = StoreEntryCodec.decode(payload);
+          records.add(new Record<>(sequence, (K) entry[0], (V) entry[1]));
+        }
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        position += HEADER_BYTES + length;
+      }
+      if (position == 0) {
+        // 空段（通常是上次刚滚动出来的新段），直接删除
+        Files.delete(file);
+        continue;
+      }
+      buffer.position(position);
+      segments.addLast(new Segment(file, firstSequence, buffer));
+    }
+    return records;
+  }
+}
@@ -0,0 +1,23 @@
+package org.example.hazelcast.demo.store;
+
+/**
+ * 写后队列达到容量上限时的处理策略
+ */
+public enum WriteBehindOverflowPolicy {
+
+  /**
+   * 阻塞写入方，直到队列有空位或等待超时；等待发生在分区线程上，最长不超过
+   * {@link BoundedWriteBehindStore#MAX_BLOCK_MILLIS}
+   */
+  BLOCK,
+
+  /**
+   * 立即拒绝写入，抛出ReachedMaxSizeException
+   */
+  REJECT,
+
+  /**
+   * 溢出到本地追加文件，队列有空位后再读回
+   */
+  SPILL
+}
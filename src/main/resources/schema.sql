@@ -0,0 +1,30 @@
+-- products Map和user-map的MapStore表结构，启动时由spring.sql.init执行
+CREATE TABLE IF NOT EXISTS product (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255),
+    category VARCHAR(255),
+    price DECIMAL(10, 2),
+    stock INT,
+    -- 乐观锁版本号，每次预留库存加1；随数据持久化，条目被驱逐或集群重启后重新加载时不会回到0
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id VARCHAR(100) PRIMARY KEY,
+    name VARCHAR(255),
+    email VARCHAR(255)
+);
+
+-- 批量写库任务的栅栏令牌，令牌小于当前值的写入会被拒绝
+CREATE TABLE IF NOT EXISTS write_fence (
+    resource VARCHAR(100) PRIMARY KEY,
+    token BIGINT NOT NULL
+);
+
+-- durable-*队列的QueueStore表，payload是元素序列化后的字节
+CREATE TABLE IF NOT EXISTS queue_item (
+    queue_name VARCHAR(255) NOT NULL,
+    item_id BIGINT NOT NULL,
+    payload LONGBLOB NOT NULL,
+    PRIMARY KEY (queue_name, item_id)
+);
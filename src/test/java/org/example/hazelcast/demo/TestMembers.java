@@ -0,0 +1,37 @@
+package org.example.hazelcast.demo;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * 测试用的独立成员：每次使用唯一的集群名，关闭组播和TCP/IP发现，
+ * 同一个JVM里各测试类启动的成员不会互相加入
+ */
+public final class TestMembers {
+
+  private TestMembers() {
+  }
+
+  /**
+   * 独立成员的基础配置，集群名为 prefix-纳秒时间戳；需要额外的数据结构配置时在此基础上添加
+   */
+  public static Config isolatedConfig(String prefix) {
+    Config config = new Config()
+        .setClusterName(prefix + "-" + System.nanoTime())
+        .setProperty("hazelcast.logging.type", "slf4j")
+        .setProperty("hazelcast.phone.home.enabled", "false");
+    JoinConfig join = config.getNetworkConfig().getJoin();
+    join.getMulticastConfig().setEnabled(false);
+    join.getTcpIpConfig().setEnabled(false);
+    return config;
+  }
+
+  /**
+   * 按基础配置启动一个独立成员
+   */
+  public static HazelcastInstance newIsolatedMember(String prefix) {
+    return Hazelcast.newHazelcastInstance(isolatedConfig(prefix));
+  }
+}
@@ -0,0 +1,113 @@
+package org.example.hazelcast.demo.config;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.cp.CPSubsystemConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.cp.CPMap;
+import com.hazelcast.cp.IAtomicLong;
+import com.hazelcast.cp.ISemaphore;
+import com.hazelcast.cp.lock.FencedLock;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CP子系统配置和三成员嵌入式集群测试
+ *
+ * 社区版5.5不能启动CP成员，集群测试在没有企业版license时跳过。
+ */
+class CpSubsystemClusterTest {
+
+  private final List<HazelcastInstance> members = new ArrayList<>();
+
+  @AfterEach
+  void shutdown() {
+    members.forEach(HazelcastInstance::shutdown);
+  }
+
+  @Test
+  void cpSubsystemConfigIsReadFromHazelcastYaml() {
+    Config yaml = HazelcastConfiguration.yamlConfig(new ClassPathResource("hazelcast.yaml"));
+    CPSubsystemConfig cp = yaml.getCPSubsystemConfig();
+    assertThat(cp.getCPMemberCount()).isZero();
+    assertThat(cp.getSessionTimeToLiveSeconds()).isEqualTo(60);
+    assertThat(cp.getSessionHeartbeatIntervalSeconds()).isEqualTo(5);
+    assertThat(yaml.getNetworkConfig().getJoin().getTcpIpConfig().getMembers()).containsExactly("127.0.0.1");
+    assertThat(yaml.getFlakeIdGeneratorConfigs()).containsKey("order-ids");
+  }
+
+  @Test
+  void histogramPercentilesStayWithinBucketError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 10_000; micros++) {
+      histogram.recordNanos(micros * 1_000);
+    }
+    assertThat(histogram.getCount()).isEqualTo(10_000);
+    assertThat(histogram.getPercentileMicros(50)).isBetween(5_000L, 5_625L);
+    assertThat(histogram.getPercentileMicros(99)).isBetween(9_900L, 10_000L);
+    assertThat(histogram.getMaxMicros()).isEqualTo(10_000);
+  }
+
+  @Test
+  void threeMemberClusterExercisesCpStructures() {
+    String clusterName = "cp-test-" + System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      try {
+        members.add(Hazelcast.newHazelcastInstance(memberConfig(clusterName)));
+      } catch (IllegalStateException e) {
+        Assumptions.abort("CP subsystem requires Hazelcast Enterprise: " + e.getMessage());
+      }
+    }
+
+    CpOperationMetrics metrics = new CpOperationMetrics();
+    HazelcastInstance member = members.get(0);
+    IAtomicLong counter = member.getCPSubsystem().getAtomicLong("counter");
+    FencedLock lock = member.getCPSubsystem().getLock("lock");
+    ISemaphore semaphore = member.getCPSubsystem().getSemaphore("semaphore");
+    CPMap<String, String> flags = member.getCPSubsystem().getMap("flags");
+    metrics.record("semaphore.init", () -> semaphore.init(10));
+
+    for (int i = 0; i < 200; i++) {
+      metrics.record("atomicLong.incrementAndGet", counter::incrementAndGet);
+      metrics.record("lock.lockAndGetFence", lock::lockAndGetFence);
+      metrics.record("lock.unlock", lock::unlock);
+      assertThat(metrics.record("semaphore.tryAcquire", () -> semaphore.tryAcquire())).isTrue();
+      metrics.record("semaphore.release", () -> semaphore.release());
+      String value = "v" + i;
+      metrics.record("cpMap.set", () -> flags.set("flag", value));
+      metrics.record("cpMap.get", () -> flags.get("flag"));
+    }
+
+    assertThat(members.get(2).getCPSubsystem().getAtomicLong("counter").get()).isEqualTo(200);
+    Map<String, Map<String, Object>> snapshot = metrics.snapshot();
+    assertThat(snapshot).containsOnlyKeys("semaphore.init", "atomicLong.incrementAndGet", "lock.lockAndGetFence",
+        "lock.unlock", "semaphore.tryAcquire", "semaphore.release", "cpMap.set", "cpMap.get");
+    snapshot.forEach((operation, stats) -> {
+      assertThat(stats.get("count")).isEqualTo(operation.equals("semaphore.init") ? 1L : 200L);
+      assertThat((long) stats.get("p50Micros")).isLessThanOrEqualTo((long) stats.get("p99Micros"));
+      assertThat((long) stats.get("p99Micros")).isLessThanOrEqualTo((long) stats.get("maxMicros"));
+    });
+  }
+
+  private static Config memberConfig(String clusterName) {
+    // 三个成员共用同一个集群名，通过本机TCP/IP互相发现
+    Config config = TestMembers.isolatedConfig("cp-test").setClusterName(clusterName);
+    config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+    config.setCPSubsystemConfig(HazelcastConfiguration.yamlConfig(new ClassPathResource("hazelcast.yaml"))
+        .getCPSubsystemConfig()
+        .setCPMemberCount(3)
+        .setGroupSize(3));
+    return config;
+  }
+}
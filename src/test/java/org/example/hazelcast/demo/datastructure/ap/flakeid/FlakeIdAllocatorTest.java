@@ -0,0 +1,147 @@
+package org.example.hazelcast.demo.datastructure.ap.flakeid;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.FlakeIdGeneratorConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.flakeidgen.FlakeIdGenerator;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.ap.set.LongHashSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批量ID分配的唯一性、有序性和多线程吞吐量测试
+ */
+class FlakeIdAllocatorTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("flake-id-test");
+    // 与hazelcast.yaml中order-ids相同的布局，另加一个默认配置的生成器作对比
+    config.addFlakeIdGeneratorConfig(new FlakeIdGeneratorConfig("order-ids*")
+        .setPrefetchCount(10_000)
+        .setBitsSequence(8)
+        .setBitsNodeId(14));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void bulkIdsAreUniqueAndIncreasing() {
+    FlakeIdAllocator allocator = FlakeIdAllocator.create(member, "order-ids");
+    LongHashSet seen = new LongHashSet(50_000);
+    long previous = Long.MIN_VALUE;
+    for (int round = 0; round < 50; round++) {
+      long[] ids = allocator.nextIds(1_000);
+      assertThat(ids).hasSize(1_000);
+      for (long id : ids) {
+        assertThat(id).isGreaterThan(previous);
+        previous = id;
+      }
+      assertThat(seen.addAll(ids)).isZero();
+    }
+    assertThat(seen.size()).isEqualTo(50_000);
+    // 与newId()交替使用也不会重复
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(seen.add(allocator.nextId())).isTrue();
+    }
+    assertThat(allocator.getAllocatedCount()).isEqualTo(51_000);
+  }
+
+  @Test
+  void longHashSetMatchesHashSet() {
+    LongHashSet set = new LongHashSet();
+    Set<Long> expected = new HashSet<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      long value = random.nextInt(50_000) - 100;
+      assertThat(set.add(value)).isEqualTo(expected.add(value));
+    }
+    assertThat(set.size()).isEqualTo(expected.size());
+    assertThat(set.contains(0)).isEqualTo(expected.contains(0L));
+    assertThat(set.contains(1_000_000)).isFalse();
+    assertThat(set.toArray()).hasSize(expected.size())
+        .containsOnly(expected.stream().mapToLong(Long::longValue).toArray());
+  }
+
+  /**
+   * 1到64个线程下，逐个newId()与nextIds(1000)的吞吐量
+   *
+   * 每轮共分配200万个ID并使用新的生成器：bits-sequence为8时每毫秒只有256个ID，
+   * 超出的部分借用未来时间戳（allowed-future-millis默认15秒），每轮都在这个额度内，
+   * 测到的是分配本身的开销而不是ID空间的上限。
+   */
+  @Test
+  @Tag("performance")
+  void measureThroughput() throws Exception {
+    int totalIds = 2_048_000;
+    for (int threads : new int[] { 1, 4, 16, 64 }) {
+      int idsPerThread = totalIds / threads;
+      FlakeIdGenerator generator = member.getFlakeIdGenerator("order-ids-single-" + threads);
+      double single = run(threads, idsPerThread, () -> {
+        long[] ids = new long[1_000];
+        for (int i = 0; i < ids.length; i++) {
+          ids[i] = generator.newId();
+        }
+        return ids;
+      });
+      FlakeIdAllocator allocator = FlakeIdAllocator.create(member, "order-ids-bulk-" + threads);
+      double bulk = run(threads, idsPerThread, () -> allocator.nextIds(1_000));
+      System.out.printf("threads=%2d newId(): %,12.0f ids/s   nextIds(1000): %,12.0f ids/s%n", threads, single, bulk);
+    }
+  }
+
+  private interface Batch {
+    long[] next();
+  }
+
+  private static double run(int threads, int idsPerThread, Batch batch) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<long[]>> results = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      results.add(pool.submit(() -> {
+        long[] all = new long[idsPerThread];
+        for (int filled = 0; filled < idsPerThread; filled += 1_000) {
+          System.arraycopy(batch.next(), 0, all, filled, 1_000);
+        }
+        return all;
+      }));
+    }
+    List<long[]> collected = new ArrayList<>();
+    for (Future<long[]> result : results) {
+      collected.add(result.get());
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    pool.shutdown();
+    assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    // 每个线程各自收集，结束后合并到一个原始long集合里校验唯一性
+    LongHashSet unique = new LongHashSet(threads * idsPerThread);
+    for (long[] ids : collected) {
+      assertThat(unique.addAll(ids)).isZero();
+    }
+    return threads * idsPerThread / seconds;
+  }
+}
@@ -0,0 +1,205 @@
+package org.example.hazelcast.demo.datastructure.ap.multimap;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.multimap.MultiMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 商品标签索引的子键拆分、交集并集正确性和查询延迟测试
+ */
+class TagIndexTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("tag-index-test")
+        .addMultiMapConfig(TagIndex.multiMapConfig("tags-*"));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void hotTagsAreSplitAcrossSubKeys() {
+    TagIndex index = new TagIndex(member, "tags-split", 1_000);
+    Map<String, long[]> productsByTag = new HashMap<>();
+    productsByTag.put("hot", LongStream.rangeClosed(1, 20_000).toArray());
+    productsByTag.put("warm", LongStream.rangeClosed(1, 2_500).toArray());
+    productsByTag.put("cold", LongStream.rangeClosed(1, 300).toArray());
+    index.bulkLoad(productsByTag);
+
+    assertThat(index.shapeOf("hot").splits()).isEqualTo(32);
+    assertThat(index.shapeOf("warm").splits()).isEqualTo(4);
+    assertThat(index.shapeOf("cold").splits()).isEqualTo(1);
+    int total = 0;
+    int largest = 0;
+    for (int split = 0; split < 32; split++) {
+      int count = index.valueCount("hot", split);
+      total += count;
+      largest = Math.max(largest, count);
+    }
+    assertThat(total).isEqualTo(20_000);
+    assertThat(largest).isLessThan(1_000);
+
+    // SET值集合：重复加载同一商品不会重复计数
+    index.bulkLoad(Map.of("cold", new long[] {1, 2, 3}));
+    assertThat(index.valueCount("cold", 0)).isEqualTo(300);
+  }
+
+  @Test
+  void intersectionsAndUnionsMatchBruteForce() {
+    TagIndex index = new TagIndex(member, "tags-query", 500);
+    Random random = new Random(42);
+    Map<String, long[]> productsByTag = new HashMap<>();
+    Map<String, Set<Long>> expected = new HashMap<>();
+    for (int t = 0; t < 6; t++) {
+      // 标签密度从1/1到1/32，子键数各不相同
+      int density = 1 << t;
+      long[] products = LongStream.rangeClosed(1, 20_000).filter(id -> random.nextInt(density) == 0).toArray();
+      productsByTag.put("t" + t, products);
+      Set<Long> set = new HashSet<>();
+      Arrays.stream(products).forEach(set::add);
+      expected.put("t" + t, set);
+    }
+    index.bulkLoad(productsByTag);
+
+    String[][] queries = { {"t0", "t5"}, {"t1", "t2", "t3"}, {"t4", "t5"}, {"t5", "t0", "t3"} };
+    for (String[] tags : queries) {
+      Set<Long> intersection = new TreeSet<>(expected.get(tags[0]));
+      Set<Long> union = new TreeSet<>();
+      for (String tag : tags) {
+        intersection.retainAll(expected.get(tag));
+        union.addAll(expected.get(tag));
+      }
+      assertThat(index.productsWithAll(tags)).containsExactly(toArray(intersection));
+      assertThat(index.productsWithAny(tags)).containsExactly(toArray(union));
+    }
+
+    assertThat(index.productsWithAll("t0", "missing")).isEmpty();
+    assertThat(index.productsWithAny("t5", "missing")).containsExactly(toArray(new TreeSet<>(expected.get("t5"))));
+
+    index.add("t5", 1_000_000L);
+    index.add("fresh", 1_000_000L);
+    assertThat(index.productsWithAll("t5", "fresh")).containsExactly(1_000_000L);
+    assertThat(index.remove("fresh", 1_000_000L)).isTrue();
+    assertThat(index.productsWithAll("t5", "fresh")).isEmpty();
+    assertThat(index.getQueryCount()).isEqualTo(12);
+  }
+
+  @Test
+  void concurrentLoadsOfNewTagAgreeOnOneShape() {
+    TagIndex index = new TagIndex(member, "tags-race", 1_000);
+    int[] sizes = {300, 4_000, 20_000, 9_000};
+    Set<Long> expected = new HashSet<>();
+    List<CompletableFuture<Void>> loads = new ArrayList<>();
+    long next = 1;
+    for (int size : sizes) {
+      long[] products = LongStream.range(next, next + size).toArray();
+      next += size;
+      Arrays.stream(products).forEach(expected::add);
+      loads.add(CompletableFuture.runAsync(() -> index.bulkLoad(Map.of("race", products))));
+    }
+    long[] added = LongStream.range(next, next + 200).toArray();
+    Arrays.stream(added).forEach(expected::add);
+    loads.add(CompletableFuture.runAsync(() -> Arrays.stream(added).forEach(id -> index.add("race", id))));
+    loads.forEach(CompletableFuture::join);
+
+    // 不论哪个加载先写入形状，所有值都按同一个子键数分配
+    assertThat(index.shapeOf("race").size()).isEqualTo(Arrays.stream(sizes).sum());
+    assertThat(index.productsWithAny("race")).containsExactly(toArray(new TreeSet<>(expected)));
+    int splits = index.shapeOf("race").splits();
+    int total = 0;
+    for (int split = 0; split < splits; split++) {
+      total += index.valueCount("race", split);
+    }
+    assertThat(total).isEqualTo(expected.size());
+  }
+
+  /**
+   * 50万个商品、50个标签，第i个标签覆盖约1/(i+1)的商品，共约225万个(标签, 商品)对；
+   * 多标签交集在成员上按段计算，与把所有子键取回调用方再求交集对比
+   */
+  @Test
+  @Tag("performance")
+  void multiTagQueryLatency() {
+    int products = 500_000;
+    int tags = 50;
+    TagIndex index = new TagIndex(member, "tags-bench", 10_000);
+    Random random = new Random(7);
+    Map<String, long[]> productsByTag = new HashMap<>();
+    long pairs = 0;
+    for (int t = 0; t < tags; t++) {
+      int density = t + 1;
+      long[] ids = LongStream.rangeClosed(1, products).filter(id -> random.nextInt(density) == 0).toArray();
+      productsByTag.put("tag-" + t, ids);
+      pairs += ids.length;
+    }
+    long start = System.nanoTime();
+    index.bulkLoad(productsByTag);
+    double loadSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("bulkLoad: %,d pairs in %.1f s, %,.0f pairs/s, tag-0 split into %d sub-keys%n", pairs,
+        loadSeconds, pairs / loadSeconds, index.shapeOf("tag-0").splits());
+
+    String[][] queries = {
+        {"tag-0", "tag-1"}, {"tag-2", "tag-9"}, {"tag-0", "tag-1", "tag-2"}, {"tag-3", "tag-20", "tag-49"}};
+    MultiMap<String, Long> postings = member.getMultiMap("tags-bench");
+    for (String[] query : queries) {
+      LatencyHistogram server = new LatencyHistogram();
+      LatencyHistogram client = new LatencyHistogram();
+      int resultSize = 0;
+      for (int round = 0; round < 30; round++) {
+        long t0 = System.nanoTime();
+        resultSize = index.productsWithAll(query).length;
+        server.recordNanos(System.nanoTime() - t0);
+
+        t0 = System.nanoTime();
+        Set<Long> result = null;
+        for (String tag : query) {
+          Set<Long> values = new HashSet<>();
+          for (int split = 0; split < index.shapeOf(tag).splits(); split++) {
+            values.addAll(postings.get(TagIndex.subKey(tag, split)));
+          }
+          if (result == null) {
+            result = values;
+          } else {
+            result.retainAll(values);
+          }
+        }
+        client.recordNanos(System.nanoTime() - t0);
+        assertThat(result).hasSize(resultSize);
+      }
+      System.out.printf("AND %-30s -> %,7d ids: server-side p50 %,d µs p99 %,d µs | fetch-and-intersect p50 %,d µs "
+              + "p99 %,d µs%n", String.join(",", query), resultSize, server.getPercentileMicros(50),
+          server.getPercentileMicros(99), client.getPercentileMicros(50), client.getPercentileMicros(99));
+    }
+  }
+
+  private static long[] toArray(Set<Long> values) {
+    return values.stream().mapToLong(Long::longValue).toArray();
+  }
+}
@@ -0,0 +1,220 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.ReachedMaxSizeException;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分片工作队列的分片分布、背压、自适应批大小和吞吐量测试
+ */
+class PartitionedWorkQueueTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("partitioned-work-queue-test")
+        .addQueueConfig(PartitionedWorkQueue.queueConfig("work-bounded", 50));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void shardsUseDistinctPartitionsAndKeepPerKeyOrder() throws Exception {
+    PartitionedWorkQueue<Integer> queue = new PartitionedWorkQueue<>(member, "work-order", 8);
+    Set<Integer> partitions = new HashSet<>();
+    for (int shard = 0; shard < queue.getShardCount(); shard++) {
+      partitions.add(member.getPartitionService().getPartition(queue.getShard(shard).getPartitionKey())
+          .getPartitionId());
+    }
+    assertThat(partitions).hasSize(8);
+
+    Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+    List<WorkQueueConsumer<Integer>> consumers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      WorkQueueConsumer<Integer> consumer = queue.newConsumer(queue.shardsFor(i, 3), batch -> batch.forEach(
+          item -> received.computeIfAbsent(item.key(), k -> new ArrayList<>()).add(item.payload())), 1, 64);
+      consumer.start();
+      consumers.add(consumer);
+    }
+    try (WorkQueueProducer<Integer> producer = queue.newProducer(16, 1_000, null)) {
+      for (int i = 0; i < 2_000; i++) {
+        producer.submit("key-" + (i % 20), i);
+      }
+    }
+    awaitUntil(() -> consumers.stream().mapToLong(WorkQueueConsumer::getProcessedCount).sum(), 2_000);
+    consumers.forEach(WorkQueueConsumer::close);
+
+    assertThat(received).hasSize(20);
+    received.values().forEach(values -> assertThat(values).hasSize(100).isSorted());
+  }
+
+  @Test
+  void fullShardSignalsBackpressureAndTimesOut() throws Exception {
+    PartitionedWorkQueue<Integer> queue = new PartitionedWorkQueue<>(member, "work-bounded", 1);
+    List<Integer> signals = new CopyOnWriteArrayList<>();
+    WorkQueueProducer<Integer> producer = queue.newProducer(20, 100, (shard, pending) -> signals.add(pending));
+    for (int i = 0; i < 40; i++) {
+      producer.submit("k", i);
+    }
+    assertThat(producer.getEnqueuedCount()).isEqualTo(40);
+    for (int i = 40; i < 59; i++) {
+      producer.submit("k", i);
+    }
+    // 第60个凑满一批，分片只剩10个空位：写入10个，剩下10个退避到超时
+    assertThatThrownBy(() -> producer.submit("k", 59)).isInstanceOf(ReachedMaxSizeException.class);
+    assertThat(producer.getEnqueuedCount()).isEqualTo(50);
+    assertThat(producer.getBackpressureCount()).isEqualTo(signals.size()).isGreaterThan(1);
+    assertThat(signals).containsOnly(10);
+    assertThat(producer.getBackoffMillis()).isPositive().isLessThanOrEqualTo(100);
+
+    // 消费者腾出空间后，留在缓冲中的工作项可以写入
+    List<Integer> received = new ArrayList<>();
+    try (WorkQueueConsumer<Integer> consumer = queue.newConsumer(new int[] {0},
+        batch -> batch.forEach(item -> received.add(item.payload())), 5, 5)) {
+      consumer.start();
+      producer.close();
+      awaitUntil(consumer::getProcessedCount, 60);
+    }
+    assertThat(received).hasSize(60).isSorted();
+    queue.getShard(0).destroy();
+  }
+
+  @Test
+  void batchSizeGrowsUnderBacklogAndShrinksWhenIdle() throws Exception {
+    PartitionedWorkQueue<Integer> queue = new PartitionedWorkQueue<>(member, "work-adaptive", 1);
+    try (WorkQueueProducer<Integer> producer = queue.newProducer(500, 1_000, null)) {
+      for (int i = 0; i < 5_000; i++) {
+        producer.submit("k", i);
+      }
+    }
+    AtomicInteger largestBatch = new AtomicInteger();
+    try (WorkQueueConsumer<Integer> consumer = queue.newConsumer(new int[] {0},
+        batch -> largestBatch.accumulateAndGet(batch.size(), Math::max), 10, 400)) {
+      consumer.start();
+      awaitUntil(consumer::getProcessedCount, 5_000);
+      assertThat(largestBatch.get()).isEqualTo(400);
+      assertThat(consumer.getBatchCount()).isLessThan(40);
+      awaitUntil(() -> consumer.getBatchSizes()[0], 10);
+    }
+  }
+
+  @Test
+  void failedBatchesMoveToDeadLetterQueue() throws Exception {
+    PartitionedWorkQueue<Integer> queue = new PartitionedWorkQueue<>(member, "work-failing", 1);
+    try (WorkQueueProducer<Integer> producer = queue.newProducer(10, 1_000, null)) {
+      for (int i = 0; i < 30; i++) {
+        producer.submit("k", i);
+      }
+    }
+    List<Integer> received = new CopyOnWriteArrayList<>();
+    try (WorkQueueConsumer<Integer> consumer = queue.newConsumer(new int[] {0}, batch -> {
+      if (batch.stream().anyMatch(item -> item.payload() == 13)) {
+        throw new IllegalStateException("poison item");
+      }
+      batch.forEach(item -> received.add(item.payload()));
+    }, 10, 10)) {
+      consumer.start();
+      awaitUntil(() -> consumer.getProcessedCount() + consumer.getFailureCount(), 30);
+      assertThat(consumer.getDeadLetterCount()).isEqualTo(consumer.getFailureCount()).isPositive();
+      assertThat(consumer.getLostCount()).isZero();
+    }
+    List<Integer> deadLettered = queue.getDeadLetterQueue().stream().map(PartitionedWorkQueue.WorkItem::payload).toList();
+    assertThat(deadLettered).contains(13).doesNotContainAnyElementsOf(received);
+    assertThat(received.size() + deadLettered.size()).isEqualTo(30);
+    queue.getShard(0).destroy();
+    queue.getDeadLetterQueue().destroy();
+  }
+
+  /**
+   * 4个生产者共10万个工作项，2个消费者：逐个offer/poll、单个队列批量、8个分片批量对比
+   */
+  @Test
+  @Tag("performance")
+  void compareOneByOneSingleQueueAndShardedThroughput() throws Exception {
+    run("one-by-one, 1 shard", "work-bench-single", 1, 1, 1, 1);
+    run("batched,    1 shard", "work-bench-batched", 1, 100, 10, 1_000);
+    run("batched,   8 shards", "work-bench-sharded", 8, 100, 10, 1_000);
+  }
+
+  private void run(String label, String name, int shards, int producerBatch, int minBatch, int maxBatch)
+      throws Exception {
+    int producers = 4;
+    int perProducer = 25_000;
+    int total = producers * perProducer;
+    PartitionedWorkQueue<Integer> queue = new PartitionedWorkQueue<>(member, name, shards);
+    List<WorkQueueConsumer<Integer>> consumers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      int[] assigned = shards == 1 ? new int[] {0} : queue.shardsFor(i, 2);
+      WorkQueueConsumer<Integer> consumer = queue.newConsumer(assigned, batch -> {
+      }, minBatch, maxBatch);
+      consumer.start();
+      consumers.add(consumer);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producerId = p;
+      futures.add(executor.submit(() -> {
+        try (WorkQueueProducer<Integer> producer = queue.newProducer(producerBatch, 60_000, null)) {
+          for (int i = 0; i < perProducer; i++) {
+            producer.submit("key-" + producerId + "-" + i, i);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    double enqueueSeconds = (System.nanoTime() - start) / 1e9;
+    awaitUntil(() -> consumers.stream().mapToLong(WorkQueueConsumer::getProcessedCount).sum(), total);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long batches = consumers.stream().mapToLong(WorkQueueConsumer::getBatchCount).sum();
+    System.out.printf("%s: enqueue %,.0f/s, end-to-end %,.0f/s, %,d consumer batches, queue time p50 %d µs "
+            + "p99 %d µs%n", label, total / enqueueSeconds, total / seconds, batches,
+        consumers.get(0).getQueueTime().getPercentileMicros(50),
+        consumers.get(0).getQueueTime().getPercentileMicros(99));
+    consumers.forEach(WorkQueueConsumer::close);
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    for (int shard = 0; shard < shards; shard++) {
+      queue.getShard(shard).destroy();
+    }
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 120_000;
+    while (actual.getAsLong() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
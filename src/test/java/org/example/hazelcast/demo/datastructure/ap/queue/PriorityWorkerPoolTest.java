@@ -0,0 +1,190 @@
+package org.example.hazelcast.demo.datastructure.ap.queue;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 优先级队列配置、Compact序列化和按优先级批量取出测试
+ */
+class PriorityWorkerPoolTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("priority-queue-test")
+        .addQueueConfig(PriorityWorkerPool.queueConfig("priority-*"));
+    config.getSerializationConfig().getCompactSerializationConfig().addSerializer(new PriorityItemSerializer());
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void pollReturnsHighestPriorityFirstAndFifoWithinPriority() {
+    IQueue<PriorityItem> queue = member.getQueue("priority-order");
+    queue.add(new PriorityItem(1, "low", 1, 1_000));
+    queue.add(new PriorityItem(2, "high-a", 9));
+    queue.add(new PriorityItem(3, "mid", 5));
+    queue.add(new PriorityItem(4, "high-b", 9));
+
+    PriorityItem first = queue.poll();
+    assertThat(first.getName()).isEqualTo("high-a");
+    assertThat(first.getSequence()).isEqualTo(2);
+    assertThat(queue.poll().getName()).isEqualTo("high-b");
+    assertThat(queue.poll().getName()).isEqualTo("mid");
+
+    PriorityItem last = queue.poll();
+    assertThat(last.getName()).isEqualTo("low");
+    assertThat(last.getPriority()).isEqualTo(1);
+    assertThat(last.getEnqueuedAtMillis()).isEqualTo(1_000);
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  void workersDrainBatchesInPriorityOrder() throws Exception {
+    IQueue<PriorityItem> queue = member.getQueue("priority-batches");
+    List<Integer> shuffled = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      shuffled.add(i % 10);
+    }
+    Collections.shuffle(shuffled);
+    for (int i = 0; i < shuffled.size(); i++) {
+      queue.offer(new PriorityItem(i, "item-" + i, shuffled.get(i)));
+    }
+
+    List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    try (PriorityWorkerPool pool = new PriorityWorkerPool(queue, deadLetters(queue), 1, 25,
+        batch -> batches.add(batch.stream().map(PriorityItem::getPriority).toList()))) {
+      pool.start();
+      awaitUntil(pool::getProcessedCount, 200);
+      assertThat(pool.getBatchCount()).isEqualTo(8);
+      assertThat(pool.getQueueTime().getCount()).isEqualTo(200);
+    }
+    // 每批的第一个是poll取出的剩余最高优先级，批内按优先级排序
+    List<Integer> heads = new ArrayList<>();
+    for (List<Integer> batch : batches) {
+      assertThat(batch).isSortedAccordingTo(Collections.reverseOrder());
+      heads.add(batch.get(0));
+    }
+    assertThat(heads).isSortedAccordingTo(Collections.reverseOrder());
+  }
+
+  @Test
+  void singleItemBatchesHaveNoInversions() throws Exception {
+    IQueue<PriorityItem> queue = member.getQueue("priority-single");
+    for (int i = 0; i < 100; i++) {
+      queue.offer(new PriorityItem(i, "item-" + i, (i * 7) % 10));
+    }
+    List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+    try (PriorityWorkerPool pool = new PriorityWorkerPool(queue, deadLetters(queue), 1, 1,
+        batch -> seen.add(batch.get(0).getPriority()))) {
+      pool.start();
+      awaitUntil(pool::getProcessedCount, 100);
+      assertThat(pool.getInversionCount()).isZero();
+    }
+    assertThat(seen).hasSize(100).isSortedAccordingTo(Collections.reverseOrder());
+  }
+
+  @Test
+  void failedBatchesMoveToDeadLetterQueue() throws Exception {
+    IQueue<PriorityItem> queue = member.getQueue("priority-failing");
+    IQueue<PriorityItem> deadLetters = deadLetters(queue);
+    for (int i = 0; i < 10; i++) {
+      queue.offer(new PriorityItem(i, i == 4 ? "poison" : "item-" + i, 1));
+    }
+    try (PriorityWorkerPool pool = new PriorityWorkerPool(queue, deadLetters, 1, 1, batch -> {
+      if (batch.get(0).getName().equals("poison")) {
+        throw new IllegalStateException("cannot handle " + batch.get(0));
+      }
+    })) {
+      pool.start();
+      awaitUntil(pool::getProcessedCount, 9);
+      awaitUntil(pool::getDeadLetterCount, 1);
+      assertThat(pool.getFailureCount()).isEqualTo(1);
+      assertThat(pool.getLostCount()).isZero();
+    }
+    assertThat(deadLetters).extracting(PriorityItem::getName).containsExactly("poison");
+  }
+
+  /**
+   * 4个生产者以随机优先级持续入队，2个工作线程按不同批大小取出，对比吞吐量、优先级反转率和排队时间
+   */
+  @Test
+  @Tag("performance")
+  void throughputAndInversionRateByBatchSize() throws Exception {
+    int producers = 4;
+    int perProducer = 25_000;
+    int total = producers * perProducer;
+    for (int batchSize : new int[] {1, 10, 100}) {
+      IQueue<PriorityItem> queue = member.getQueue("priority-bench-" + batchSize);
+      AtomicLong sequence = new AtomicLong();
+      ExecutorService producerPool = Executors.newFixedThreadPool(producers);
+      try (PriorityWorkerPool pool = new PriorityWorkerPool(queue, deadLetters(queue), 2, batchSize, batch -> {
+      })) {
+        pool.start();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+          futures.add(producerPool.submit(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < perProducer; i++) {
+              long seq = sequence.incrementAndGet();
+              queue.offer(new PriorityItem(seq, "job", random.nextInt(10)));
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+        double enqueueSeconds = (System.nanoTime() - start) / 1e9;
+        awaitUntil(pool::getProcessedCount, total);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("batch %3d: enqueue %,.0f/s, dequeue %,.0f/s in %,d batches, inversions %.2f%%, "
+                + "queue time p50 %d µs p99 %d µs%n",
+            batchSize, total / enqueueSeconds, total / seconds, pool.getBatchCount(),
+            100.0 * pool.getInversionCount() / total, pool.getQueueTime().getPercentileMicros(50),
+            pool.getQueueTime().getPercentileMicros(99));
+      } finally {
+        producerPool.shutdown();
+        producerPool.awaitTermination(10, TimeUnit.SECONDS);
+        queue.destroy();
+      }
+    }
+  }
+
+  private static IQueue<PriorityItem> deadLetters(IQueue<PriorityItem> queue) {
+    return member.getQueue(queue.getName() + PriorityWorkerPool.DEAD_LETTER_SUFFIX);
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 120_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,214 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.RingbufferConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分区事件日志消费者组的顺序、位置提交、覆盖恢复、处理失败重试和吞吐量测试
+ */
+class EventLogConsumerTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("event-log-test");
+    config.addRingBufferConfig(new RingbufferConfig("small-*").setCapacity(100));
+    config.addRingBufferConfig(new RingbufferConfig("bench-*").setCapacity(200_000));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void groupMembersSplitPartitionsAndKeepPerKeyOrder() throws Exception {
+    PartitionedEventLog<Integer> log = new PartitionedEventLog<>(member, "orders", 4);
+    Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+    List<EventLogConsumer<Integer>> consumers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      EventLogConsumer<Integer> consumer = log.newConsumer("billing", log.partitionsFor(i, 2),
+          events -> events.forEach(e -> received.computeIfAbsent(e.key(), k -> new ArrayList<>()).add(e.payload())),
+          50, 4, 50);
+      consumer.start();
+      consumers.add(consumer);
+    }
+
+    for (int i = 0; i < 2_000; i++) {
+      log.append("key-" + (i % 20), i).toCompletableFuture().join();
+    }
+    awaitUntil(() -> consumers.stream().mapToLong(EventLogConsumer::getConsumedCount).sum(), 2_000);
+
+    assertThat(received).hasSize(20);
+    received.forEach((key, values) -> assertThat(values).hasSize(100).isSorted());
+    assertThat(consumers.get(0).getEndToEndLag().getCount() + consumers.get(1).getEndToEndLag().getCount())
+        .isEqualTo(2_000);
+    consumers.forEach(EventLogConsumer::close);
+    assertThat(consumers.get(0).getBacklog() + consumers.get(1).getBacklog()).isZero();
+  }
+
+  @Test
+  void restartedConsumerResumesFromCommittedOffset() throws Exception {
+    PartitionedEventLog<Integer> log = new PartitionedEventLog<>(member, "payments", 2);
+    LongAdder first = new LongAdder();
+    EventLogConsumer<Integer> consumer = log.newConsumer("audit", log.partitionsFor(0, 1),
+        events -> first.add(events.size()), 10, 2, 10);
+    consumer.start();
+    appendAll(log, 0, 300);
+    awaitUntil(first::sum, 300);
+    consumer.close();
+
+    appendAll(log, 300, 200);
+    LongAdder second = new LongAdder();
+    EventLogConsumer<Integer> restarted = log.newConsumer("audit", log.partitionsFor(0, 1),
+        events -> second.add(events.size()), 10, 2, 10);
+    restarted.start();
+    awaitUntil(second::sum, 200);
+    Thread.sleep(200);
+    restarted.close();
+    assertThat(second.sum()).isEqualTo(200);
+    assertThat(restarted.getLostCount()).isZero();
+  }
+
+  @Test
+  void overwrittenEventsAreCountedAndReadingResumesFromHead() throws Exception {
+    PartitionedEventLog<Integer> log = new PartitionedEventLog<>(member, "small-log", 1);
+    LongAdder consumed = new LongAdder();
+    EventLogConsumer<Integer> consumer = log.newConsumer("slow", new int[] { 0 }, events -> consumed.add(events.size()),
+        10, 2, 10);
+    consumer.start();
+    appendAll(log, 0, 50);
+    awaitUntil(consumed::sum, 50);
+    consumer.close();
+
+    // 消费者离线期间写入的事件超过容量，最早的150个被覆盖
+    appendAll(log, 50, 250);
+    EventLogConsumer<Integer> resumed = log.newConsumer("slow", new int[] { 0 }, events -> consumed.add(events.size()),
+        10, 2, 10);
+    resumed.start();
+    awaitUntil(consumed::sum, 150);
+    resumed.close();
+    assertThat(resumed.getLostCount()).isEqualTo(150);
+    assertThat(resumed.getStaleResetCount()).isEqualTo(1);
+  }
+
+  @Test
+  void failedBatchIsRetriedAndNotCommittedPastUntilHandled() throws Exception {
+    PartitionedEventLog<Integer> log = new PartitionedEventLog<>(member, "retry-log", 1);
+    List<Integer> received = new CopyOnWriteArrayList<>();
+    AtomicInteger failuresLeft = new AtomicInteger(2);
+    EventLogConsumer<Integer> consumer = log.newConsumer("retry", new int[] { 0 }, events -> {
+      if (failuresLeft.getAndDecrement() > 0) {
+        throw new IllegalStateException("handler down");
+      }
+      events.forEach(e -> received.add(e.payload()));
+    }, 10, 4, 10);
+    consumer.start();
+    appendInOrder(log, 0, 100);
+    awaitUntil(consumer::getConsumedCount, 100);
+    consumer.close();
+    assertThat(received).hasSize(100).isSorted();
+    assertThat(consumer.getHandlerFailureCount()).isEqualTo(2);
+
+    // 停止时仍在失败的批次不提交，重启后从这批重新投递
+    appendInOrder(log, 100, 20);
+    EventLogConsumer<Integer> failing = log.newConsumer("retry", new int[] { 0 }, events -> {
+      throw new IllegalStateException("handler down");
+    }, 10, 4, 10);
+    failing.start();
+    awaitUntil(() -> Math.min(failing.getHandlerFailureCount(), 2), 2);
+    failing.close();
+    EventLogConsumer<Integer> restarted = log.newConsumer("retry", new int[] { 0 },
+        events -> events.forEach(e -> received.add(e.payload())), 10, 4, 10);
+    restarted.start();
+    awaitUntil(restarted::getConsumedCount, 20);
+    restarted.close();
+    assertThat(received).hasSize(120).isSorted();
+  }
+
+  /**
+   * 积压40万事件后，对比流水线深度1和4的消费速度，并测量实时追加时的端到端延迟
+   */
+  @Test
+  @Tag("performance")
+  void measureThroughputAndLag() throws Exception {
+    PartitionedEventLog<Integer> log = new PartitionedEventLog<>(member, "bench-log", 4);
+    int events = 400_000;
+    appendAll(log, 0, events);
+    for (int depth : new int[] { 1, 4 }) {
+      LongAdder consumed = new LongAdder();
+      EventLogConsumer<Integer> consumer = log.newConsumer("bench-" + depth, log.partitionsFor(0, 1),
+          batch -> consumed.add(batch.size()), 1_000, depth, 1_000);
+      long start = System.nanoTime();
+      consumer.start();
+      awaitUntil(consumed::sum, events);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      consumer.close();
+      System.out.printf("pipeline depth %d: %,.0f events/s%n", depth, events / seconds);
+    }
+
+    PartitionedEventLog<Integer> liveLog = new PartitionedEventLog<>(member, "bench-live", 4);
+    EventLogConsumer<Integer> live = liveLog.newConsumer("live", liveLog.partitionsFor(0, 1), batch -> {
+    }, 1_000, 4, 1_000);
+    live.start();
+    Thread.sleep(500);
+    for (int round = 0; round < 100; round++) {
+      appendAll(liveLog, round * 100, 100);
+      Thread.sleep(5);
+    }
+    Thread.sleep(500);
+    live.close();
+    System.out.printf("live lag: p50 %d µs, p99 %d µs, max %d µs over %d events%n",
+        live.getEndToEndLag().getPercentileMicros(50), live.getEndToEndLag().getPercentileMicros(99),
+        live.getEndToEndLag().getMaxMicros(), live.getEndToEndLag().getCount());
+  }
+
+  private static void appendAll(PartitionedEventLog<Integer> log, int from, int count) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    Map<String, List<Integer>> batch = new ConcurrentHashMap<>();
+    for (int i = from; i < from + count; i++) {
+      batch.computeIfAbsent("key-" + (i % 16), k -> new ArrayList<>()).add(i);
+      if (i % 1_000 == 999) {
+        futures.add(log.appendAll(batch));
+        batch = new ConcurrentHashMap<>();
+      }
+    }
+    futures.add(log.appendAll(batch));
+    futures.forEach(CompletableFuture::join);
+  }
+
+  private static void appendInOrder(PartitionedEventLog<Integer> log, int from, int count) {
+    for (int i = from; i < from + count; i++) {
+      log.append("key", i).toCompletableFuture().join();
+    }
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,201 @@
+package org.example.hazelcast.demo.datastructure.ap.ringbuffer;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.RingbufferConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IFunction;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.ringbuffer.ReadResultSet;
+import com.hazelcast.ringbuffer.Ringbuffer;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.ap.ringbuffer.PartitionedEventLog.LogEvent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ringbuffer过滤器组合、过滤消费、成员端投影和不同选择率下的传输量测试
+ */
+class RingbufferFiltersTest {
+
+  private static HazelcastInstance member;
+
+  record Trade(String region, int bucket, long amountCents, String note) implements Serializable {
+  }
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("ringbuffer-filters-test");
+    config.addRingBufferConfig(new RingbufferConfig("bench-*").setCapacity(200_000));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void filtersComposeAndSurviveSerialization() {
+    LogEvent<Trade> east = new LogEvent<>("k-10", new Trade("east", 3, 5_000, ""), 0);
+    LogEvent<Trade> west = new LogEvent<>("k-20", new Trade("west", 7, 50_000, ""), 0);
+    RingbufferFilter<LogEvent<Trade>> filter = RingbufferFilters.<LogEvent<Trade>>fieldEquals("payload.region", "east")
+        .or(RingbufferFilters.fieldBetween("payload.amountCents", 10_000, 100_000))
+        .and(RingbufferFilters.<LogEvent<Trade>>keyRange("k-15", null).negate());
+
+    SerializationService serialization = ((SerializationServiceSupport) member).getSerializationService();
+    RingbufferFilter<LogEvent<Trade>> copy = serialization.toObject(serialization.toData(filter));
+    assertThat(copy.test(east)).isTrue();
+    assertThat(copy.test(west)).isFalse();
+    assertThat(RingbufferFilters.<LogEvent<Trade>>fieldIn("payload.bucket", Set.of(7)).test(west)).isTrue();
+    assertThat(RingbufferFilters.<LogEvent<Trade>>fieldEquals("payload.missing", null).test(east)).isTrue();
+    assertThat(RingbufferFilters.<LogEvent<Trade>>fieldEquals("payload.missing.deeper", "x").test(east)).isFalse();
+    assertThat(RingbufferFilters.project("key", "payload.region").apply(west)).containsExactly("k-20", "west");
+
+    // 同一个键总是同时被选中或跳过，比例接近设定值
+    RingbufferFilter<LogEvent<Trade>> sample = RingbufferFilters.sample(0.1);
+    int selected = 0;
+    for (int i = 0; i < 100_000; i++) {
+      LogEvent<Trade> event = new LogEvent<>("key-" + i, null, 0);
+      assertThat(sample.test(event)).isEqualTo(sample.test(new LogEvent<>("key-" + i, null, 1)));
+      selected += sample.test(event) ? 1 : 0;
+    }
+    assertThat(selected).isBetween(9_000, 11_000);
+  }
+
+  @Test
+  void filteredConsumerReceivesOnlyMatchesAndCommitsPastSkippedEvents() throws Exception {
+    PartitionedEventLog<Trade> log = new PartitionedEventLog<>(member, "filtered-trades", 2);
+    List<LogEvent<Trade>> received = new ArrayList<>();
+    EventLogConsumer<Trade> consumer = log.newConsumer("east-desk", log.partitionsFor(0, 1),
+        RingbufferFilters.fieldEquals("payload.region", "east"), events -> {
+          synchronized (received) {
+            received.addAll(events);
+          }
+        }, 50, 4, 10);
+    consumer.start();
+
+    append(log, 0, 1_000);
+    awaitUntil(consumer::getScannedCount, 1_000);
+    awaitUntil(consumer::getConsumedCount, 100);
+    // 追上后长轮询只在有匹配事件时返回
+    append(log, 1_000, 20);
+    awaitUntil(consumer::getConsumedCount, 102);
+    Thread.sleep(100);
+    consumer.close();
+
+    assertThat(received).hasSize(102).allMatch(e -> e.payload().region().equals("east"));
+    assertThat(consumer.getLostCount()).isZero();
+    assertThat(consumer.getBacklog()).isLessThan(10);
+  }
+
+  @Test
+  void projectedReadRunsOnOwnerAndReturnsOnlySelectedFields() throws Exception {
+    PartitionedEventLog<Trade> log = new PartitionedEventLog<>(member, "projected-trades", 1);
+    append(log, 0, 500);
+
+    List<Object[]> rows = new ArrayList<>();
+    long sequence = 0;
+    int scanned = 0;
+    while (scanned < 500) {
+      ProjectedRead.Batch<Object[]> batch = log.readProjected(0, sequence, 20,
+          RingbufferFilters.fieldEquals("payload.region", "east"),
+          RingbufferFilters.project("key", "payload.amountCents")).get(5, TimeUnit.SECONDS);
+      rows.addAll(batch.items());
+      scanned += batch.readCount();
+      sequence = batch.nextSequence();
+    }
+    assertThat(rows).hasSize(50);
+    assertThat(rows.get(0)).containsExactly("key-0", 0L);
+    assertThat(rows.get(1)).containsExactly("key-10", 1_000L);
+  }
+
+  /**
+   * 1%、10%、100%选择率下，对比不过滤、成员端过滤、成员端过滤加投影三种方式读完20万事件时
+   * 返回给调用方的序列化字节数和扫描速度
+   */
+  @Test
+  @Tag("performance")
+  void measureBytesAndThroughputBySelectivity() throws Exception {
+    PartitionedEventLog<Trade> log = new PartitionedEventLog<>(member, "bench-trades", 1);
+    int events = 200_000;
+    append(log, 0, events);
+    Ringbuffer<LogEvent<Trade>> ringbuffer = member.getRingbuffer("bench-trades-0");
+    SerializationService serialization = ((SerializationServiceSupport) member).getSerializationService();
+
+    for (int percent : new int[] { 1, 10, 100 }) {
+      RingbufferFilter<LogEvent<Trade>> filter = RingbufferFilters.fieldBetween("payload.bucket", 0, percent);
+      for (String mode : new String[] { "client-side", "filtered", "projected" }) {
+        long bytes = 0;
+        long matched = 0;
+        long sequence = 0;
+        long start = System.nanoTime();
+        while (sequence < events) {
+          if (mode.equals("projected")) {
+            ProjectedRead.Batch<Object[]> batch = log.readProjected(0, sequence, 1_000, filter,
+                RingbufferFilters.project("key", "payload.amountCents")).get();
+            bytes += serialization.toData(batch).totalSize();
+            matched += batch.items().size();
+            sequence = batch.nextSequence();
+          } else {
+            IFunction<LogEvent<Trade>, Boolean> serverFilter = mode.equals("filtered") ? filter : null;
+            ReadResultSet<LogEvent<Trade>> result = ringbuffer.readManyAsync(sequence, 0, 1_000, serverFilter)
+                .toCompletableFuture().get();
+            for (LogEvent<Trade> event : result) {
+              bytes += serialization.toData(event).totalSize();
+              if (serverFilter != null || filter.test(event)) {
+                matched++;
+              }
+            }
+            sequence = result.getNextSequenceToReadFrom();
+          }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("selectivity %3d%% %-11s: %,8d matched, %,12d bytes returned, %,.0f events/s%n",
+            percent, mode, matched, bytes, events / seconds);
+        assertThat(matched).isEqualTo(events * percent / 100);
+      }
+    }
+  }
+
+  private static void append(PartitionedEventLog<Trade> log, int from, int count) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    Map<String, List<Trade>> batch = new LinkedHashMap<>();
+    String note = "x".repeat(200);
+    for (int i = from; i < from + count; i++) {
+      // 每10个事件有一个east，bucket在0到99之间均匀分布
+      Trade trade = new Trade(i % 10 == 0 ? "east" : "west", i % 100, i * 100L, note);
+      batch.computeIfAbsent("key-" + i, k -> new ArrayList<>()).add(trade);
+      if (i % 1_000 == 999) {
+        futures.add(log.appendAll(batch));
+        batch = new LinkedHashMap<>();
+      }
+    }
+    futures.add(log.appendAll(batch));
+    futures.forEach(CompletableFuture::join);
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
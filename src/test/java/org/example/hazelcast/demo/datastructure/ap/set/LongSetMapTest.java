@@ -0,0 +1,200 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.collection.ISet;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SortedLongSet的集合运算、序列化和LongSetMap与ISet&lt;Long&gt;的内存对比测试
+ */
+class LongSetMapTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("long-set-test")
+        .addMapConfig(LongSetMap.mapConfig("long-sets-*"));
+    config.getSerializationConfig().getCompactSerializationConfig().addSerializer(new SortedLongSetSerializer());
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void operationsMatchTreeSet() {
+    LongSetMap sets = new LongSetMap(member, "long-sets-ops");
+    Random random = new Random(11);
+    TreeSet<Long> a = new TreeSet<>();
+    TreeSet<Long> b = new TreeSet<>();
+    for (int round = 0; round < 50; round++) {
+      long[] batch = random.longs(200, 0, 5_000).toArray();
+      if (random.nextInt(3) == 0) {
+        int removed = (int) LongStream.of(batch).distinct().filter(id -> a.remove(id)).count();
+        assertThat(sets.remove("a", batch)).isEqualTo(removed);
+      } else {
+        int added = (int) LongStream.of(batch).distinct().filter(id -> a.add(id)).count();
+        assertThat(sets.add("a", batch)).isEqualTo(added);
+      }
+      long[] other = random.longs(100, 0, 5_000).toArray();
+      LongStream.of(other).forEach(b::add);
+      sets.add("b", other);
+    }
+    assertThat(sets.get("a")).containsExactly(toArray(a));
+    assertThat(sets.size("a")).isEqualTo(a.size());
+    for (long id = 0; id < 5_000; id += 7) {
+      assertThat(sets.contains("a", id)).isEqualTo(a.contains(id));
+    }
+
+    TreeSet<Long> union = new TreeSet<>(a);
+    union.addAll(b);
+    sets.add("u", toArray(a));
+    assertThat(sets.unionInto("u", "b")).isEqualTo(union.size() - a.size());
+    assertThat(sets.get("u")).containsExactly(toArray(union));
+
+    TreeSet<Long> intersection = new TreeSet<>(a);
+    intersection.retainAll(b);
+    assertThat(sets.intersectInto("a", "b")).isEqualTo(a.size() - intersection.size());
+    assertThat(sets.get("a")).containsExactly(toArray(intersection));
+
+    // 集合变空时条目被删除
+    assertThat(sets.intersectInto("a", "missing")).isEqualTo(intersection.size());
+    assertThat(sets.getMap().containsKey("a")).isFalse();
+    assertThat(sets.contains("a", 1)).isFalse();
+    assertThat(sets.size("missing")).isZero();
+  }
+
+  @Test
+  void smallAndLargeOperandsTakeTheSameResult() {
+    SortedLongSet large = SortedLongSet.of(LongStream.range(0, 100_000).map(i -> i * 3).toArray());
+    SortedLongSet small = SortedLongSet.of(0, 3, 4, 299_997, 300_000);
+    assertThat(large.intersect(small).toArray()).containsExactly(0, 3, 299_997);
+    assertThat(small.intersect(large).toArray()).containsExactly(0, 3, 299_997);
+    assertThat(small.difference(large).toArray()).containsExactly(4, 300_000);
+    assertThat(large.difference(small).size()).isEqualTo(99_997);
+    assertThat(large.union(small).size()).isEqualTo(100_002);
+    assertThat(large.union(SortedLongSet.EMPTY)).isSameAs(large);
+  }
+
+  @Test
+  void serializedFormRoundTripsAndCompressesDenseIds() {
+    SerializationService serialization = serialization();
+    SortedLongSet extremes = SortedLongSet.of(Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE);
+    assertThat((SortedLongSet) serialization.toObject(serialization.toData(extremes))).isEqualTo(extremes);
+    assertThat((SortedLongSet) serialization.toObject(serialization.toData(SortedLongSet.EMPTY)))
+        .isEqualTo(SortedLongSet.EMPTY);
+
+    SortedLongSet dense = SortedLongSet.of(LongStream.range(1_000_000, 1_100_000).map(i -> i * 5).toArray());
+    Data data = serialization.toData(dense);
+    assertThat((SortedLongSet) serialization.toObject(data)).isEqualTo(dense);
+    // 相邻ID相差5，每个元素1字节
+    assertThat(data.totalSize()).isLessThan(dense.size() + 200);
+  }
+
+  /**
+   * 100万个ID分别放进ISet&lt;Long&gt;和一个SortedLongSet条目，比较每个元素占用的堆内存、
+   * 序列化后的大小、contains延迟和写入吞吐量
+   */
+  @Test
+  @Tag("performance")
+  void memoryPerElement() {
+    int elements = 1_000_000;
+    Random random = new Random(3);
+    // 间隔1-100的递增ID，类似按时间分配的Flake ID的一段
+    long[] ids = new long[elements];
+    long next = 1L << 40;
+    for (int i = 0; i < elements; i++) {
+      next += 1 + random.nextInt(100);
+      ids[i] = next;
+    }
+
+    long before = usedHeap();
+    ISet<Long> set = member.getSet("boxed-ids");
+    long start = System.nanoTime();
+    List<Long> chunk = new ArrayList<>(10_000);
+    for (long id : ids) {
+      chunk.add(id);
+      if (chunk.size() == 10_000) {
+        set.addAll(chunk);
+        chunk.clear();
+      }
+    }
+    double setSeconds = (System.nanoTime() - start) / 1e9;
+    long setBytes = usedHeap() - before;
+
+    before = usedHeap();
+    LongSetMap sets = new LongSetMap(member, "long-sets-bench");
+    start = System.nanoTime();
+    for (int i = 0; i < elements; i += 10_000) {
+      sets.add("ids", Arrays.copyOfRange(ids, i, i + 10_000));
+    }
+    double mapSeconds = (System.nanoTime() - start) / 1e9;
+    long mapBytes = usedHeap() - before;
+    int serializedBytes = serialization().toData(sets.getMap().get("ids")).totalSize();
+
+    System.out.printf("ISet<Long>:    %,d ids, heap %,d bytes (%.1f bytes/id), addAll x10000 %,.0f ids/s%n",
+        set.size(), setBytes, (double) setBytes / elements, elements / setSeconds);
+    System.out.printf("SortedLongSet: %,d ids, heap %,d bytes (%.1f bytes/id), serialized %.2f bytes/id, "
+            + "add x10000 %,.0f ids/s%n", sets.size("ids"), mapBytes, (double) mapBytes / elements,
+        (double) serializedBytes / elements, elements / mapSeconds);
+
+    LatencyHistogram boxed = new LatencyHistogram();
+    LatencyHistogram primitive = new LatencyHistogram();
+    for (int i = 0; i < 20_000; i++) {
+      long id = ids[random.nextInt(elements)] + (i % 2);
+      long t0 = System.nanoTime();
+      boolean inSet = set.contains(id);
+      boxed.recordNanos(System.nanoTime() - t0);
+      t0 = System.nanoTime();
+      boolean inMap = sets.contains("ids", id);
+      primitive.recordNanos(System.nanoTime() - t0);
+      assertThat(inMap).isEqualTo(inSet);
+    }
+    System.out.printf("contains: ISet p50 %,d µs p99 %,d µs | LongSetMap p50 %,d µs p99 %,d µs%n",
+        boxed.getPercentileMicros(50), boxed.getPercentileMicros(99), primitive.getPercentileMicros(50),
+        primitive.getPercentileMicros(99));
+    assertThat(mapBytes).isLessThan(setBytes / 4);
+    set.destroy();
+    sets.delete("ids");
+  }
+
+  private static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private static SerializationService serialization() {
+    return ((SerializationServiceSupport) member).getSerializationService();
+  }
+
+  private static long[] toArray(TreeSet<Long> values) {
+    return values.stream().mapToLong(Long::longValue).toArray();
+  }
+}
@@ -0,0 +1,151 @@
+package org.example.hazelcast.demo.datastructure.ap.set;
+
+import com.hazelcast.collection.ISet;
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.ap.set.SetAlgebra.Operation;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ISet服务端并集、交集、差集的正确性、分批读取和与调用方retainAll的对比测试
+ */
+class SetAlgebraTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("set-algebra-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void operationsMatchJavaSets() {
+    SetAlgebra algebra = new SetAlgebra(member);
+    Set<Integer> a = fill("ops-a@ops", IntStream.range(0, 3_000).filter(i -> i % 2 == 0));
+    Set<Integer> b = fill("ops-b@ops", IntStream.range(0, 3_000).filter(i -> i % 3 == 0));
+    // 不在同一分区的集合由成员之间读取
+    Set<Integer> c = fill("ops-c", IntStream.range(1_000, 5_000));
+
+    Set<Integer> union = new HashSet<>(a);
+    union.addAll(b);
+    union.addAll(c);
+    Set<Integer> intersection = new HashSet<>(a);
+    intersection.retainAll(b);
+    intersection.retainAll(c);
+    Set<Integer> difference = new HashSet<>(a);
+    difference.removeAll(b);
+    difference.removeAll(c);
+
+    assertThat(algebra.cardinality(Operation.UNION, "ops-a@ops", "ops-b@ops", "ops-c")).isEqualTo(union.size());
+    assertThat(algebra.cardinality(Operation.INTERSECT, "ops-a@ops", "ops-b@ops", "ops-c"))
+        .isEqualTo(intersection.size());
+    assertThat(algebra.cardinality(Operation.DIFFERENCE, "ops-a@ops", "ops-b@ops", "ops-c"))
+        .isEqualTo(difference.size());
+    assertThat(algebra.cardinality(Operation.INTERSECT, "ops-a@ops", "missing@ops")).isZero();
+
+    assertThat(algebra.materialize(Operation.INTERSECT, "ops-result@ops", "ops-a@ops", "ops-b@ops", "ops-c"))
+        .isEqualTo(intersection.size());
+    assertThat(member.<Integer>getSet("ops-result@ops")).containsExactlyInAnyOrderElementsOf(intersection);
+
+    // 结果写回参与运算的集合
+    algebra.materialize(Operation.DIFFERENCE, "ops-a@ops", "ops-a@ops", "ops-b@ops", "ops-c");
+    assertThat(member.<Integer>getSet("ops-a@ops")).containsExactlyInAnyOrderElementsOf(difference);
+    assertThat(algebra.getOperationCount()).isEqualTo(6);
+  }
+
+  @Test
+  void streamReturnsResultInChunksAndCleansUp() {
+    SetAlgebra algebra = new SetAlgebra(member);
+    Set<Integer> a = fill("stream-a@stream", IntStream.range(0, 25_000));
+    Set<Integer> b = fill("stream-b@stream", IntStream.range(10_000, 40_000));
+    Set<Integer> union = new HashSet<>(a);
+    union.addAll(b);
+
+    List<Integer> chunkSizes = new ArrayList<>();
+    Set<Integer> received = new HashSet<>();
+    int size = algebra.<Integer>stream(Operation.UNION, 7_000, chunk -> {
+      chunkSizes.add(chunk.size());
+      received.addAll(chunk);
+    }, "stream-a@stream", "stream-b@stream");
+
+    assertThat(size).isEqualTo(40_000);
+    assertThat(received).isEqualTo(union);
+    assertThat(chunkSizes).hasSize(6).allMatch(n -> n <= 7_000);
+    assertThat(algebra.getStreamedChunkCount()).isEqualTo(6);
+    assertThat(member.getDistributedObjects()).noneMatch(o -> o.getName().startsWith("set-algebra-result-"));
+    assertThatThrownBy(() -> algebra.stream(Operation.UNION, 0, chunk -> {
+    }, "stream-a@stream")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /**
+   * 两个各50万元素、交集约1/3的集合：服务端求交集计数和写入目标集合，
+   * 与调用方取回一个集合后retainAll对比
+   */
+  @Test
+  @Tag("performance")
+  void serverSideIntersectVersusClientRetainAll() {
+    int size = 500_000;
+    fill("bench-a@bench", IntStream.range(0, size));
+    fill("bench-b@bench", IntStream.range(0, size).map(i -> i * 3));
+    SetAlgebra algebra = new SetAlgebra(member);
+    ISet<Integer> first = member.getSet("bench-a@bench");
+    ISet<Integer> second = member.getSet("bench-b@bench");
+
+    LatencyHistogram server = new LatencyHistogram();
+    LatencyHistogram materialized = new LatencyHistogram();
+    LatencyHistogram client = new LatencyHistogram();
+    for (int round = 0; round < 5; round++) {
+      long t0 = System.nanoTime();
+      int count = algebra.cardinality(Operation.INTERSECT, "bench-a@bench", "bench-b@bench");
+      server.recordNanos(System.nanoTime() - t0);
+
+      t0 = System.nanoTime();
+      algebra.materialize(Operation.INTERSECT, "bench-result@bench", "bench-a@bench", "bench-b@bench");
+      materialized.recordNanos(System.nanoTime() - t0);
+
+      t0 = System.nanoTime();
+      Set<Integer> local = new HashSet<>(first);
+      local.retainAll(new HashSet<>(second));
+      client.recordNanos(System.nanoTime() - t0);
+      assertThat(count).isEqualTo(local.size());
+    }
+    System.out.printf("intersect %,d x %,d: server cardinality p50 %,d ms | materialize p50 %,d ms | "
+            + "client retainAll p50 %,d ms, %,d elements shipped to caller%n", size, size,
+        server.getPercentileMicros(50) / 1000, materialized.getPercentileMicros(50) / 1000,
+        client.getPercentileMicros(50) / 1000, 2L * size);
+  }
+
+  private static Set<Integer> fill(String name, IntStream values) {
+    Set<Integer> expected = values.boxed().collect(Collectors.toCollection(HashSet::new));
+    ISet<Integer> set = member.getSet(name);
+    List<Integer> chunk = new ArrayList<>(10_000);
+    for (Integer value : expected) {
+      chunk.add(value);
+      if (chunk.size() == 10_000) {
+        set.addAll(chunk);
+        chunk.clear();
+      }
+    }
+    set.addAll(chunk);
+    return expected;
+  }
+}
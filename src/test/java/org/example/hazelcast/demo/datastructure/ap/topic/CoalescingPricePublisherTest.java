@@ -0,0 +1,276 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.LatencyHistogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 价格变更合并发布、订阅者隔离、订阅者积压时的合并和逐条发布对比测试
+ */
+class CoalescingPricePublisherTest {
+
+  private static HazelcastInstance member;
+
+  record PriceChange(long productId, long priceCents, long changedAtMillis) implements Serializable {
+  }
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("coalescing-price-test")
+        // 逐条发布的对比测试会在事件队列中积压上百万个事件
+        .setProperty("hazelcast.event.queue.capacity", "4000000");
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void changesToSameProductAreMergedAndLatestPriceWins() throws Exception {
+    ITopic<PriceChangeBatch> topic = member.getTopic("prices-merge");
+    Map<Long, Long> prices = new ConcurrentHashMap<>();
+    PriceChangeSubscriber subscriber = new PriceChangeSubscriber("view", batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        prices.put(batch.productId(i), batch.priceCents(i));
+      }
+    });
+    UUID id = topic.addMessageListener(subscriber);
+
+    // 窗口足够长，只由flush()发布
+    try (CoalescingPricePublisher publisher = new CoalescingPricePublisher(topic, 60_000, 4)) {
+      for (int round = 1; round <= 50; round++) {
+        for (long productId = 1; productId <= 10; productId++) {
+          publisher.offer(productId, productId * 1_000 + round);
+        }
+      }
+      assertThat(publisher.getPendingCount()).isEqualTo(10);
+      assertThat(publisher.flush()).isEqualTo(10);
+      assertThat(publisher.getCoalescedCount()).isEqualTo(490);
+      assertThat(publisher.getPublishedBatchCount()).isEqualTo(3);
+
+      publisher.offer(3, 42);
+    }
+    awaitUntil(subscriber::getAppliedChangeCount, 11);
+    topic.removeMessageListener(id);
+    subscriber.close();
+
+    assertThat(prices).hasSize(10).containsEntry(1L, 1_050L).containsEntry(10L, 10_050L).containsEntry(3L, 42L);
+    assertThat(subscriber.getDeliveryLatency().getCount()).isEqualTo(4);
+    assertThat(subscriber.getChangeLatency().getCount()).isEqualTo(11);
+  }
+
+  @Test
+  void failedPublishKeepsChangesWithoutOverwritingNewerOffers() throws Exception {
+    ITopic<PriceChangeBatch> topic = member.getTopic("prices-failure");
+    Map<Long, Long> prices = new ConcurrentHashMap<>();
+    PriceChangeSubscriber subscriber = new PriceChangeSubscriber("view", batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        prices.put(batch.productId(i), batch.priceCents(i));
+      }
+    });
+    UUID id = topic.addMessageListener(subscriber);
+
+    boolean[] failing = { true };
+    CoalescingPricePublisher[] holder = new CoalescingPricePublisher[1];
+    @SuppressWarnings("unchecked")
+    ITopic<PriceChangeBatch> flaky = (ITopic<PriceChangeBatch>) Proxy.newProxyInstance(
+        ITopic.class.getClassLoader(), new Class<?>[] {ITopic.class}, (proxy, method, args) -> {
+          if (method.getName().equals("publish") && failing[0]) {
+            // 发布期间商品1又改价
+            holder[0].offer(1, 999);
+            throw new IllegalStateException("topic unavailable");
+          }
+          try {
+            return method.invoke(topic, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+
+    try (CoalescingPricePublisher publisher = new CoalescingPricePublisher(flaky, 60_000, 4)) {
+      holder[0] = publisher;
+      for (long productId = 1; productId <= 6; productId++) {
+        publisher.offer(productId, productId * 100);
+      }
+      assertThatThrownBy(publisher::flush).hasMessage("topic unavailable");
+      assertThat(publisher.getFailedBatchCount()).isEqualTo(1);
+      assertThat(publisher.getPendingCount()).isEqualTo(6);
+
+      failing[0] = false;
+      assertThat(publisher.flush()).isEqualTo(6);
+    }
+    awaitUntil(subscriber::getAppliedChangeCount, 6);
+    topic.removeMessageListener(id);
+    subscriber.close();
+
+    assertThat(prices).hasSize(6).containsEntry(1L, 999L).containsEntry(2L, 200L).containsEntry(6L, 600L);
+  }
+
+  @Test
+  void slowSubscriberDoesNotHoldBackOthers() throws Exception {
+    ITopic<PriceChangeBatch> topic = member.getTopic("prices-isolation");
+    PriceChangeSubscriber slow = new PriceChangeSubscriber("slow", batch -> sleep(200));
+    PriceChangeSubscriber fast = new PriceChangeSubscriber("fast", batch -> {
+    });
+    UUID slowId = topic.addMessageListener(slow);
+    UUID fastId = topic.addMessageListener(fast);
+
+    try (CoalescingPricePublisher publisher = new CoalescingPricePublisher(topic, 60_000, 100)) {
+      for (int batch = 0; batch < 5; batch++) {
+        publisher.offer(batch, 100);
+        publisher.flush();
+      }
+    }
+    awaitUntil(fast::getAppliedBatchCount, 5);
+    assertThat(slow.getAppliedBatchCount()).isLessThan(5);
+    assertThat(slow.getAppliedBatchCount() + slow.getQueuedBatchCount()).isGreaterThanOrEqualTo(3);
+
+    topic.removeMessageListener(slowId);
+    topic.removeMessageListener(fastId);
+    slow.close();
+    fast.close();
+    assertThat(slow.getAppliedBatchCount()).isEqualTo(5);
+  }
+
+  @Test
+  void backloggedSubscriberMergesOverflowPerProduct() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Map<Long, Long> prices = new ConcurrentHashMap<>();
+    PriceChangeSubscriber subscriber = new PriceChangeSubscriber("bounded", batch -> {
+      awaitLatch(release);
+      for (int i = 0; i < batch.size(); i++) {
+        prices.put(batch.productId(i), batch.priceCents(i));
+      }
+    }, 2);
+
+    // 第一批占住订阅者线程，接下来两批排队，其余三批按商品合并
+    for (long round = 1; round <= 6; round++) {
+      subscriber.onMessage(message(new PriceChangeBatch(new long[] { 1, 2 }, new long[] { round, round * 10 },
+          new long[] { 0, 0 }, System.currentTimeMillis())));
+    }
+    assertThat(subscriber.getQueuedBatchCount()).isEqualTo(2);
+    assertThat(subscriber.getOverflowBatchCount()).isEqualTo(3);
+    assertThat(subscriber.getCoalescedChangeCount()).isEqualTo(4);
+
+    release.countDown();
+    awaitUntil(subscriber::getAppliedBatchCount, 4);
+    assertThat(subscriber.getAppliedChangeCount()).isEqualTo(8);
+    assertThat(prices).containsEntry(1L, 6L).containsEntry(2L, 60L);
+
+    // 关闭后到达的批次不在事件线程上抛出异常
+    subscriber.close();
+    subscriber.onMessage(message(new PriceChangeBatch(new long[] { 1 }, new long[] { 7 }, new long[] { 0 }, 0)));
+    assertThat(subscriber.getDroppedBatchCount()).isEqualTo(1);
+    assertThat(prices).containsEntry(1L, 6L);
+  }
+
+  /**
+   * 10万个商品各改价5次，两个订阅者：逐条发布每次变更，与50毫秒窗口合并后批量发布对比
+   */
+  @Test
+  @Tag("performance")
+  void compareOneByOneWithCoalescedFanOut() throws Exception {
+    int products = 100_000;
+    int rounds = 5;
+    long total = (long) products * rounds;
+
+    ITopic<PriceChange> plain = member.getTopic("prices-plain");
+    LongAdder plainReceived = new LongAdder();
+    LatencyHistogram plainLatency = new LatencyHistogram();
+    for (int s = 0; s < 2; s++) {
+      plain.addMessageListener(message -> {
+        plainLatency.recordNanos(TimeUnit.MILLISECONDS.toNanos(
+            System.currentTimeMillis() - message.getMessageObject().changedAtMillis()));
+        plainReceived.increment();
+      });
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      for (long productId = 0; productId < products; productId++) {
+        plain.publish(new PriceChange(productId, round, System.currentTimeMillis()));
+      }
+    }
+    awaitUntil(plainReceived::sum, 2 * total);
+    double plainSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("one-by-one: %,d messages, %,.0f changes/s, change latency p50 %d µs p99 %d µs%n",
+        total, total / plainSeconds, plainLatency.getPercentileMicros(50), plainLatency.getPercentileMicros(99));
+
+    ITopic<PriceChangeBatch> topic = member.getTopic("prices-coalesced");
+    PriceChangeSubscriber first = new PriceChangeSubscriber("first", batch -> {
+    });
+    PriceChangeSubscriber second = new PriceChangeSubscriber("second", batch -> {
+    });
+    topic.addMessageListener(first);
+    topic.addMessageListener(second);
+    CoalescingPricePublisher publisher = new CoalescingPricePublisher(topic, 50, 5_000);
+    start = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      for (long productId = 0; productId < products; productId++) {
+        publisher.offer(productId, round);
+      }
+    }
+    publisher.close();
+    long published = publisher.getPublishedChangeCount();
+    awaitUntil(() -> first.getAppliedChangeCount() + second.getAppliedChangeCount(), 2 * published);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    first.close();
+    second.close();
+    System.out.printf("coalesced:  %,d changes in %,d messages (%,d merged), %,.0f offered changes/s, "
+            + "delivery p99 %d µs, change latency p50 %d µs p99 %d µs%n",
+        published, publisher.getPublishedBatchCount(), publisher.getCoalescedCount(), total / seconds,
+        first.getDeliveryLatency().getPercentileMicros(99), first.getChangeLatency().getPercentileMicros(50),
+        first.getChangeLatency().getPercentileMicros(99));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Message<PriceChangeBatch> message(PriceChangeBatch batch) {
+    return new Message<>("prices-bounded", batch, System.currentTimeMillis(), null);
+  }
+
+  private static void awaitLatch(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 120_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,220 @@
+package org.example.hazelcast.demo.datastructure.ap.topic;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.ReliableTopicConfig;
+import com.hazelcast.config.RingbufferConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.TopicOverloadPolicy;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 可靠Topic持久位置监听器的续读、批量写入、重复投递统计、失败消息的位置保留和批量发布测试
+ */
+class DurableReliableListenerTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("durable-listener-test");
+    config.addReliableTopicConfig(new ReliableTopicConfig("bench-*").setReadBatchSize(1_000)
+        .setTopicOverloadPolicy(TopicOverloadPolicy.BLOCK));
+    config.addRingBufferConfig(new RingbufferConfig("bench-*").setCapacity(500_000));
+    member = Hazelcast.newHazelcastInstance(config);
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void reRegisteredListenerResumesAfterStoredSequence() throws Exception {
+    ITopic<Integer> topic = member.getReliableTopic("resume-topic");
+    ReliableTopicPublisher<Integer> publisher = new ReliableTopicPublisher<>(topic, 64);
+    SequenceStore store = new MapSequenceStore(member);
+    ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+
+    CountingListener first = new CountingListener("billing", store, 25, received);
+    UUID id = topic.addMessageListener(first);
+    publisher.publishAll(range(0, 100)).join();
+    awaitUntil(first::getProcessedCount, 100);
+    topic.removeMessageListener(id);
+    awaitUntil(() -> store.load("billing"), 99);
+
+    publisher.publishAll(range(100, 50)).join();
+    CountingListener second = new CountingListener("billing", store, 25, received);
+    id = topic.addMessageListener(second);
+    awaitUntil(second::getProcessedCount, 50);
+    topic.removeMessageListener(id);
+
+    assertThat(received).containsExactlyElementsOf(range(0, 150));
+    assertThat(first.getStoreWriteCount()).isLessThanOrEqualTo(5);
+    assertThat(second.getRedeliveredCount()).isZero();
+    assertThat(publisher.getBatchCount()).isEqualTo(3);
+  }
+
+  @Test
+  void unstoredMessagesAreRedeliveredAfterLostWrites(@TempDir Path directory) throws Exception {
+    ITopic<Integer> topic = member.getReliableTopic("crash-topic");
+    FileSequenceStore files = new FileSequenceStore(directory);
+    AtomicBoolean crashed = new AtomicBoolean();
+    // 模拟进程退出：之后的位置写入全部丢失
+    SequenceStore store = new SequenceStore() {
+      @Override
+      public long load(String listenerId) {
+        return files.load(listenerId);
+      }
+
+      @Override
+      public void store(String listenerId, long sequence) {
+        if (!crashed.get()) {
+          files.store(listenerId, sequence);
+        }
+      }
+    };
+    ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+    CountingListener listener = new CountingListener("audit", store, 50, received);
+    UUID id = topic.addMessageListener(listener);
+    new ReliableTopicPublisher<>(topic, 100).publishAll(range(0, 120)).join();
+    awaitUntil(listener::getProcessedCount, 120);
+    assertThat(files.load("audit")).isEqualTo(99);
+    assertThat(listener.getRedeliveryExposure()).isEqualTo(20);
+
+    crashed.set(true);
+    topic.removeMessageListener(id);
+    topic.addMessageListener(listener);
+    awaitUntil(listener::getProcessedCount, 140);
+    assertThat(listener.getRedeliveredCount()).isEqualTo(20);
+    assertThat(received).hasSize(140);
+  }
+
+  @Test
+  void storedSequenceStopsBeforeFailedMessage() throws Exception {
+    ITopic<Integer> topic = member.getReliableTopic("failure-topic");
+    SequenceStore store = new MapSequenceStore(member);
+    ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+    AtomicBoolean failing = new AtomicBoolean(true);
+    CountingListener listener = new CountingListener("ledger", store, 10, received) {
+      @Override
+      protected void handle(Message<Integer> message) {
+        if (message.getMessageObject() == 30 && failing.get()) {
+          throw new IllegalStateException("ledger down");
+        }
+        super.handle(message);
+      }
+    };
+    UUID id = topic.addMessageListener(listener);
+    new ReliableTopicPublisher<>(topic, 100).publishAll(range(0, 60)).join();
+    awaitUntil(listener::getReceivedCount, 60);
+    topic.removeMessageListener(id);
+
+    // 后面的59条都处理成功，位置仍停在失败消息之前
+    assertThat(listener.getProcessedCount()).isEqualTo(59);
+    assertThat(listener.getFirstFailedSequence()).isEqualTo(30);
+    assertThat(store.load("ledger")).isEqualTo(29);
+
+    failing.set(false);
+    id = topic.addMessageListener(listener);
+    awaitUntil(listener::getReceivedCount, 90);
+    topic.removeMessageListener(id);
+    // 失败的那条和其后处理过的29条
+    assertThat(listener.getRedeliveredCount()).isEqualTo(30);
+    assertThat(listener.getFirstFailedSequence()).isEqualTo(-1);
+    assertThat(store.load("ledger")).isEqualTo(59);
+    assertThat(received).contains(30);
+  }
+
+  /**
+   * 对比逐条publish与publishAll的发布速度，以及每条写位置与每100条写位置时监听器的处理速度
+   */
+  @Test
+  @Tag("performance")
+  void measurePublishAndListenerThroughput() throws Exception {
+    int messages = 100_000;
+    ITopic<Integer> single = member.getReliableTopic("bench-single");
+    long start = System.nanoTime();
+    for (int i = 0; i < messages; i++) {
+      single.publish(i);
+    }
+    System.out.printf("publish():    %,.0f msgs/s%n", messages / ((System.nanoTime() - start) / 1e9));
+
+    ITopic<Integer> bulk = member.getReliableTopic("bench-bulk");
+    ReliableTopicPublisher<Integer> publisher = new ReliableTopicPublisher<>(bulk, 1_000);
+    start = System.nanoTime();
+    publisher.publishAll(range(0, messages)).join();
+    System.out.printf("publishAll(): %,.0f msgs/s, batch p99 %d µs%n",
+        messages / ((System.nanoTime() - start) / 1e9), publisher.getBatchLatency().getPercentileMicros(99));
+
+    for (int flushEvery : new int[] { 1, 100 }) {
+      ITopic<Integer> topic = member.getReliableTopic("bench-listen-" + flushEvery);
+      SequenceStore store = new MapSequenceStore(member);
+      CountingListener listener = new CountingListener("bench-" + flushEvery, store, flushEvery, null);
+      // 先注册一次保存初始位置，再积压消息后从头读完
+      UUID id = topic.addMessageListener(listener);
+      topic.publish(-1);
+      awaitUntil(listener::getProcessedCount, 1);
+      topic.removeMessageListener(id);
+      new ReliableTopicPublisher<Integer>(topic, 1_000).publishAll(range(0, messages)).join();
+
+      CountingListener reader = new CountingListener("bench-" + flushEvery, store, flushEvery, null);
+      start = System.nanoTime();
+      id = topic.addMessageListener(reader);
+      awaitUntil(reader::getProcessedCount, messages);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      topic.removeMessageListener(id);
+      System.out.printf("listener flushEvery %3d: %,.0f msgs/s, %,d store writes%n", flushEvery,
+          messages / seconds, reader.getStoreWriteCount());
+    }
+  }
+
+  private static class CountingListener extends DurableReliableListener<Integer> {
+    private final ConcurrentLinkedQueue<Integer> received;
+
+    CountingListener(String id, SequenceStore store, int flushEvery, ConcurrentLinkedQueue<Integer> received) {
+      super(id, store, flushEvery, 60_000);
+      this.received = received;
+    }
+
+    @Override
+    protected void handle(Message<Integer> message) {
+      if (received != null) {
+        received.add(message.getMessageObject());
+      }
+    }
+  }
+
+  private static List<Integer> range(int from, int count) {
+    List<Integer> values = new ArrayList<>(count);
+    for (int i = from; i < from + count; i++) {
+      values.add(i);
+    }
+    return values;
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 60_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+}
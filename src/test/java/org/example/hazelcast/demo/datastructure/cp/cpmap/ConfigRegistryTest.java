@@ -0,0 +1,117 @@
+package org.example.hazelcast.demo.datastructure.cp.cpmap;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 配置注册表的版本校验、失效广播和缓存读取延迟测试
+ *
+ * 两个ConfigRegistry挂在同一个成员上，各自维护本地缓存，模拟两个应用节点
+ */
+class ConfigRegistryTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("config-registry-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void compareAndSetRejectsStaleVersion() {
+    CpOperationMetrics metrics = new CpOperationMetrics();
+    ConfigRegistry registry = new ConfigRegistry(member, metrics, 30_000);
+    try {
+      assertThat(registry.getVersioned("flag.cas").version()).isZero();
+      assertThat(registry.compareAndSet("flag.cas", 0, "on")).isTrue();
+      assertThat(registry.compareAndSet("flag.cas", 0, "off")).isFalse();
+      assertThat(registry.compareAndSet("flag.cas", 1, "off")).isTrue();
+      assertThat(registry.getVersioned("flag.cas").value()).isEqualTo("off");
+      assertThat(registry.getVersioned("flag.cas").version()).isEqualTo(2);
+      assertThat(registry.getConflictCount()).isEqualTo(1);
+      // 版本校验不一致时不发起compareAndSet
+      assertThat(metrics.histogram("configRegistry.compareAndSet").getCount()).isEqualTo(2);
+    } finally {
+      registry.shutdown();
+    }
+  }
+
+  @Test
+  void updateInvalidatesOtherCaches() throws Exception {
+    ConfigRegistry writer = new ConfigRegistry(member, new CpOperationMetrics(), 30_000);
+    ConfigRegistry reader = new ConfigRegistry(member, new CpOperationMetrics(), 30_000);
+    try {
+      writer.compareAndSet("price.rule", 0, "discount=5");
+      assertThat(reader.get("price.rule")).isEqualTo("discount=5");
+      long storeReads = reader.getStoreReads().getCount();
+      assertThat(reader.get("price.rule")).isEqualTo("discount=5");
+      assertThat(reader.getStoreReads().getCount()).isEqualTo(storeReads);
+
+      writer.compareAndSet("price.rule", 1, "discount=10");
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (reader.getInvalidationCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(reader.get("price.rule")).isEqualTo("discount=10");
+      assertThat(reader.getPropagationLag().getCount()).isEqualTo(2);
+    } finally {
+      writer.shutdown();
+      reader.shutdown();
+    }
+  }
+
+  @Test
+  void entriesAreReloadedAfterMaxStaleness() throws Exception {
+    ConfigRegistry registry = new ConfigRegistry(member, new CpOperationMetrics(), 50);
+    try {
+      registry.compareAndSet("flag.stale", 0, "on");
+      registry.get("flag.stale");
+      Thread.sleep(100);
+      registry.get("flag.stale");
+      assertThat(registry.getStaleReloadCount()).isEqualTo(1);
+    } finally {
+      registry.shutdown();
+    }
+  }
+
+  /**
+   * 对比本地缓存命中和每次读取存储的延迟
+   */
+  @Test
+  @Tag("performance")
+  void measureCachedReadLatency() {
+    ConfigRegistry cached = new ConfigRegistry(member, new CpOperationMetrics(), 30_000);
+    ConfigRegistry uncached = new ConfigRegistry(member, new CpOperationMetrics(), 0);
+    try {
+      cached.compareAndSet("flag.bench", 0, "on");
+      int reads = 100_000;
+      long start = System.nanoTime();
+      for (int i = 0; i < reads; i++) {
+        cached.get("flag.bench");
+      }
+      double cachedNanos = (System.nanoTime() - start) / (double) reads;
+      start = System.nanoTime();
+      for (int i = 0; i < reads / 10; i++) {
+        uncached.get("flag.bench");
+      }
+      double uncachedNanos = (System.nanoTime() - start) / (double) (reads / 10);
+      System.out.printf("cached read %.0f ns, store read %.0f ns (%.0fx)%n",
+          cachedNanos, uncachedNanos, uncachedNanos / cachedNanos);
+    } finally {
+      cached.shutdown();
+      uncached.shutdown();
+    }
+  }
+}
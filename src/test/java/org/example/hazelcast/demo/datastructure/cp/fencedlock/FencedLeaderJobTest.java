@@ -0,0 +1,179 @@
+package org.example.hazelcast.demo.datastructure.cp.fencedlock;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.store.ProductMapStore;
+import org.example.hazelcast.demo.store.StaleFenceTokenException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 带栅栏令牌的领导任务：数据库拒绝旧令牌、GC停顿后让位、续约频率、集群重启后令牌从已持久化的值继续
+ */
+class FencedLeaderJobTest {
+
+  private static HazelcastInstance member;
+  private static DriverManagerDataSource dataSource;
+  private static ProductMapStore store;
+
+  @BeforeAll
+  static void setUp() {
+    member = TestMembers.newIsolatedMember("fenced-test");
+
+    dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:fenced;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    store = new ProductMapStore(dataSource);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    store.shutdown();
+    new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    member.shutdown();
+  }
+
+  @Test
+  void staleTokenWriteIsRejectedAtDatabase() {
+    store.storeAll(Map.of(1L, product(1L, 10)), "stale-test", 5);
+    assertThatThrownBy(() -> store.storeAll(Map.of(1L, product(1L, 99)), "stale-test", 3))
+        .isInstanceOf(StaleFenceTokenException.class);
+    assertThat(store.loadAll(java.util.List.of(1L)).get(1L).getStock()).isEqualTo(10);
+
+    // 相同令牌可以继续写
+    store.storeAll(Map.of(1L, product(1L, 11)), "stale-test", 5);
+    assertThat(store.loadAll(java.util.List.of(1L)).get(1L).getStock()).isEqualTo(11);
+  }
+
+  @Test
+  void pausedLeaderIsFencedOffByNewLeader() throws Exception {
+    IMap<String, FencedLeaderJob.LeaderLease> leases = member.getMap(FencedLeaderJob.LEASE_MAP);
+    CountDownLatch pausing = new CountDownLatch(1);
+    boolean[] pause = { false };
+
+    FencedLeaderJob first = new FencedLeaderJob("first", FencedLeaderJob.mapLease(leases, "pause-test", 1_000),
+        token -> {
+          if (pause[0]) {
+            pausing.countDown();
+            // 模拟批次中途的长GC停顿，期间租约过期
+            sleep(1_500);
+          }
+          store.storeAll(Map.of(2L, product(2L, 1)), "pause-test", token);
+        }, () -> store.currentFence("pause-test"), 100, 100, 0);
+    FencedLeaderJob second = new FencedLeaderJob("second", FencedLeaderJob.mapLease(leases, "pause-test", 1_000),
+        token -> store.storeAll(Map.of(2L, product(2L, 2)), "pause-test", token),
+        () -> store.currentFence("pause-test"), 100, 100, 0);
+
+    assertThat(first.runOnce()).isTrue();
+    assertThat(second.runOnce()).isFalse();
+
+    pause[0] = true;
+    CompletableFuture<Boolean> paused = CompletableFuture.supplyAsync(() -> {
+      try {
+        return first.runOnce();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertThat(pausing.await(5, TimeUnit.SECONDS)).isTrue();
+    sleep(1_100);
+    assertThat(second.runOnce()).isTrue();
+    assertThat(second.getCurrentToken()).isGreaterThan(first.getCurrentToken());
+
+    assertThat(paused.get(5, TimeUnit.SECONDS)).isFalse();
+    assertThat(first.getStaleRejectionCount()).isEqualTo(1);
+    assertThat(first.getCurrentToken()).isZero();
+    assertThat(store.loadAll(java.util.List.of(2L)).get(2L).getStock()).isEqualTo(2);
+    first.close();
+    second.close();
+  }
+
+  @Test
+  void leaseIsRenewedPeriodicallyNotPerBatch() throws Exception {
+    IMap<String, FencedLeaderJob.LeaderLease> leases = member.getMap(FencedLeaderJob.LEASE_MAP);
+    FencedLeaderJob job = new FencedLeaderJob("renew", FencedLeaderJob.mapLease(leases, "renew-test", 3_000),
+        token -> store.storeAll(Map.of(3L, product(3L, (int) token)), "renew-test", token),
+        () -> store.currentFence("renew-test"), 10, 1_000, 0);
+    for (int i = 0; i < 50; i++) {
+      assertThat(job.runOnce()).isTrue();
+    }
+    assertThat(job.getBatchCount()).isEqualTo(50);
+    assertThat(job.getAcquisitionCount()).isEqualTo(1);
+    assertThat(job.getRenewalCount()).isZero();
+    assertThat(job.getLockWait().getCount()).isEqualTo(1);
+    job.close();
+  }
+
+  @Test
+  void tokensContinueAbovePersistedFenceAfterClusterRestart() throws Exception {
+    store.storeAll(Map.of(4L, product(4L, 1)), "restart-test", 100);
+
+    // 新集群的租约表是空的，不参考数据库时令牌会从1重新开始
+    HazelcastInstance restarted = TestMembers.newIsolatedMember("fenced-restart-test");
+    try {
+      IMap<String, FencedLeaderJob.LeaderLease> leases = restarted.getMap(FencedLeaderJob.LEASE_MAP);
+      FencedLeaderJob job = new FencedLeaderJob("restarted",
+          FencedLeaderJob.mapLease(leases, "restart-test", 3_000),
+          token -> store.storeAll(Map.of(4L, product(4L, 2)), "restart-test", token),
+          () -> store.currentFence("restart-test"), 10, 1_000, 0);
+      assertThat(job.runOnce()).isTrue();
+      assertThat(job.getCurrentToken()).isEqualTo(101);
+      assertThat(job.getStaleRejectionCount()).isZero();
+      assertThat(store.currentFence("restart-test")).isEqualTo(101);
+      assertThat(store.loadAll(java.util.List.of(4L)).get(4L).getStock()).isEqualTo(2);
+      job.close();
+    } finally {
+      restarted.shutdown();
+    }
+  }
+
+  @Test
+  void staleRejectionReleasesLeaseAndNextRunRecovers() throws Exception {
+    IMap<String, FencedLeaderJob.LeaderLease> leases = member.getMap(FencedLeaderJob.LEASE_MAP);
+    FencedLeaderJob job = new FencedLeaderJob("recover", FencedLeaderJob.mapLease(leases, "recover-test", 3_000),
+        token -> store.storeAll(Map.of(5L, product(5L, (int) token)), "recover-test", token),
+        () -> store.currentFence("recover-test"), 10, 1_000, 0);
+    assertThat(job.runOnce()).isTrue();
+    assertThat(job.getCurrentToken()).isEqualTo(1);
+
+    // 数据库中的令牌被别的写入方推高，例如从备份恢复的旧领导者
+    store.storeAll(Map.of(5L, product(5L, 0)), "recover-test", 50);
+    assertThat(job.runOnce()).isFalse();
+    assertThat(job.getStaleRejectionCount()).isEqualTo(1);
+    assertThat(leases.get("recover-test").expiresAtMillis()).isLessThanOrEqualTo(System.currentTimeMillis());
+
+    assertThat(job.runOnce()).isTrue();
+    assertThat(job.getCurrentToken()).isEqualTo(51);
+    assertThat(job.getStaleRejectionCount()).isEqualTo(1);
+    assertThat(store.loadAll(java.util.List.of(5L)).get(5L).getStock()).isEqualTo(51);
+    job.close();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Product product(long id, int stock) {
+    return new Product(id, "product-" + id, "test", new BigDecimal("9.99"), stock);
+  }
+}
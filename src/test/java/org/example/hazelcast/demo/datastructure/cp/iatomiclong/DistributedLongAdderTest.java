@@ -0,0 +1,165 @@
+package org.example.hazelcast.demo.datastructure.cp.iatomiclong;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分段累加计数器的正确性、陈旧度和吞吐量测试
+ */
+class DistributedLongAdderTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("adder-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void noIncrementsAreLostAcrossThreads() throws Exception {
+    DistributedLongAdder adder = DistributedLongAdder.create(member, "lossless", 20, 500);
+    run(8, 50_000, adder::increment);
+    adder.close();
+    assertThat(adder.getGlobal()).isEqualTo(8 * 50_000);
+    assertThat(adder.getPendingDelta()).isZero();
+  }
+
+  @Test
+  void globalValueLagsByAtMostOneFlushInterval() throws Exception {
+    try (DistributedLongAdder adder = DistributedLongAdder.create(member, "stale", 50, 0)) {
+      adder.add(42);
+      assertThat(adder.get()).isEqualTo(42);
+      Thread.sleep(200);
+      assertThat(adder.getGlobal()).isEqualTo(42);
+      assertThat(adder.getStalenessMillis()).isLessThan(200);
+    }
+  }
+
+  @Test
+  void failedFlushKeepsDelta() {
+    AtomicLong cluster = new AtomicLong();
+    boolean[] failing = { true };
+    DistributedLongAdder adder = new DistributedLongAdder("failing", new DistributedLongAdder.Target() {
+      @Override
+      public long add(UUID adderId, long sequence, long delta) {
+        if (failing[0]) {
+          throw new IllegalStateException("cluster unavailable");
+        }
+        return cluster.addAndGet(delta);
+      }
+
+      @Override
+      public long get() {
+        return cluster.get();
+      }
+    }, 60_000, 0);
+    adder.add(10);
+    try {
+      adder.flush();
+    } catch (IllegalStateException expected) {
+      // 增量应被加回本地
+    }
+    assertThat(adder.getPendingDelta()).isEqualTo(10);
+    assertThat(adder.getFailedFlushCount()).isEqualTo(1);
+    failing[0] = false;
+    adder.close();
+    assertThat(cluster.get()).isEqualTo(10);
+  }
+
+  @Test
+  void retryAfterAppliedButFailedFlushDoesNotDoubleCount() {
+    IMap<String, DistributedLongAdder.Counter> counters = member.getMap(DistributedLongAdder.COUNTER_MAP);
+    DistributedLongAdder.Target map = DistributedLongAdder.mapTarget(counters, "in-doubt");
+    boolean[] timingOut = { true };
+    DistributedLongAdder adder = new DistributedLongAdder("in-doubt", new DistributedLongAdder.Target() {
+      @Override
+      public long add(UUID adderId, long sequence, long delta) {
+        long value = map.add(adderId, sequence, delta);
+        if (timingOut[0]) {
+          // 服务端已累加，调用方却看到超时
+          throw new IllegalStateException("operation timed out");
+        }
+        return value;
+      }
+
+      @Override
+      public long get() {
+        return map.get();
+      }
+
+      @Override
+      public void forget(UUID adderId) {
+        map.forget(adderId);
+      }
+    }, 60_000, 0);
+    adder.add(10);
+    assertThatThrownBy(adder::flush).hasMessage("operation timed out");
+    assertThat(adder.getPendingDelta()).isEqualTo(10);
+
+    timingOut[0] = false;
+    adder.add(5);
+    adder.close();
+    assertThat(adder.getGlobal()).isEqualTo(15);
+    assertThat(adder.getPendingDelta()).isZero();
+  }
+
+  /**
+   * 每次递增直接调用集群计数器 vs 本地累加定期汇总
+   */
+  @Test
+  @Tag("performance")
+  void compareWithDirectClusterIncrements() throws Exception {
+    IMap<String, DistributedLongAdder.Counter> counters = member.getMap(DistributedLongAdder.COUNTER_MAP);
+    DistributedLongAdder.Target direct = DistributedLongAdder.mapTarget(counters, "direct");
+    // 每个线程一个实例标识，序号在线程内递增
+    ThreadLocal<UUID> ids = ThreadLocal.withInitial(UUID::randomUUID);
+    ThreadLocal<long[]> sequences = ThreadLocal.withInitial(() -> new long[1]);
+    for (int threads : new int[] { 1, 8 }) {
+      int perThread = 20_000;
+      long elapsed = run(threads, perThread, () -> direct.add(ids.get(), ++sequences.get()[0], 1));
+      System.out.printf("direct     threads=%d: %,12.0f increments/s%n", threads, threads * perThread / (elapsed / 1e9));
+
+      perThread = 2_000_000;
+      DistributedLongAdder adder = DistributedLongAdder.create(member, "striped-" + threads, 100, 100_000);
+      elapsed = run(threads, perThread, adder::increment);
+      adder.close();
+      System.out.printf("striped    threads=%d: %,12.0f increments/s, %d flushes%n",
+          threads, threads * perThread / (elapsed / 1e9), adder.getFlushCount());
+      assertThat(adder.getGlobal()).isEqualTo((long) threads * perThread);
+    }
+  }
+
+  private static long run(int threads, int perThread, Runnable increment) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      pool.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          increment.run();
+        }
+      });
+    }
+    pool.shutdown();
+    assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,170 @@
+package org.example.hazelcast.demo.datastructure.cp.iatomicreference;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.service.CatalogSnapshot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 目录快照的发布、跨成员刷新、版本冲突、残留数据和旧版本清理测试
+ */
+class SnapshotPublisherTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("snapshot-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void catalogSummaryRoundTrips() throws Exception {
+    List<Product> products = new ArrayList<>();
+    products.add(product(1, "电子产品/手机", "3999.00"));
+    products.add(product(2, "电子产品/手机", "1999.50"));
+    products.add(product(3, "电子产品/电脑", "5999.00"));
+    products.add(product(4, "配件", "99.00"));
+    CatalogSnapshot snapshot = CatalogSnapshot.build(products, CatalogSnapshot.DEFAULT_PRICE_BANDS);
+
+    CatalogSnapshot.CategoryNode electronics = snapshot.getCategories().get(0);
+    assertThat(electronics.name()).isEqualTo("电子产品");
+    assertThat(electronics.productCount()).isEqualTo(3);
+    assertThat(electronics.minPriceCents()).isEqualTo(199_950);
+    assertThat(electronics.children()).extracting(CatalogSnapshot.CategoryNode::name).containsExactly("手机", "电脑");
+    assertThat(snapshot.getPriceBands()).extracting(CatalogSnapshot.PriceBand::productCount)
+        .containsExactly(1, 0, 0, 2, 1);
+
+    byte[] bytes = snapshot.toBytes();
+    CatalogSnapshot decoded = CatalogSnapshot.fromBytes(bytes);
+    assertThat(decoded.getCategories()).isEqualTo(snapshot.getCategories());
+    assertThat(decoded.getPriceBands()).isEqualTo(snapshot.getPriceBands());
+
+    // 摘要不到直接Java序列化商品列表的一半
+    ByteArrayOutputStream javaBytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(javaBytes)) {
+      out.writeObject(products);
+    }
+    assertThat(bytes.length).isLessThan(javaBytes.size() / 2);
+  }
+
+  @Test
+  void otherMembersPickUpPublishedSnapshot() throws Exception {
+    SnapshotPublisher<CatalogSnapshot> job = create("refresh", 50);
+    SnapshotPublisher<CatalogSnapshot> reader = create("refresh", 50);
+    job.start();
+    reader.start();
+    try {
+      assertThat(reader.current()).isNull();
+      long version = job.publish(catalog(10));
+      assertThat(version).isEqualTo(1);
+      assertThat(job.current().getProductCount()).isEqualTo(10);
+
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (reader.currentVersion() < version && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(reader.current().getProductCount()).isEqualTo(10);
+      assertThat(reader.getLoadCount()).isEqualTo(1);
+    } finally {
+      job.close();
+      reader.close();
+    }
+  }
+
+  @Test
+  void stalePublisherLosesAndOldVersionsAreRemoved() {
+    IMap<String, byte[]> blobs = member.getMap(SnapshotPublisher.BLOB_MAP);
+    SnapshotPublisher.VersionPointer pointer = SnapshotPublisher.pointerFor(member, "conflict");
+    SnapshotPublisher<CatalogSnapshot> first = create("conflict", 1_000);
+    // 模拟两个发布者读到同一个旧版本后同时发布
+    SnapshotPublisher.VersionPointer stale = new SnapshotPublisher.VersionPointer() {
+      @Override
+      public long get() {
+        return 0;
+      }
+
+      @Override
+      public boolean compareAndSet(long expected, long update) {
+        return pointer.compareAndSet(expected, update);
+      }
+    };
+    SnapshotPublisher<CatalogSnapshot> second = new SnapshotPublisher<>("conflict", stale, blobs,
+        CatalogSnapshot::toBytes, CatalogSnapshot::fromBytes, 1_000, 2);
+    try {
+      assertThat(first.publish(catalog(1))).isEqualTo(1);
+      assertThat(second.publish(catalog(2))).isZero();
+      assertThat(second.getConflictCount()).isEqualTo(1);
+      assertThat(blobs.containsKey("conflict:1")).isTrue();
+
+      first.publish(catalog(3));
+      first.publish(catalog(4));
+      assertThat(first.currentVersion()).isEqualTo(3);
+      assertThat(blobs.containsKey("conflict:1")).isFalse();
+      assertThat(blobs.containsKey("conflict:2")).isTrue();
+      assertThat(blobs.containsKey("conflict:3")).isTrue();
+    } finally {
+      first.close();
+      second.close();
+    }
+  }
+
+  @Test
+  void orphanedBlobFromCrashedPublisherIsSkipped() {
+    IMap<String, byte[]> blobs = member.getMap(SnapshotPublisher.BLOB_MAP);
+    // 发布者写入版本1的数据后、移动指针前崩溃
+    blobs.put("orphan:1", catalog(1).toBytes(), 60, TimeUnit.SECONDS);
+    SnapshotPublisher<CatalogSnapshot> publisher = create("orphan", 1_000);
+    SnapshotPublisher<CatalogSnapshot> reader = create("orphan", 1_000);
+    try {
+      assertThat(publisher.publish(catalog(5))).isEqualTo(2);
+      assertThat(publisher.getConflictCount()).isZero();
+      reader.refresh();
+      assertThat(reader.current().getProductCount()).isEqualTo(5);
+
+      assertThat(publisher.publish(catalog(6))).isEqualTo(3);
+      assertThat(publisher.publish(catalog(7))).isEqualTo(4);
+      // 保留最近2个版本，跳过的版本号1和被替换的版本2都被清理
+      assertThat(blobs.keySet()).filteredOn(key -> key.startsWith("orphan:"))
+          .containsExactlyInAnyOrder("orphan:3", "orphan:4");
+    } finally {
+      publisher.close();
+      reader.close();
+    }
+  }
+
+  private static SnapshotPublisher<CatalogSnapshot> create(String name, long refreshIntervalMillis) {
+    return SnapshotPublisher.create(member, new CpOperationMetrics(), name, CatalogSnapshot::toBytes, CatalogSnapshot::fromBytes,
+        refreshIntervalMillis, 2);
+  }
+
+  private static CatalogSnapshot catalog(int products) {
+    List<Product> list = new ArrayList<>();
+    for (int i = 0; i < products; i++) {
+      list.add(product(i, "category-" + (i % 3), "19.99"));
+    }
+    return CatalogSnapshot.build(list, CatalogSnapshot.DEFAULT_PRICE_BANDS);
+  }
+
+  private static Product product(long id, String category, String price) {
+    return new Product(id, "product-" + id, category, new BigDecimal(price), 10);
+  }
+}
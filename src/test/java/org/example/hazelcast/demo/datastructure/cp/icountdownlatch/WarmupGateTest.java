@@ -0,0 +1,106 @@
+package org.example.hazelcast.demo.datastructure.cp.icountdownlatch;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.datastructure.cp.CpOperationMetrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 预热闸门的成员协调、阶段计时和超时放行测试
+ *
+ * 多个WarmupGate挂在同一个成员上，模拟多个成员各自完成预热
+ */
+class WarmupGateTest {
+
+  private static HazelcastInstance member;
+
+  private final CpOperationMetrics metrics = new CpOperationMetrics();
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("warmup-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void readyOnlyAfterAllMembersWarmedUp() throws Exception {
+    WarmupGate first = WarmupGate.create(member, metrics, "all-members", phases(100), 2, 10_000);
+    Thread firstThread = start(first);
+    Thread.sleep(300);
+    assertThat(first.getState()).isEqualTo(WarmupGate.State.WAITING_FOR_MEMBERS);
+    assertThat(first.getPhaseMillis().get("load")).isGreaterThanOrEqualTo(100);
+
+    WarmupGate second = WarmupGate.create(member, metrics, "all-members", phases(0), 2, 10_000);
+    second.run();
+    firstThread.join(5_000);
+    assertThat(first.isReady()).isTrue();
+    assertThat(second.isReady()).isTrue();
+    assertThat(first.isTimedOut()).isFalse();
+    assertThat(first.getPhaseMillis()).containsKeys("load", "prime", "await-members");
+
+    // 闸门开启后加入的成员不再等待
+    WarmupGate late = WarmupGate.create(member, metrics, "all-members", phases(0), 2, 10_000);
+    late.run();
+    assertThat(late.isReady()).isTrue();
+    assertThat(late.getPhaseMillis().get("await-members")).isLessThan(1_000);
+    assertThat(metrics.histogram("warmupGate.countDown").getCount()).isEqualTo(2);
+    assertThat(metrics.histogram("warmupGate.await").getCount()).isEqualTo(2);
+  }
+
+  @Test
+  void opensAfterTimeoutWhenMembersAreMissing() throws Exception {
+    WarmupGate gate = WarmupGate.create(member, metrics, "missing-member", phases(0), 3, 200);
+    gate.run();
+    assertThat(gate.isReady()).isTrue();
+    assertThat(gate.isTimedOut()).isTrue();
+  }
+
+  @Test
+  void failedPhaseDoesNotBlockReadiness() throws Exception {
+    Map<String, Runnable> phases = new LinkedHashMap<>();
+    phases.put("broken", () -> {
+      throw new IllegalStateException("database unavailable");
+    });
+    WarmupGate gate = WarmupGate.create(member, metrics, "failing-phase", phases, 1, 5_000);
+    gate.run();
+    assertThat(gate.isReady()).isTrue();
+    assertThat(gate.getFailedPhases()).containsExactly("broken");
+  }
+
+  private static Map<String, Runnable> phases(long loadMillis) {
+    Map<String, Runnable> phases = new LinkedHashMap<>();
+    phases.put("load", () -> {
+      try {
+        Thread.sleep(loadMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    phases.put("prime", () -> {
+    });
+    return phases;
+  }
+
+  private static Thread start(WarmupGate gate) {
+    Thread thread = new Thread(() -> {
+      try {
+        gate.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,190 @@
+package org.example.hazelcast.demo.datastructure.cp.isemaphore;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 许可租借池的上限、归还和吞吐量测试
+ *
+ * 同一个成员上的多个许可池模拟多个成员共享同一组集群许可。
+ */
+class LeasedPermitPoolTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("permit-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void concurrentHoldersNeverExceedClusterLimit() throws Exception {
+    List<LeasedPermitPool> pools = pools("limit", 8, 3, 4, 50, 20);
+    AtomicInteger inUse = new AtomicInteger();
+    AtomicInteger maxInUse = new AtomicInteger();
+    runWorkers(pools, 4, 500, () -> {
+      maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+      Thread.yield();
+      inUse.decrementAndGet();
+    });
+    pools.forEach(LeasedPermitPool::close);
+
+    assertThat(maxInUse.get()).isLessThanOrEqualTo(8);
+    assertThat(pools.get(0).getClusterAvailablePermits()).isEqualTo(8);
+  }
+
+  @Test
+  void idlePermitsAreReturnedToOtherMembers() throws Exception {
+    List<LeasedPermitPool> pools = pools("idle", 4, 2, 4, 500, 60_000);
+    LeasedPermitPool first = pools.get(0);
+    LeasedPermitPool second = pools.get(1);
+
+    assertThat(first.tryAcquire(1, TimeUnit.SECONDS)).isTrue();
+    first.release();
+    assertThat(first.getLocalPermits()).isEqualTo(4);
+    assertThat(first.getClusterAvailablePermits()).isZero();
+
+    // first空闲后归还，second在超时前拿到全部许可
+    for (int i = 0; i < 4; i++) {
+      assertThat(second.tryAcquire(2, TimeUnit.SECONDS)).isTrue();
+    }
+    assertThat(first.getHeldPermits()).isZero();
+    pools.forEach(LeasedPermitPool::close);
+  }
+
+  /**
+   * 直接逐个获取/归还集群许可 vs 按块租借，输出吞吐量、集群调用次数和各池之间的公平性
+   */
+  @Test
+  @Tag("performance")
+  void compareWithDirectAcquireRelease() throws Exception {
+    // 3个池、每块4个许可，共享8个许可：同一时刻最多两个池持有整块许可，需要靠租约到期轮换
+    int permits = 8;
+    int operations = 5_000;
+    LeasedPermitPool.PermitSource direct = LeasedPermitPool.sourceFor(member, "bench-direct", permits);
+    for (int threads : new int[] { 1, 8 }) {
+      int perThread = operations / threads;
+      long start = System.nanoTime();
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      for (int t = 0; t < threads; t++) {
+        pool.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            while (direct.tryAcquireUpTo(1) == 0) {
+              Thread.onSpinWait();
+            }
+            direct.release(1);
+          }
+        });
+      }
+      pool.shutdown();
+      assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("direct  threads=%d: %,9.0f acquire+release/s, %d cluster calls%n",
+          threads, threads * perThread / seconds, 2L * threads * perThread);
+
+      // 固定时长运行，比较各池在竞争下拿到的许可数
+      List<LeasedPermitPool> pools = pools("bench-leased-" + threads, permits, 3, 4, 20, 10);
+      int perPool = Math.max(1, threads / 3);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+      ExecutorService executor = Executors.newFixedThreadPool(pools.size() * perPool);
+      start = System.nanoTime();
+      for (LeasedPermitPool p : pools) {
+        for (int t = 0; t < perPool; t++) {
+          executor.submit(() -> {
+            while (System.nanoTime() < deadline) {
+              if (p.tryAcquire(1, TimeUnit.SECONDS)) {
+                p.release();
+              }
+            }
+            return null;
+          });
+        }
+      }
+      executor.shutdown();
+      assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+      seconds = (System.nanoTime() - start) / 1e9;
+      pools.forEach(LeasedPermitPool::close);
+
+      long[] acquiredPerPool = new long[pools.size()];
+      long total = 0;
+      long leaseCalls = 0;
+      for (int i = 0; i < pools.size(); i++) {
+        acquiredPerPool[i] = pools.get(i).getAcquiredCount();
+        total += acquiredPerPool[i];
+        leaseCalls += pools.get(i).getLeaseCallCount();
+      }
+      System.out.printf("leased  threads=%d: %,9.0f acquire+release/s, %d lease calls, per pool %s, fairness %.3f%n",
+          pools.size() * perPool, total / seconds, leaseCalls, Arrays.toString(acquiredPerPool), jainIndex(acquiredPerPool));
+    }
+  }
+
+  private static List<LeasedPermitPool> pools(String name, int permits, int count, int leaseSize, long idleMillis,
+      long maxLeaseMillis) {
+    List<LeasedPermitPool> pools = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      pools.add(new LeasedPermitPool(name + "-" + i, LeasedPermitPool.sourceFor(member, name, permits), leaseSize,
+          idleMillis, maxLeaseMillis));
+    }
+    return pools;
+  }
+
+  private static void runWorkers(List<LeasedPermitPool> pools, int threadsPerPool, int operationsPerThread,
+      Runnable work) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(pools.size() * threadsPerPool);
+    LongAdder failures = new LongAdder();
+    for (LeasedPermitPool pool : pools) {
+      for (int t = 0; t < threadsPerPool; t++) {
+        executor.submit(() -> {
+          for (int i = 0; i < operationsPerThread; i++) {
+            if (!pool.tryAcquire(10, TimeUnit.SECONDS)) {
+              failures.increment();
+              continue;
+            }
+            try {
+              work.run();
+            } finally {
+              pool.release();
+            }
+          }
+          return null;
+        });
+      }
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+    assertThat(failures.sum()).isZero();
+  }
+
+  /**
+   * Jain公平性指数，1表示各池获得的许可完全均衡
+   */
+  private static double jainIndex(long[] counts) {
+    double sum = 0;
+    double squares = 0;
+    for (long count : counts) {
+      sum += count;
+      squares += (double) count * count;
+    }
+    return squares == 0 ? 1 : sum * sum / (counts.length * squares);
+  }
+}
@@ -0,0 +1,150 @@
+package org.example.hazelcast.demo.ratelimit;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 令牌桶限流的突发、成员间分摊、令牌桶数量上限和本地路径延迟测试
+ *
+ * 同一个成员上的多个ClusterRateLimiter使用不同的成员ID，模拟多个成员共享同一组限额。
+ */
+class ClusterRateLimiterTest {
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    member = TestMembers.newIsolatedMember("rate-limit-test");
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @Test
+  void burstIsAllowedThenRequestsAreRejected() {
+    try (ClusterRateLimiter limiter = limiter("single", 1)) {
+      int allowed = 0;
+      for (int i = 0; i < 100; i++) {
+        if (limiter.tryAcquire("client|GET /product/{id}", 5, 10)) {
+          allowed++;
+        }
+      }
+      // 突发容量10，循环期间最多再补充一两个令牌
+      assertThat(allowed).isBetween(10, 12);
+    }
+  }
+
+  @Test
+  void membersShareClusterLimitByDemand() throws Exception {
+    IMap<String, ClusterRateLimiter.MemberDemands> demands = member.getMap(ClusterRateLimiter.DEMAND_MAP);
+    try (ClusterRateLimiter busy = new ClusterRateLimiter(demands, member.getPartitionService(), "busy", () -> 2, 200, 60_000, 1_000);
+        ClusterRateLimiter quiet = new ClusterRateLimiter(demands, member.getPartitionService(), "quiet", () -> 2, 200, 60_000, 1_000)) {
+      String key = "client|GET /product";
+      double rate = 200;
+      int allowed = 0;
+      long end = System.nanoTime() + 2_000_000_000L;
+      int round = 0;
+      while (System.nanoTime() < end) {
+        // busy收到的请求是quiet的9倍
+        for (int i = 0; i < 9; i++) {
+          allowed += busy.tryAcquire(key, rate, 20) ? 1 : 0;
+        }
+        allowed += quiet.tryAcquire(key, rate, 20) ? 1 : 0;
+        if (++round % 20 == 0) {
+          busy.sync();
+          quiet.sync();
+        }
+        Thread.sleep(1);
+      }
+      // 循环中两个成员汇报的请求数来自不同的周期，份额之和不一定为1；
+      // 先汇报循环剩下的请求，再按9:1各跑两轮，两边最后看到的请求数一致
+      busy.sync();
+      quiet.sync();
+      for (int settle = 0; settle < 2; settle++) {
+        for (int i = 0; i < 9; i++) {
+          busy.tryAcquire(key, rate, 20);
+        }
+        quiet.tryAcquire(key, rate, 20);
+        busy.sync();
+        quiet.sync();
+      }
+      assertThat(busy.getShare(key) + quiet.getShare(key)).isCloseTo(1.0, org.assertj.core.data.Offset.offset(0.01));
+      assertThat(busy.getShare(key)).isGreaterThan(0.8);
+      // 2秒内集群总放行量接近 200/s × 2s + 突发
+      assertThat(allowed).isBetween(300, 460);
+    }
+  }
+
+  @Test
+  void newKeysShareOverflowBucketOnceCapIsReached() {
+    try (ClusterRateLimiter limiter = limiter("capped", 1, 100)) {
+      for (int i = 0; i < 100; i++) {
+        assertThat(limiter.tryAcquire("ip:10.0.0." + i + "|GET /product", 5, 10)).isTrue();
+      }
+      // 不断换键的客户端落到同一个溢出桶，突发容量用完后被拒绝
+      int allowed = 0;
+      for (int i = 100; i < 1_100; i++) {
+        if (limiter.tryAcquire("ip:10.0." + i + "|GET /product", 5, 10)) {
+          allowed++;
+        }
+      }
+      assertThat(allowed).isBetween(10, 12);
+      assertThat(limiter.getTrackedKeyCount()).isEqualTo(101);
+      assertThat(limiter.getOverflowedCount()).isEqualTo(1_000);
+      // 已有的键不受影响
+      assertThat(limiter.tryAcquire("ip:10.0.0.1|GET /product", 5, 10)).isTrue();
+    }
+  }
+
+  /**
+   * 请求路径上的开销：只访问本地令牌桶
+   */
+  @Test
+  @Tag("performance")
+  void localPathLatency() {
+    try (ClusterRateLimiter limiter = limiter("latency", 3)) {
+      String[] keys = new String[10_000];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = "client-" + i + "|GET /product/{id}";
+      }
+      int operations = 2_000_000;
+      for (int i = 0; i < operations; i++) {
+        limiter.tryAcquire(keys[i % keys.length], 1_000, 100);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < operations; i++) {
+        limiter.tryAcquire(keys[i % keys.length], 1_000, 100);
+      }
+      double nanosPerOp = (double) (System.nanoTime() - start) / operations;
+      System.out.printf("tryAcquire over %d keys: %.0f ns/op%n", keys.length, nanosPerOp);
+      assertThat(nanosPerOp).isLessThan(10_000);
+
+      for (int round = 0; round < 3; round++) {
+        for (String key : keys) {
+          limiter.tryAcquire(key, 1_000, 100);
+        }
+        long syncStart = System.nanoTime();
+        limiter.sync();
+        System.out.printf("sync of %d active keys: %.1f ms%n", keys.length, (System.nanoTime() - syncStart) / 1e6);
+      }
+    }
+  }
+
+  private static ClusterRateLimiter limiter(String memberId, int clusterSize) {
+    return limiter(memberId, clusterSize, 100_000);
+  }
+
+  private static ClusterRateLimiter limiter(String memberId, int clusterSize, int maxTrackedKeys) {
+    return new ClusterRateLimiter(member.getMap(ClusterRateLimiter.DEMAND_MAP), member.getPartitionService(), memberId, () -> clusterSize,
+        60_000, 60_000, maxTrackedKeys);
+  }
+}
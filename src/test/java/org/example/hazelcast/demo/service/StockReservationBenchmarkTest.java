@@ -0,0 +1,116 @@
+package org.example.hazelcast.demo.service;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.model.Product;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热点商品库存扣减：锁、replace CAS和EntryProcessor三种方式在1/16/256线程下的对比
+ *
+ * 所有线程争抢同一个商品，每轮总扣减次数固定，输出吞吐量、p50/p99延迟和重试比例。
+ * 使用 mvn test -Pperf -Dtest=StockReservationBenchmarkTest 运行。
+ */
+@Tag("performance")
+class StockReservationBenchmarkTest {
+
+  private static final long HOT_SKU = 1L;
+  private static final int OPERATIONS = 4_096;
+  private static final int[] THREADS = { 1, 16, 256 };
+
+  private static HazelcastInstance member;
+
+  @BeforeAll
+  static void startMember() {
+    Config config = TestMembers.isolatedConfig("reservation-bench");
+    config.addMapConfig(new MapConfig("products").setBackupCount(0));
+    member = Hazelcast.newHazelcastInstance(config);
+
+    // 预热，避免第一组结果受JIT影响
+    StockReservationService warmup = new StockReservationService(member);
+    member.<Long, Product>getMap("products").set(HOT_SKU, new Product(HOT_SKU, "hot", "bench", new BigDecimal("1.00"), Integer.MAX_VALUE));
+    for (StockReservationService.Strategy strategy : StockReservationService.Strategy.values()) {
+      for (int i = 0; i < 2_000; i++) {
+        warmup.reserve(HOT_SKU, 1, strategy);
+      }
+    }
+  }
+
+  @AfterAll
+  static void stopMember() {
+    member.shutdown();
+  }
+
+  @ParameterizedTest
+  @EnumSource(StockReservationService.Strategy.class)
+  void hotSku(StockReservationService.Strategy strategy) throws Exception {
+    for (int threads : THREADS) {
+      StockReservationService service = new StockReservationService(member);
+      IMap<Long, Product> products = member.getMap("products");
+      products.set(HOT_SKU, new Product(HOT_SKU, "hot", "bench", new BigDecimal("1.00"), OPERATIONS));
+
+      long[] latencies = new long[OPERATIONS];
+      AtomicInteger next = new AtomicInteger();
+      Map<ReservationStatus, AtomicInteger> outcomes = new EnumMap<>(ReservationStatus.class);
+      for (ReservationStatus status : ReservationStatus.values()) {
+        outcomes.put(status, new AtomicInteger());
+      }
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      for (int t = 0; t < threads; t++) {
+        pool.submit(() -> {
+          start.await();
+          int i;
+          while ((i = next.getAndIncrement()) < OPERATIONS) {
+            long s = System.nanoTime();
+            ReservationStatus status = service.reserve(HOT_SKU, 1, strategy);
+            latencies[i] = System.nanoTime() - s;
+            outcomes.get(status).incrementAndGet();
+          }
+          return null;
+        });
+      }
+      long begin = System.nanoTime();
+      start.countDown();
+      pool.shutdown();
+      assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+      double seconds = (System.nanoTime() - begin) / 1e9;
+
+      int reserved = outcomes.get(ReservationStatus.RESERVED).get();
+      Product after = products.get(HOT_SKU);
+      // 不能超卖：成功次数与库存减少量一致
+      assertThat(after.getStock()).isEqualTo(OPERATIONS - reserved);
+      assertThat(after.getVersion()).isEqualTo(reserved);
+      if (strategy == StockReservationService.Strategy.ENTRY_PROCESSOR) {
+        assertThat(reserved).isEqualTo(OPERATIONS);
+      }
+
+      Arrays.sort(latencies);
+      StockReservationService.KeyContentionStats stats = service.getTopContendedKeys(1).get(0);
+      System.out.printf("%-15s threads=%3d: %7.0f ops/s, p50 %7.1f µs, p99 %8.1f µs, retry rate %.2f, contended %d%n",
+          strategy, threads, OPERATIONS / seconds, latencies[OPERATIONS / 2] / 1e3,
+          latencies[OPERATIONS * 99 / 100] / 1e3, stats.conflictRate(),
+          outcomes.get(ReservationStatus.CONTENDED).get());
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.example.hazelcast.demo.service;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MapStoreConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.model.Product;
+import org.example.hazelcast.demo.store.ProductMapStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 库存预留的正确性：并发扣减不超卖、版本冲突、库存不足，以及版本号在重新加载后保持不变
+ *
+ * products通过ProductMapStore写穿透到H2，与应用中的配置一致
+ */
+class StockReservationServiceTest {
+
+  private static HazelcastInstance member;
+  private static DriverManagerDataSource dataSource;
+  private static ProductMapStore store;
+  private static StockReservationService service;
+
+  @BeforeAll
+  static void setUp() {
+    dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:reservation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    store = new ProductMapStore(dataSource);
+
+    Config config = TestMembers.isolatedConfig("reservation-test");
+    config.addMapConfig(new MapConfig("products")
+        .setMapStoreConfig(new MapStoreConfig().setImplementation(store).setWriteDelaySeconds(0)));
+    member = Hazelcast.newHazelcastInstance(config);
+    service = new StockReservationService(member);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    member.shutdown();
+    store.shutdown();
+    new JdbcTemplate(dataSource).execute("SHUTDOWN");
+  }
+
+  @ParameterizedTest
+  @EnumSource(StockReservationService.Strategy.class)
+  void concurrentReservationsNeverOversell(StockReservationService.Strategy strategy) throws Exception {
+    long productId = 100 + strategy.ordinal();
+    products().set(productId, product(productId, 50));
+
+    Map<ReservationStatus, AtomicInteger> outcomes = new EnumMap<>(ReservationStatus.class);
+    for (ReservationStatus status : ReservationStatus.values()) {
+      outcomes.put(status, new AtomicInteger());
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      futures.add(pool.submit(() -> outcomes.get(service.reserve(productId, 1, strategy)).incrementAndGet()));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    pool.shutdown();
+
+    Product result = products().get(productId);
+    int reserved = outcomes.get(ReservationStatus.RESERVED).get();
+    assertThat(result.getStock()).isGreaterThanOrEqualTo(0).isEqualTo(50 - reserved);
+    assertThat(result.getVersion()).isEqualTo(reserved);
+    if (strategy == StockReservationService.Strategy.ENTRY_PROCESSOR) {
+      // 分区线程上串行扣减，不会因竞争放弃
+      assertThat(reserved).isEqualTo(50);
+      assertThat(outcomes.get(ReservationStatus.INSUFFICIENT_STOCK).get()).isEqualTo(70);
+    }
+  }
+
+  @Test
+  void staleVersionIsRejectedWithoutChangingStock() {
+    products().set(200L, product(200L, 10));
+
+    assertThat(service.reserve(200L, 2, 0)).isEqualTo(ReservationStatus.RESERVED);
+    assertThat(service.reserve(200L, 2, 0)).isEqualTo(ReservationStatus.VERSION_CONFLICT);
+    assertThat(products().get(200L).getStock()).isEqualTo(8);
+    assertThat(service.reserve(200L, 2, 1)).isEqualTo(ReservationStatus.RESERVED);
+    assertThat(products().get(200L).getVersion()).isEqualTo(2);
+  }
+
+  @Test
+  void insufficientStockAndMissingProduct() {
+    products().set(300L, product(300L, 2));
+
+    assertThat(service.reserve(300L, 3)).isEqualTo(ReservationStatus.INSUFFICIENT_STOCK);
+    assertThat(service.reserve(300L, 2)).isEqualTo(ReservationStatus.RESERVED);
+    assertThat(service.reserve(300L, 1)).isEqualTo(ReservationStatus.INSUFFICIENT_STOCK);
+    assertThat(products().get(300L).getStock()).isZero();
+    assertThat(service.reserve(301L, 1)).isEqualTo(ReservationStatus.NOT_FOUND);
+    assertThatThrownBy(() -> service.reserve(300L, 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void versionSurvivesEvictionAndReload() {
+    products().set(400L, product(400L, 10));
+    assertThat(service.reserve(400L, 1, 0)).isEqualTo(ReservationStatus.RESERVED);
+
+    // 驱逐后从数据库重新加载，版本号不能回到0，否则旧版本号会再次匹配
+    products().evict(400L);
+    assertThat(store.load(400L).getVersion()).isEqualTo(1);
+    assertThat(service.reserve(400L, 1, 0)).isEqualTo(ReservationStatus.VERSION_CONFLICT);
+    assertThat(service.reserve(400L, 1, 1)).isEqualTo(ReservationStatus.RESERVED);
+    assertThat(products().get(400L).getStock()).isEqualTo(8);
+  }
+
+  private static IMap<Long, Product> products() {
+    return member.getMap("products");
+  }
+
+  private static Product product(long id, int stock) {
+    return new Product(id, "product-" + id, "test", new BigDecimal("9.99"), stock);
+  }
+}
@@ -0,0 +1,217 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.map.MapStore;
+import com.hazelcast.map.ReachedMaxSizeException;
+import org.example.hazelcast.demo.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 有界写后队列集成测试：用H2模拟MySQL，并在storeAll中加入延迟模拟慢数据库
+ */
+class BoundedWriteBehindStoreTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private ProductMapStore productMapStore;
+  private BoundedWriteBehindStore<Long, Product> store;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:write-behind-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+        + "category VARCHAR(255), price DECIMAL(10, 2), stock INT, version BIGINT NOT NULL DEFAULT 0)");
+    productMapStore = new ProductMapStore(dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (store != null) {
+      store.shutdown();
+    }
+    productMapStore.shutdown();
+  }
+
+  @Test
+  void rejectPolicyFailsFastWhenQueueIsFull() {
+    store = newStore(10, WriteBehindOverflowPolicy.REJECT, 500);
+
+    int rejected = 0;
+    for (long id = 1; id <= 100; id++) {
+      try {
+        store.store(id, product(id, 1));
+      } catch (ReachedMaxSizeException e) {
+        rejected++;
+      }
+      assertThat(store.getQueueDepth()).isLessThanOrEqualTo(10);
+    }
+
+    assertThat(rejected).isGreaterThan(0);
+    assertThat(store.getRejectedCount()).isEqualTo(rejected);
+  }
+
+  @Test
+  void blockPolicyKeepsQueueBoundedAndPersistsEverything() throws Exception {
+    store = newStore(20, WriteBehindOverflowPolicy.BLOCK, 20);
+
+    ExecutorService producers = Executors.newFixedThreadPool(4);
+    AtomicInteger maxDepth = new AtomicInteger();
+    for (int t = 0; t < 4; t++) {
+      int offset = t * 50;
+      producers.submit(() -> {
+        for (long id = offset + 1; id <= offset + 50; id++) {
+          // 背压在调用方：等到有空位再写，分区线程上的短暂等待仍可能超时，重试即可
+          while (true) {
+            assertThat(store.awaitCapacity(10_000)).isTrue();
+            try {
+              store.store(id, product(id, 1));
+              break;
+            } catch (ReachedMaxSizeException e) {
+              // 其他写入方抢先占用了空位
+            }
+          }
+          maxDepth.accumulateAndGet(store.getQueueDepth(), Math::max);
+        }
+      });
+    }
+    producers.shutdown();
+    assertThat(producers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    store.shutdown();
+    store = null;
+
+    assertThat(maxDepth.get()).isLessThanOrEqualTo(20);
+    assertThat(countRows()).isEqualTo(200);
+  }
+
+  @Test
+  void spillPolicyAcceptsAllWritesAndPreservesLatestValue() throws Exception {
+    store = newStore(10, WriteBehindOverflowPolicy.SPILL, 50);
+
+    for (long id = 1; id <= 100; id++) {
+      store.store(id, product(id, 1));
+    }
+    // 溢出之后对已排队键的更新也必须以最后一次为准
+    store.store(1L, product(1L, 2));
+
+    assertThat(store.getSpilledCount()).isGreaterThan(0);
+    assertThat(store.getRejectedCount()).isZero();
+
+    long deadline = System.currentTimeMillis() + 30_000;
+    while ((store.getQueueDepth() > 0 || store.getSpilledDepth() > 0) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+
+    assertThat(store.getSpilledDepth()).isZero();
+    assertThat(countRows()).isEqualTo(100);
+    assertThat(jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = 1", Integer.class)).isEqualTo(2);
+  }
+
+  @Test
+  void loadsSeeSpilledWritesBeforeTheyAreReadBack() {
+    store = newStore(10, WriteBehindOverflowPolicy.SPILL, 500);
+
+    for (long id = 1; id <= 100; id++) {
+      store.store(id, product(id, 1));
+    }
+    store.store(1L, product(1L, 2));
+    store.delete(99L);
+    assertThat(store.getSpilledDepth()).isGreaterThan(0);
+
+    // 1的新值和99的删除都还在溢出文件中，95只在溢出文件中，5在内存队列中
+    assertThat(store.load(1L).getStock()).isEqualTo(2);
+    assertThat(store.load(95L).getName()).isEqualTo("product-95");
+    assertThat(store.load(99L)).isNull();
+    Map<Long, Product> loaded = store.loadAll(List.of(1L, 5L, 95L, 99L));
+    assertThat(loaded).containsOnlyKeys(1L, 5L, 95L);
+    assertThat(loaded.get(1L).getStock()).isEqualTo(2);
+  }
+
+  private BoundedWriteBehindStore<Long, Product> newStore(int capacity, WriteBehindOverflowPolicy policy,
+      long storeDelayMillis) {
+    return new BoundedWriteBehindStore<>("test", new SlowMapStore(productMapStore, storeDelayMillis),
+        capacity, policy, 10_000, 10, 10, tempDir.resolve("products.spill"));
+  }
+
+  private int countRows() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class);
+  }
+
+  private static Product product(long id, int stock) {
+    return new Product(id, "product-" + id, "test", new BigDecimal("9.99"), stock);
+  }
+
+  /**
+   * 每次批量写入前睡眠，模拟慢数据库
+   */
+  private static class SlowMapStore implements MapStore<Long, Product> {
+
+    private final ProductMapStore delegate;
+    private final long delayMillis;
+
+    SlowMapStore(ProductMapStore delegate, long delayMillis) {
+      this.delegate = delegate;
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public void store(Long key, Product value) {
+      storeAll(Map.of(key, value));
+    }
+
+    @Override
+    public void storeAll(Map<Long, Product> map) {
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      delegate.storeAll(map);
+    }
+
+    @Override
+    public void delete(Long key) {
+      delegate.delete(key);
+    }
+
+    @Override
+    public void deleteAll(Collection<Long> keys) {
+      delegate.deleteAll(keys);
+    }
+
+    @Override
+    public Product load(Long key) {
+      return delegate.load(key);
+    }
+
+    @Override
+    public Map<Long, Product> loadAll(Collection<Long> keys) {
+      return delegate.loadAll(keys);
+    }
+
+    @Override
+    public Iterable<Long> loadAllKeys() {
+      return delegate.loadAllKeys();
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package org.example.hazelcast.demo.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 读穿透加载器的单飞与批量合并、单键不等窗口、负缓存TTL、加载期间的失效和异常传播测试
+ */
+class CoalescingLoaderTest {
+
+  private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+  private final ExecutorService callers = Executors.newFixedThreadPool(11);
+  private CoalescingLoader<Long, String> loader;
+
+  @AfterEach
+  void tearDown() {
+    loader.shutdown();
+    callers.shutdownNow();
+  }
+
+  @Test
+  void concurrentLoadsAreCoalescedIntoOneBatch() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    loader = newLoader(keys -> {
+      // 第一次查询执行期间到达的键合并到下一批
+      if (keys.contains(0L)) {
+        await(release);
+      }
+      Map<Long, String> result = new HashMap<>();
+      keys.stream().filter(id -> id % 2 == 0).forEach(id -> result.put(id, "value-" + id));
+      return result;
+    }, 30_000, 100);
+
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> loader.load(0L), callers);
+    awaitUntil(batches::size, 1);
+    List<CompletableFuture<String>> loads = new ArrayList<>();
+    for (int round = 0; round < 2; round++) {
+      for (long id = 1; id <= 5; id++) {
+        long key = id;
+        loads.add(CompletableFuture.supplyAsync(() -> loader.load(key), callers));
+      }
+    }
+    awaitUntil(loader::getPendingKeys, 5);
+    awaitUntil(loader::getCoalescedLoads, 5);
+    release.countDown();
+    List<String> values = loads.stream().map(CompletableFuture::join).toList();
+
+    assertThat(first.join()).isEqualTo("value-0");
+    assertThat(values).containsExactly(null, "value-2", null, "value-4", null, null, "value-2", null, "value-4",
+        null);
+    assertThat(batches).hasSize(2);
+    assertThat(batches.get(1)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+    assertThat(loader.getCoalescedLoads()).isEqualTo(5);
+    assertThat(loader.getNegativeCacheSize()).isEqualTo(3);
+  }
+
+  @Test
+  void loneKeyDoesNotWaitForBatchWindow() {
+    loader = newLoader(keys -> Map.of(1L, "value-1"), 30_000, 10_000);
+
+    long start = System.nanoTime();
+    assertThat(loader.load(1L)).isEqualTo("value-1");
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+  }
+
+  @Test
+  void missIsCachedUntilTtlExpires() throws Exception {
+    loader = newLoader(keys -> Map.of(), 200, 1);
+
+    assertThat(loader.load(99L)).isNull();
+    assertThat(loader.load(99L)).isNull();
+    assertThat(loader.getNegativeHits()).isEqualTo(1);
+    assertThat(batches).hasSize(1);
+
+    Thread.sleep(250);
+    assertThat(loader.load(99L)).isNull();
+    assertThat(batches).hasSize(2);
+  }
+
+  @Test
+  void invalidateDuringLoadKeepsMissOutOfNegativeCache() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch written = new CountDownLatch(1);
+    Map<Long, String> database = new HashMap<>();
+    loader = newLoader(keys -> {
+      // 第一次查询读到"不存在"之后，写入方才提交并invalidate
+      Map<Long, String> result = new HashMap<>();
+      keys.stream().filter(database::containsKey).forEach(id -> result.put(id, database.get(id)));
+      loading.countDown();
+      await(written);
+      return result;
+    }, 30_000, 1);
+
+    CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> loader.load(7L), callers);
+    assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+    database.put(7L, "written");
+    loader.invalidate(7L);
+    written.countDown();
+
+    assertThat(load.get(5, TimeUnit.SECONDS)).isNull();
+    assertThat(loader.getNegativeCacheSize()).isZero();
+    assertThat(loader.load(7L)).isEqualTo("written");
+    assertThat(batches).hasSize(2);
+
+    // 加载完成后的invalidate直接清除负缓存
+    assertThat(loader.load(8L)).isNull();
+    assertThat(loader.getNegativeCacheSize()).isEqualTo(1);
+    loader.invalidate(8L);
+    assertThat(loader.getNegativeCacheSize()).isZero();
+  }
+
+  @Test
+  void loaderFailureReachesAllWaitersAndIsNotCached() throws Exception {
+    IllegalStateException failure = new IllegalStateException("database unavailable");
+    boolean[] failing = { true };
+    CountDownLatch bothWaiting = new CountDownLatch(1);
+    loader = newLoader(keys -> {
+      if (failing[0]) {
+        await(bothWaiting);
+        throw failure;
+      }
+      return Map.of(5L, "recovered");
+    }, 30_000, 50);
+
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> loader.load(5L), callers);
+    CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> loader.load(5L), callers);
+    awaitUntil(loader::getCoalescedLoads, 1);
+    bothWaiting.countDown();
+    for (CompletableFuture<String> load : List.of(first, second)) {
+      assertThatThrownBy(load::join).hasCause(failure);
+    }
+    assertThat(batches).hasSize(1);
+    assertThat(loader.getNegativeCacheSize()).isZero();
+
+    failing[0] = false;
+    assertThat(loader.load(5L)).isEqualTo("recovered");
+  }
+
+  private CoalescingLoader<Long, String> newLoader(Function<Collection<Long>, Map<Long, String>> database,
+      long negativeTtlMillis, long batchWindowMillis) {
+    return new CoalescingLoader<>("test", keys -> {
+      batches.add(List.copyOf(keys));
+      return database.apply(keys);
+    }, negativeTtlMillis, batchWindowMillis, 50, 1_000);
+  }
+
+  private static void awaitUntil(LongSupplier actual, long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (actual.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(actual.getAsLong()).isEqualTo(expected);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.QueueConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.example.hazelcast.demo.TestMembers;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JdbcQueueStore的批量读写、重启恢复和吞吐量测试
+ */
+class JdbcQueueStoreTest {
+
+  @Test
+  void pendingItemsSurviveRestartInFifoOrder() {
+    DataSource dataSource = dataSource("queue-restart");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    HazelcastInstance member = startMember(dataSource, 100, 50);
+    IQueue<String> queue = member.getQueue("durable-restart");
+    List<String> items = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      items.add("item-" + i);
+    }
+    queue.addAll(items);
+    assertThat(queue.poll()).isEqualTo("item-0");
+    assertThat(queue.drainTo(new ArrayList<>(), 9)).isEqualTo(9);
+    member.shutdown();
+    assertThat(rowCount(jdbcTemplate)).isEqualTo(990);
+
+    member = startMember(dataSource, 100, 50);
+    try {
+      queue = member.getQueue("durable-restart");
+      assertThat(queue.size()).isEqualTo(990);
+      assertThat(queue.poll()).isEqualTo("item-10");
+      List<String> rest = new ArrayList<>();
+      queue.drainTo(rest);
+      assertThat(rest).hasSize(989).startsWith("item-11").endsWith("item-999");
+      assertThat(rowCount(jdbcTemplate)).isZero();
+
+      // 恢复后的ID从最大ID之后继续
+      queue.offer("after-restart");
+      assertThat(jdbcTemplate.queryForObject("SELECT MIN(item_id) FROM queue_item", Long.class)).isGreaterThan(999);
+    } finally {
+      member.shutdown();
+    }
+  }
+
+  @Test
+  void bulkOperationsHandleContiguousAndScatteredIds() {
+    DataSource dataSource = dataSource("queue-bulk");
+    JdbcQueueStore store = new JdbcQueueStore(dataSource, "durable-bulk");
+    JdbcQueueStore other = new JdbcQueueStore(dataSource, "durable-other");
+    store.storeAll(Map.of(1L, new byte[] {1}, 2L, new byte[] {2}, 3L, new byte[] {3}, 7L, new byte[] {7}));
+    other.store(2L, new byte[] {42});
+
+    assertThat(store.loadAllKeys()).containsExactly(1L, 2L, 3L, 7L);
+    assertThat(store.loadAll(List.of(1L, 2L, 3L))).containsOnlyKeys(1L, 2L, 3L);
+    assertThat(store.loadAll(List.of(1L, 7L)).get(7L)).containsExactly(7);
+    assertThat(store.load(2L)).containsExactly(2);
+    assertThat(store.load(5L)).isNull();
+
+    store.deleteAll(List.of(1L, 2L));
+    store.deleteAll(List.of(3L, 7L, 9L));
+    assertThat(store.loadAllKeys()).isEmpty();
+    assertThat(other.load(2L)).containsExactly(42);
+  }
+
+  /**
+   * 100万个约100字节的元素：addAll写入、重启后恢复、drainTo取空，内存中只保留1万个元素的内容
+   */
+  @Test
+  @Tag("performance")
+  void millionItemThroughputAndRecovery() {
+    int items = 1_000_000;
+    int batch = 1_000;
+    DataSource dataSource = dataSource("queue-perf");
+    String padding = "x".repeat(80);
+
+    HazelcastInstance member = startMember(dataSource, 10_000, 1_000);
+    IQueue<String> queue = member.getQueue("durable-perf");
+    long start = System.nanoTime();
+    List<String> chunk = new ArrayList<>(batch);
+    for (int i = 0; i < items; i++) {
+      chunk.add(i + padding);
+      if (chunk.size() == batch) {
+        queue.addAll(chunk);
+        chunk.clear();
+      }
+    }
+    double storeSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("addAll x%d: %,d items in %.1f s, %,.0f items/s%n", batch, items, storeSeconds,
+        items / storeSeconds);
+
+    IQueue<String> single = member.getQueue("durable-perf-single");
+    start = System.nanoTime();
+    for (int i = 0; i < 100_000; i++) {
+      single.offer(i + padding);
+    }
+    double singleSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("offer one by one: 100,000 items in %.1f s, %,.0f items/s%n", singleSeconds,
+        100_000 / singleSeconds);
+    member.shutdown();
+
+    member = startMember(dataSource, 10_000, 1_000);
+    try {
+      start = System.nanoTime();
+      queue = member.getQueue("durable-perf");
+      int recovered = queue.size();
+      double recoverySeconds = (System.nanoTime() - start) / 1e9;
+      assertThat(recovered).isEqualTo(items);
+      System.out.printf("restart recovery: %,d item ids in %.2f s%n", recovered, recoverySeconds);
+
+      start = System.nanoTime();
+      List<String> drained = new ArrayList<>(batch);
+      long total = 0;
+      while (queue.drainTo(drained, batch) > 0) {
+        total += drained.size();
+        drained.clear();
+      }
+      double drainSeconds = (System.nanoTime() - start) / 1e9;
+      assertThat(total).isEqualTo(items);
+      System.out.printf("drainTo x%d: %,d items in %.1f s, %,.0f items/s%n", batch, total, drainSeconds,
+          total / drainSeconds);
+    } finally {
+      member.shutdown();
+    }
+  }
+
+  private static DataSource dataSource(String name) {
+    String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    return dataSource;
+  }
+
+  private static HazelcastInstance startMember(DataSource dataSource, int memoryLimit, int bulkLoad) {
+    Config config = TestMembers.isolatedConfig("jdbc-queue-store-test")
+        .addQueueConfig(new QueueConfig("durable-*")
+            .setQueueStoreConfig(JdbcQueueStore.queueStoreConfig(dataSource, memoryLimit, bulkLoad)));
+    return Hazelcast.newHazelcastInstance(config);
+  }
+
+  private static int rowCount(JdbcTemplate jdbcTemplate) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM queue_item", Integer.class);
+  }
+}
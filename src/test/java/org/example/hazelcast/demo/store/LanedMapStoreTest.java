@@ -0,0 +1,190 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.map.MapStore;
+import org.example.hazelcast.demo.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分道MapStore的按分区路由、每通道一次批量调用、通道线程上的单键写入和共用未命中加载器测试
+ */
+class LanedMapStoreTest {
+
+  private LanedMapStore<Long, String> store;
+
+  @AfterEach
+  void tearDown() {
+    if (store != null) {
+      store.shutdown();
+    }
+  }
+
+  @Test
+  void batchesAreSplitByPartitionWithOneCallPerLane() {
+    List<RecordingStore> lanes = lanes(4);
+    store = new LanedMapStore<>("routing", List.copyOf(lanes), key -> (int) (key % 8), List.of());
+
+    Map<Long, String> values = LongStream.range(0, 100).boxed()
+        .collect(Collectors.toMap(id -> id, id -> "v" + id));
+    store.storeAll(values);
+    store.deleteAll(List.of(1L, 2L, 5L));
+    Map<Long, String> loaded = store.loadAll(LongStream.range(0, 10).boxed().toList());
+
+    for (int lane = 0; lane < 4; lane++) {
+      RecordingStore recording = lanes.get(lane);
+      int expectedLane = lane;
+      assertThat(recording.keys).allMatch(key -> key % 4 == expectedLane);
+      assertThat(recording.calls.stream().filter(call -> call.startsWith("storeAll"))).hasSize(1);
+      assertThat(recording.calls.stream().filter(call -> call.startsWith("loadAll"))).hasSize(1);
+      assertThat(recording.threads).containsOnly("routing-lane-" + lane);
+    }
+    // 分区1和5都落在通道1上，合并为一次deleteAll
+    assertThat(lanes.get(1).calls).contains("deleteAll[1, 5]");
+    assertThat(lanes.get(2).calls).contains("deleteAll[2]");
+    assertThat(loaded).hasSize(10).containsEntry(7L, "lane-3");
+    assertThat(store.getLaneEntryCounts()).containsExactly(28, 30, 28, 27);
+  }
+
+  @Test
+  void singleKeyWritesRunOnTheKeysLaneInOrder() {
+    List<RecordingStore> lanes = lanes(2);
+    store = new LanedMapStore<>("single", List.copyOf(lanes), key -> key.intValue(), List.of());
+
+    store.store(3L, "a");
+    store.storeAll(Map.of(3L, "b", 4L, "c"));
+    store.delete(3L);
+    assertThat(store.load(3L)).isEqualTo("lane-1");
+
+    assertThat(lanes.get(1).calls).containsExactly("store[3]", "storeAll[3]", "delete[3]", "load[3]");
+    // 写入在通道线程上，单键读取在调用线程上
+    assertThat(lanes.get(1).threads.subList(0, 3)).containsOnly("single-lane-1");
+    assertThat(lanes.get(1).threads.get(3)).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  void failureInOneLaneIsRethrownAfterOthersFinish() {
+    List<RecordingStore> lanes = lanes(3);
+    lanes.get(1).failing = true;
+    store = new LanedMapStore<>("failure", List.copyOf(lanes), key -> key.intValue(), List.of());
+
+    assertThatThrownBy(() -> store.storeAll(Map.of(0L, "a", 1L, "b", 2L, "c")))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("lane down");
+    assertThat(lanes.get(0).calls).containsExactly("storeAll[0]");
+    assertThat(lanes.get(2).calls).containsExactly("storeAll[2]");
+    assertThatThrownBy(() -> store.store(1L, "b")).hasMessage("lane down");
+  }
+
+  @Test
+  void productLanesShareTheMissLoader() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:laned-" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    ProductMapStore products = new ProductMapStore(dataSource);
+    LanedMapStore<Long, Product> laned = new LanedMapStore<>("products-test",
+        List.of(products.withDataSource(dataSource), products.withDataSource(dataSource)),
+        key -> key.intValue(), List.of());
+    try {
+      // 未命中进入共用的负缓存，通道上的写入把它清除
+      assertThat(products.load(11L)).isNull();
+      assertThat(products.getMissLoader().getNegativeCacheSize()).isEqualTo(1);
+      laned.store(11L, new Product(11L, "product-11", "test", new BigDecimal("9.99"), 5));
+      assertThat(products.getMissLoader().getNegativeCacheSize()).isZero();
+      assertThat(laned.load(11L).getStock()).isEqualTo(5);
+      assertThat(products.getMissLoader().getBatchQueries()).isEqualTo(2);
+    } finally {
+      laned.shutdown();
+      products.shutdown();
+      new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+  }
+
+  private static List<RecordingStore> lanes(int count) {
+    List<RecordingStore> lanes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      lanes.add(new RecordingStore("lane-" + i));
+    }
+    return lanes;
+  }
+
+  /**
+   * 记录每次调用的方法、键和执行线程，load返回通道名
+   */
+  private static class RecordingStore implements MapStore<Long, String> {
+
+    private final String name;
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final List<Long> keys = new CopyOnWriteArrayList<>();
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+
+    RecordingStore(String name) {
+      this.name = name;
+    }
+
+    private void record(String method, Collection<Long> keys) {
+      calls.add(method + keys.stream().sorted().toList());
+      this.keys.addAll(keys);
+      threads.add(Thread.currentThread().getName());
+      if (failing) {
+        throw new IllegalStateException("lane down");
+      }
+    }
+
+    @Override
+    public void store(Long key, String value) {
+      record("store", List.of(key));
+    }
+
+    @Override
+    public void storeAll(Map<Long, String> map) {
+      record("storeAll", map.keySet());
+    }
+
+    @Override
+    public void delete(Long key) {
+      record("delete", List.of(key));
+    }
+
+    @Override
+    public void deleteAll(Collection<Long> keys) {
+      record("deleteAll", keys);
+    }
+
+    @Override
+    public String load(Long key) {
+      record("load", List.of(key));
+      return name;
+    }
+
+    @Override
+    public Map<Long, String> loadAll(Collection<Long> keys) {
+      record("loadAll", keys);
+      Map<Long, String> result = new HashMap<>();
+      keys.forEach(key -> result.put(key, name));
+      return result;
+    }
+
+    @Override
+    public Iterable<Long> loadAllKeys() {
+      return List.of();
+    }
+  }
+}
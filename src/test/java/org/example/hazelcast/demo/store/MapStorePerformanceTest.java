@@ -0,0 +1,118 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MapStoreConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import org.example.hazelcast.demo.TestMembers;
+import org.example.hazelcast.demo.model.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MapStore性能测试：storeAll吞吐量、loadAll延迟和EAGER初始加载时间
+ *
+ * 默认不随mvn test执行，使用 mvn test -Pperf 运行；
+ * 行数通过 -Dperf.rows=100000,1000000 指定。
+ */
+@Tag("performance")
+class MapStorePerformanceTest {
+
+  private static final int STORE_BATCH = 1_000;
+  private static final int LOAD_BATCH = 50;
+  private static final int LOAD_SAMPLES = 500;
+
+  static Stream<Integer> rowCounts() {
+    return Arrays.stream(System.getProperty("perf.rows", "100000,1000000").split(","))
+        .map(String::trim)
+        .map(Integer::valueOf);
+  }
+
+  @ParameterizedTest(name = "{0} rows")
+  @MethodSource("rowCounts")
+  void productMapStore(int rows) {
+    String url = "jdbc:h2:mem:perf-" + rows + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    ProductMapStore store = new ProductMapStore(dataSource);
+
+    try {
+      // storeAll吞吐量
+      long start = System.nanoTime();
+      Map<Long, Product> batch = new LinkedHashMap<>();
+      for (long id = 1; id <= rows; id++) {
+        batch.put(id, new Product(id, "product-" + id, "category-" + (id % 100), new BigDecimal("19.99"), (int) (id % 1000)));
+        if (batch.size() == STORE_BATCH) {
+          store.storeAll(batch);
+          batch.clear();
+        }
+      }
+      store.storeAll(batch);
+      double storeSeconds = (System.nanoTime() - start) / 1e9;
+      assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class)).isEqualTo(rows);
+      System.out.printf("[%d rows] storeAll: %.1f s, %.0f rows/s%n", rows, storeSeconds, rows / storeSeconds);
+
+      // loadAll延迟，随机键
+      long[] latencies = new long[LOAD_SAMPLES];
+      for (int i = 0; i < LOAD_SAMPLES; i++) {
+        List<Long> keys = new ArrayList<>(LOAD_BATCH);
+        for (int k = 0; k < LOAD_BATCH; k++) {
+          keys.add(ThreadLocalRandom.current().nextLong(1, rows + 1));
+        }
+        long s = System.nanoTime();
+        Map<Long, Product> loaded = store.loadAll(keys);
+        latencies[i] = System.nanoTime() - s;
+        assertThat(loaded).isNotEmpty();
+      }
+      Arrays.sort(latencies);
+      System.out.printf("[%d rows] loadAll(%d keys): p50 %.2f ms, p99 %.2f ms%n", rows, LOAD_BATCH,
+          latencies[LOAD_SAMPLES / 2] / 1e6, latencies[LOAD_SAMPLES * 99 / 100] / 1e6);
+
+      // EAGER初始加载
+      HazelcastInstance member = Hazelcast.newHazelcastInstance(eagerConfig(store));
+      try {
+        start = System.nanoTime();
+        IMap<Long, Product> products = member.getMap("products");
+        int size = products.size();
+        double eagerSeconds = (System.nanoTime() - start) / 1e9;
+        assertThat(size).isEqualTo(rows);
+        System.out.printf("[%d rows] EAGER load: %.1f s, %.0f entries/s%n", rows, eagerSeconds, rows / eagerSeconds);
+      } finally {
+        member.shutdown();
+      }
+    } finally {
+      store.shutdown();
+      jdbcTemplate.execute("SHUTDOWN");
+    }
+  }
+
+  private static Config eagerConfig(ProductMapStore store) {
+    Config config = TestMembers.isolatedConfig("mapstore-perf");
+    config.addMapConfig(new MapConfig("products")
+        .setBackupCount(0)
+        .setMapStoreConfig(new MapStoreConfig()
+            .setEnabled(true)
+            .setImplementation(store)
+            .setInitialLoadMode(MapStoreConfig.InitialLoadMode.EAGER)));
+    return config;
+  }
+}
@@ -0,0 +1,195 @@
+package org.example.hazelcast.demo.store;
+
+import com.hazelcast.map.MapStore;
+import org.example.hazelcast.demo.model.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 预写日志的重放、压缩和写入延迟测试
+ */
+class WriteAheadLogTest {
+
+  private static final int SEGMENT_BYTES = 64 * 1024;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void pendingEntriesAreReplayedAfterRestart() throws Exception {
+    RecordingMapStore offline = new RecordingMapStore(true);
+    BoundedWriteBehindStore<Long, Product> first = newStore(offline, new WriteAheadLog<>(tempDir, "products", SEGMENT_BYTES));
+    for (long id = 1; id <= 500; id++) {
+      first.store(id, product(id, 1));
+    }
+    first.store(7L, product(7L, 2));
+    first.delete(9L);
+
+    // 模拟成员崩溃：数据库一直不可用，第一个实例从未写库成功，直接在同一目录上重新打开
+    RecordingMapStore online = new RecordingMapStore(false);
+    BoundedWriteBehindStore<Long, Product> second = newStore(online, new WriteAheadLog<>(tempDir, "products", SEGMENT_BYTES));
+    awaitDrained(second);
+
+    assertThat(online.stored).hasSize(499);
+    assertThat(online.stored.get(7L).getStock()).isEqualTo(2);
+    assertThat(online.deleted).containsExactly(9L);
+
+    second.shutdown();
+    offline.failing = false;
+    first.shutdown();
+  }
+
+  @Test
+  void segmentsAreCompactedAfterFlush() throws Exception {
+    WriteAheadLog<Long, Product> wal = new WriteAheadLog<>(tempDir, "products", SEGMENT_BYTES);
+    BoundedWriteBehindStore<Long, Product> store = newStore(new RecordingMapStore(false), wal);
+    for (long id = 1; id <= 2_000; id++) {
+      store.store(id, product(id, 1));
+    }
+    assertThat(wal.getAppendCount()).isEqualTo(2_000);
+    awaitDrained(store);
+    assertThat(wal.getSegmentCount()).isEqualTo(1);
+    store.shutdown();
+
+    // 全部确认后重启，不应再有需要重放的记录
+    WriteAheadLog<Long, Product> reopened = new WriteAheadLog<>(tempDir, "products", SEGMENT_BYTES);
+    assertThat(reopened.takeRecovered()).isEmpty();
+    reopened.close();
+  }
+
+  /**
+   * 对比启用预写日志前后的store延迟（分区线程上的开销）和调用方等待刷盘的延迟，输出吞吐量和组提交效果
+   */
+  @Test
+  @Tag("performance")
+  void measurePutLatencyOverhead() throws Exception {
+    for (int threads : new int[] { 1, 8 }) {
+      BoundedWriteBehindStore<Long, Product> plain = newStore(new RecordingMapStore(false), null);
+      report("without WAL", threads, plain);
+      plain.shutdown();
+
+      WriteAheadLog<Long, Product> wal = new WriteAheadLog<>(tempDir.resolve("bench-" + threads), "products", 16 * 1024 * 1024);
+      BoundedWriteBehindStore<Long, Product> logged = newStore(new RecordingMapStore(false), wal);
+      report("with WAL   ", threads, logged);
+      System.out.printf("  appends=%d forces=%d (%.1f entries per force)%n",
+          wal.getAppendCount(), wal.getForceCount(), (double) wal.getAppendCount() / Math.max(1, wal.getForceCount()));
+      logged.shutdown();
+    }
+  }
+
+  private void report(String label, int threads, BoundedWriteBehindStore<Long, Product> store) throws Exception {
+    int perThread = 2_000;
+    LongAdder storeNanos = new LongAdder();
+    LongAdder durableNanos = new LongAdder();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      long base = (long) t * perThread;
+      pool.submit(() -> {
+        for (long id = base; id < base + perThread; id++) {
+          long s = System.nanoTime();
+          store.store(id, product(id, 1));
+          long stored = System.nanoTime();
+          store.awaitDurable();
+          storeNanos.add(stored - s);
+          durableNanos.add(System.nanoTime() - stored);
+        }
+      });
+    }
+    pool.shutdown();
+    assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+    long elapsed = System.nanoTime() - start;
+    int total = threads * perThread;
+    System.out.printf("%s threads=%d: %.0f puts/s, avg store %.1f µs, avg durable wait %.1f µs%n",
+        label, threads, total / (elapsed / 1e9), storeNanos.sum() / 1e3 / total, durableNanos.sum() / 1e3 / total);
+  }
+
+  private BoundedWriteBehindStore<Long, Product> newStore(MapStore<Long, Product> delegate,
+      WriteAheadLog<Long, Product> wal) {
+    return new BoundedWriteBehindStore<>("test", delegate, 100_000, WriteBehindOverflowPolicy.BLOCK,
+        10_000, 200, 10, tempDir.resolve("unused.spill"), wal);
+  }
+
+  private static void awaitDrained(BoundedWriteBehindStore<?, ?> store) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (store.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(store.getQueueDepth()).isZero();
+    // 等待flushBatch之后的压缩完成
+    Thread.sleep(50);
+  }
+
+  private static Product product(long id, int stock) {
+    return new Product(id, "product-" + id, "test", new BigDecimal("9.99"), stock);
+  }
+
+  /**
+   * 记录写入内容的内存MapStore，failing为true时模拟数据库不可用
+   */
+  private static class RecordingMapStore implements MapStore<Long, Product> {
+
+    final Map<Long, Product> stored = new ConcurrentHashMap<>();
+    final Collection<Long> deleted = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    volatile boolean failing;
+
+    RecordingMapStore(boolean failing) {
+      this.failing = failing;
+    }
+
+    @Override
+    public void store(Long key, Product value) {
+      storeAll(Map.of(key, value));
+    }
+
+    @Override
+    public void storeAll(Map<Long, Product> map) {
+      if (failing) {
+        throw new IllegalStateException("database unavailable");
+      }
+      stored.putAll(map);
+    }
+
+    @Override
+    public void delete(Long key) {
+      deleteAll(Collections.singleton(key));
+    }
+
+    @Override
+    public void deleteAll(Collection<Long> keys) {
+      if (failing) {
+        throw new IllegalStateException("database unavailable");
+      }
+      deleted.addAll(keys);
+    }
+
+    @Override
+    public Product load(Long key) {
+      return stored.get(key);
+    }
+
+    @Override
+    public Map<Long, Product> loadAll(Collection<Long> keys) {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public Iterable<Long> loadAllKeys() {
+      return Collections.emptyList();
+    }
+  }
+}